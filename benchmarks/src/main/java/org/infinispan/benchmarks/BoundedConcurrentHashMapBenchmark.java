@@ -0,0 +1,91 @@
+package org.infinispan.benchmarks;
+
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap;
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap.Eviction;
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap.EvictionListener;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the LRU and LIRS variants of the {@link BoundedConcurrentHashMap}, evicting per segment or across segments,
+ * under a skewed access pattern, where 80% of the accesses go to 20% of the keys, so that hits, misses and evictions
+ * all take place.
+ *
+ * @since 5.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(2)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Threads(4)
+public class BoundedConcurrentHashMapBenchmark {
+
+   private static final int CAPACITY = 10000;
+   private static final int KEYS = 4 * CAPACITY;
+   private static final int HOT_KEYS = KEYS / 5;
+
+   @Param({"LRU", "LIRS"})
+   public Eviction eviction;
+
+   @Param({"false", "true"})
+   public boolean acrossSegments;
+
+   private BoundedConcurrentHashMap<Integer, Integer> map;
+   private Integer[] keys;
+
+   @Setup
+   public void setUp() {
+      map = new BoundedConcurrentHashMap<Integer, Integer>(CAPACITY, 32, eviction, new EvictionListener<Integer, Integer>() {
+         public void onEntryEviction(Map<Integer, Integer> evicted) {
+         }
+      }, null, -1, acrossSegments);
+      keys = new Integer[KEYS];
+      for (int i = 0; i < KEYS; i++) keys[i] = i;
+      Random random = new Random(42);
+      for (int i = 0; i < CAPACITY; i++) map.put(keys[random.nextInt(KEYS)], i);
+   }
+
+   @State(Scope.Thread)
+   public static class KeySequence {
+      private final Random random = new Random(17);
+
+      int next() {
+         return random.nextInt(5) < 4 ? random.nextInt(HOT_KEYS) : HOT_KEYS + random.nextInt(KEYS - HOT_KEYS);
+      }
+   }
+
+   /**
+    * Reads a key and stores it on a miss, like a cache in front of a slower store would.
+    */
+   @Benchmark
+   public Integer getOrPut(KeySequence sequence) {
+      Integer key = keys[sequence.next()];
+      Integer value = map.get(key);
+      if (value == null) {
+         map.put(key, key);
+         value = key;
+      }
+      return value;
+   }
+
+   @Benchmark
+   public Integer get(KeySequence sequence) {
+      return map.get(keys[sequence.next()]);
+   }
+}
@@ -0,0 +1,71 @@
+package org.infinispan.benchmarks;
+
+import org.infinispan.config.Configuration;
+import org.infinispan.distribution.ch.ConsistentHash;
+import org.infinispan.distribution.ch.ConsistentHashHelper;
+import org.infinispan.distribution.ch.DefaultConsistentHash;
+import org.infinispan.distribution.ch.TopologyInfo;
+import org.infinispan.remoting.transport.Address;
+import org.infinispan.remoting.transport.jgroups.JGroupsAddress;
+import org.jgroups.util.UUID;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the lookup of the owners of a key in a {@link DefaultConsistentHash}, depending on the size of the
+ * cluster.
+ *
+ * @since 5.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(2)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class ConsistentHashBenchmark {
+
+   private static final int KEYS = 1024;
+
+   @Param({"4", "16", "64", "256"})
+   public int nodes;
+
+   @Param({"2"})
+   public int numOwners;
+
+   private ConsistentHash consistentHash;
+   private String[] keys;
+   private int next;
+
+   @Setup
+   public void setUp() {
+      Random random = new Random(42);
+      List<Address> addresses = new ArrayList<Address>(nodes);
+      for (int i = 0; i < nodes; i++) addresses.add(new JGroupsAddress(new UUID(random.nextLong(), random.nextLong())));
+      Configuration c = new Configuration();
+      c.setConsistentHashClass(DefaultConsistentHash.class.getName());
+      consistentHash = ConsistentHashHelper.createConsistentHash(c, addresses, new TopologyInfo());
+      keys = new String[KEYS];
+      for (int i = 0; i < KEYS; i++) keys[i] = "key" + random.nextLong();
+   }
+
+   @Benchmark
+   public List<Address> locate() {
+      next = (next + 1) & (KEYS - 1);
+      return consistentHash.locate(keys[next], numOwners);
+   }
+}
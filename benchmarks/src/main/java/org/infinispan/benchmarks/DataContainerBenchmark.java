@@ -0,0 +1,104 @@
+package org.infinispan.benchmarks;
+
+import org.infinispan.container.DataContainer;
+import org.infinispan.container.DefaultDataContainer;
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.eviction.EvictionManager;
+import org.infinispan.eviction.EvictionStrategy;
+import org.infinispan.eviction.EvictionThreadPolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reads and writes of the {@link DefaultDataContainer}, for every eviction strategy, when the keys accessed
+ * don't all fit in the container.
+ *
+ * @since 5.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(2)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Threads(4)
+public class DataContainerBenchmark {
+
+   private static final int MAX_ENTRIES = 10000;
+   private static final int KEYS = 2 * MAX_ENTRIES;
+
+   @Param({"NONE", "UNORDERED", "FIFO", "LRU", "LIRS", "TINY_LFU"})
+   public EvictionStrategy strategy;
+
+   private DataContainer container;
+   private String[] keys;
+
+   @Setup
+   public void setUp() {
+      if (strategy == EvictionStrategy.NONE) {
+         container = DefaultDataContainer.unBoundedDataContainer(32);
+      } else {
+         DefaultDataContainer bounded = (DefaultDataContainer) DefaultDataContainer.boundedDataContainer(32, MAX_ENTRIES,
+               strategy, EvictionThreadPolicy.PIGGYBACK);
+         bounded.initialize(new NoOpEvictionManager());
+         container = bounded;
+      }
+      keys = new String[KEYS];
+      for (int i = 0; i < KEYS; i++) keys[i] = "key" + i;
+      Random random = new Random(42);
+      for (int i = 0; i < KEYS; i++) container.put(keys[random.nextInt(KEYS)], "value", -1, -1);
+   }
+
+   @State(Scope.Thread)
+   public static class KeySequence {
+      private final Random random = new Random(17);
+
+      int next() {
+         return random.nextInt(KEYS);
+      }
+   }
+
+   @Benchmark
+   public InternalCacheEntry get(KeySequence sequence) {
+      return container.get(keys[sequence.next()]);
+   }
+
+   @Benchmark
+   public void put(KeySequence sequence) {
+      container.put(keys[sequence.next()], "value", -1, -1);
+   }
+
+   private static class NoOpEvictionManager implements EvictionManager {
+      public void processEviction() {
+      }
+
+      public boolean isEnabled() {
+         return true;
+      }
+
+      public void onEntryEviction(Map<Object, InternalCacheEntry> evicted) {
+      }
+
+      public long getCurrentWeight() {
+         return -1;
+      }
+
+      public long getMaxWeight() {
+         return -1;
+      }
+   }
+}
@@ -0,0 +1,68 @@
+package org.infinispan.benchmarks;
+
+import org.infinispan.commands.read.GetKeyValueCommand;
+import org.infinispan.context.Flag;
+import org.infinispan.context.InvocationContext;
+import org.infinispan.context.impl.NonTxInvocationContext;
+import org.infinispan.interceptors.InterceptorChain;
+import org.infinispan.interceptors.base.CommandInterceptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of walking a command through an {@link InterceptorChain}, depending on its length, with
+ * interceptors which do nothing but pass the command on.
+ *
+ * @since 5.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(2)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class InterceptorChainBenchmark {
+
+   @Param({"1", "5", "10", "20"})
+   public int length;
+
+   private InterceptorChain chain;
+   private InvocationContext ctx;
+   private GetKeyValueCommand command;
+
+   @Setup
+   public void setUp() {
+      chain = new InterceptorChain(new PassThroughInterceptor());
+      for (int i = 1; i < length; i++) chain.appendIntereceptor(new PassThroughInterceptor());
+      chain.appendIntereceptor(new TerminalInterceptor());
+      ctx = new NonTxInvocationContext();
+      command = new GetKeyValueCommand("key", null, Collections.<Flag>emptySet());
+   }
+
+   @Benchmark
+   public Object invoke() {
+      return chain.invoke(ctx, command);
+   }
+
+   private static class PassThroughInterceptor extends CommandInterceptor {
+   }
+
+   private static class TerminalInterceptor extends CommandInterceptor {
+      @Override
+      public Object visitGetKeyValueCommand(InvocationContext ctx, GetKeyValueCommand command) throws Throwable {
+         return command.getKey();
+      }
+   }
+}
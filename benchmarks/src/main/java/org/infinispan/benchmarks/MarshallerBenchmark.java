@@ -0,0 +1,93 @@
+package org.infinispan.benchmarks;
+
+import org.infinispan.commands.RemoteCommandsFactory;
+import org.infinispan.config.GlobalConfiguration;
+import org.infinispan.container.entries.InternalEntryFactory;
+import org.infinispan.marshall.VersionAwareMarshaller;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures marshalling and unmarshalling with the {@link VersionAwareMarshaller} of payloads typical of cache
+ * contents.
+ *
+ * @since 5.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(2)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class MarshallerBenchmark {
+
+   public enum Payload {
+      STRING, BYTES, MAP, CACHE_ENTRY
+   }
+
+   @Param({"STRING", "BYTES", "MAP", "CACHE_ENTRY"})
+   public Payload payload;
+
+   private VersionAwareMarshaller marshaller;
+   private Object object;
+   private byte[] bytes;
+
+   @Setup
+   public void setUp() throws Exception {
+      marshaller = new VersionAwareMarshaller();
+      marshaller.inject(Thread.currentThread().getContextClassLoader(), new RemoteCommandsFactory(),
+                        new GlobalConfiguration());
+      marshaller.start();
+
+      Random random = new Random(42);
+      switch (payload) {
+         case STRING:
+            object = "value" + random.nextLong();
+            break;
+         case BYTES:
+            byte[] value = new byte[1024];
+            random.nextBytes(value);
+            object = value;
+            break;
+         case MAP:
+            Map<String, Long> map = new HashMap<String, Long>();
+            for (int i = 0; i < 100; i++) map.put("key" + i, random.nextLong());
+            object = map;
+            break;
+         case CACHE_ENTRY:
+            object = InternalEntryFactory.create("key" + random.nextLong(), "value" + random.nextLong(), 60000, 30000);
+            break;
+      }
+      bytes = marshaller.objectToByteBuffer(object);
+   }
+
+   @TearDown
+   public void tearDown() {
+      marshaller.stop();
+   }
+
+   @Benchmark
+   public byte[] marshall() throws Exception {
+      return marshaller.objectToByteBuffer(object);
+   }
+
+   @Benchmark
+   public Object unmarshall() throws Exception {
+      return marshaller.objectFromByteBuffer(bytes);
+   }
+}
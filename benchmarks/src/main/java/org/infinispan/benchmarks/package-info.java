@@ -0,0 +1,16 @@
+/**
+ * JMH benchmarks of the hot paths of Infinispan core: the data container, the bounded concurrent hash map backing it,
+ * the interceptor chain, the marshaller and the consistent hash.
+ * <p/>
+ * Every benchmark fixes its forks, warmup and measurement iterations as well as the seeds of its random keys, so that
+ * results of different releases can be compared. Build the module and run all benchmarks with:
+ * <pre>
+ *    mvn -pl benchmarks -am package -DskipTests
+ *    java -jar benchmarks/target/benchmarks.jar -rf json
+ * </pre>
+ * A regular expression can be given to run some benchmarks only, e.g. {@code java -jar benchmarks/target/benchmarks.jar
+ * DataContainer}.
+ *
+ * @since 5.0
+ */
+package org.infinispan.benchmarks;
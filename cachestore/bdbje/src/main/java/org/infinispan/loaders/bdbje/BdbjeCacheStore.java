@@ -1,5 +1,6 @@
 package org.infinispan.loaders.bdbje;
 
+import com.sleepycat.bind.EntryBinding;
 import com.sleepycat.bind.serial.StoredClassCatalog;
 import com.sleepycat.collections.CurrentTransaction;
 import com.sleepycat.collections.StoredMap;
@@ -75,6 +76,8 @@ public class BdbjeCacheStore extends AbstractCacheStore {
    private Database cacheDb;
    private Database expiryDb;
    private StoredMap<Object, InternalCacheEntry> cacheMap;
+   private EntryBinding<Object> cacheKeyBinding;
+   private EntryBinding<InternalCacheEntry> cacheValueBinding;
    private StoredSortedMap<Long, Object> expiryMap;
 
 
@@ -152,6 +155,8 @@ public class BdbjeCacheStore extends AbstractCacheStore {
          expiryDb = factory.createDatabase(env, cfg.getExpiryDbName());
          catalog = factory.createStoredClassCatalog(catalogDb);
          cacheMap = factory.createStoredMapViewOfDatabase(cacheDb, catalog, marshaller);
+         cacheKeyBinding = factory.createStoredEntryKeyBinding(catalog);
+         cacheValueBinding = factory.createStoredEntryValueBinding(marshaller);
          expiryMap = factory.createStoredSortedMapForKeyExpiry(expiryDb, catalog, marshaller);
       } catch (DatabaseException e) {
          throw convertToCacheLoaderException("could not open sleepycat je resource", e);
@@ -193,6 +198,8 @@ public class BdbjeCacheStore extends AbstractCacheStore {
 
    private void closeSleepyCatResources() throws CacheLoaderException {
       cacheMap = null;
+      cacheKeyBinding = null;
+      cacheValueBinding = null;
       expiryMap = null;
       closeDatabases();
       closeEnvironment();
@@ -389,6 +396,40 @@ public class BdbjeCacheStore extends AbstractCacheStore {
       }
    }
 
+   /**
+    * {@inheritDoc} This implementation looks all the keys up through a single {@link Cursor}, rather than opening one
+    * per key as {@link StoredMap#get(Object)} does.  Expired entries are not returned.
+    */
+   @Override
+   public Set<InternalCacheEntry> load(Set<Object> keys) throws CacheLoaderException {
+      Set<InternalCacheEntry> s = new HashSet<InternalCacheEntry>(keys.size());
+      if (keys.isEmpty()) return s;
+      Cursor cursor = null;
+      try {
+         cursor = cacheDb.openCursor(currentTransaction.getTransaction(), null);
+         DatabaseEntry keyEntry = new DatabaseEntry();
+         DatabaseEntry dataEntry = new DatabaseEntry();
+         for (Object key : keys) {
+            cacheKeyBinding.objectToEntry(key, keyEntry);
+            if (cursor.getSearchKey(keyEntry, dataEntry, null) == OperationStatus.SUCCESS) {
+               InternalCacheEntry entry = cacheValueBinding.entryToObject(dataEntry);
+               if (!entry.isExpired()) s.add(entry);
+            }
+         }
+         return s;
+      } catch (Exception caught) {
+         throw convertToCacheLoaderException("error loading " + keys.size() + " keys", caught);
+      } finally {
+         if (cursor != null) {
+            try {
+               cursor.close();
+            } catch (DatabaseException e) {
+               log.warn("Unable to close cursor", e);
+            }
+         }
+      }
+   }
+
    /**
     * {@inheritDoc} This implementation delegates to {@link StoredMap#put(Object, Object)}
     */
@@ -85,6 +85,20 @@ public class BdbjeResourceFactory {
         return db;
     }
 
+    /**
+     * @return the binding used to store the keys of the cache entries
+     */
+    public EntryBinding<Object> createStoredEntryKeyBinding(StoredClassCatalog classCatalog) {
+        return new SerialBinding<Object>(classCatalog, Object.class);
+    }
+
+    /**
+     * @return the binding used to store the cache entries
+     */
+    public EntryBinding<InternalCacheEntry> createStoredEntryValueBinding(StreamingMarshaller m) {
+        return new InternalCacheEntryBinding(m);
+    }
+
     /**
      * create a {@link com.sleepycat.collections.StoredMap} persisted by the <code>database</code>
      *
@@ -95,9 +109,8 @@ public class BdbjeResourceFactory {
      *          if the StoredMap cannot be opened.
      */
     public StoredMap<Object, InternalCacheEntry> createStoredMapViewOfDatabase(Database database, StoredClassCatalog classCatalog, StreamingMarshaller m) throws DatabaseException {
-        EntryBinding<Object> storedEntryKeyBinding =
-                new SerialBinding<Object>(classCatalog, Object.class);
-        EntryBinding<InternalCacheEntry> storedEntryValueBinding = new InternalCacheEntryBinding(m);
+        EntryBinding<Object> storedEntryKeyBinding = createStoredEntryKeyBinding(classCatalog);
+        EntryBinding<InternalCacheEntry> storedEntryValueBinding = createStoredEntryValueBinding(m);
         try {
             return new StoredMap<Object, InternalCacheEntry>(database,
                     storedEntryKeyBinding, storedEntryValueBinding, true);
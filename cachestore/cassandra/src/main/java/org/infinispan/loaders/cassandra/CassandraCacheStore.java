@@ -138,6 +138,52 @@ public class CassandraCacheStore extends AbstractCacheStore {
 		}
 	}
 
+	/**
+	 * Reads the entries of the keys through one multiget_slice call for every
+	 * 100 keys, rather than one get call per key.
+	 */
+	@Override
+	public Set<InternalCacheEntry> load(Set<Object> keys) throws CacheLoaderException {
+		Set<InternalCacheEntry> s = new HashSet<InternalCacheEntry>(keys.size());
+		if (keys.isEmpty())
+			return s;
+		Map<String, Object> keysByHash = new HashMap<String, Object>(keys.size());
+		for (Object key : keys)
+			keysByHash.put(hashKey(key), key);
+		List<Object> expired = new ArrayList<Object>();
+		Cassandra.Client cassandraClient = null;
+		try {
+			cassandraClient = dataSource.getConnection();
+			SlicePredicate slicePredicate = new SlicePredicate();
+			slicePredicate.setColumn_names(Arrays.asList(entryColumnPath.getColumn()));
+			List<String> hashKeys = new ArrayList<String>(keysByHash.keySet());
+			for (int from = 0; from < hashKeys.size(); from += SLICE_SIZE) {
+				List<String> slice = hashKeys.subList(from, Math.min(from + SLICE_SIZE, hashKeys.size()));
+				Map<String, List<ColumnOrSuperColumn>> rows = cassandraClient.multiget_slice(config.keySpace, slice, entryColumnParent, slicePredicate, readConsistencyLevel);
+				for (Map.Entry<String, List<ColumnOrSuperColumn>> row : rows.entrySet()) {
+					List<ColumnOrSuperColumn> columns = row.getValue();
+					if (columns == null || columns.isEmpty())
+						continue;
+					Object key = keysByHash.get(row.getKey());
+					InternalCacheEntry ice = unmarshall(columns.get(0).getColumn().getValue(), key);
+					if (ice == null)
+						continue;
+					if (ice.isExpired())
+						expired.add(key);
+					else
+						s.add(ice);
+				}
+			}
+		} catch (Exception e) {
+			throw new CacheLoaderException(e);
+		} finally {
+			dataSource.releaseConnection(cassandraClient);
+		}
+		for (Object key : expired)
+			remove(key);
+		return s;
+	}
+
 	@Override
 	public Set<InternalCacheEntry> loadAll() throws CacheLoaderException {
 		return load(Integer.MAX_VALUE);
@@ -71,6 +71,8 @@ public class TableManipulation implements Cloneable {
    /* Cache the sql for managing data */
    private String insertRowSql;
    private String updateRowSql;
+   private String upsertRowSql;
+   private boolean upsertRowSqlResolved;
    private String selectRowSql;
    private String deleteRowSql;
    private String loadAllRowsSql;
@@ -290,6 +292,65 @@ public class TableManipulation implements Cloneable {
       return updateRowSql;
    }
 
+   /**
+    * Returns a statement inserting a row, or updating it if a row with the same id exists already, in a single round
+    * trip. Parameters are the same as for {@link #getInsertRowSql()} and {@link #getUpdateRowSql()}: data, timestamp
+    * and id.
+    *
+    * @return the statement for the database dialect in use, or null if the dialect does not support one, in which
+    *         case the row needs to be looked up first and then either inserted or updated
+    */
+   public String getUpsertRowSql() {
+      if (!upsertRowSqlResolved) {
+         DatabaseType type;
+         try {
+            type = getDatabaseType();
+         } catch (ConfigurationException e) {
+            log.debug("Unable to detect the database type, falling back to separate inserts and updates", e);
+            type = null;
+         }
+         if (type != null) {
+            upsertRowSql = buildUpsertRowSql(type);
+         }
+         if (log.isTraceEnabled()) {
+            log.trace("Using upsert statement '" + upsertRowSql + "' for database type " + type);
+         }
+         upsertRowSqlResolved = true;
+      }
+      return upsertRowSql;
+   }
+
+   private String buildUpsertRowSql(DatabaseType type) {
+      String table = getTableName();
+      switch (type) {
+         case MYSQL:
+            return String.format("INSERT INTO %1$s (%2$s, %3$s, %4$s) VALUES(?,?,?) ON DUPLICATE KEY UPDATE %2$s = VALUES(%2$s), %3$s = VALUES(%3$s)",
+                                 table, dataColumnName, timestampColumnName, idColumnName);
+         case POSTGRES:
+            return String.format("INSERT INTO %1$s (%2$s, %3$s, %4$s) VALUES(?,?,?) ON CONFLICT (%4$s) DO UPDATE SET %2$s = EXCLUDED.%2$s, %3$s = EXCLUDED.%3$s",
+                                 table, dataColumnName, timestampColumnName, idColumnName);
+         case H2:
+            return String.format("MERGE INTO %s (%s, %s, %s) KEY(%s) VALUES(?,?,?)",
+                                 table, dataColumnName, timestampColumnName, idColumnName, idColumnName);
+         case SQLITE:
+            return String.format("INSERT OR REPLACE INTO %s (%s, %s, %s) VALUES(?,?,?)",
+                                 table, dataColumnName, timestampColumnName, idColumnName);
+         case ORACLE:
+            return String.format("MERGE INTO %1$s t USING (SELECT ? d, ? ts, ? id FROM dual) s ON (t.%4$s = s.id) " +
+                                       "WHEN MATCHED THEN UPDATE SET t.%2$s = s.d, t.%3$s = s.ts " +
+                                       "WHEN NOT MATCHED THEN INSERT (%2$s, %3$s, %4$s) VALUES (s.d, s.ts, s.id)",
+                                 table, dataColumnName, timestampColumnName, idColumnName);
+         case SQL_SERVER:
+            return String.format("MERGE %1$s WITH (HOLDLOCK) AS t USING (VALUES(?,?,?)) AS s (d, ts, id) ON (t.%4$s = s.id) " +
+                                       "WHEN MATCHED THEN UPDATE SET t.%2$s = s.d, t.%3$s = s.ts " +
+                                       "WHEN NOT MATCHED THEN INSERT (%2$s, %3$s, %4$s) VALUES (s.d, s.ts, s.id);",
+                                 table, dataColumnName, timestampColumnName, idColumnName);
+         default:
+            // the remaining dialects either lack a single statement upsert, or need typed parameters in it
+            return null;
+      }
+   }
+
    public String getSelectRowSql() {
       if (selectRowSql == null) {
          selectRowSql = "SELECT " + idColumnName + ", " + dataColumnName + " FROM " + getTableName() + " WHERE " + idColumnName + " = ?";
@@ -297,6 +358,20 @@ public class TableManipulation implements Cloneable {
       return selectRowSql;
    }
 
+   /**
+    * @param count the number of ids to select
+    * @return a statement selecting the id and data of the rows having any of <tt>count</tt> ids
+    */
+   public String getSelectMultipleRowsSql(int count) {
+      StringBuilder sql = new StringBuilder("SELECT ").append(idColumnName).append(", ").append(dataColumnName)
+            .append(" FROM ").append(getTableName()).append(" WHERE ").append(idColumnName).append(" IN (");
+      for (int i = 0; i < count; i++) {
+         if (i > 0) sql.append(',');
+         sql.append('?');
+      }
+      return sql.append(')').toString();
+   }
+
    public String getDeleteRowSql() {
       if (deleteRowSql == null) {
          deleteRowSql = "DELETE FROM " + getTableName() + " WHERE " + idColumnName + " = ?";
@@ -483,19 +558,19 @@ public class TableManipulation implements Cloneable {
       if (databaseType == null) {
          // need to guess from the database type!
          try {
-            String dbProduct = connectionFactory.getConnection().getMetaData().getDatabaseProductName();
+            String dbProduct = readDatabaseMetaData(false);
             databaseType = guessDatabaseType(dbProduct);
          } catch (Exception e) {
             log.debug("Unable to guess database type from JDBC metadata.", e);
          }
          if (databaseType == null) {
             log.info("Unable to detect database type using connection metadata.  Attempting to guess on driver name.");
-         }
-         try {
-            String dbProduct = connectionFactory.getConnection().getMetaData().getDriverName();
-            databaseType = guessDatabaseType(dbProduct);
-         } catch (Exception e) {
-            log.debug("Unable to guess database type from JDBC driver name.", e);
+            try {
+               String dbProduct = readDatabaseMetaData(true);
+               databaseType = guessDatabaseType(dbProduct);
+            } catch (Exception e) {
+               log.debug("Unable to guess database type from JDBC driver name.", e);
+            }
          }
 
          if (databaseType == null) {
@@ -507,6 +582,16 @@ public class TableManipulation implements Cloneable {
       return databaseType;
    }
 
+   private String readDatabaseMetaData(boolean driverName) throws CacheLoaderException, SQLException {
+      Connection connection = connectionFactory.getConnection();
+      try {
+         DatabaseMetaData metaData = connection.getMetaData();
+         return driverName ? metaData.getDriverName() : metaData.getDatabaseProductName();
+      } finally {
+         connectionFactory.releaseConnection(connection);
+      }
+   }
+
    private DatabaseType guessDatabaseType(String name) {
       DatabaseType type = null;
       if (name != null) {
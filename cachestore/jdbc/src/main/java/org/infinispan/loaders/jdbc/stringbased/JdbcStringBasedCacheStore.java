@@ -36,6 +36,9 @@ import org.infinispan.loaders.jdbc.connectionfactory.ConnectionFactory;
 import org.infinispan.loaders.keymappers.Key2StringMapper;
 import org.infinispan.loaders.keymappers.TwoWayKey2StringMapper;
 import org.infinispan.loaders.keymappers.UnsupportedKeyTypeException;
+import org.infinispan.loaders.modifications.Modification;
+import org.infinispan.loaders.modifications.Remove;
+import org.infinispan.loaders.modifications.Store;
 import org.infinispan.marshall.StreamingMarshaller;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
@@ -48,6 +51,12 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -187,12 +196,14 @@ public class JdbcStringBasedCacheStore extends LockSupportCacheStore {
 
    @Override
    public void storeLockSafe(InternalCacheEntry ed, String lockingKey) throws CacheLoaderException {
-      InternalCacheEntry existingOne = readStoredEntry(ed, lockingKey);
-      String sql;
-      if (existingOne == null) {
-         sql = tableManipulation.getInsertRowSql();
-      } else {
-         sql = tableManipulation.getUpdateRowSql();
+      String sql = tableManipulation.getUpsertRowSql();
+      if (sql == null) {
+         InternalCacheEntry existingOne = readStoredEntry(ed, lockingKey);
+         if (existingOne == null) {
+            sql = tableManipulation.getInsertRowSql();
+         } else {
+            sql = tableManipulation.getUpdateRowSql();
+         }
       }
       if (log.isTraceEnabled())
          log.trace("Running sql '" + sql + "' on " + ed + ". Key string is '" + lockingKey + "'");
@@ -239,6 +250,93 @@ public class JdbcStringBasedCacheStore extends LockSupportCacheStore {
       }
    }
 
+   /**
+    * When the database supports upserts, stores and removes are sent as JDBC batches over a single connection, rather
+    * than one statement and one connection per modification. Only the last modification of each key is applied, as
+    * the intermediate ones would be overwritten anyway.
+    */
+   @Override
+   protected void applyModifications(List<? extends Modification> mods) throws CacheLoaderException {
+      String upsertSql = tableManipulation.getUpsertRowSql();
+      if (upsertSql == null || mods.size() < 2) {
+         super.applyModifications(mods);
+         return;
+      }
+      Map<String, Modification> pending = new LinkedHashMap<String, Modification>();
+      for (Modification m : mods) {
+         switch (m.getType()) {
+            case STORE:
+               String storeKey = getLockFromKey(((Store) m).getStoredEntry().getKey());
+               pending.remove(storeKey);
+               pending.put(storeKey, m);
+               break;
+            case REMOVE:
+               String removeKey = getLockFromKey(((Remove) m).getKey());
+               pending.remove(removeKey);
+               pending.put(removeKey, m);
+               break;
+            case CLEAR:
+               // anything before the clear is cleared by it
+               pending.clear();
+               clear();
+               break;
+            default:
+               throw new IllegalArgumentException("Unknown modification type " + m.getType());
+         }
+      }
+      if (!pending.isEmpty()) applyBatched(pending, upsertSql);
+   }
+
+   private void applyBatched(Map<String, Modification> modifications, String upsertSql) throws CacheLoaderException {
+      // shared, so that batches only exclude the aggregate operations and the writes of single keys
+      if (!acquireGlobalLock(false)) {
+         throw new CacheLoaderException("Unable to acquire the global lock in order to apply " + modifications.size() + " modifications");
+      }
+      Connection connection = null;
+      PreparedStatement upsert = null;
+      PreparedStatement delete = null;
+      int upserts = 0;
+      int deletes = 0;
+      int batchSize = tableManipulation.getBatchSize();
+      try {
+         connection = connectionFactory.getConnection();
+         for (Map.Entry<String, Modification> e : modifications.entrySet()) {
+            String keyStr = e.getKey();
+            Modification m = e.getValue();
+            InternalCacheEntry entry = m.getType() == Modification.Type.STORE ? ((Store) m).getStoredEntry() : null;
+            if (entry != null && !entry.isExpired()) {
+               if (upsert == null) upsert = connection.prepareStatement(upsertSql);
+               ByteBuffer byteBuffer = JdbcUtil.marshall(getMarshaller(), entry.toInternalCacheValue());
+               upsert.setBinaryStream(1, byteBuffer.getStream(), byteBuffer.getLength());
+               upsert.setLong(2, entry.getExpiryTime());
+               upsert.setString(3, keyStr);
+               upsert.addBatch();
+               if (++upserts % batchSize == 0) upsert.executeBatch();
+            } else {
+               // an expired entry being stored removes any previous one
+               if (delete == null) delete = connection.prepareStatement(tableManipulation.getDeleteRowSql());
+               delete.setString(1, keyStr);
+               delete.addBatch();
+               if (++deletes % batchSize == 0) delete.executeBatch();
+            }
+         }
+         if (upserts % batchSize != 0) upsert.executeBatch();
+         if (deletes % batchSize != 0) delete.executeBatch();
+         if (log.isTraceEnabled())
+            log.trace("Applied " + upserts + " stores and " + deletes + " removes in batches of up to " + batchSize);
+      } catch (SQLException ex) {
+         logAndThrow(ex, "Error while applying " + modifications.size() + " modifications to database");
+      } catch (InterruptedException e) {
+         if (log.isTraceEnabled()) log.trace("Interrupted while marshalling to store");
+         Thread.currentThread().interrupt();
+      } finally {
+         JdbcUtil.safeClose(upsert);
+         JdbcUtil.safeClose(delete);
+         connectionFactory.releaseConnection(connection);
+         releaseGlobalLock(false);
+      }
+   }
+
    @Override
    public void fromStreamLockSafe(ObjectInput objectInput) throws CacheLoaderException {
       dmHelper.fromStreamSupport(objectInput);
@@ -302,6 +400,61 @@ public class JdbcStringBasedCacheStore extends LockSupportCacheStore {
       return storedEntry;
    }
 
+   /**
+    * Selects the rows of up to {@link TableManipulation#getBatchSize()} keys at a time, through a single <tt>IN</tt>
+    * query each.
+    */
+   @Override
+   public Set<InternalCacheEntry> load(Set<Object> keys) throws CacheLoaderException {
+      Set<InternalCacheEntry> result = new HashSet<InternalCacheEntry>(keys.size());
+      if (keys.isEmpty()) return result;
+      Map<String, Object> keysByString = new HashMap<String, Object>(keys.size());
+      for (Object key : keys) keysByString.put(getLockFromKey(key), key);
+      if (!acquireGlobalLock(false)) {
+         throw new CacheLoaderException("Unable to acquire the global lock in order to load " + keys.size() + " keys");
+      }
+      Connection conn = null;
+      try {
+         conn = connectionFactory.getConnection();
+         int batchSize = tableManipulation.getBatchSize();
+         List<String> batch = new ArrayList<String>(Math.min(batchSize, keysByString.size()));
+         for (String keyStr : keysByString.keySet()) {
+            batch.add(keyStr);
+            if (batch.size() == batchSize) {
+               loadBatch(conn, batch, keysByString, result);
+               batch.clear();
+            }
+         }
+         if (!batch.isEmpty()) loadBatch(conn, batch, keysByString, result);
+      } finally {
+         connectionFactory.releaseConnection(conn);
+         releaseGlobalLock(false);
+      }
+      if (log.isTraceEnabled()) log.trace("Loaded " + result.size() + " entries out of " + keys.size() + " keys");
+      return result;
+   }
+
+   private void loadBatch(Connection conn, List<String> keyStrs, Map<String, Object> keysByString, Set<InternalCacheEntry> result) throws CacheLoaderException {
+      PreparedStatement ps = null;
+      ResultSet rs = null;
+      try {
+         ps = conn.prepareStatement(tableManipulation.getSelectMultipleRowsSql(keyStrs.size()));
+         for (int i = 0; i < keyStrs.size(); i++) ps.setString(i + 1, keyStrs.get(i));
+         rs = ps.executeQuery();
+         while (rs.next()) {
+            Object key = keysByString.get(rs.getString(1));
+            InternalCacheValue icv = (InternalCacheValue) JdbcUtil.unmarshall(getMarshaller(), rs.getBinaryStream(2));
+            InternalCacheEntry entry = icv.toInternalCacheEntry(key);
+            if (!entry.isExpired()) result.add(entry);
+         }
+      } catch (SQLException e) {
+         logAndThrow(e, "SQL error while fetching " + keyStrs.size() + " stored entries");
+      } finally {
+         JdbcUtil.safeClose(rs);
+         JdbcUtil.safeClose(ps);
+      }
+   }
+
    public Class<? extends CacheLoaderConfig> getConfigurationClass() {
       return JdbcStringBasedCacheStoreConfig.class;
    }
@@ -157,6 +157,21 @@ public class TableManipulationTest {
       assert !tableManipulation.tableExists(connection);
    }
 
+   public void testUpsertRowSqlPerDialect() {
+      TableManipulation mysql = tableManipulation.clone();
+      mysql.databaseType = DatabaseType.MYSQL;
+      assert mysql.getUpsertRowSql().contains("ON DUPLICATE KEY UPDATE");
+      assert mysql.getUpsertRowSql().startsWith(mysql.getInsertRowSql());
+
+      TableManipulation postgres = tableManipulation.clone();
+      postgres.databaseType = DatabaseType.POSTGRES;
+      assert postgres.getUpsertRowSql().contains("ON CONFLICT");
+
+      TableManipulation derby = tableManipulation.clone();
+      derby.databaseType = DatabaseType.DERBY;
+      assert derby.getUpsertRowSql() == null : "no upsert expected for Derby";
+   }
+
    static boolean existsTable(Connection connection, String tableName) throws Exception {
       Statement st = connection.createStatement();
       ResultSet rs = null;
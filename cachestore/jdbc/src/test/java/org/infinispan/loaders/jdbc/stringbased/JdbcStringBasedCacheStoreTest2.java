@@ -32,16 +32,22 @@ import org.infinispan.loaders.jdbc.connectionfactory.ConnectionFactory;
 import org.infinispan.loaders.jdbc.connectionfactory.ConnectionFactoryConfig;
 import org.infinispan.loaders.keymappers.TwoWayKey2StringMapper;
 import org.infinispan.loaders.keymappers.UnsupportedKeyTypeException;
+import org.infinispan.loaders.modifications.Modification;
+import org.infinispan.loaders.modifications.Remove;
+import org.infinispan.loaders.modifications.Store;
 import org.infinispan.marshall.StreamingMarshaller;
 import org.infinispan.marshall.TestObjectStreamMarshaller;
 import org.infinispan.test.fwk.UnitTestDatabaseManager;
+import org.infinispan.transaction.xa.GlobalTransactionFactory;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.AfterTest;
 import org.testng.annotations.BeforeTest;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -152,6 +158,29 @@ public class JdbcStringBasedCacheStoreTest2 {
       assert cacheStore.load(MANIK).getValue().equals("val2");
    }
 
+   public void testBatchedOnePhasePrepare() throws Exception {
+      cacheStore.store(InternalEntryFactory.create(MANIK, "old"));
+      List<Modification> mods = new ArrayList<Modification>();
+      mods.add(new Store(InternalEntryFactory.create(MIRCEA, "v1")));
+      mods.add(new Store(InternalEntryFactory.create(MIRCEA, "v2")));
+      mods.add(new Remove(MANIK));
+      mods.add(new Store(InternalEntryFactory.create(MANIK, "new")));
+      mods.add(new Remove(MIRCEA));
+      mods.add(new Store(InternalEntryFactory.create(MIRCEA, "v3")));
+      cacheStore.prepare(mods, new GlobalTransactionFactory().newGlobalTransaction(null, false), true);
+      assert rowCount() == 2;
+      assert cacheStore.load(MIRCEA).getValue().equals("v3");
+      assert cacheStore.load(MANIK).getValue().equals("new");
+
+      mods.clear();
+      mods.add(new Remove(MIRCEA));
+      mods.add(new Store(InternalEntryFactory.create(MANIK, "newest")));
+      cacheStore.prepare(mods, new GlobalTransactionFactory().newGlobalTransaction(null, false), true);
+      assert rowCount() == 1;
+      assert cacheStore.load(MIRCEA) == null;
+      assert cacheStore.load(MANIK).getValue().equals("newest");
+   }
+
    private int rowCount() {
       ConnectionFactory connectionFactory = getConnection();
       String tableName = tableManipulation.getTableName();
@@ -2,6 +2,7 @@ package org.infinispan.client.hotrod;
 
 import org.infinispan.client.hotrod.exceptions.HotRodClientException;
 import org.infinispan.client.hotrod.impl.ConfigurationProperties;
+import org.infinispan.client.hotrod.impl.NearCache;
 import org.infinispan.client.hotrod.impl.operations.OperationsFactory;
 import org.infinispan.client.hotrod.impl.RemoteCacheImpl;
 import org.infinispan.client.hotrod.impl.transport.TransportFactory;
@@ -62,6 +63,10 @@ import static org.infinispan.util.Util.getInstance;
  * <li><tt>infinispan.client.hotrod.key_size_estimate</tt>, default = 64.  This hint allows sizing of byte buffers when serializing and deserializing keys, to minimize array resizing.</li>
  * <li><tt>infinispan.client.hotrod.value_size_estimate</tt>, default = 512.  This hint allows sizing of byte buffers when serializing and deserializing values, to minimize array resizing.</li>
  * <li><tt>infinispan.client.hotrod.socket_timeout</tt>, default = 60000 (60 seconds).  This property defines the maximum socket read timeout before giving up waiting for bytes from the server.</li>
+ * <li><tt>infinispan.client.hotrod.near_cache.max_entries</tt>, default = 0.  When greater than 0, each remote cache keeps up to this many of the values it reads in a near cache, serving further reads of these keys without contacting the server. Writes made through the same remote cache invalidate the near cache; changes made by other clients are picked up once entries expire. Until then, values, versions and presence of keys may be served stale.</li>
+ * <li><tt>infinispan.client.hotrod.near_cache.eviction</tt>, default = LRU.  The eviction algorithm of the near cache, either LRU or LIRS.</li>
+ * <li><tt>infinispan.client.hotrod.near_cache.lifespan</tt>, default = 60000 (60 seconds).  How long, in milliseconds, a value is served from the near cache before being read again from the server. A negative value keeps values until they are invalidated or evicted, which is only safe if no other client writes to the cache.</li>
+ * <li><tt>infinispan.client.hotrod.multiplexed_connections_per_server</tt>, default = 2.  The number of connections opened to each server for the asynchronous operations ({@link RemoteCache#getAsync(Object)}, {@link RemoteCache#putAsync(Object, Object)} etc.). Each of these connections carries many requests at once, with responses matched to requests by their message id, so asynchronous operations neither borrow connections from the pool below nor need a thread each.</li>
  * </ul>
  * <br/>
  * <i>The following properties are related to connection pooling</i>:
@@ -355,7 +360,11 @@ public class RemoteCacheManager implements CacheContainer {
 
    private <K, V> void startRemoteCache(RemoteCacheImpl<K, V> result) {
       OperationsFactory operationsFactory = new OperationsFactory(transportFactory, result.getName(), topologyId, forceReturnValueDefault);
-      result.init(marshaller, asyncExecutorService, operationsFactory, config.getKeySizeEstimate(), config.getValueSizeEstimate());
+      NearCache nearCache = null;
+      if (config.getNearCacheMaxEntries() > 0) {
+         nearCache = new NearCache(config.getNearCacheMaxEntries(), config.getNearCacheEviction(), config.getNearCacheLifespan());
+      }
+      result.init(marshaller, asyncExecutorService, operationsFactory, config.getKeySizeEstimate(), config.getValueSizeEstimate(), nearCache);
    }
 
    private void setMarshaller(Marshaller marshaller) {
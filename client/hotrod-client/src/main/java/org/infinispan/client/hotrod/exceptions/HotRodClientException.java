@@ -31,6 +31,14 @@ public class HotRodClientException extends RuntimeException {
       this.errorStatusCode = errorStatusCode;
    }
 
+   /**
+    * Returns true if this exception reports an error response sent by the server, as opposed to a failure on the
+    * client side. After such a response the connection it was read from can still be used.
+    */
+   public boolean isServerError() {
+      return errorStatusCode != -1;
+   }
+
    @Override
    public String toString() {
       StringBuilder sb = new StringBuilder(getClass().getName());
@@ -5,6 +5,7 @@ import org.infinispan.client.hotrod.impl.transport.tcp.RoundRobinBalancingStrate
 import org.infinispan.client.hotrod.impl.transport.tcp.TcpTransportFactory;
 import org.infinispan.marshall.jboss.GenericJBossMarshaller;
 import org.infinispan.util.TypedProperties;
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap.Eviction;
 
 import java.net.InetSocketAddress;
 import java.util.Collection;
@@ -33,6 +34,10 @@ public class ConfigurationProperties {
    public static final String HASH_FUNCTION_PREFIX = "infinispan.client.hotrod.hash_function_impl";
    public static final String DEFAULT_EXECUTOR_FACTORY_QUEUE_SIZE ="infinispan.client.hotrod.default_executor_factory.queue_size";
    public static final String SO_TIMEOUT = "infinispan.client.hotrod.socket_timeout";
+   public static final String MULTIPLEXED_CONNECTIONS_PER_SERVER = "infinispan.client.hotrod.multiplexed_connections_per_server";
+   public static final String NEAR_CACHE_MAX_ENTRIES = "infinispan.client.hotrod.near_cache.max_entries";
+   public static final String NEAR_CACHE_EVICTION = "infinispan.client.hotrod.near_cache.eviction";
+   public static final String NEAR_CACHE_LIFESPAN = "infinispan.client.hotrod.near_cache.lifespan";
 
    // defaults
 
@@ -40,6 +45,8 @@ public class ConfigurationProperties {
    private static final int DEFAULT_VALUE_SIZE = 512;
    private static final int DEFAULT_HOTROD_PORT = 11222;
    private static final int DEFAULT_SO_TIMEOUT = 60000;
+   private static final int DEFAULT_MULTIPLEXED_CONNECTIONS_PER_SERVER = 2;
+   private static final long DEFAULT_NEAR_CACHE_LIFESPAN = 60000;
 
    private final TypedProperties props;
 
@@ -120,4 +127,23 @@ public class ConfigurationProperties {
    public int getSoTimeout() {
       return props.getIntProperty(SO_TIMEOUT, DEFAULT_SO_TIMEOUT);
    }
+
+   public int getMultiplexedConnectionsPerServer() {
+      return props.getIntProperty(MULTIPLEXED_CONNECTIONS_PER_SERVER, DEFAULT_MULTIPLEXED_CONNECTIONS_PER_SERVER);
+   }
+
+   public int getNearCacheMaxEntries() {
+      return props.getIntProperty(NEAR_CACHE_MAX_ENTRIES, 0);
+   }
+
+   public Eviction getNearCacheEviction() {
+      String eviction = props.getProperty(NEAR_CACHE_EVICTION, Eviction.LRU.name()).trim().toUpperCase();
+      if (!eviction.equals(Eviction.LRU.name()) && !eviction.equals(Eviction.LIRS.name()))
+         throw new IllegalArgumentException("Unsupported near cache eviction: " + eviction + ". Use LRU or LIRS.");
+      return Eviction.valueOf(eviction);
+   }
+
+   public long getNearCacheLifespan() {
+      return props.getLongProperty(NEAR_CACHE_LIFESPAN, DEFAULT_NEAR_CACHE_LIFESPAN);
+   }
 }
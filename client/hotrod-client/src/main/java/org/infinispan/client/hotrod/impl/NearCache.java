@@ -0,0 +1,116 @@
+package org.infinispan.client.hotrod.impl;
+
+import net.jcip.annotations.ThreadSafe;
+import org.infinispan.util.ByteArrayKey;
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap;
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap.Eviction;
+import org.infinispan.util.logging.Log;
+import org.infinispan.util.logging.LogFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Client side cache of the values most recently read from a remote cache, keyed on the marshalled key, so that reads
+ * of hot keys do not need a round trip to the server.
+ * <p/>
+ * The Hot Rod protocol does not let servers push notifications to clients, so the near cache is kept coherent as
+ * follows:
+ * <ul>
+ * <li>writes made through the owning {@link org.infinispan.client.hotrod.RemoteCache} invalidate the written key,</li>
+ * <li>entries expire after a configurable lifespan, after which they are read again from the server, together with
+ * their version, so that values changed by other clients are only ever served for a bounded amount of time.</li>
+ * </ul>
+ * A read from the server only populates the near cache if no invalidation took place while it was in flight, so that
+ * a concurrent write can't be overwritten by the value it replaced.
+ * <p/>
+ * Cached entries are not validated against the server. Until an entry expires, reads served from the near cache,
+ * including {@link org.infinispan.client.hotrod.RemoteCache#getVersioned(Object)} and
+ * {@link org.infinispan.client.hotrod.RemoteCache#containsKey(Object)}, may return a value, version or presence that
+ * another client has changed in the meantime. A stale version is caught by the server if it is used for a
+ * {@link org.infinispan.client.hotrod.RemoteCache#replaceWithVersion(Object, Object, long)} or
+ * {@link org.infinispan.client.hotrod.RemoteCache#removeWithVersion(Object, long)}.
+ *
+ * @since 5.0
+ */
+@ThreadSafe
+public class NearCache {
+
+   private static final Log log = LogFactory.getLog(NearCache.class);
+
+   private final BoundedConcurrentHashMap<ByteArrayKey, Entry> entries;
+   private final long lifespanNanos;
+   private final AtomicLong invalidations = new AtomicLong();
+
+   /**
+    * @param maxEntries the maximum number of entries kept
+    * @param eviction the algorithm used to pick the entries to evict once full
+    * @param lifespan the time, in milliseconds, an entry is served for before being read again from the server, or
+    *                 a negative value for entries to be kept until invalidated or evicted
+    */
+   public NearCache(int maxEntries, Eviction eviction, long lifespan) {
+      if (maxEntries <= 0)
+         throw new IllegalArgumentException("The maximum number of near cache entries must be greater than 0: " + maxEntries);
+      this.entries = new BoundedConcurrentHashMap<ByteArrayKey, Entry>(maxEntries, 16, eviction);
+      this.lifespanNanos = lifespan < 0 ? -1 : TimeUnit.MILLISECONDS.toNanos(lifespan);
+      if (log.isTraceEnabled())
+         log.trace("Created near cache with " + maxEntries + " entries, " + eviction + " eviction and a lifespan of " + lifespan + " millis");
+   }
+
+   /**
+    * @return the value last read for the key, or null if the key is not cached or its entry has expired
+    */
+   public BinaryVersionedValue get(byte[] key) {
+      ByteArrayKey k = new ByteArrayKey(key);
+      Entry entry = entries.get(k);
+      if (entry == null) return null;
+      if (lifespanNanos >= 0 && System.nanoTime() - entry.created > lifespanNanos) {
+         entries.remove(k, entry);
+         return null;
+      }
+      return entry.value;
+   }
+
+   /**
+    * Returns a token to be handed over to {@link #putIfNotInvalidated(byte[], BinaryVersionedValue, long)} once the
+    * value read from the server is available. Must be called before sending the read.
+    */
+   public long startRead() {
+      return invalidations.get();
+   }
+
+   /**
+    * Caches the value read from the server, unless an invalidation happened since the read was started. Null values,
+    * i.e. keys not found on the server, are not cached.
+    */
+   public void putIfNotInvalidated(byte[] key, BinaryVersionedValue value, long readToken) {
+      if (value == null) return;
+      ByteArrayKey k = new ByteArrayKey(key);
+      entries.put(k, new Entry(value));
+      // an invalidation might have been missed if it happened while the value was being read or stored
+      if (invalidations.get() != readToken) entries.remove(k);
+   }
+
+   public void invalidate(byte[] key) {
+      invalidations.incrementAndGet();
+      entries.remove(new ByteArrayKey(key));
+   }
+
+   public void clear() {
+      invalidations.incrementAndGet();
+      entries.clear();
+   }
+
+   public int size() {
+      return entries.size();
+   }
+
+   private static class Entry {
+      final BinaryVersionedValue value;
+      final long created = System.nanoTime();
+
+      Entry(BinaryVersionedValue value) {
+         this.value = value;
+      }
+   }
+}
@@ -9,8 +9,11 @@ import org.infinispan.client.hotrod.VersionedValue;
 import org.infinispan.client.hotrod.exceptions.RemoteCacheManagerNotStartedException;
 import org.infinispan.client.hotrod.exceptions.TransportException;
 import org.infinispan.client.hotrod.impl.async.NotifyingFutureImpl;
+import org.infinispan.client.hotrod.impl.async.ResponseFuture;
 import org.infinispan.client.hotrod.impl.operations.*;
 import org.infinispan.marshall.Marshaller;
+import org.infinispan.util.Util;
+import org.infinispan.util.concurrent.FutureListener;
 import org.infinispan.util.concurrent.NotifyingFuture;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
@@ -19,10 +22,14 @@ import java.io.IOException;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author Mircea.Markus@jboss.com
@@ -39,7 +46,7 @@ public class RemoteCacheImpl<K, V> extends RemoteCacheSupport<K, V> {
    private OperationsFactory operationsFactory;
    private int estimateKeySize;
    private int estimateValueSize;
-
+   private volatile NearCache nearCache;
 
    public RemoteCacheImpl(RemoteCacheManager rcm, String name) {
       if (log.isTraceEnabled()) {
@@ -49,12 +56,16 @@ public class RemoteCacheImpl<K, V> extends RemoteCacheSupport<K, V> {
       this.remoteCacheManager = rcm;
    }
 
-   public void init(Marshaller marshaller, ExecutorService executorService, OperationsFactory operationsFactory, int estimateKeySize, int estimateValueSize) {
+   /**
+    * @param nearCache the near cache reads are served from, or null if values are always read from the server
+    */
+   public void init(Marshaller marshaller, ExecutorService executorService, OperationsFactory operationsFactory, int estimateKeySize, int estimateValueSize, NearCache nearCache) {
       this.marshaller = marshaller;
       this.executorService = executorService;
       this.operationsFactory = operationsFactory;
       this.estimateKeySize = estimateKeySize;
       this.estimateValueSize = estimateValueSize;
+      this.nearCache = nearCache;
    }
 
    public RemoteCacheManager getRemoteCacheManager() {
@@ -64,55 +75,45 @@ public class RemoteCacheImpl<K, V> extends RemoteCacheSupport<K, V> {
    @Override
    public boolean removeWithVersion(K key, long version) {
       assertRemoteCacheManagerIsStarted();
-      RemoveIfUnmodifiedOperation op = operationsFactory.newRemoveIfUnmodifiedOperation(obj2bytes(key, true), version);
+      byte[] keyBytes = writeKey(key);
+      RemoveIfUnmodifiedOperation op = operationsFactory.newRemoveIfUnmodifiedOperation(keyBytes, version);
       VersionedOperationResponse response = (VersionedOperationResponse) op.execute();
+      invalidateNearCache(keyBytes);
       return response.getCode().isUpdated();
    }
 
    @Override
    public NotifyingFuture<Boolean> removeWithVersionAsync(final K key, final long version) {
       assertRemoteCacheManagerIsStarted();
-      final NotifyingFutureImpl<Boolean> result = new NotifyingFutureImpl<Boolean>();
-      Future future = executorService.submit(new Callable() {
-         @Override
-         public Object call() throws Exception {
-            boolean removed = removeWithVersion(key, version);
-            result.notifyFutureCompletion();
-            return removed;
-         }
-      });
-      result.setExecuting(future);
-      return result;
+      byte[] keyBytes = writeKey(key);
+      RemoveIfUnmodifiedOperation op = operationsFactory.newRemoveIfUnmodifiedOperation(keyBytes, version);
+      return invalidateOnCompletion(keyBytes, op.executeAsync(new UpdatedFuture()));
    }
 
    @Override
    public boolean replaceWithVersion(K key, V newValue, long version, int lifespanSeconds, int maxIdleTimeSeconds) {
       assertRemoteCacheManagerIsStarted();
-      ReplaceIfUnmodifiedOperation op = operationsFactory.newReplaceIfUnmodifiedOperation(obj2bytes(key, true), obj2bytes(newValue, false), lifespanSeconds, maxIdleTimeSeconds, version);
+      byte[] keyBytes = writeKey(key);
+      ReplaceIfUnmodifiedOperation op = operationsFactory.newReplaceIfUnmodifiedOperation(keyBytes, obj2bytes(newValue, false), lifespanSeconds, maxIdleTimeSeconds, version);
       VersionedOperationResponse response = (VersionedOperationResponse) op.execute();
+      invalidateNearCache(keyBytes);
       return response.getCode().isUpdated();
    }
 
    @Override
    public NotifyingFuture<Boolean> replaceWithVersionAsync(final K key, final V newValue, final long version, final int lifespanSeconds, final int maxIdleSeconds) {
       assertRemoteCacheManagerIsStarted();
-      final NotifyingFutureImpl<Boolean> result = new NotifyingFutureImpl<Boolean>();
-      Future future = executorService.submit(new Callable() {
-         @Override
-         public Object call() throws Exception {
-            boolean removed = replaceWithVersion(key, newValue, version, lifespanSeconds, maxIdleSeconds);
-            result.notifyFutureCompletion();
-            return removed;
-         }
-      });
-      result.setExecuting(future);
-      return result;
+      byte[] keyBytes = writeKey(key);
+      ReplaceIfUnmodifiedOperation op = operationsFactory.newReplaceIfUnmodifiedOperation(keyBytes, obj2bytes(newValue, false), lifespanSeconds, maxIdleSeconds, version);
+      return invalidateOnCompletion(keyBytes, op.executeAsync(new UpdatedFuture()));
    }
 
    @Override
    public VersionedValue<V> getVersioned(K key) {
       assertRemoteCacheManagerIsStarted();
-      GetWithVersionOperation op = operationsFactory.newGetWithVersionOperation(obj2bytes(key, true));
+      byte[] keyBytes = obj2bytes(key, true);
+      if (nearCache != null) return binary2VersionedValue(getThroughNearCache(keyBytes));
+      GetWithVersionOperation op = operationsFactory.newGetWithVersionOperation(keyBytes);
       BinaryVersionedValue value = (BinaryVersionedValue) op.execute();
       return binary2VersionedValue(value);
    }
@@ -125,21 +126,42 @@ public class RemoteCacheImpl<K, V> extends RemoteCacheSupport<K, V> {
       }
    }
 
+   /**
+    * All the entries are sent at once, without waiting for any response, and the returned future completes once every
+    * one of them has been stored, or as soon as one of them fails.
+    */
    @Override
    public NotifyingFuture<Void> putAllAsync(final Map<? extends K, ? extends V> data, final long lifespan, final TimeUnit lifespanUnit, final long maxIdle, final TimeUnit maxIdleUnit) {
       assertRemoteCacheManagerIsStarted();
-      final NotifyingFutureImpl<Void> result = new NotifyingFutureImpl<Void>();
-      Future future = executorService.submit(new Callable() {
+      int lifespanSecs = toSeconds(lifespan, lifespanUnit);
+      int maxIdleSecs = toSeconds(maxIdle, maxIdleUnit);
+      final ResponseFuture<Void> result = new ResponseFuture<Void>();
+      if (data.isEmpty()) {
+         result.complete(null);
+         return result;
+      }
+      final AtomicInteger remaining = new AtomicInteger(data.size());
+      FutureListener<Object> listener = new FutureListener<Object>() {
          @Override
-         public Object call() throws Exception {
-            putAll(data, lifespan, lifespanUnit, maxIdle, maxIdleUnit);
-            result.notifyFutureCompletion();
-            return null;
+         public void futureDone(Future<Object> future) {
+            try {
+               future.get();
+            } catch (ExecutionException e) {
+               result.fail(e.getCause());
+               return;
+            } catch (Exception e) {
+               result.fail(e);
+               return;
+            }
+            if (remaining.decrementAndGet() == 0) result.complete(null);
          }
-      });
-      result.setExecuting(future);
+      };
+      for (Entry<? extends K, ? extends V> entry : data.entrySet()) {
+         byte[] keyBytes = writeKey(entry.getKey());
+         PutOperation op = operationsFactory.newPutKeyValueOperation(keyBytes, obj2bytes(entry.getValue(), false), lifespanSecs, maxIdleSecs);
+         invalidateOnCompletion(keyBytes, op.executeAsync(new ResponseFuture<Object>())).attachListener(listener);
+      }
       return result;
-
    }
 
    @Override
@@ -174,8 +196,10 @@ public class RemoteCacheImpl<K, V> extends RemoteCacheSupport<K, V> {
       if (log.isTraceEnabled()) {
          log.trace("About to add (K,V): (" + key + ", " + value + ") lifespanSecs:" + lifespanSecs + ", maxIdleSecs:" + maxIdleSecs);
       }
-      PutOperation op = operationsFactory.newPutKeyValueOperation(obj2bytes(key, true), obj2bytes(value, false), lifespanSecs, maxIdleSecs);
+      byte[] keyBytes = writeKey(key);
+      PutOperation op = operationsFactory.newPutKeyValueOperation(keyBytes, obj2bytes(value, false), lifespanSecs, maxIdleSecs);
       byte[] result = (byte[]) op.execute();
+      invalidateNearCache(keyBytes);
       return (V) bytes2obj(result);
    }
 
@@ -185,8 +209,10 @@ public class RemoteCacheImpl<K, V> extends RemoteCacheSupport<K, V> {
       assertRemoteCacheManagerIsStarted();
       int lifespanSecs = toSeconds(lifespan, lifespanUnit);
       int maxIdleSecs = toSeconds(maxIdleTime, maxIdleTimeUnit);
-      PutIfAbsentOperation op = operationsFactory.newPutIfAbsentOperation(obj2bytes(key, true), obj2bytes(value, false), lifespanSecs, maxIdleSecs);
+      byte[] keyBytes = writeKey(key);
+      PutIfAbsentOperation op = operationsFactory.newPutIfAbsentOperation(keyBytes, obj2bytes(value, false), lifespanSecs, maxIdleSecs);
       byte[] bytes = (byte[]) op.execute();
+      invalidateNearCache(keyBytes);
       return (V) bytes2obj(bytes);
    }
 
@@ -195,25 +221,21 @@ public class RemoteCacheImpl<K, V> extends RemoteCacheSupport<K, V> {
       assertRemoteCacheManagerIsStarted();
       int lifespanSecs = toSeconds(lifespan, lifespanUnit);
       int maxIdleSecs = toSeconds(maxIdleTime, maxIdleTimeUnit);
-      ReplaceOperation op = operationsFactory.newReplaceOperation(obj2bytes(key, true), obj2bytes(value, false), lifespanSecs, maxIdleSecs);
+      byte[] keyBytes = writeKey(key);
+      ReplaceOperation op = operationsFactory.newReplaceOperation(keyBytes, obj2bytes(value, false), lifespanSecs, maxIdleSecs);
       byte[] bytes = (byte[]) op.execute();
+      invalidateNearCache(keyBytes);
       return (V) bytes2obj(bytes);
    }
 
    @Override
    public NotifyingFuture<V> putAsync(final K key, final V value, final long lifespan, final TimeUnit lifespanUnit, final long maxIdle, final TimeUnit maxIdleUnit) {
       assertRemoteCacheManagerIsStarted();
-      final NotifyingFutureImpl<V> result = new NotifyingFutureImpl<V>();
-      Future future = executorService.submit(new Callable() {
-         @Override
-         public Object call() throws Exception {
-            V prevValue = put(key, value, lifespan, lifespanUnit, maxIdle, maxIdleUnit);
-            result.notifyFutureCompletion();
-            return prevValue;
-         }
-      });
-      result.setExecuting(future);
-      return result;
+      int lifespanSecs = toSeconds(lifespan, lifespanUnit);
+      int maxIdleSecs = toSeconds(maxIdle, maxIdleUnit);
+      byte[] keyBytes = writeKey(key);
+      PutOperation op = operationsFactory.newPutKeyValueOperation(keyBytes, obj2bytes(value, false), lifespanSecs, maxIdleSecs);
+      return invalidateOnCompletion(keyBytes, op.executeAsync(new ValueFuture()));
    }
 
    @Override
@@ -235,55 +257,37 @@ public class RemoteCacheImpl<K, V> extends RemoteCacheSupport<K, V> {
    @Override
    public NotifyingFuture<V> putIfAbsentAsync(final K key,final V value,final long lifespan,final TimeUnit lifespanUnit,final long maxIdle,final TimeUnit maxIdleUnit) {
       assertRemoteCacheManagerIsStarted();
-      final NotifyingFutureImpl<V> result = new NotifyingFutureImpl<V>();
-      Future future = executorService.submit(new Callable() {
-         @Override
-         public Object call() throws Exception {
-            V prevValue = putIfAbsent(key, value, lifespan, lifespanUnit, maxIdle, maxIdleUnit);
-            result.notifyFutureCompletion();
-            return prevValue;
-         }
-      });
-      result.setExecuting(future);
-      return result;
+      int lifespanSecs = toSeconds(lifespan, lifespanUnit);
+      int maxIdleSecs = toSeconds(maxIdle, maxIdleUnit);
+      byte[] keyBytes = writeKey(key);
+      PutIfAbsentOperation op = operationsFactory.newPutIfAbsentOperation(keyBytes, obj2bytes(value, false), lifespanSecs, maxIdleSecs);
+      return invalidateOnCompletion(keyBytes, op.executeAsync(new ValueFuture()));
    }
 
    @Override
    public NotifyingFuture<V> removeAsync(final Object key) {
       assertRemoteCacheManagerIsStarted();
-      final NotifyingFutureImpl<V> result = new NotifyingFutureImpl<V>();
-      Future future = executorService.submit(new Callable() {
-         @Override
-         public Object call() throws Exception {
-            V toReturn = remove(key);
-            result.notifyFutureCompletion();
-            return toReturn;
-         }
-      });
-      result.setExecuting(future);
-      return result;
+      byte[] keyBytes = writeKey(key);
+      RemoveOperation op = operationsFactory.newRemoveOperation(keyBytes);
+      return invalidateOnCompletion(keyBytes, op.executeAsync(new ValueFuture()));
    }
 
    @Override
    public NotifyingFuture<V> replaceAsync(final K key,final V value,final long lifespan,final TimeUnit lifespanUnit,final long maxIdle,final TimeUnit maxIdleUnit) {
       assertRemoteCacheManagerIsStarted();
-      final NotifyingFutureImpl<V> result = new NotifyingFutureImpl<V>();
-      Future future = executorService.submit(new Callable() {
-         @Override
-         public Object call() throws Exception {
-            V v = replace(key, value, lifespan, lifespanUnit, maxIdle, maxIdleUnit);
-            result.notifyFutureCompletion();
-            return v;
-         }
-      });
-      result.setExecuting(future);
-      return result;
+      int lifespanSecs = toSeconds(lifespan, lifespanUnit);
+      int maxIdleSecs = toSeconds(maxIdle, maxIdleUnit);
+      byte[] keyBytes = writeKey(key);
+      ReplaceOperation op = operationsFactory.newReplaceOperation(keyBytes, obj2bytes(value, false), lifespanSecs, maxIdleSecs);
+      return invalidateOnCompletion(keyBytes, op.executeAsync(new ValueFuture()));
    }
 
    @Override
    public boolean containsKey(Object key) {
       assertRemoteCacheManagerIsStarted();
-      ContainsKeyOperation op = operationsFactory.newContainsKeyOperation(obj2bytes(key, true));
+      byte[] keyBytes = obj2bytes(key, true);
+      if (nearCache != null && nearCache.get(keyBytes) != null) return true;
+      ContainsKeyOperation op = operationsFactory.newContainsKeyOperation(keyBytes);
       return (Boolean)op.execute();
    }
 
@@ -291,8 +295,14 @@ public class RemoteCacheImpl<K, V> extends RemoteCacheSupport<K, V> {
    public V get(Object key) {
       assertRemoteCacheManagerIsStarted();
       byte[] keyBytes = obj2bytes(key, true);
-      GetOperation gco = operationsFactory.newGetKeyOperation(keyBytes);
-      byte[] bytes = (byte[]) gco.execute();
+      byte[] bytes;
+      if (nearCache != null) {
+         BinaryVersionedValue value = getThroughNearCache(keyBytes);
+         bytes = value == null ? null : value.getValue();
+      } else {
+         GetOperation gco = operationsFactory.newGetKeyOperation(keyBytes);
+         bytes = (byte[]) gco.execute();
+      }
       V result = (V) bytes2obj(bytes);
       if (log.isTraceEnabled()) {
          log.trace("For key(" + key + ") returning " + result);
@@ -322,16 +332,20 @@ public class RemoteCacheImpl<K, V> extends RemoteCacheSupport<K, V> {
    @Override
    public V remove(Object key) {
       assertRemoteCacheManagerIsStarted();
-      RemoveOperation removeOperation = operationsFactory.newRemoveOperation(obj2bytes(key, true));
+      byte[] keyBytes = writeKey(key);
+      RemoveOperation removeOperation = operationsFactory.newRemoveOperation(keyBytes);
       byte[] existingValue = (byte[]) removeOperation.execute();
+      invalidateNearCache(keyBytes);
       return (V) bytes2obj(existingValue);
    }
 
    @Override
    public void clear() {
       assertRemoteCacheManagerIsStarted();
+      if (nearCache != null) nearCache.clear();
       ClearOperation op = operationsFactory.newClearOperation() ;
       op.execute();
+      if (nearCache != null) nearCache.clear();
    }
 
    @Override
@@ -367,16 +381,100 @@ public class RemoteCacheImpl<K, V> extends RemoteCacheSupport<K, V> {
    @Override
    public NotifyingFuture<V> getAsync(final K key) {
       assertRemoteCacheManagerIsStarted();
-      final NotifyingFutureImpl<V> result = new NotifyingFutureImpl<V>();
-      Future future = executorService.submit(new Callable() {
+      byte[] keyBytes = obj2bytes(key, true);
+      if (nearCache != null) {
+         BinaryVersionedValue cached = nearCache.get(keyBytes);
+         if (cached != null) {
+            ValueFuture result = new ValueFuture();
+            result.complete(cached.getValue());
+            return result;
+         }
+         GetWithVersionOperation op = operationsFactory.newGetWithVersionOperation(keyBytes);
+         return op.executeAsync(new NearCacheFillingFuture<V>(keyBytes, nearCache));
+      }
+      GetOperation op = operationsFactory.newGetKeyOperation(keyBytes);
+      return op.executeAsync(new ValueFuture());
+   }
+
+   /**
+    * The Hot Rod protocol has no multi-key get, so keys are retrieved one after the other.
+    */
+   @Override
+   public Map<K, V> getAll(Set<? extends K> keys) {
+      assertRemoteCacheManagerIsStarted();
+      Map<K, V> result = new HashMap<K, V>(keys.size());
+      for (K key : keys) {
+         V value = get(key);
+         if (value != null) result.put(key, value);
+      }
+      return result;
+   }
+
+   /**
+    * All the keys not found in the near cache, if any, are requested at once, without waiting for any response, and
+    * the values read are added to the near cache. Values are only unmarshalled when the result is retrieved from the
+    * returned future.
+    */
+   @Override
+   public NotifyingFuture<Map<K, V>> getAllAsync(final Set<? extends K> keys) {
+      assertRemoteCacheManagerIsStarted();
+      final Map<K, byte[]> responses = new ConcurrentHashMap<K, byte[]>(keys.size());
+      final ResponseFuture<Map<K, V>> result = new ResponseFuture<Map<K, V>>() {
          @Override
-         public Object call() throws Exception {
-            V toReturn = get(key);
-            result.notifyFutureCompletion();
-            return toReturn;
+         protected Map<K, V> convert(Object response) {
+            Map<K, V> values = new HashMap<K, V>(responses.size());
+            for (Map.Entry<K, byte[]> entry : responses.entrySet()) {
+               values.put(entry.getKey(), (V) bytes2obj(entry.getValue()));
+            }
+            return values;
          }
-      });
-      result.setExecuting(future);
+      };
+      if (keys.isEmpty()) {
+         result.complete(null);
+         return result;
+      }
+      final AtomicInteger remaining = new AtomicInteger(keys.size());
+      for (final K key : keys) {
+         byte[] keyBytes = obj2bytes(key, true);
+         BinaryVersionedValue cached = nearCache == null ? null : nearCache.get(keyBytes);
+         if (cached != null) {
+            responses.put(key, cached.getValue());
+            if (remaining.decrementAndGet() == 0) result.complete(null);
+            continue;
+         }
+         ResponseFuture<Object> response;
+         if (nearCache != null) {
+            // the value is read along with its version, for it to be added to the near cache
+            GetWithVersionOperation op = operationsFactory.newGetWithVersionOperation(keyBytes);
+            response = op.executeAsync(new NearCacheFillingFuture<Object>(keyBytes, nearCache) {
+               @Override
+               protected Object convert(Object response) {
+                  BinaryVersionedValue value = (BinaryVersionedValue) response;
+                  return value == null ? null : value.getValue();
+               }
+            });
+         } else {
+            GetOperation op = operationsFactory.newGetKeyOperation(keyBytes);
+            response = op.executeAsync(new ResponseFuture<Object>());
+         }
+         response.attachListener(new FutureListener<Object>() {
+            @Override
+            public void futureDone(Future<Object> future) {
+               byte[] bytes;
+               try {
+                  bytes = (byte[]) future.get();
+               } catch (ExecutionException e) {
+                  result.fail(e.getCause());
+                  return;
+               } catch (Exception e) {
+                  result.fail(e);
+                  return;
+               }
+               if (bytes != null) responses.put(key, bytes);
+               if (remaining.decrementAndGet() == 0) result.complete(null);
+            }
+         });
+      }
       return result;
    }
 
@@ -407,6 +505,98 @@ public class RemoteCacheImpl<K, V> extends RemoteCacheSupport<K, V> {
       return new VersionedValueImpl<V>(value.getVersion(), valueObj);
    }
 
+   /**
+    * Reads the value and version of the key from the near cache, or from the server if not found there, in which case
+    * the value read is added to the near cache.
+    */
+   private BinaryVersionedValue getThroughNearCache(byte[] keyBytes) {
+      NearCache nearCache = this.nearCache;
+      BinaryVersionedValue value = nearCache.get(keyBytes);
+      if (value != null) {
+         if (log.isTraceEnabled()) log.trace("Near cache hit for key " + Util.printArray(keyBytes, false));
+         return value;
+      }
+      long readToken = nearCache.startRead();
+      GetWithVersionOperation op = operationsFactory.newGetWithVersionOperation(keyBytes);
+      value = (BinaryVersionedValue) op.execute();
+      nearCache.putIfNotInvalidated(keyBytes, value, readToken);
+      return value;
+   }
+
+   /**
+    * Marshalls the key of a write, invalidating the near cache entry it might have. The entry is invalidated again
+    * once the write is done, through {@link #invalidateNearCache(byte[])}, as a concurrent read might have cached the
+    * value being replaced in the meantime.
+    */
+   private byte[] writeKey(Object key) {
+      byte[] keyBytes = obj2bytes(key, true);
+      invalidateNearCache(keyBytes);
+      return keyBytes;
+   }
+
+   private void invalidateNearCache(byte[] keyBytes) {
+      NearCache nearCache = this.nearCache;
+      if (nearCache != null) nearCache.invalidate(keyBytes);
+   }
+
+   private <T> ResponseFuture<T> invalidateOnCompletion(final byte[] keyBytes, ResponseFuture<T> future) {
+      if (nearCache != null) {
+         future.attachListener(new FutureListener<T>() {
+            @Override
+            public void futureDone(Future<T> future) {
+               invalidateNearCache(keyBytes);
+            }
+         });
+      }
+      return future;
+   }
+
+   /**
+    * Unmarshalls the value returned by the operation, in the thread retrieving it rather than in the thread reading
+    * the response.
+    */
+   private class ValueFuture extends ResponseFuture<V> {
+      @Override
+      protected V convert(Object response) {
+         return (V) bytes2obj((byte[]) response);
+      }
+   }
+
+   /**
+    * Completed with the value and version read by a {@link GetWithVersionOperation}, which are added to the near cache
+    * before the future's listeners get notified.
+    */
+   private class NearCacheFillingFuture<T> extends ResponseFuture<T> {
+      private final byte[] keyBytes;
+      private final NearCache nearCache;
+      private final long readToken;
+
+      NearCacheFillingFuture(byte[] keyBytes, NearCache nearCache) {
+         this.keyBytes = keyBytes;
+         this.nearCache = nearCache;
+         this.readToken = nearCache.startRead();
+      }
+
+      @Override
+      public boolean complete(Object response) {
+         nearCache.putIfNotInvalidated(keyBytes, (BinaryVersionedValue) response, readToken);
+         return super.complete(response);
+      }
+
+      @Override
+      protected T convert(Object response) {
+         BinaryVersionedValue value = (BinaryVersionedValue) response;
+         return value == null ? null : (T) bytes2obj(value.getValue());
+      }
+   }
+
+   private static class UpdatedFuture extends ResponseFuture<Boolean> {
+      @Override
+      protected Boolean convert(Object response) {
+         return ((VersionedOperationResponse) response).getCode().isUpdated();
+      }
+   }
+
    private int toSeconds(long duration, TimeUnit timeUnit) {
       return (int) timeUnit.toSeconds(duration);
    }
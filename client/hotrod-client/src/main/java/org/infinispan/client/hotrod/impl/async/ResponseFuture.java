@@ -0,0 +1,140 @@
+package org.infinispan.client.hotrod.impl.async;
+
+import org.infinispan.util.concurrent.FutureListener;
+import org.infinispan.util.concurrent.NotifyingFuture;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Notifying future completed by the thread reading responses off a multiplexed connection, rather than by a thread
+ * blocked waiting for the response. The raw response read by the operation is handed over as is and only converted,
+ * through {@link #convert(Object)}, by the first thread retrieving the result, so that unmarshalling does not take
+ * place on the reader thread.
+ * <p/>
+ * Listeners are notified once, by the thread completing the future, or straight away if attached to a future
+ * already done.
+ *
+ * @since 5.0
+ */
+public class ResponseFuture<T> implements NotifyingFuture<T> {
+
+   private final CountDownLatch done = new CountDownLatch(1);
+   private final AtomicBoolean completed = new AtomicBoolean();
+   private final CopyOnWriteArraySet<FutureListener<T>> listeners = new CopyOnWriteArraySet<FutureListener<T>>();
+
+   private volatile Object response;
+   private volatile Throwable failure;
+   private volatile boolean cancelled;
+
+   private volatile boolean converted;
+   private T result;
+
+   /**
+    * Completes the future with the response read for the request.
+    *
+    * @return false if the future was already done
+    */
+   public boolean complete(Object response) {
+      if (!completed.compareAndSet(false, true)) return false;
+      this.response = response;
+      done.countDown();
+      notifyListeners();
+      return true;
+   }
+
+   /**
+    * Completes the future with the given failure, thrown wrapped in an {@link ExecutionException} by the get methods.
+    *
+    * @return false if the future was already done
+    */
+   public boolean fail(Throwable failure) {
+      if (!completed.compareAndSet(false, true)) return false;
+      this.failure = failure;
+      done.countDown();
+      notifyListeners();
+      return true;
+   }
+
+   /**
+    * Converts the raw response read by the operation into the value returned by this future. The default
+    * implementation returns the response as is.
+    */
+   @SuppressWarnings("unchecked")
+   protected T convert(Object response) {
+      return (T) response;
+   }
+
+   @Override
+   public NotifyingFuture<T> attachListener(FutureListener<T> futureListener) {
+      listeners.add(futureListener);
+      if (isDone()) notifyListeners();
+      return this;
+   }
+
+   /**
+    * Cancels the request from the caller's point of view: the request might already have been sent, in which case
+    * the server still executes it and its response is read and discarded.
+    */
+   @Override
+   public boolean cancel(boolean mayInterruptIfRunning) {
+      if (!completed.compareAndSet(false, true)) return false;
+      cancelled = true;
+      done.countDown();
+      notifyListeners();
+      return true;
+   }
+
+   @Override
+   public boolean isCancelled() {
+      return cancelled;
+   }
+
+   @Override
+   public boolean isDone() {
+      return done.getCount() == 0;
+   }
+
+   @Override
+   public T get() throws InterruptedException, ExecutionException {
+      done.await();
+      return getResult();
+   }
+
+   @Override
+   public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+      if (!done.await(timeout, unit))
+         throw new TimeoutException("No response received within " + timeout + " " + unit);
+      return getResult();
+   }
+
+   private T getResult() throws ExecutionException {
+      if (cancelled) throw new CancellationException();
+      if (failure != null) throw new ExecutionException(failure);
+      if (!converted) {
+         synchronized (this) {
+            if (!converted) {
+               try {
+                  result = convert(response);
+               } catch (RuntimeException e) {
+                  throw new ExecutionException(e);
+               }
+               converted = true;
+            }
+         }
+      }
+      return result;
+   }
+
+   private void notifyListeners() {
+      for (FutureListener<T> listener : listeners) {
+         // make sure each listener is only notified once, even when attached while the future completes
+         if (listeners.remove(listener)) listener.futureDone(this);
+      }
+   }
+}
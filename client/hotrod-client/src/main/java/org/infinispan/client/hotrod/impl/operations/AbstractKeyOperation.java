@@ -3,6 +3,7 @@ package org.infinispan.client.hotrod.impl.operations;
 import net.jcip.annotations.Immutable;
 import org.infinispan.client.hotrod.Flag;
 import org.infinispan.client.hotrod.impl.VersionedOperationResponse;
+import org.infinispan.client.hotrod.impl.async.ResponseFuture;
 import org.infinispan.client.hotrod.impl.transport.Transport;
 import org.infinispan.client.hotrod.impl.transport.TransportFactory;
 import org.infinispan.util.Util;
@@ -12,13 +13,14 @@ import org.infinispan.util.logging.LogFactory;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Basic class for all hot rod operations that manipulate a key.
+ * Basic class for all hot rod operations that manipulate a key. Besides being executed synchronously, these
+ * operations can be sent over a multiplexed connection, with their response read once it arrives.
  *
  * @author Mircea.Markus@jboss.com
  * @since 4.1
  */
 @Immutable
-public abstract class AbstractKeyOperation extends RetryOnFailureOperation {
+public abstract class AbstractKeyOperation extends RetryOnFailureOperation implements MultiplexedOperation {
 
    private static final Log log = LogFactory.getLog(AbstractKeyOperation.class);
 
@@ -38,14 +40,29 @@ public abstract class AbstractKeyOperation extends RetryOnFailureOperation {
       }
    }
 
-   protected short sendKeyOperation(byte[] key, Transport transport, byte opCode, byte opRespCode) {
-      // 1) write [header][key length][key]
-      long messageId = writeHeader(transport, opCode);
-      transport.writeArray(key);
+   @Override
+   protected Object executeOperation(Transport transport) {
+      long messageId = writeRequest(transport);
       transport.flush();
+      return readResponse(transport, messageId);
+   }
 
-      // 2) now read the header
-      return readHeaderAndValidate(transport, messageId, opRespCode);
+   /**
+    * Sends this operation over a connection shared with other in-flight operations, without waiting for the
+    * response.
+    *
+    * @return the given future, completed once the response has been read
+    */
+   public <T> ResponseFuture<T> executeAsync(ResponseFuture<T> future) {
+      transportFactory.executeMultiplexed(this, key, future);
+      return future;
+   }
+
+   //[header][key length][key]
+   protected long writeKeyRequest(Transport transport, byte opCode) {
+      long messageId = writeHeader(transport, opCode);
+      transport.writeArray(key);
+      return messageId;
    }
 
    protected byte[] returnPossiblePrevValue(Transport transport) {
@@ -68,10 +85,8 @@ public abstract class AbstractKeyOperation extends RetryOnFailureOperation {
    }
 
    protected VersionedOperationResponse returnVersionedOperationResponse(Transport transport, long messageId, byte response) {
-      //3) ...
       short respStatus = readHeaderAndValidate(transport, messageId, response);
 
-      //4 ...
       VersionedOperationResponse.RspCode code;
       if (respStatus == NO_ERROR_STATUS) {
          code = VersionedOperationResponse.RspCode.SUCCESS;
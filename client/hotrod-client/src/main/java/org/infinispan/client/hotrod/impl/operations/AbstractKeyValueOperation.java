@@ -31,20 +31,11 @@ public abstract class AbstractKeyValueOperation extends AbstractKeyOperation {
    }
 
    //[header][key length][key][lifespan][max idle][value length][value]
-   protected short sendPutOperation(Transport transport, short opCode, byte opRespCode) {
-      // 1) write header
-      long messageId = writeHeader(transport, opCode);
-
-      // 2) write key and value
-      transport.writeArray(key);
+   protected long writePutRequest(Transport transport, short opCode) {
+      long messageId = writeKeyRequest(transport, (byte) opCode);
       transport.writeVInt(lifespan);
       transport.writeVInt(maxIdle);
       transport.writeArray(value);
-      transport.flush();
-
-      // 3) now read header
-
-      //return status (not error status for sure)
-      return readHeaderAndValidate(transport, messageId, opRespCode);
+      return messageId;
    }
 }
@@ -0,0 +1,25 @@
+package org.infinispan.client.hotrod.impl.operations;
+
+import org.infinispan.client.hotrod.impl.transport.Transport;
+
+/**
+ * An operation whose request can be written and whose response can be read separately, so that the request can be
+ * sent over a connection shared with other operations still waiting for their responses. Responses are correlated
+ * with requests through the message id written in the request header.
+ *
+ * @since 5.0
+ */
+public interface MultiplexedOperation {
+
+   /**
+    * Writes the request, without flushing it.
+    *
+    * @return the message id the request was written with
+    */
+   long writeRequest(Transport transport);
+
+   /**
+    * Reads the response, starting from the response header, to the request sent with the given message id.
+    */
+   Object readResponse(Transport transport, long messageId);
+}
@@ -25,15 +25,17 @@ public class RemoveIfUnmodifiedOperation extends AbstractKeyOperation {
    }
 
    @Override
-   protected Object executeOperation(Transport transport) {
-      // 1) write header
-      long messageId = writeHeader(transport, REMOVE_IF_UNMODIFIED_REQUEST);
+   public long writeRequest(Transport transport) {
+      // 1) write header and key
+      long messageId = writeKeyRequest(transport, REMOVE_IF_UNMODIFIED_REQUEST);
 
       //2) write message body
-      transport.writeArray(key);
       transport.writeLong(version);
+      return messageId;
+   }
 
-      //process response and return
+   @Override
+   public Object readResponse(Transport transport, long messageId) {
       return returnVersionedOperationResponse(transport, messageId, REMOVE_IF_UNMODIFIED_RESPONSE);
    }
 }
@@ -25,16 +25,20 @@ public class ReplaceIfUnmodifiedOperation extends AbstractKeyValueOperation {
    }
 
    @Override
-   protected Object executeOperation(Transport transport) {
-      // 1) write header
-      long messageId = writeHeader(transport, REPLACE_IF_UNMODIFIED_REQUEST);
+   public long writeRequest(Transport transport) {
+      // 1) write header and key
+      long messageId = writeKeyRequest(transport, REPLACE_IF_UNMODIFIED_REQUEST);
 
       //2) write message body
-      transport.writeArray(key);
       transport.writeVInt(lifespan);
       transport.writeVInt(maxIdle);
       transport.writeLong(version);
       transport.writeArray(value);
+      return messageId;
+   }
+
+   @Override
+   public Object readResponse(Transport transport, long messageId) {
       return returnVersionedOperationResponse(transport, messageId, REPLACE_IF_UNMODIFIED_RESPONSE);
    }
 }
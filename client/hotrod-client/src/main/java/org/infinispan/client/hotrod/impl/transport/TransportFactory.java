@@ -1,6 +1,8 @@
 package org.infinispan.client.hotrod.impl.transport;
 
 import org.infinispan.client.hotrod.impl.ConfigurationProperties;
+import org.infinispan.client.hotrod.impl.async.ResponseFuture;
+import org.infinispan.client.hotrod.impl.operations.MultiplexedOperation;
 
 import java.net.InetSocketAddress;
 import java.util.Collection;
@@ -34,4 +36,10 @@ public interface TransportFactory {
    int getTransportCount();
 
    int getSoTimeout();
+
+   /**
+    * Sends the operation to the server owning the key over a connection shared with other in-flight operations. The
+    * future is completed once the response has been read, or failed if the operation could not be executed.
+    */
+   void executeMultiplexed(MultiplexedOperation operation, byte[] key, ResponseFuture<?> future);
 }
@@ -0,0 +1,378 @@
+package org.infinispan.client.hotrod.impl.transport.tcp;
+
+import net.jcip.annotations.ThreadSafe;
+import org.infinispan.client.hotrod.exceptions.HotRodClientException;
+import org.infinispan.client.hotrod.exceptions.InvalidResponseException;
+import org.infinispan.client.hotrod.exceptions.TransportException;
+import org.infinispan.client.hotrod.impl.async.ResponseFuture;
+import org.infinispan.client.hotrod.impl.operations.MultiplexedOperation;
+import org.infinispan.client.hotrod.impl.protocol.HotRodConstants;
+import org.infinispan.client.hotrod.impl.transport.AbstractTransport;
+import org.infinispan.client.hotrod.impl.transport.TransportFactory;
+import org.infinispan.util.logging.Log;
+import org.infinispan.util.logging.LogFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.infinispan.io.UnsignedNumeric.*;
+
+/**
+ * A connection to a Hot Rod server carrying many requests at once. Requests are written as soon as they are sent,
+ * without waiting for the responses to the requests sent before them, and a dedicated reader thread matches each
+ * response with its request through the message id found in the response header. The reader thread reads the
+ * response through the operation that sent the request and completes the operation's {@link ResponseFuture}.
+ * <p/>
+ * When the connection breaks, the requests still waiting for a response are sent again through the {@link
+ * TcpTransportFactory}, to the same or to another server, within the same retry limits as synchronous operations.
+ *
+ * @since 5.0
+ */
+@ThreadSafe
+public class MultiplexedConnection {
+
+   private static final Log log = LogFactory.getLog(MultiplexedConnection.class);
+   private static final boolean trace = log.isTraceEnabled();
+
+   public static final String READER_THREAD_NAME = "HotRod-client-reader";
+   private static final AtomicInteger readerCounter = new AtomicInteger(0);
+
+   // magic byte followed by a vlong message id
+   private static final int MAX_ID_PREFIX_LENGTH = 16;
+
+   private final InetSocketAddress serverAddress;
+   private final TcpTransportFactory transportFactory;
+   private final Socket socket;
+   private final OutputStream out;
+   private final InputStream in;
+   private final ConcurrentMap<Long, PendingRequest> pending = new ConcurrentHashMap<Long, PendingRequest>();
+   private final Object writeLock = new Object();
+   private volatile boolean closed;
+
+   public MultiplexedConnection(InetSocketAddress serverAddress, TcpTransportFactory transportFactory) {
+      this.serverAddress = serverAddress;
+      this.transportFactory = transportFactory;
+      try {
+         SocketChannel socketChannel = SocketChannel.open(serverAddress);
+         socket = socketChannel.socket();
+         socket.setTcpNoDelay(transportFactory.isTcpNoDelay());
+         // the reader thread waits for responses to whichever requests are in flight, possibly none
+         socket.setSoTimeout(0);
+         out = new BufferedOutputStream(socket.getOutputStream());
+         in = new BufferedInputStream(socket.getInputStream());
+      } catch (IOException e) {
+         String message = "Could not connect to server: " + serverAddress;
+         log.error(message, e);
+         throw new TransportException(message, e);
+      }
+      Thread reader = new Thread(new ResponseReader(), READER_THREAD_NAME + "-" + readerCounter.getAndIncrement());
+      reader.setDaemon(true);
+      reader.start();
+   }
+
+   /**
+    * Writes the operation's request to the server. The future is completed by the reader thread once the response
+    * has been read, or failed if the connection breaks and the request cannot be retried.
+    *
+    * @param retryCount the number of times the request has been sent already
+    */
+   public void send(MultiplexedOperation operation, ResponseFuture<?> future, int retryCount) {
+      RequestBuffer buffer = new RequestBuffer(transportFactory);
+      long messageId = operation.writeRequest(buffer);
+      // registered before being written, as the response might be read before the write returns
+      pending.put(messageId, new PendingRequest(operation, future, retryCount));
+      TransportException failure = null;
+      synchronized (writeLock) {
+         if (closed) {
+            failure = new TransportException("Connection to " + serverAddress + " has been closed");
+         } else {
+            try {
+               buffer.writeTo(out);
+               out.flush();
+               if (trace) log.trace("Sent request " + messageId + " to " + serverAddress);
+            } catch (IOException e) {
+               failure = new TransportException("Problems writing data to stream", e);
+            }
+         }
+      }
+      if (failure != null) {
+         // closing first makes sure the request is not retried on this connection
+         close(failure);
+         // unless the close took care of it already
+         PendingRequest request = pending.remove(messageId);
+         if (request != null) request.abort(failure);
+      }
+   }
+
+   public boolean isValid() {
+      return !closed;
+   }
+
+   public InetSocketAddress getServerAddress() {
+      return serverAddress;
+   }
+
+   public int getPendingCount() {
+      return pending.size();
+   }
+
+   /**
+    * Closes the connection. Requests waiting for a response are retried if the cause is a {@link
+    * TransportException}, and failed with the given cause otherwise.
+    */
+   public void close(HotRodClientException cause) {
+      synchronized (writeLock) {
+         if (closed) return;
+         closed = true;
+      }
+      try {
+         socket.close();
+      } catch (IOException e) {
+         log.warn("Issues closing socket:" + e.getMessage());
+      }
+      if (trace) log.trace("Closed " + this + ", aborting " + pending.size() + " pending requests");
+      for (Long messageId : pending.keySet()) {
+         PendingRequest request = pending.remove(messageId);
+         if (request != null) request.abort(cause);
+      }
+   }
+
+   @Override
+   public String toString() {
+      return "MultiplexedConnection{" +
+            "socket=" + socket +
+            ", serverAddress=" + serverAddress +
+            ", pending=" + pending.size() +
+            "}";
+   }
+
+   private class PendingRequest {
+      final MultiplexedOperation operation;
+      final ResponseFuture<?> future;
+      final int retryCount;
+
+      PendingRequest(MultiplexedOperation operation, ResponseFuture<?> future, int retryCount) {
+         this.operation = operation;
+         this.future = future;
+         this.retryCount = retryCount;
+      }
+
+      void abort(HotRodClientException cause) {
+         if (cause instanceof TransportException) {
+            transportFactory.retryMultiplexed(operation, future, retryCount, (TransportException) cause);
+         } else {
+            future.fail(cause);
+         }
+      }
+   }
+
+   private class ResponseReader implements Runnable {
+      private final ResponseTransport transport = new ResponseTransport(transportFactory);
+
+      public void run() {
+         try {
+            while (!closed) {
+               readResponse();
+            }
+         } catch (HotRodClientException e) {
+            if (!closed) log.debug("Closing " + MultiplexedConnection.this + " after failing to read a response", e);
+            close(e);
+         } catch (RuntimeException e) {
+            if (!closed) log.warn("Closing " + MultiplexedConnection.this + " after failing to read a response", e);
+            close(new InvalidResponseException(e.getMessage()));
+         }
+      }
+
+      private void readResponse() {
+         long messageId = peekMessageId();
+         PendingRequest request = pending.remove(messageId);
+         if (request == null)
+            throw new InvalidResponseException("Received a response to an unknown message id: " + Long.toHexString(messageId));
+         Object response;
+         try {
+            response = request.operation.readResponse(transport, messageId);
+         } catch (HotRodClientException e) {
+            if (!e.isServerError()) {
+               // the stream can't be trusted anymore: let the whole connection fail, this request included
+               pending.put(messageId, request);
+               throw e;
+            }
+            // an error response has been read fully, the next response can be read as usual
+            request.future.fail(e);
+            return;
+         } catch (RuntimeException e) {
+            pending.put(messageId, request);
+            throw e;
+         }
+         request.future.complete(response);
+      }
+
+      private long peekMessageId() {
+         try {
+            in.mark(MAX_ID_PREFIX_LENGTH);
+            short magic = transport.readByte();
+            if (magic != HotRodConstants.RESPONSE_MAGIC) {
+               throw new InvalidResponseException("Invalid magic number. Expected " + Integer.toHexString(HotRodConstants.RESPONSE_MAGIC)
+                     + " and received " + Integer.toHexString(magic));
+            }
+            long messageId = transport.readVLong();
+            in.reset();
+            return messageId;
+         } catch (IOException e) {
+            throw new TransportException(e);
+         }
+      }
+   }
+
+   /**
+    * Reads responses off the connection's input stream. Only ever used by the reader thread.
+    */
+   private class ResponseTransport extends AbstractTransport {
+
+      ResponseTransport(TransportFactory transportFactory) {
+         super(transportFactory);
+      }
+
+      public long readVLong() {
+         try {
+            return readUnsignedLong(in);
+         } catch (IOException e) {
+            throw new TransportException(e);
+         }
+      }
+
+      public int readVInt() {
+         try {
+            return readUnsignedInt(in);
+         } catch (IOException e) {
+            throw new TransportException(e);
+         }
+      }
+
+      public short readByte() {
+         int resultInt;
+         try {
+            resultInt = in.read();
+         } catch (IOException e) {
+            throw new TransportException(e);
+         }
+         if (resultInt == -1) {
+            throw new TransportException("End of stream reached!");
+         }
+         return (short) resultInt;
+      }
+
+      public byte[] readByteArray(int size) {
+         byte[] result = new byte[size];
+         int offset = 0;
+         while (offset < size) {
+            int read;
+            try {
+               read = in.read(result, offset, size - offset);
+            } catch (IOException e) {
+               throw new TransportException(e);
+            }
+            if (read == -1) {
+               throw new TransportException("End of stream reached!");
+            }
+            offset += read;
+         }
+         return result;
+      }
+
+      public void writeByte(short toWrite) {
+         throw new UnsupportedOperationException();
+      }
+
+      public void writeVInt(int vint) {
+         throw new UnsupportedOperationException();
+      }
+
+      public void writeVLong(long l) {
+         throw new UnsupportedOperationException();
+      }
+
+      protected void writeBytes(byte[] toAppend) {
+         throw new UnsupportedOperationException();
+      }
+
+      public void flush() {
+         throw new UnsupportedOperationException();
+      }
+
+      public void release() {
+      }
+   }
+
+   /**
+    * Buffers a request, so that it can be written to the connection in one go, without interleaving with the requests
+    * sent by other threads.
+    */
+   private static class RequestBuffer extends AbstractTransport {
+      private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(128);
+
+      RequestBuffer(TransportFactory transportFactory) {
+         super(transportFactory);
+      }
+
+      void writeTo(OutputStream out) throws IOException {
+         buffer.writeTo(out);
+      }
+
+      public void writeByte(short toWrite) {
+         buffer.write(toWrite);
+      }
+
+      public void writeVInt(int vint) {
+         try {
+            writeUnsignedInt(buffer, vint);
+         } catch (IOException e) {
+            throw new TransportException(e);
+         }
+      }
+
+      public void writeVLong(long l) {
+         try {
+            writeUnsignedLong(buffer, l);
+         } catch (IOException e) {
+            throw new TransportException(e);
+         }
+      }
+
+      protected void writeBytes(byte[] toAppend) {
+         buffer.write(toAppend, 0, toAppend.length);
+      }
+
+      public void flush() {
+      }
+
+      public long readVLong() {
+         throw new UnsupportedOperationException();
+      }
+
+      public int readVInt() {
+         throw new UnsupportedOperationException();
+      }
+
+      public short readByte() {
+         throw new UnsupportedOperationException();
+      }
+
+      public byte[] readByteArray(int size) {
+         throw new UnsupportedOperationException();
+      }
+
+      public void release() {
+      }
+   }
+}
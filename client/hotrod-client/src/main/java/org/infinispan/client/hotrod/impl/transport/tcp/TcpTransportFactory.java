@@ -3,9 +3,12 @@ package org.infinispan.client.hotrod.impl.transport.tcp;
 import net.jcip.annotations.ThreadSafe;
 import org.apache.commons.pool.impl.GenericKeyedObjectPool;
 import org.infinispan.client.hotrod.exceptions.TransportException;
+import org.infinispan.client.hotrod.exceptions.HotRodClientException;
 import org.infinispan.client.hotrod.impl.ConfigurationProperties;
+import org.infinispan.client.hotrod.impl.async.ResponseFuture;
 import org.infinispan.client.hotrod.impl.consistenthash.ConsistentHash;
 import org.infinispan.client.hotrod.impl.consistenthash.ConsistentHashFactory;
+import org.infinispan.client.hotrod.impl.operations.MultiplexedOperation;
 import org.infinispan.client.hotrod.impl.transport.Transport;
 import org.infinispan.client.hotrod.impl.transport.TransportFactory;
 
@@ -18,6 +21,8 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -39,8 +44,15 @@ public class TcpTransportFactory implements TransportFactory {
    private volatile ConsistentHash consistentHash;
    private volatile boolean tcpNoDelay;
    private volatile int soTimeout;
+   private volatile int multiplexedConnectionsPerServer;
    private final ConsistentHashFactory hashFactory = new ConsistentHashFactory();
 
+   /**
+    * Connections shared by the asynchronous operations, created lazily and replaced once broken
+    */
+   private final ConcurrentMap<InetSocketAddress, MultiplexedConnection[]> multiplexedConnections = new ConcurrentHashMap<InetSocketAddress, MultiplexedConnection[]>();
+   private final AtomicInteger multiplexedIndex = new AtomicInteger();
+
    @Override
    public void start(ConfigurationProperties cfg, Collection<InetSocketAddress> staticConfiguredServers, AtomicInteger topologyId) {
       hashFactory.init(cfg);
@@ -50,6 +62,7 @@ public class TcpTransportFactory implements TransportFactory {
       balancer = (RequestBalancingStrategy) Util.getInstance(balancerClass);
       tcpNoDelay = cfg.getTcpNoDelay();
       soTimeout = cfg.getSoTimeout();
+      multiplexedConnectionsPerServer = Math.max(1, cfg.getMultiplexedConnectionsPerServer());
       PropsKeyedObjectPoolFactory poolFactory = new PropsKeyedObjectPoolFactory(new TransportObjectFactory(this, topologyId, pingOnStartup), cfg.getProperties());
       createAndPreparePool(staticConfiguredServers, poolFactory);
       balancer.setServers(servers);
@@ -68,6 +81,10 @@ public class TcpTransportFactory implements TransportFactory {
 
    @Override
    public void destroy() {
+      HotRodClientException cause = new HotRodClientException("The transport factory has been destroyed");
+      for (InetSocketAddress server : multiplexedConnections.keySet()) {
+         closeMultiplexedConnections(server, cause);
+      }
       connectionPool.clear();
       try {
          connectionPool.close();
@@ -94,6 +111,10 @@ public class TcpTransportFactory implements TransportFactory {
    }
 
    public Transport getTransport(byte[] key) {
+      return borrowTransportFromPool(getServer(key));
+   }
+
+   private InetSocketAddress getServer(byte[] key) {
       InetSocketAddress server;
       if (consistentHash != null) {
          server = consistentHash.getServer(key);
@@ -106,7 +127,71 @@ public class TcpTransportFactory implements TransportFactory {
             log.trace("Using the balancer for determining the server: " + server);
          }
       }
-      return borrowTransportFromPool(server);
+      return server;
+   }
+
+   @Override
+   public void executeMultiplexed(MultiplexedOperation operation, byte[] key, ResponseFuture<?> future) {
+      sendMultiplexed(getServer(key), operation, future, 0);
+   }
+
+   /**
+    * Sends again an operation whose connection broke before its response was read, this time to the server picked by
+    * the balancer, unless the operation has been retried too many times already.
+    */
+   void retryMultiplexed(MultiplexedOperation operation, ResponseFuture<?> future, int retryCount, TransportException cause) {
+      if (future.isDone()) return;
+      String message = "Transport exception. Retry " + retryCount + " out of " + getTransportCount();
+      if (retryCount + 1 < getTransportCount()) {
+         if (log.isTraceEnabled()) log.trace(message + ":" + cause);
+         sendMultiplexed(balancer.nextServer(), operation, future, retryCount + 1);
+      } else {
+         log.warn(message, cause);
+         future.fail(cause);
+      }
+   }
+
+   private void sendMultiplexed(InetSocketAddress server, MultiplexedOperation operation, ResponseFuture<?> future, int retryCount) {
+      MultiplexedConnection connection;
+      try {
+         connection = getMultiplexedConnection(server);
+      } catch (TransportException e) {
+         retryMultiplexed(operation, future, retryCount, e);
+         return;
+      }
+      connection.send(operation, future, retryCount);
+   }
+
+   private MultiplexedConnection getMultiplexedConnection(InetSocketAddress server) {
+      MultiplexedConnection[] connections = multiplexedConnections.get(server);
+      if (connections == null) {
+         connections = new MultiplexedConnection[multiplexedConnectionsPerServer];
+         MultiplexedConnection[] existing = multiplexedConnections.putIfAbsent(server, connections);
+         if (existing != null) connections = existing;
+      }
+      int index = (multiplexedIndex.getAndIncrement() & Integer.MAX_VALUE) % connections.length;
+      synchronized (connections) {
+         MultiplexedConnection connection = connections[index];
+         if (connection == null || !connection.isValid()) {
+            connection = new MultiplexedConnection(server, this);
+            connections[index] = connection;
+            if (log.isTraceEnabled()) log.trace("Opened multiplexed connection " + connection);
+         }
+         return connection;
+      }
+   }
+
+   private void closeMultiplexedConnections(InetSocketAddress server, HotRodClientException cause) {
+      MultiplexedConnection[] connections = multiplexedConnections.remove(server);
+      if (connections == null) return;
+      MultiplexedConnection[] toClose;
+      synchronized (connections) {
+         toClose = connections.clone();
+      }
+      // closing retries the pending requests, possibly through other connections: don't hold the lock meanwhile
+      for (MultiplexedConnection connection : toClose) {
+         if (connection != null) connection.close(cause);
+      }
    }
 
    @Override
@@ -170,6 +255,7 @@ public class TcpTransportFactory implements TransportFactory {
          for (InetSocketAddress server : failedServers) {
             log.info("Server not in cluster anymore(" + server + "), removing from the pool.");
             connectionPool.clear(server);
+            closeMultiplexedConnections(server, new TransportException("Server " + server + " is not in the cluster anymore"));
          }
 
          servers.clear();
@@ -0,0 +1,92 @@
+package org.infinispan.client.hotrod;
+
+import org.infinispan.client.hotrod.impl.ConfigurationProperties;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.server.hotrod.HotRodServer;
+import org.infinispan.test.SingleCacheManagerTest;
+import org.infinispan.test.TestingUtil;
+import org.infinispan.test.fwk.TestCacheManagerFactory;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import java.util.Properties;
+
+import static junit.framework.Assert.assertEquals;
+
+/**
+ * Checks that reads are served from the near cache, and that the near cache is invalidated by the writes made through
+ * the same remote cache and expires the values written by other clients.
+ *
+ * @since 5.0
+ */
+@Test(groups = "functional", testName = "client.hotrod.NearCacheTest")
+public class NearCacheTest extends SingleCacheManagerTest {
+   private static final long LIFESPAN = 1000;
+
+   private HotRodServer hotrodServer;
+   private RemoteCacheManager nearRcm;
+   private RemoteCacheManager otherRcm;
+   private RemoteCache<String, String> near;
+   private RemoteCache<String, String> other;
+
+   @Override
+   protected EmbeddedCacheManager createCacheManager() throws Exception {
+      EmbeddedCacheManager cm = TestCacheManagerFactory.createLocalCacheManager();
+      cache = cm.getCache();
+      hotrodServer = TestHelper.startHotRodServer(cm);
+
+      Properties props = new Properties();
+      props.put(ConfigurationProperties.SERVER_LIST, "127.0.0.1:" + hotrodServer.getPort());
+      props.put(ConfigurationProperties.NEAR_CACHE_MAX_ENTRIES, "100");
+      props.put(ConfigurationProperties.NEAR_CACHE_EVICTION, "LIRS");
+      props.put(ConfigurationProperties.NEAR_CACHE_LIFESPAN, String.valueOf(LIFESPAN));
+      nearRcm = new RemoteCacheManager(props);
+      near = nearRcm.getCache();
+
+      otherRcm = new RemoteCacheManager("127.0.0.1", hotrodServer.getPort());
+      other = otherRcm.getCache();
+      return cm;
+   }
+
+   @AfterClass
+   @Override
+   protected void destroyAfterClass() {
+      super.destroyAfterClass();
+      nearRcm.stop();
+      otherRcm.stop();
+      hotrodServer.stop();
+   }
+
+   public void testReadsServedFromNearCache() {
+      other.put("k1", "v1");
+      assertEquals("v1", near.get("k1"));
+      other.put("k1", "v2");
+      // the value read earlier is still served, until it expires
+      assertEquals("v1", near.get("k1"));
+      assertEquals("v1", near.getVersioned("k1").getValue());
+      assert near.containsKey("k1");
+   }
+
+   public void testWritesInvalidateNearCache() throws Exception {
+      near.put("k2", "v1");
+      assertEquals("v1", near.get("k2"));
+      near.put("k2", "v2");
+      assertEquals("v2", near.get("k2"));
+      near.replaceAsync("k2", "v3").get();
+      assertEquals("v3", near.get("k2"));
+      near.remove("k2");
+      assert near.get("k2") == null;
+      near.put("k2", "v4");
+      assertEquals("v4", near.getAsync("k2").get());
+      near.clear();
+      assert near.get("k2") == null;
+   }
+
+   public void testNearCacheEntriesExpire() {
+      other.put("k3", "v1");
+      assertEquals("v1", near.get("k3"));
+      other.put("k3", "v2");
+      TestingUtil.sleepThread(LIFESPAN + 100);
+      assertEquals("v2", near.get("k3"));
+   }
+}
@@ -4,13 +4,21 @@ import org.infinispan.manager.EmbeddedCacheManager;
 import org.infinispan.server.hotrod.HotRodServer;
 import org.infinispan.test.SingleCacheManagerTest;
 import org.infinispan.test.fwk.TestCacheManagerFactory;
+import org.infinispan.util.concurrent.FutureListener;
 import org.infinispan.util.concurrent.NotifyingFuture;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static junit.framework.Assert.assertEquals;
 
@@ -177,4 +185,37 @@ public class RemoteAsyncAPITest extends SingleCacheManagerTest {
       assert !c.replaceWithVersion("aKey", "aNewValue", valueBinary.getVersion());
 
    }
+
+   public void testManyRequestsInFlight() throws Exception {
+      List<Future<String>> puts = new ArrayList<Future<String>>();
+      for (int i = 0; i < 1000; i++) puts.add(c.putAsync("key" + i, "value" + i));
+      for (Future<String> f : puts) assert f.get(10, TimeUnit.SECONDS) == null;
+
+      List<Future<String>> gets = new ArrayList<Future<String>>();
+      for (int i = 0; i < 1000; i++) gets.add(c.getAsync("key" + i));
+      for (int i = 0; i < 1000; i++) assertEquals("value" + i, gets.get(i).get(10, TimeUnit.SECONDS));
+   }
+
+   public void testAsyncPutAllAndGetAll() throws Exception {
+      Map<String, String> data = new HashMap<String, String>();
+      for (int i = 0; i < 100; i++) data.put("all" + i, "value" + i);
+      assert c.putAllAsync(data).get(10, TimeUnit.SECONDS) == null;
+
+      HashSet<String> keys = new HashSet<String>(data.keySet());
+      keys.add("missing");
+      Map<String, String> values = c.getAllAsync(keys).get(10, TimeUnit.SECONDS);
+      assertEquals(data, values);
+   }
+
+   public void testListenerNotified() throws Exception {
+      final CountDownLatch latch = new CountDownLatch(1);
+      c.putAsync("listened", "v").attachListener(new FutureListener<String>() {
+         @Override
+         public void futureDone(Future<String> future) {
+            latch.countDown();
+         }
+      });
+      assert latch.await(10, TimeUnit.SECONDS);
+      assertEquals("v", c.get("listened"));
+   }
 }
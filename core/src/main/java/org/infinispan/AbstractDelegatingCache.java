@@ -271,4 +271,12 @@ public abstract class AbstractDelegatingCache<K, V> implements Cache<K, V> {
    public NotifyingFuture<V> getAsync(K key) {
       return cache.getAsync(key);
    }
+
+   public Map<K, V> getAll(Set<? extends K> keys) {
+      return cache.getAll(keys);
+   }
+
+   public NotifyingFuture<Map<K, V>> getAllAsync(Set<? extends K> keys) {
+      return cache.getAllAsync(keys);
+   }
 }
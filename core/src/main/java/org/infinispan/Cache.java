@@ -552,6 +552,27 @@ public interface Cache<K, V> extends ConcurrentMap<K, V>, Lifecycle, Listenable
     */
    NotifyingFuture<V> getAsync(K key);
 
+   /**
+    * Retrieves the values mapped to several keys at once.  This is equivalent to calling {@link #get(Object)} for each
+    * of the keys, but more efficient: in distributed mode keys are grouped by the node owning them and a single
+    * remote call is made to each of those nodes, while keys missing from memory are looked up in any cache loader
+    * configured in one go.
+    *
+    * @param keys keys to retrieve
+    * @return a map of the keys which are mapped to a value to their values.  Keys which are not mapped to any value
+    * are not part of the map.
+    */
+   Map<K, V> getAll(Set<? extends K> keys);
+
+   /**
+    * Asynchronous version of {@link #getAll(java.util.Set)}.  As with {@link #getAsync(Object)}, if the call will
+    * definitely resolve locally the keys are retrieved in the caller's thread.
+    *
+    * @param keys keys to retrieve
+    * @return a future containing the keys which are mapped to a value along with their values
+    */
+   NotifyingFuture<Map<K, V>> getAllAsync(Set<? extends K> keys);
+
    AdvancedCache<K, V> getAdvancedCache();
 
    /**
@@ -25,6 +25,7 @@ import org.infinispan.batch.BatchContainer;
 import org.infinispan.commands.CommandsFactory;
 import org.infinispan.commands.control.LockControlCommand;
 import org.infinispan.commands.read.EntrySetCommand;
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.read.KeySetCommand;
 import org.infinispan.commands.read.SizeCommand;
@@ -80,6 +81,7 @@ import org.rhq.helpers.pluginAnnotations.agent.Operation;
 import javax.transaction.SystemException;
 import javax.transaction.Transaction;
 import javax.transaction.TransactionManager;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.EnumSet;
@@ -200,6 +202,10 @@ public class CacheDelegate<K, V> extends CacheSupport<K,V> implements AdvancedCa
 
    public final boolean containsKey(Object key) {
       assertKeyNotNull(key);
+      if (isLocalReadFastPathEnabled()) {
+         if (dataContainer.get(key) != null) return true;
+         if (!config.getCacheMode().isDistributed()) return false;
+      }
       InvocationContext ctx = getInvocationContext(false);
       GetKeyValueCommand command = commandsFactory.buildGetKeyValueCommand(key, ctx.getFlags());
       Object response = invoker.invoke(ctx, command);
@@ -213,11 +219,33 @@ public class CacheDelegate<K, V> extends CacheSupport<K,V> implements AdvancedCa
    @SuppressWarnings("unchecked")
    public final V get(Object key) {
       assertKeyNotNull(key);
+      if (isLocalReadFastPathEnabled()) {
+         InternalCacheEntry entry = dataContainer.get(key);
+         if (entry != null) return (V) entry.getValue();
+         // a distributed cache may still have to fetch the key from its owners
+         if (!config.getCacheMode().isDistributed()) return null;
+      }
       InvocationContext ctx = getInvocationContext(false);
       GetKeyValueCommand command = commandsFactory.buildGetKeyValueCommand(key, ctx.getFlags());
       return (V) invoker.invoke(ctx, command);
    }
 
+   @SuppressWarnings("unchecked")
+   public final Map<K, V> getAll(Set<? extends K> keys) {
+      InvocationContext ctx = getInvocationContext(false);
+      GetAllCommand command = buildGetAllCommand(keys, ctx.getFlags());
+      return (Map<K, V>) invoker.invoke(ctx, command);
+   }
+
+   private GetAllCommand buildGetAllCommand(Set<? extends K> keys, Set<Flag> flags) {
+      List<Object> toGet = new ArrayList<Object>(keys.size());
+      for (K key : keys) {
+         assertKeyNotNull(key);
+         toGet.add(key);
+      }
+      return commandsFactory.buildGetAllCommand(toGet, flags);
+   }
+
    @SuppressWarnings("unchecked")
    public final V remove(Object key) {
       assertKeyNotNull(key);
@@ -303,6 +331,17 @@ public class CacheDelegate<K, V> extends CacheSupport<K,V> implements AdvancedCa
       return notifier.getListeners();
    }
 
+   /**
+    * Reads of keys present in the data container can skip the creation of a command and of an invocation context, and
+    * the walk through the interceptor chain, when none of the interceptors, listeners, flags or an ongoing transaction
+    * could affect the read.
+    */
+   private boolean isLocalReadFastPathEnabled() {
+      return invoker.isLocalReadTransparent() && transactionManager == null
+            && componentRegistry.getStatus() == ComponentStatus.RUNNING
+            && !notifier.hasCacheEntryVisitedListeners() && flagHolder.get() == null;
+   }
+
    private InvocationContext getInvocationContext(boolean forceNonTransactional) {
       InvocationContext ctx = forceNonTransactional ? icc.createNonTxInvocationContext() : icc.createInvocationContext();
       return setInvocationContextFlags(ctx);
@@ -625,6 +664,44 @@ public class CacheDelegate<K, V> extends CacheSupport<K,V> implements AdvancedCa
       }
    }
 
+   @SuppressWarnings("unchecked")
+   public NotifyingFuture<Map<K, V>> getAllAsync(final Set<? extends K> keys) {
+      final Transaction tx = getOngoingTransaction();
+      final NotifyingNotifiableFuture f = new DeferredReturnFuture();
+      final EnumSet<Flag> flags = flagHolder.get() == null ? null : flagHolder.get().flags;
+
+      // Same optimisations as getAsync(), which only apply if they apply to every key
+      boolean isSkipLoader = isSkipLoader(flags);
+      boolean isLocal = isSkipLoader;
+      if (isLocal && config.getCacheMode().isDistributed()) {
+         for (K key : keys) {
+            if (!isDistributedAndLocal(flags, key, isSkipLoader)) {
+               isLocal = false;
+               break;
+            }
+         }
+      }
+      if (isLocal) {
+         return wrapInFuture(getAll(keys));
+      } else {
+         Callable<Map<K, V>> c = new Callable<Map<K, V>>() {
+            @Override
+            public Map<K, V> call() throws Exception {
+               GetAllCommand command = buildGetAllCommand(keys, flags);
+               InvocationContext ctx = getInvocationContext(tx);
+               if (flags != null)
+                  ctx.setFlags(flags);
+
+               Object ret = invoker.invoke(ctx, command);
+               f.notifyDone();
+               return (Map<K, V>) ret;
+            }
+         };
+         f.setNetworkFuture(asyncExecutor.submit(c));
+         return f;
+      }
+   }
+
    private boolean isDistributedAndLocal(EnumSet<Flag> flags, K key, boolean isSkipLoader) {
       return config.getCacheMode().isDistributed()
             && isSkipLoader
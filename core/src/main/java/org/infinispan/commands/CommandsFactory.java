@@ -24,11 +24,15 @@ package org.infinispan.commands;
 import org.infinispan.commands.control.LockControlCommand;
 import org.infinispan.commands.control.RehashControlCommand;
 import org.infinispan.commands.control.StateTransferControlCommand;
+import org.infinispan.commands.read.DistributedExecuteCommand;
 import org.infinispan.commands.read.EntrySetCommand;
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.read.KeySetCommand;
+import org.infinispan.commands.read.MapReduceCommand;
 import org.infinispan.commands.read.SizeCommand;
 import org.infinispan.commands.read.ValuesCommand;
+import org.infinispan.commands.remote.ClusteredGetAllCommand;
 import org.infinispan.commands.remote.ClusteredGetCommand;
 import org.infinispan.commands.remote.MultipleRpcCommand;
 import org.infinispan.commands.remote.SingleRpcCommand;
@@ -45,6 +49,8 @@ import org.infinispan.commands.write.ReplaceCommand;
 import org.infinispan.commands.write.WriteCommand;
 import org.infinispan.container.entries.InternalCacheValue;
 import org.infinispan.context.Flag;
+import org.infinispan.distexec.mapreduce.Mapper;
+import org.infinispan.distexec.mapreduce.Reducer;
 import org.infinispan.distribution.ch.ConsistentHash;
 import org.infinispan.factories.scopes.Scope;
 import org.infinispan.factories.scopes.Scopes;
@@ -55,6 +61,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 
 /**
  * A factory to build commands, initializing and injecting dependencies accordingly.  Commands built for a specific,
@@ -134,6 +141,13 @@ public interface CommandsFactory {
     */
    GetKeyValueCommand buildGetKeyValueCommand(Object key, Set<Flag> flags);
 
+   /**
+    * Builds a GetAllCommand
+    * @param keys keys to get
+    * @return a GetAllCommand
+    */
+   GetAllCommand buildGetAllCommand(Collection<Object> keys, Set<Flag> flags);
+
    /**
     * Builds a KeySetCommand
     * @return a KeySetCommand
@@ -238,6 +252,13 @@ public interface CommandsFactory {
     */
    ClusteredGetCommand buildClusteredGetCommand(Object key, Set<Flag> flags);
 
+   /**
+    * Builds a ClusteredGetAllCommand, which is a remote lookup command for several keys
+    * @param keys keys to look up
+    * @return a ClusteredGetAllCommand
+    */
+   ClusteredGetAllCommand buildClusteredGetAllCommand(Collection<Object> keys, Set<Flag> flags);
+
    /**
     * Builds a LockControlCommand to control explicit remote locking
     * @param keys keys to lock
@@ -288,6 +309,22 @@ public interface CommandsFactory {
             Address sender, Map<Object, InternalCacheValue> state, ConsistentHash oldCH,
             ConsistentHash newCH, List<Address> leaversHandled);
 
+   /**
+    * Builds a MapReduceCommand used to run the map and reduce phases of a {@link
+    * org.infinispan.distexec.mapreduce.MapReduceTask} on a node.
+    *
+    * @param keys input keys of the task, or null to map all entries
+    */
+   MapReduceCommand buildMapReduceCommand(Mapper mapper, Reducer reducer, Collection<Object> keys);
+
+   /**
+    * Builds a DistributedExecuteCommand used to run a task submitted to a {@link
+    * org.infinispan.distexec.DistributedExecutorService} on a node.
+    *
+    * @param keys input keys of the task, or null if there are none
+    */
+   <T> DistributedExecuteCommand<T> buildDistributedExecuteCommand(Callable<T> callable, Set<Object> keys);
+
    /**
     * Retrieves the cache name this CommandFactory is set up to construct commands for.
     * @return the name of the cache this CommandFactory is set up to construct commands for.
@@ -26,11 +26,15 @@ import org.infinispan.commands.control.LockControlCommand;
 import org.infinispan.commands.control.RehashControlCommand;
 import org.infinispan.commands.control.StateTransferControlCommand;
 import org.infinispan.commands.module.ModuleCommandInitializer;
+import org.infinispan.commands.read.DistributedExecuteCommand;
 import org.infinispan.commands.read.EntrySetCommand;
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.read.KeySetCommand;
+import org.infinispan.commands.read.MapReduceCommand;
 import org.infinispan.commands.read.SizeCommand;
 import org.infinispan.commands.read.ValuesCommand;
+import org.infinispan.commands.remote.ClusteredGetAllCommand;
 import org.infinispan.commands.remote.ClusteredGetCommand;
 import org.infinispan.commands.remote.MultipleRpcCommand;
 import org.infinispan.commands.remote.SingleRpcCommand;
@@ -51,7 +55,10 @@ import org.infinispan.container.DataContainer;
 import org.infinispan.container.entries.InternalCacheValue;
 import org.infinispan.context.Flag;
 import org.infinispan.context.InvocationContextContainer;
+import org.infinispan.distexec.mapreduce.Mapper;
+import org.infinispan.distexec.mapreduce.Reducer;
 import org.infinispan.distribution.DistributionManager;
+import org.infinispan.distribution.L1Manager;
 import org.infinispan.distribution.ch.ConsistentHash;
 import org.infinispan.factories.KnownComponentNames;
 import org.infinispan.factories.annotations.ComponentName;
@@ -71,6 +78,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 
 import static org.infinispan.commands.control.RehashControlCommand.Type.LEAVE_DRAIN_TX;
 import static org.infinispan.commands.control.RehashControlCommand.Type.LEAVE_DRAIN_TX_PREPARES;
@@ -99,6 +107,7 @@ public class CommandsFactoryImpl implements CommandsFactory {
    EntrySetCommand cachedEntrySetCommand;
    private InterceptorChain interceptorChain;
    private DistributionManager distributionManager;
+   private L1Manager l1Manager;
    private InvocationContextContainer icc;
    private TransactionTable txTable;
    private Configuration configuration;
@@ -108,13 +117,14 @@ public class CommandsFactoryImpl implements CommandsFactory {
    @Inject
    public void setupDependencies(DataContainer container, CacheNotifier notifier, Cache cache,
                                  InterceptorChain interceptorChain, DistributionManager distributionManager,
-                                 InvocationContextContainer icc, TransactionTable txTable, Configuration configuration,
+                                 L1Manager l1Manager, InvocationContextContainer icc, TransactionTable txTable, Configuration configuration,
                                  @ComponentName(KnownComponentNames.MODULE_COMMAND_INITIALIZERS) Map<Byte, ModuleCommandInitializer> moduleCommandInitializers) {
       this.dataContainer = container;
       this.notifier = notifier;
       this.cache = cache;
       this.interceptorChain = interceptorChain;
       this.distributionManager = distributionManager;
+      this.l1Manager = l1Manager;
       this.icc = icc;
       this.txTable = txTable;
       this.configuration = configuration;
@@ -183,6 +193,10 @@ public class CommandsFactoryImpl implements CommandsFactory {
       return new GetKeyValueCommand(key, notifier, flags);
    }
 
+   public GetAllCommand buildGetAllCommand(Collection<Object> keys, Set<Flag> flags) {
+      return new GetAllCommand(keys, notifier, flags);
+   }
+
    public PutMapCommand buildPutMapCommand(Map map, long lifespan, long maxIdleTimeMillis, Set<Flag> flags) {
       return new PutMapCommand(map, notifier, lifespan, maxIdleTimeMillis, flags);
    }
@@ -229,6 +243,10 @@ public class CommandsFactoryImpl implements CommandsFactory {
       return new ClusteredGetCommand(key, cacheName, flags);
    }
 
+   public ClusteredGetAllCommand buildClusteredGetAllCommand(Collection<Object> keys, Set<Flag> flags) {
+      return new ClusteredGetAllCommand(keys, cacheName, flags);
+   }
+
    /**
     * @param isRemote true if the command is deserialized and is executed remote.
     */
@@ -297,7 +315,11 @@ public class CommandsFactoryImpl implements CommandsFactory {
             break;
          case ClusteredGetCommand.COMMAND_ID:
             ClusteredGetCommand clusteredGetCommand = (ClusteredGetCommand) c;
-            clusteredGetCommand.initialize(icc, this, interceptorChain, distributionManager);
+            clusteredGetCommand.initialize(icc, this, interceptorChain, distributionManager, l1Manager);
+            break;
+         case ClusteredGetAllCommand.COMMAND_ID:
+            ClusteredGetAllCommand clusteredGetAllCommand = (ClusteredGetAllCommand) c;
+            clusteredGetAllCommand.initialize(icc, this, interceptorChain, distributionManager, l1Manager);
             break;
          case LockControlCommand.COMMAND_ID:
             LockControlCommand lcc = (LockControlCommand) c;
@@ -323,6 +345,14 @@ public class CommandsFactoryImpl implements CommandsFactory {
             RehashControlCommand rcc = (RehashControlCommand) c;
             rcc.init(distributionManager, configuration, dataContainer, this);
             break;
+         case MapReduceCommand.COMMAND_ID:
+            MapReduceCommand mrc = (MapReduceCommand) c;
+            mrc.init(cache, dataContainer, distributionManager);
+            break;
+         case DistributedExecuteCommand.COMMAND_ID:
+            DistributedExecuteCommand dec = (DistributedExecuteCommand) c;
+            dec.init(cache);
+            break;
          default:
             ModuleCommandInitializer mci = moduleCommandInitializers.get(c.getCommandId());
             if (mci != null) {
@@ -355,6 +385,14 @@ public class CommandsFactoryImpl implements CommandsFactory {
       return new RehashControlCommand(cacheName, type, sender, state, oldCH, newCH, leavers, this);
    }
 
+   public MapReduceCommand buildMapReduceCommand(Mapper mapper, Reducer reducer, Collection<Object> keys) {
+      return new MapReduceCommand(cacheName, mapper, reducer, keys);
+   }
+
+   public <T> DistributedExecuteCommand<T> buildDistributedExecuteCommand(Callable<T> callable, Set<Object> keys) {
+      return new DistributedExecuteCommand<T>(cacheName, callable, keys);
+   }
+
    public String getCacheName() {
       return cacheName;
    }
@@ -5,7 +5,10 @@ import org.infinispan.commands.control.LockControlCommand;
 import org.infinispan.commands.control.RehashControlCommand;
 import org.infinispan.commands.control.StateTransferControlCommand;
 import org.infinispan.commands.module.ModuleCommandFactory;
+import org.infinispan.commands.read.DistributedExecuteCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
+import org.infinispan.commands.read.MapReduceCommand;
+import org.infinispan.commands.remote.ClusteredGetAllCommand;
 import org.infinispan.commands.remote.ClusteredGetCommand;
 import org.infinispan.commands.remote.MultipleRpcCommand;
 import org.infinispan.commands.remote.SingleRpcCommand;
@@ -122,12 +125,21 @@ public class RemoteCommandsFactory {
          case ClusteredGetCommand.COMMAND_ID:
             command = new ClusteredGetCommand();
             break;
+         case ClusteredGetAllCommand.COMMAND_ID:
+            command = new ClusteredGetAllCommand();
+            break;
          case RehashControlCommand.COMMAND_ID:
             command = new RehashControlCommand(transport);
             break;
          case RemoveCacheCommand.COMMAND_ID:
             command = new RemoveCacheCommand(cacheManager, registry);
             break;
+         case MapReduceCommand.COMMAND_ID:
+            command = new MapReduceCommand();
+            break;
+         case DistributedExecuteCommand.COMMAND_ID:
+            command = new DistributedExecuteCommand();
+            break;
          default:
             ModuleCommandFactory mcf = commandFactories.get(id);
             if (mcf != null)
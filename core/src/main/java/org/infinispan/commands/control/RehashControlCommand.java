@@ -8,24 +8,22 @@ import org.infinispan.commands.tx.PrepareCommand;
 import org.infinispan.commands.write.WriteCommand;
 import org.infinispan.config.Configuration;
 import org.infinispan.container.DataContainer;
-import org.infinispan.container.entries.InternalCacheEntry;
 import org.infinispan.container.entries.InternalCacheValue;
 import org.infinispan.context.InvocationContext;
 import org.infinispan.distribution.DistributionManager;
 import org.infinispan.distribution.RemoteTransactionLogDetails;
+import org.infinispan.distribution.StateChunk;
+import org.infinispan.distribution.StateChunkIterator;
 import org.infinispan.distribution.TransactionLogger;
 import org.infinispan.distribution.ch.ConsistentHash;
 import org.infinispan.distribution.ch.NodeTopologyInfo;
 import org.infinispan.loaders.CacheLoaderException;
-import org.infinispan.loaders.CacheStore;
 import org.infinispan.remoting.transport.Address;
 import org.infinispan.remoting.transport.Transport;
-import org.infinispan.util.ReadOnlyDataContainerBackedKeySet;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
 
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -58,7 +56,8 @@ public class RehashControlCommand extends BaseRpcCommand {
       LEAVE_DRAIN_TX_PREPARES,
       JOIN_TX_LOG_REQ,
       JOIN_TX_FINAL_LOG_REQ,
-      JOIN_TX_LOG_CLOSE
+      JOIN_TX_LOG_CLOSE,
+      PULL_STATE_NEXT_CHUNK
    }
 
    Type type;
@@ -153,6 +152,8 @@ public class RehashControlCommand extends BaseRpcCommand {
          case JOIN_TX_LOG_CLOSE:
             unlockAndCloseTxLog();
             return null;
+         case PULL_STATE_NEXT_CHUNK:
+            return pullNextStateChunk();
       }
       throw new CacheException("Unknown rehash control command type " + type);
    }
@@ -174,51 +175,54 @@ public class RehashControlCommand extends BaseRpcCommand {
       tl.unlockAndDisable(sender);
    }
 
-   public Map<Object, InternalCacheValue> pullStateForJoin() throws CacheLoaderException {           
+   /**
+    * Starts sending state to a joiner, and returns the first chunk of it.  Further chunks are generated on demand as
+    * the joiner asks for them with {@link Type#PULL_STATE_NEXT_CHUNK}.
+    */
+   public StateChunk pullStateForJoin() throws CacheLoaderException {
       distributionManager.getTransactionLogger().enable();
-      Map<Object, InternalCacheValue> state = new HashMap<Object, InternalCacheValue>();
-      for (InternalCacheEntry ice : dataContainer) {
-         Object k = ice.getKey();
-         if (shouldTransferOwnershipToJoinNode(k)) {            
-             state.put(k, ice.toInternalCacheValue());
+      return startStateTransfer(new StateChunkIterator(dataContainer, distributionManager.getCacheStoreForRehashing(),
+                                                       configuration.getRehashChunkSize()) {
+         @Override
+         protected boolean shouldTransfer(Object key) {
+            return shouldTransferOwnershipToJoinNode(key);
          }
-      }
+      });
+   }
 
-      CacheStore cacheStore = distributionManager.getCacheStoreForRehashing();
-      if (cacheStore != null) {
-         for (Object k: cacheStore.loadAllKeys(new ReadOnlyDataContainerBackedKeySet(dataContainer))) {
-            if (!state.containsKey(k) && shouldTransferOwnershipToJoinNode(k)) {                
-               InternalCacheValue v = loadValue(cacheStore, k);               
-               if (v != null) state.put(k, v);
-            }
+   /**
+    * Starts sending the state of nodes which left to a receiver of their state, and returns the first chunk of it.
+    * Further chunks are generated on demand as the receiver asks for them with {@link Type#PULL_STATE_NEXT_CHUNK}.
+    */
+   public StateChunk pullStateForLeave() throws CacheLoaderException {
+      return startStateTransfer(new StateChunkIterator(dataContainer, distributionManager.getCacheStoreForRehashing(),
+                                                       configuration.getRehashChunkSize()) {
+         @Override
+         protected boolean shouldTransfer(Object key) {
+            return shouldTransferOwnershipFromLeftNodes(key);
          }
-      }
-      return state;
+      });
    }
-   
-   public Map<Object, InternalCacheValue> pullStateForLeave() throws CacheLoaderException {
-     
-      Map<Object, InternalCacheValue> state = new HashMap<Object, InternalCacheValue>();
-      for (InternalCacheEntry ice : dataContainer) {
-         Object k = ice.getKey();
-         if (shouldTransferOwnershipFromLeftNodes(k)) {
-            state.put(k, ice.toInternalCacheValue());
-         }
-      }
 
-      CacheStore cacheStore = distributionManager.getCacheStoreForRehashing();
-      if (cacheStore != null) {
-         for (Object k : cacheStore.loadAllKeys(new ReadOnlyDataContainerBackedKeySet(dataContainer))) {
-            if (!state.containsKey(k) && shouldTransferOwnershipFromLeftNodes(k)) {
-               InternalCacheValue v = loadValue(cacheStore, k);               
-               if (v != null)
-                  state.put(k, v);
-            }
-         }
+   private StateChunk startStateTransfer(StateChunkIterator it) throws CacheLoaderException {
+      StateChunk chunk = it.nextChunk();
+      if (chunk.isLast()) {
+         distributionManager.removeStateChunkIterator(sender);
+      } else {
+         distributionManager.registerStateChunkIterator(sender, it);
       }
-      return state;
+      return chunk;
    }
-   
+
+   private StateChunk pullNextStateChunk() throws CacheLoaderException {
+      StateChunkIterator it = distributionManager.getStateChunkIterator(sender);
+      if (it == null) throw new CacheException("No state transfer to " + sender + " is in progress");
+      StateChunk chunk = it.nextChunk();
+      if (chunk.isLast()) distributionManager.removeStateChunkIterator(sender);
+      if (log.isTraceEnabled()) log.trace("Sending %s to %s", chunk, sender);
+      return chunk;
+   }
+
    private boolean shouldTransferOwnershipFromLeftNodes(Object k) {      
       Address self = transport.getAddress();      
       int numCopies = configuration.getNumOwners();
@@ -236,16 +240,6 @@ public class RehashControlCommand extends BaseRpcCommand {
    }
       
 
-   private InternalCacheValue loadValue(CacheStore cs, Object k) {
-      try {
-         InternalCacheEntry ice = cs.load(k);
-         return ice == null ? null : ice.toInternalCacheValue();
-      } catch (CacheLoaderException cle) {
-         log.warn("Unable to load " + k + " from cache loader", cle);
-      }
-      return null;
-   }
-
    final boolean shouldTransferOwnershipToJoinNode(Object k) {     
       Address self = transport.getAddress();      
       int numCopies = configuration.getNumOwners(); 
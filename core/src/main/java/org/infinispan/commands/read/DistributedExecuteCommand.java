@@ -0,0 +1,116 @@
+package org.infinispan.commands.read;
+
+import org.infinispan.Cache;
+import org.infinispan.commands.remote.CacheRpcCommand;
+import org.infinispan.config.Configuration;
+import org.infinispan.context.InvocationContext;
+import org.infinispan.distexec.DistributedCallable;
+import org.infinispan.factories.ComponentRegistry;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * Executes a task submitted to a {@link org.infinispan.distexec.DistributedExecutorService} on the node it is
+ * performed on, and returns the task's result.
+ * <p/>
+ * If the task is a {@link DistributedCallable}, its environment is set up with the local cache and the input keys
+ * before it is invoked.
+ * <p/>
+ * This is not a {@link org.infinispan.commands.VisitableCommand} and hence not passed up the {@link
+ * org.infinispan.interceptors.base.CommandInterceptor} chain.
+ *
+ * @since 5.0
+ */
+public class DistributedExecuteCommand<V> implements CacheRpcCommand {
+
+   public static final byte COMMAND_ID = 20;
+
+   private String cacheName;
+   private Callable<V> callable;
+   private Set<Object> keys;
+
+   private Cache cache;
+
+   protected Configuration configuration;
+   protected ComponentRegistry componentRegistry;
+
+   public DistributedExecuteCommand() {
+   }
+
+   public DistributedExecuteCommand(String cacheName, Callable<V> callable, Set<Object> keys) {
+      this.cacheName = cacheName;
+      this.callable = callable;
+      this.keys = keys;
+   }
+
+   public void init(Cache cache) {
+      this.cache = cache;
+   }
+
+   public void injectComponents(Configuration configuration, ComponentRegistry componentRegistry) {
+      this.configuration = configuration;
+      this.componentRegistry = componentRegistry;
+   }
+
+   public Configuration getConfiguration() {
+      return configuration;
+   }
+
+   public ComponentRegistry getComponentRegistry() {
+      return componentRegistry;
+   }
+
+   /**
+    * Invokes the task.
+    *
+    * @param context invocation context, ignored.
+    * @return the result of the task
+    */
+   @SuppressWarnings("unchecked")
+   public V perform(InvocationContext context) throws Throwable {
+      if (callable instanceof DistributedCallable) {
+         Set<Object> input = keys == null ? Collections.emptySet() : keys;
+         ((DistributedCallable) callable).setEnvironment(cache, input);
+      }
+      return callable.call();
+   }
+
+   public byte getCommandId() {
+      return COMMAND_ID;
+   }
+
+   public Object[] getParameters() {
+      return new Object[]{cacheName, callable, keys};
+   }
+
+   @SuppressWarnings("unchecked")
+   public void setParameters(int commandId, Object[] args) {
+      cacheName = (String) args[0];
+      callable = (Callable<V>) args[1];
+      keys = (Set<Object>) args[2];
+   }
+
+   public String getCacheName() {
+      return cacheName;
+   }
+
+   public Callable<V> getCallable() {
+      return callable;
+   }
+
+   public Set<Object> getKeys() {
+      return keys;
+   }
+
+   @Override
+   public String toString() {
+      return new StringBuilder()
+         .append("DistributedExecuteCommand{cacheName=").append(cacheName)
+         .append(", callable=").append(callable)
+         .append(", keys=").append(keys)
+         .append("}")
+         .toString();
+   }
+}
@@ -0,0 +1,105 @@
+package org.infinispan.commands.read;
+
+import org.infinispan.commands.FlagAffectedCommand;
+import org.infinispan.commands.VisitableCommand;
+import org.infinispan.commands.Visitor;
+import org.infinispan.container.entries.CacheEntry;
+import org.infinispan.context.Flag;
+import org.infinispan.context.InvocationContext;
+import org.infinispan.notifications.cachelistener.CacheNotifier;
+import org.infinispan.util.logging.Log;
+import org.infinispan.util.logging.LogFactory;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Implements functionality defined by {@link org.infinispan.Cache#getAll(java.util.Set)}.
+ * <p/>
+ * Interceptors wrap, load or remotely retrieve all the keys in a single pass, so that the command itself only needs to
+ * collect the entries looked up in the invocation context.  Keys which are not mapped to any value are left out of
+ * the returned map.
+ * <p/>
+ * This command is only ever invoked locally; remote lookups of several keys are performed using a {@link
+ * org.infinispan.commands.remote.ClusteredGetAllCommand}.
+ *
+ * @since 5.0
+ */
+public class GetAllCommand extends AbstractLocalCommand implements VisitableCommand, FlagAffectedCommand {
+   private static final Log log = LogFactory.getLog(GetAllCommand.class);
+   private static final boolean trace = log.isTraceEnabled();
+
+   private Collection<Object> keys;
+   private Set<Flag> flags;
+   private CacheNotifier notifier;
+   private boolean returnCacheEntries;
+
+   public GetAllCommand(Collection<Object> keys, CacheNotifier notifier, Set<Flag> flags) {
+      this.keys = keys;
+      this.notifier = notifier;
+      this.flags = flags;
+   }
+
+   public Object acceptVisitor(InvocationContext ctx, Visitor visitor) throws Throwable {
+      return visitor.visitGetAllCommand(ctx, this);
+   }
+
+   /**
+    * Will make this command return the {@link CacheEntry} instances found rather than the values they hold.
+    */
+   public void setReturnCacheEntries(boolean returnCacheEntries) {
+      this.returnCacheEntries = returnCacheEntries;
+   }
+
+   public boolean isReturnCacheEntries() {
+      return returnCacheEntries;
+   }
+
+   @Override
+   public Map<Object, Object> perform(InvocationContext ctx) throws Throwable {
+      Map<Object, Object> result = new HashMap<Object, Object>();
+      for (Object key : keys) {
+         CacheEntry entry = ctx.lookupEntry(key);
+         if (entry == null || entry.isNull() || entry.isRemoved()) continue;
+         Object value = entry.getValue();
+         if (value == null) continue;
+         notifier.notifyCacheEntryVisited(key, value, true, ctx);
+         result.put(key, returnCacheEntries ? entry : value);
+         notifier.notifyCacheEntryVisited(key, value, false, ctx);
+      }
+      if (trace) log.trace("Found %s out of %s keys", result.size(), keys.size());
+      return result;
+   }
+
+   @Override
+   public boolean shouldInvoke(InvocationContext ctx) {
+      return true;
+   }
+
+   public Collection<Object> getKeys() {
+      return keys;
+   }
+
+   public void setKeys(Collection<Object> keys) {
+      this.keys = keys;
+   }
+
+   public Set<Flag> getFlags() {
+      return flags;
+   }
+
+   public void setFlags(Set<Flag> flags) {
+      this.flags = flags;
+   }
+
+   @Override
+   public String toString() {
+      return new StringBuilder()
+         .append("GetAllCommand{keys=").append(keys)
+         .append(", flags=").append(flags)
+         .append("}")
+         .toString();
+   }
+}
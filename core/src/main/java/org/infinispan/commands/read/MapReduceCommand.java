@@ -0,0 +1,160 @@
+package org.infinispan.commands.read;
+
+import org.infinispan.Cache;
+import org.infinispan.commands.remote.CacheRpcCommand;
+import org.infinispan.config.Configuration;
+import org.infinispan.container.DataContainer;
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.context.Flag;
+import org.infinispan.context.InvocationContext;
+import org.infinispan.distexec.mapreduce.Mapper;
+import org.infinispan.distexec.mapreduce.Reducer;
+import org.infinispan.distribution.DistributionManager;
+import org.infinispan.factories.ComponentRegistry;
+import org.infinispan.marshall.MarshalledValue;
+import org.infinispan.remoting.transport.Address;
+import org.infinispan.util.logging.Log;
+import org.infinispan.util.logging.LogFactory;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Executes the map and reduce phases of a {@link org.infinispan.distexec.mapreduce.MapReduceTask} against the entries
+ * held by the node it is performed on, and returns the locally reduced result.
+ * <p/>
+ * In distributed mode, only entries for which the local node is the primary owner are mapped, so that every key is
+ * mapped exactly once across the cluster. In any other mode all local entries are mapped. If input keys are given,
+ * only those keys are mapped, and they are read through the cache so that entries held in a cache store are
+ * considered as well; otherwise all entries of the local data container are mapped.
+ * <p/>
+ * This is not a {@link org.infinispan.commands.VisitableCommand} and hence not passed up the {@link
+ * org.infinispan.interceptors.base.CommandInterceptor} chain.
+ *
+ * @since 5.0
+ */
+public class MapReduceCommand implements CacheRpcCommand {
+
+   public static final byte COMMAND_ID = 19;
+   private static final Log log = LogFactory.getLog(MapReduceCommand.class);
+   private static final boolean trace = log.isTraceEnabled();
+
+   private String cacheName;
+   private Mapper mapper;
+   private Reducer reducer;
+   private Collection<Object> keys;
+
+   private Cache cache;
+   private DataContainer dataContainer;
+   private DistributionManager distributionManager;
+
+   protected Configuration configuration;
+   protected ComponentRegistry componentRegistry;
+
+   public MapReduceCommand() {
+   }
+
+   public MapReduceCommand(String cacheName, Mapper mapper, Reducer reducer, Collection<Object> keys) {
+      this.cacheName = cacheName;
+      this.mapper = mapper;
+      this.reducer = reducer;
+      this.keys = keys;
+   }
+
+   public void init(Cache cache, DataContainer dataContainer, DistributionManager distributionManager) {
+      this.cache = cache;
+      this.dataContainer = dataContainer;
+      this.distributionManager = distributionManager;
+   }
+
+   public void injectComponents(Configuration configuration, ComponentRegistry componentRegistry) {
+      this.configuration = configuration;
+      this.componentRegistry = componentRegistry;
+   }
+
+   public Configuration getConfiguration() {
+      return configuration;
+   }
+
+   public ComponentRegistry getComponentRegistry() {
+      return componentRegistry;
+   }
+
+   /**
+    * Maps and reduces the local entries.
+    *
+    * @param context invocation context, ignored.
+    * @return the locally reduced result, or null if no entry was mapped
+    */
+   @SuppressWarnings("unchecked")
+   public Object perform(InvocationContext context) throws Throwable {
+      Address self = distributionManager == null ? null : cache.getAdvancedCache().getRpcManager().getAddress();
+      Object reduced = null;
+      int mapped = 0;
+      if (keys == null || keys.isEmpty()) {
+         for (InternalCacheEntry entry : dataContainer) {
+            if (entry.isExpired() || !isPrimaryOwner(entry.getKey(), self)) continue;
+            reduced = reducer.reduce(mapper.map(unwrap(entry.getKey()), unwrap(entry.getValue())), reduced);
+            mapped++;
+         }
+      } else {
+         // the remote lookup is pointless as the primary owner is the one reading the key
+         Cache reader = cache.getAdvancedCache().withFlags(Flag.SKIP_REMOTE_LOOKUP);
+         for (Object key : keys) {
+            if (!isPrimaryOwner(key, self)) continue;
+            Object value = reader.get(key);
+            if (value != null) {
+               reduced = reducer.reduce(mapper.map(key, value), reduced);
+               mapped++;
+            }
+         }
+      }
+      if (trace) log.trace("Mapped %s entries of cache %s", mapped, cacheName);
+      return reduced;
+   }
+
+   private boolean isPrimaryOwner(Object key, Address self) {
+      if (distributionManager == null) return true;
+      List<Address> owners = distributionManager.locate(key);
+      return owners != null && !owners.isEmpty() && owners.get(0).equals(self);
+   }
+
+   private static Object unwrap(Object o) {
+      return o instanceof MarshalledValue ? ((MarshalledValue) o).get() : o;
+   }
+
+   public byte getCommandId() {
+      return COMMAND_ID;
+   }
+
+   public Object[] getParameters() {
+      return new Object[]{cacheName, mapper, reducer, keys};
+   }
+
+   @SuppressWarnings("unchecked")
+   public void setParameters(int commandId, Object[] args) {
+      cacheName = (String) args[0];
+      mapper = (Mapper) args[1];
+      reducer = (Reducer) args[2];
+      keys = (Collection<Object>) args[3];
+   }
+
+   public String getCacheName() {
+      return cacheName;
+   }
+
+   public Collection<Object> getKeys() {
+      return keys;
+   }
+
+   @Override
+   public String toString() {
+      return new StringBuilder()
+         .append("MapReduceCommand{cacheName=").append(cacheName)
+         .append(", mapper=").append(mapper)
+         .append(", reducer=").append(reducer)
+         .append(", keys=").append(keys)
+         .append("}")
+         .toString();
+   }
+}
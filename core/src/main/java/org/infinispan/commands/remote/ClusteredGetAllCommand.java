@@ -0,0 +1,198 @@
+package org.infinispan.commands.remote;
+
+import org.infinispan.commands.CommandsFactory;
+import org.infinispan.commands.FlagAffectedCommand;
+import org.infinispan.commands.read.GetAllCommand;
+import org.infinispan.config.Configuration;
+import org.infinispan.container.entries.CacheEntry;
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.container.entries.InternalCacheValue;
+import org.infinispan.container.entries.InternalEntryFactory;
+import org.infinispan.container.entries.MVCCEntry;
+import org.infinispan.context.Flag;
+import org.infinispan.context.InvocationContext;
+import org.infinispan.context.InvocationContextContainer;
+import org.infinispan.distribution.DistributionManager;
+import org.infinispan.distribution.L1Manager;
+import org.infinispan.factories.ComponentRegistry;
+import org.infinispan.interceptors.InterceptorChain;
+import org.infinispan.remoting.transport.Address;
+import org.infinispan.util.logging.Log;
+import org.infinispan.util.logging.LogFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Issues a remote get call for several keys at once, typically all the keys of a {@link
+ * org.infinispan.Cache#getAll(java.util.Set)} call owned by the node the command is sent to.  This is not a {@link
+ * org.infinispan.commands.VisitableCommand} and hence not passed up the {@link
+ * org.infinispan.interceptors.base.CommandInterceptor} chain.
+ * <p/>
+ * Keys affected by an ongoing rehash, as well as keys which are not found, are left out of the returned map.
+ *
+ * @since 5.0
+ */
+public class ClusteredGetAllCommand implements CacheRpcCommand, FlagAffectedCommand {
+
+   public static final byte COMMAND_ID = 21;
+   private static final Log log = LogFactory.getLog(ClusteredGetAllCommand.class);
+   private static final boolean trace = log.isTraceEnabled();
+
+   private Collection<Object> keys;
+   private String cacheName;
+   private Address requestor;
+
+   private InvocationContextContainer icc;
+   private CommandsFactory commandsFactory;
+   private InterceptorChain invoker;
+
+   private Set<Flag> flags;
+   protected Configuration configuration;
+   protected ComponentRegistry componentRegistry;
+
+   private DistributionManager distributionManager;
+   private L1Manager l1Manager;
+
+   public void injectComponents(Configuration configuration, ComponentRegistry componentRegistry) {
+      this.configuration = configuration;
+      this.componentRegistry = componentRegistry;
+   }
+
+   public Configuration getConfiguration() {
+      return configuration;
+   }
+
+   public ComponentRegistry getComponentRegistry() {
+      return componentRegistry;
+   }
+
+   public ClusteredGetAllCommand() {
+   }
+
+   public ClusteredGetAllCommand(Collection<Object> keys, String cacheName, Set<Flag> flags) {
+      this.keys = keys;
+      this.cacheName = cacheName;
+      this.flags = flags;
+   }
+
+   public void initialize(InvocationContextContainer icc, CommandsFactory commandsFactory,
+                          InterceptorChain interceptorChain, DistributionManager distributionManager,
+                          L1Manager l1Manager) {
+      this.distributionManager = distributionManager;
+      this.l1Manager = l1Manager;
+      this.icc = icc;
+      this.commandsFactory = commandsFactory;
+      this.invoker = interceptorChain;
+   }
+
+   /**
+    * Invokes a logical "getAll(keys)" on a remote cache and returns results.
+    *
+    * @param context invocation context, ignored.
+    * @return a map of the keys found to their <code>InternalCacheValue</code>s, never null
+    */
+   @SuppressWarnings("unchecked")
+   public Map<Object, InternalCacheValue> perform(InvocationContext context) throws Throwable {
+      List<Object> toRead = new ArrayList<Object>(keys.size());
+      for (Object key : keys) {
+         if (distributionManager == null || !distributionManager.isAffectedByRehash(key)) toRead.add(key);
+      }
+      if (toRead.isEmpty()) return Collections.emptyMap();
+      if (requestor != null && l1Manager != null) {
+         for (Object key : toRead) l1Manager.addRequestor(key, requestor);
+      }
+
+      GetAllCommand command = commandsFactory.buildGetAllCommand(toRead, flags);
+      command.setReturnCacheEntries(true);
+      InvocationContext invocationContext = icc.createRemoteInvocationContextForCommand(command);
+      Map<Object, CacheEntry> entries = (Map<Object, CacheEntry>) invoker.invoke(invocationContext, command);
+
+      Map<Object, InternalCacheValue> values = new HashMap<Object, InternalCacheValue>(entries.size());
+      for (Map.Entry<Object, CacheEntry> e : entries.entrySet()) {
+         CacheEntry cacheEntry = e.getValue();
+         //this might happen if the value was fetched from a cache loader
+         if (cacheEntry instanceof MVCCEntry) {
+            MVCCEntry mvccEntry = (MVCCEntry) cacheEntry;
+            values.put(e.getKey(), InternalEntryFactory.createValue(mvccEntry.getValue(), -1, mvccEntry.getLifespan(), -1, mvccEntry.getMaxIdle()));
+         } else {
+            values.put(e.getKey(), ((InternalCacheEntry) cacheEntry).toInternalCacheValue());
+         }
+      }
+      if (trace) log.trace("Found %s out of %s requested keys", values.size(), keys.size());
+      return values;
+   }
+
+   public byte getCommandId() {
+      return COMMAND_ID;
+   }
+
+   public Object[] getParameters() {
+      return new Object[]{keys, cacheName, flags, requestor};
+   }
+
+   @SuppressWarnings("unchecked")
+   public void setParameters(int commandId, Object[] args) {
+      keys = (Collection<Object>) args[0];
+      cacheName = (String) args[1];
+      flags = (Set<Flag>) args[2];
+      requestor = (Address) args[3];
+   }
+
+   @Override
+   public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+
+      ClusteredGetAllCommand that = (ClusteredGetAllCommand) o;
+
+      return !(keys != null ? !keys.equals(that.keys) : that.keys != null);
+   }
+
+   @Override
+   public int hashCode() {
+      return keys != null ? keys.hashCode() : 0;
+   }
+
+   @Override
+   public String toString() {
+      return new StringBuilder()
+         .append("ClusteredGetAllCommand{keys=")
+         .append(keys)
+         .append(", flags=").append(flags)
+         .append("}")
+         .toString();
+   }
+
+   public String getCacheName() {
+      return cacheName;
+   }
+
+   public Collection<Object> getKeys() {
+      return keys;
+   }
+
+   public Address getRequestor() {
+      return requestor;
+   }
+
+   /**
+    * @param requestor the node to which the entries are returned if it may keep them in its L1 cache, null otherwise
+    */
+   public void setRequestor(Address requestor) {
+      this.requestor = requestor;
+   }
+
+   public Set<Flag> getFlags() {
+      return flags;
+   }
+
+   public void setFlags(Set<Flag> flags) {
+      this.flags = flags;
+   }
+}
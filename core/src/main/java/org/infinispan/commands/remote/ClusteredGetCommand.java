@@ -34,8 +34,10 @@ import org.infinispan.context.Flag;
 import org.infinispan.context.InvocationContext;
 import org.infinispan.context.InvocationContextContainer;
 import org.infinispan.distribution.DistributionManager;
+import org.infinispan.distribution.L1Manager;
 import org.infinispan.factories.ComponentRegistry;
 import org.infinispan.interceptors.InterceptorChain;
+import org.infinispan.remoting.transport.Address;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
 
@@ -58,6 +60,7 @@ public class ClusteredGetCommand implements CacheRpcCommand, FlagAffectedCommand
 
    private Object key;
    private String cacheName;
+   private Address requestor;
 
    private InvocationContextContainer icc;
    private CommandsFactory commandsFactory;
@@ -68,6 +71,7 @@ public class ClusteredGetCommand implements CacheRpcCommand, FlagAffectedCommand
    protected ComponentRegistry componentRegistry;
 
    private DistributionManager distributionManager;
+   private L1Manager l1Manager;
 
    public void injectComponents(Configuration configuration, ComponentRegistry componentRegistry) {
       this.configuration = configuration;
@@ -96,8 +100,10 @@ public class ClusteredGetCommand implements CacheRpcCommand, FlagAffectedCommand
    }
 
    public void initialize(InvocationContextContainer icc, CommandsFactory commandsFactory,
-                          InterceptorChain interceptorChain, DistributionManager distributionManager) {
+                          InterceptorChain interceptorChain, DistributionManager distributionManager,
+                          L1Manager l1Manager) {
       this.distributionManager = distributionManager;
+      this.l1Manager = l1Manager;
       this.icc = icc;
       this.commandsFactory = commandsFactory;
       this.invoker = interceptorChain;
@@ -111,6 +117,8 @@ public class ClusteredGetCommand implements CacheRpcCommand, FlagAffectedCommand
     */
    public InternalCacheValue perform(InvocationContext context) throws Throwable {
       if (distributionManager != null && distributionManager.isAffectedByRehash(key)) return null;
+      // register the requestor before reading the entry, so that it is invalidated if the entry is modified meanwhile
+      if (requestor != null && l1Manager != null) l1Manager.addRequestor(key, requestor);
       GetKeyValueCommand command = commandsFactory.buildGetKeyValueCommand(key, flags);
       command.setReturnCacheEntry(true);
       InvocationContext invocationContext = icc.createRemoteInvocationContextForCommand(command);
@@ -135,7 +143,7 @@ public class ClusteredGetCommand implements CacheRpcCommand, FlagAffectedCommand
    }
 
    public Object[] getParameters() {
-      return new Object[]{key, cacheName, flags};
+      return new Object[]{key, cacheName, flags, requestor};
    }
 
    public void setParameters(int commandId, Object[] args) {
@@ -144,6 +152,9 @@ public class ClusteredGetCommand implements CacheRpcCommand, FlagAffectedCommand
       if (args.length>2) {
          this.flags = (Set<Flag>) args[2];
       }
+      if (args.length>3) {
+         this.requestor = (Address) args[3];
+      }
    }
 
    @Override
@@ -181,6 +192,17 @@ public class ClusteredGetCommand implements CacheRpcCommand, FlagAffectedCommand
       return key;
    }
 
+   public Address getRequestor() {
+      return requestor;
+   }
+
+   /**
+    * @param requestor the node to which the entry is returned if it may keep it in its L1 cache, null otherwise
+    */
+   public void setRequestor(Address requestor) {
+      this.requestor = requestor;
+   }
+
    @Override
    public Set<Flag> getFlags() {
       return flags;
@@ -25,6 +25,7 @@ import org.infinispan.container.DataContainer;
 import org.infinispan.container.DefaultDataContainer;
 import org.infinispan.distribution.ch.DefaultConsistentHash;
 import org.infinispan.distribution.ch.TopologyAwareConsistentHash;
+import org.infinispan.eviction.DefaultEntrySizeCalculator;
 import org.infinispan.eviction.EvictionStrategy;
 import org.infinispan.eviction.EvictionThreadPolicy;
 import org.infinispan.factories.ComponentRegistry;
@@ -312,8 +313,9 @@ public class Configuration extends AbstractNamedCacheConfigurationBean {
       EvictionConfig wakeUpInterval(Long wakeUpInterval);
 
       /**
-       * Eviction strategy. Available options are 'UNORDERED', 'FIFO', 'LRU' and 'NONE' (to disable
-       * eviction).
+       * Eviction strategy. Available options are 'UNORDERED', 'FIFO', 'LRU', 'LIRS', 'TINY_LFU' and 'NONE'
+       * (to disable eviction).  'TINY_LFU' evicts like 'LRU' but only admits new entries which were
+       * accessed more often than the entries they would replace, to protect popular entries from scans.
        * 
        * @param evictionStrategy
        */
@@ -334,6 +336,32 @@ public class Configuration extends AbstractNamedCacheConfigurationBean {
        * @param evictionMaxEntries
        */
       EvictionConfig maxEntries(Integer maxEntries);
+
+      /**
+       * Maximum total size, in bytes, of the entries in a cache instance, as estimated by the entry
+       * size calculator. The size is bounded for the whole data container: whenever it is too large,
+       * the segment being written to evicts its own entries, but keeps the last one. -1 means no limit.
+       * 
+       * @param maxWeight
+       */
+      EvictionConfig maxWeight(Long maxWeight);
+
+      /**
+       * Fully qualified class name of the EntrySizeCalculator which estimates the size of entries
+       * when maxWeight is set.
+       * 
+       * @param sizeCalculatorClass
+       */
+      EvictionConfig sizeCalculatorClass(String sizeCalculatorClass);
+
+      /**
+       * If true, maxEntries bounds the whole data container rather than each of its segments, so that
+       * segments holding more of the frequently used entries can grow beyond their share, and maxWeight
+       * is enforced strictly.
+       * 
+       * @param acrossSegments
+       */
+      EvictionConfig acrossSegments(Boolean acrossSegments);
    }
 
    /**
@@ -588,6 +616,14 @@ public class Configuration extends AbstractNamedCacheConfigurationBean {
        * @param l1OnRehash
        */
       L1Config onRehash(Boolean onRehash);
+
+      /**
+       * Maximum number of keys for which a node keeps track of the nodes which retrieved them into
+       * their L1 cache, so that L1 invalidations are only sent to those nodes
+       * 
+       * @param maxTrackedKeys
+       */
+      L1Config maxTrackedKeys(Integer maxTrackedKeys);
    }
 
    /**
@@ -629,6 +665,22 @@ public class Configuration extends AbstractNamedCacheConfigurationBean {
        */
       HashConfig rehashRpcTimeout(Long rehashRpcTimeout);
 
+      /**
+       * Maximum number of entries sent in a single chunk of state when pulling state during a
+       * rehash
+       * 
+       * @param rehashChunkSize
+       */
+      HashConfig rehashChunkSize(Integer rehashChunkSize);
+
+      /**
+       * Time, in milliseconds, to wait for the preferred owner of a key to respond to a remote get
+       * before asking the next owner
+       * 
+       * @param remoteGetStaggerDelay
+       */
+      HashConfig remoteGetStaggerDelay(Long remoteGetStaggerDelay);
+
       /**
        * If false, no rebalancing or rehashing will take place when a new node joins the cluster or
        * a node leaves
@@ -880,6 +932,41 @@ public class Configuration extends AbstractNamedCacheConfigurationBean {
       return clustering.hash.rehashRpcTimeout;
    }
 
+   /**
+    * Maximum number of entries sent in a single chunk of state when a node pulls state from another node during a
+    * rehash.  State is streamed in chunks of at most this many entries, each of which is applied before the next one
+    * is requested, so that neither the sender nor the receiver need to hold all of the state in memory at once.  A
+    * value of 0 or less disables chunking.
+    *
+    * @param rehashChunkSize
+    */
+   @Deprecated
+   public void setRehashChunkSize(int rehashChunkSize) {
+      this.clustering.hash.setRehashChunkSize(rehashChunkSize);
+   }
+
+   public int getRehashChunkSize() {
+      return clustering.hash.rehashChunkSize;
+   }
+
+   /**
+    * Time, in milliseconds, a remote get waits for the preferred owner of a key to respond before also asking the
+    * next owner.  Remote gets are sent to a single owner at a time, the closest one according to the topology of the
+    * cluster, so that reads don't cost one call per owner.  The next owner is asked as soon as the previous one
+    * failed or could not provide the entry because of a rehash, or once this delay has elapsed.  A value of 0 or less
+    * asks all owners at once.
+    *
+    * @param remoteGetStaggerDelay
+    */
+   @Deprecated
+   public void setRemoteGetStaggerDelay(long remoteGetStaggerDelay) {
+      this.clustering.hash.setRemoteGetStaggerDelay(remoteGetStaggerDelay);
+   }
+
+   public long getRemoteGetStaggerDelay() {
+      return clustering.hash.remoteGetStaggerDelay;
+   }
+
    public boolean isWriteSkewCheck() {
       return locking.writeSkewCheck;
    }
@@ -1128,7 +1215,10 @@ public class Configuration extends AbstractNamedCacheConfigurationBean {
    }
 
    /**
-    * Eviction strategy. Available options are 'UNORDERED', 'FIFO', 'LRU' and 'NONE' (to disable eviction).
+    * Eviction strategy. Available options are 'UNORDERED', 'FIFO', 'LRU', 'LIRS', 'TINY_LFU' and 'NONE' (to disable
+    * eviction).  'TINY_LFU' evicts like 'LRU', but a new entry is only admitted if it was accessed more often recently
+    * than the entries it would replace, and is evicted straight away otherwise.  This keeps scans over many keys
+    * accessed only once, such as preloads, from flushing the popular entries.
     *
     * @param evictionStrategy
     */
@@ -1138,7 +1228,10 @@ public class Configuration extends AbstractNamedCacheConfigurationBean {
    }
 
    /**
-    * Eviction strategy. Available options are 'UNORDERED', 'FIFO', 'LRU' and 'NONE' (to disable eviction).
+    * Eviction strategy. Available options are 'UNORDERED', 'FIFO', 'LRU', 'LIRS', 'TINY_LFU' and 'NONE' (to disable
+    * eviction).  'TINY_LFU' evicts like 'LRU', but a new entry is only admitted if it was accessed more often recently
+    * than the entries it would replace, and is evicted straight away otherwise.  This keeps scans over many keys
+    * accessed only once, such as preloads, from flushing the popular entries.
     *
     * @param eStrategy
     */
@@ -1194,6 +1287,63 @@ public class Configuration extends AbstractNamedCacheConfigurationBean {
       this.eviction.setMaxEntries(evictionMaxEntries);
    }
 
+   public long getEvictionMaxWeight() {
+      return eviction.maxWeight;
+   }
+
+   /**
+    * Maximum total size, in bytes, of the entries in a cache instance, as estimated by the entry size calculator.
+    * Entries are evicted as soon as either their number goes over maxEntries or their total size goes over maxWeight,
+    * so maxEntries must be set as well, to the highest number of entries expected.  Unlike maxEntries, the size is
+    * bounded for the data container as a whole rather than for each of its concurrencyLevel segments, so that entries
+    * larger than a segment's share fit.  The segment being written to evicts its own entries but keeps the last one,
+    * so the container may go over maxWeight by up to one entry per segment.  An entry larger than maxWeight on its own
+    * is evicted straight away.  Only applies to the default data container. -1 means no limit.
+    *
+    * @param evictionMaxWeight
+    */
+   @Deprecated
+   public void setEvictionMaxWeight(long evictionMaxWeight) {
+      this.eviction.setMaxWeight(evictionMaxWeight);
+   }
+
+   public String getEvictionSizeCalculatorClass() {
+      return eviction.sizeCalculatorClass;
+   }
+
+   /**
+    * Fully qualified class name of the {@link org.infinispan.eviction.EntrySizeCalculator} which estimates the size of
+    * entries when maxWeight is set.  The default one measures byte arrays and strings directly and marshalls a sample
+    * of the other objects of each class, assuming the others to be the average size of their class.  It fails for
+    * objects which can't be marshalled.
+    *
+    * @param evictionSizeCalculatorClass
+    */
+   @Deprecated
+   public void setEvictionSizeCalculatorClass(String evictionSizeCalculatorClass) {
+      this.eviction.setSizeCalculatorClass(evictionSizeCalculatorClass);
+   }
+
+   public boolean isEvictionAcrossSegments() {
+      return eviction.acrossSegments;
+   }
+
+   /**
+    * If true, maxEntries bounds the whole data container rather than each of its concurrencyLevel segments, and
+    * maxWeight is enforced strictly rather than by the segment being written to.  Each segment otherwise holds at most
+    * its share of the entries, so segments holding more of the frequently used entries evict them while others hold
+    * on to rarely used ones.  Across segments, the entry to evict
+    * is picked from a few sampled segments, which gets the hit rate close to that of a single LRU or LIRS ordering of
+    * all entries, at the cost of updating shared counters on each write.  Only applies to the default data container,
+    * and can't be combined with the 'TINY_LFU' strategy.
+    *
+    * @param evictionAcrossSegments
+    */
+   @Deprecated
+   public void setEvictionAcrossSegments(boolean evictionAcrossSegments) {
+      this.eviction.setAcrossSegments(evictionAcrossSegments);
+   }
+
    /**
     * Expiration lifespan, in milliseconds
     */
@@ -1467,6 +1617,20 @@ public class Configuration extends AbstractNamedCacheConfigurationBean {
       this.clustering.l1.setOnRehash(l1OnRehash);
    }
 
+   /**
+    * Maximum number of keys for which a node keeps track of the nodes which retrieved them into their L1 cache.  When
+    * a key is modified, its owners only send L1 invalidations to the nodes which retrieved it from them, rather than to
+    * the whole cluster.  Invalidations are broadcast when more keys have been retrieved within the L1 lifespan than
+    * can be tracked, and for an L1 lifespan after the topology of the cluster changes.  A value of 0 or less disables
+    * tracking, so that L1 invalidations are always broadcast.
+    *
+    * @param l1MaxTrackedKeys
+    */
+   @Deprecated
+   public void setL1MaxTrackedKeys(int l1MaxTrackedKeys) {
+      this.clustering.l1.setMaxTrackedKeys(l1MaxTrackedKeys);
+   }
+
    /**
     * Fully qualified name of class providing consistent hash algorithm
     *
@@ -1688,6 +1852,10 @@ public class Configuration extends AbstractNamedCacheConfigurationBean {
       return clustering.l1.onRehash;
    }
 
+   public int getL1MaxTrackedKeys() {
+      return clustering.l1.maxTrackedKeys;
+   }
+
    public String getConsistentHashClass() {
       if (clustering.hash.consistentHashClass == null) {
          clustering.hash.consistentHashClass = globalConfiguration == null || globalConfiguration.hasTopologyInfo() ? TopologyAwareConsistentHash.class.getName() : DefaultConsistentHash.class.getName();
@@ -2613,6 +2781,15 @@ public class Configuration extends AbstractNamedCacheConfigurationBean {
       @ConfigurationDocRef(bean = Configuration.class, targetElement = "setEvictionThreadPolicy")
       protected EvictionThreadPolicy threadPolicy = EvictionThreadPolicy.DEFAULT;
 
+      @ConfigurationDocRef(bean = Configuration.class, targetElement = "setEvictionMaxWeight")
+      protected Long maxWeight = -1L;
+
+      @ConfigurationDocRef(bean = Configuration.class, targetElement = "setEvictionSizeCalculatorClass")
+      protected String sizeCalculatorClass = DefaultEntrySizeCalculator.class.getName();
+
+      @ConfigurationDocRef(bean = Configuration.class, targetElement = "setEvictionAcrossSegments")
+      protected Boolean acrossSegments = false;
+
       @Override
       public EvictionConfig wakeUpInterval(Long wakeUpInterval) {
          testImmutability("wakeUpInterval");
@@ -2669,6 +2846,45 @@ public class Configuration extends AbstractNamedCacheConfigurationBean {
          this.maxEntries = maxEntries;
       }
 
+      @Override
+      public EvictionConfig maxWeight(Long maxWeight) {
+         testImmutability("maxWeight");
+         this.maxWeight = maxWeight;
+         return this;
+      }
+
+      @XmlAttribute
+      public void setMaxWeight(Long maxWeight) {
+         testImmutability("maxWeight");
+         this.maxWeight = maxWeight;
+      }
+
+      @Override
+      public EvictionConfig sizeCalculatorClass(String sizeCalculatorClass) {
+         testImmutability("sizeCalculatorClass");
+         this.sizeCalculatorClass = sizeCalculatorClass;
+         return this;
+      }
+
+      @XmlAttribute
+      public void setSizeCalculatorClass(String sizeCalculatorClass) {
+         testImmutability("sizeCalculatorClass");
+         this.sizeCalculatorClass = sizeCalculatorClass;
+      }
+
+      @Override
+      public EvictionConfig acrossSegments(Boolean acrossSegments) {
+         testImmutability("acrossSegments");
+         this.acrossSegments = acrossSegments;
+         return this;
+      }
+
+      @XmlAttribute
+      public void setAcrossSegments(Boolean acrossSegments) {
+         testImmutability("acrossSegments");
+         this.acrossSegments = acrossSegments;
+      }
+
       @Override
       public boolean equals(Object o) {
          if (this == o) return true;
@@ -2681,6 +2897,11 @@ public class Configuration extends AbstractNamedCacheConfigurationBean {
          if (threadPolicy != that.threadPolicy) return false;
          if (wakeUpInterval != null ? !wakeUpInterval.equals(that.wakeUpInterval) : that.wakeUpInterval != null)
             return false;
+         if (maxWeight != null ? !maxWeight.equals(that.maxWeight) : that.maxWeight != null) return false;
+         if (sizeCalculatorClass != null ? !sizeCalculatorClass.equals(that.sizeCalculatorClass) : that.sizeCalculatorClass != null)
+            return false;
+         if (acrossSegments != null ? !acrossSegments.equals(that.acrossSegments) : that.acrossSegments != null)
+            return false;
 
          return true;
       }
@@ -2691,6 +2912,9 @@ public class Configuration extends AbstractNamedCacheConfigurationBean {
          result = 31 * result + (strategy != null ? strategy.hashCode() : 0);
          result = 31 * result + (threadPolicy != null ? threadPolicy.hashCode() : 0);
          result = 31 * result + (maxEntries != null ? maxEntries.hashCode() : 0);
+         result = 31 * result + (maxWeight != null ? maxWeight.hashCode() : 0);
+         result = 31 * result + (sizeCalculatorClass != null ? sizeCalculatorClass.hashCode() : 0);
+         result = 31 * result + (acrossSegments != null ? acrossSegments.hashCode() : 0);
          return result;
       }
    }
@@ -2717,6 +2941,13 @@ public class Configuration extends AbstractNamedCacheConfigurationBean {
       
       protected DataContainer dataContainer;
 
+      /**
+       * Fully qualified class name of the {@link DataContainer} implementation to use. Defaults to
+       * {@link DefaultDataContainer}. Use {@link org.infinispan.container.OffHeapDataContainer} to keep entries in
+       * direct memory instead; its slab size in bytes can be set through the <tt>slabSize</tt> data container property.
+       *
+       * @param dataContainerClass
+       */
       @XmlAttribute
       public void setClass(String dataContainerClass) {
          testImmutability("dataContainerClass");
@@ -3032,6 +3263,12 @@ public class Configuration extends AbstractNamedCacheConfigurationBean {
       @ConfigurationDocRef(bean = Configuration.class, targetElement = "setRehashRpcTimeout")
       protected Long rehashRpcTimeout = MINUTES.toMillis(10);
 
+      @ConfigurationDocRef(bean = Configuration.class, targetElement = "setRehashChunkSize")
+      protected Integer rehashChunkSize = 10000;
+
+      @ConfigurationDocRef(bean = Configuration.class, targetElement = "setRemoteGetStaggerDelay")
+      protected Long remoteGetStaggerDelay = 100L;
+
       @ConfigurationDocRef(bean = Configuration.class, targetElement = "setRehashEnabled")
       protected Boolean rehashEnabled = true;
 
@@ -3083,6 +3320,18 @@ public class Configuration extends AbstractNamedCacheConfigurationBean {
          this.rehashRpcTimeout = rehashRpcTimeout;
       }
 
+      @XmlAttribute
+      public void setRehashChunkSize(Integer rehashChunkSize) {
+         testImmutability("rehashChunkSize");
+         this.rehashChunkSize = rehashChunkSize;
+      }
+
+      @XmlAttribute
+      public void setRemoteGetStaggerDelay(Long remoteGetStaggerDelay) {
+         testImmutability("remoteGetStaggerDelay");
+         this.remoteGetStaggerDelay = remoteGetStaggerDelay;
+      }
+
       @XmlAttribute
       public void setRehashEnabled(Boolean rehashEnabled) {
          testImmutability("rehashEnabled");
@@ -3110,6 +3359,20 @@ public class Configuration extends AbstractNamedCacheConfigurationBean {
          return this;
       }
 
+      @Override
+      public HashConfig rehashChunkSize(Integer rehashChunkSize) {
+         testImmutability("rehashChunkSize");
+         this.rehashChunkSize = rehashChunkSize;
+         return this;
+      }
+
+      @Override
+      public HashConfig remoteGetStaggerDelay(Long remoteGetStaggerDelay) {
+         testImmutability("remoteGetStaggerDelay");
+         this.remoteGetStaggerDelay = remoteGetStaggerDelay;
+         return this;
+      }
+
       @Override
       public HashConfig rehashEnabled(Boolean rehashEnabled) {
          testImmutability("rehashEnabled");
@@ -3132,6 +3395,10 @@ public class Configuration extends AbstractNamedCacheConfigurationBean {
          if (rehashRpcTimeout != null ? !rehashRpcTimeout.equals(hashType.rehashRpcTimeout) : hashType.rehashRpcTimeout != null)
             return false;
          if (rehashWait != null ? !rehashWait.equals(hashType.rehashWait) : hashType.rehashWait != null) return false;
+         if (rehashChunkSize != null ? !rehashChunkSize.equals(hashType.rehashChunkSize) : hashType.rehashChunkSize != null)
+            return false;
+         if (remoteGetStaggerDelay != null ? !remoteGetStaggerDelay.equals(hashType.remoteGetStaggerDelay) : hashType.remoteGetStaggerDelay != null)
+            return false;
          if (rehashEnabled != hashType.rehashEnabled) return false;
 
          return true;
@@ -3144,6 +3411,8 @@ public class Configuration extends AbstractNamedCacheConfigurationBean {
          result = 31 * result + (numOwners != null ? numOwners.hashCode() : 0);
          result = 31 * result + (rehashWait != null ? rehashWait.hashCode() : 0);
          result = 31 * result + (rehashRpcTimeout != null ? rehashRpcTimeout.hashCode() : 0);
+         result = 31 * result + (rehashChunkSize != null ? rehashChunkSize.hashCode() : 0);
+         result = 31 * result + (remoteGetStaggerDelay != null ? remoteGetStaggerDelay.hashCode() : 0);
          result = 31 * result + (rehashEnabled ? 0 : 1);
          return result;
       }
@@ -3173,6 +3442,9 @@ public class Configuration extends AbstractNamedCacheConfigurationBean {
       @ConfigurationDocRef(bean = Configuration.class, targetElement = "setL1OnRehash")
       protected Boolean onRehash = true;
 
+      @ConfigurationDocRef(bean = Configuration.class, targetElement = "setL1MaxTrackedKeys")
+      protected Integer maxTrackedKeys = 100000;
+
       @XmlAttribute
       public L1Config setEnabled(Boolean enabled) {
          testImmutability("enabled");
@@ -3204,6 +3476,13 @@ public class Configuration extends AbstractNamedCacheConfigurationBean {
          this.onRehash = onRehash;
          return this;
       }
+
+      @XmlAttribute
+      public L1Config setMaxTrackedKeys(Integer maxTrackedKeys) {
+         testImmutability("maxTrackedKeys");
+         this.maxTrackedKeys = maxTrackedKeys;
+         return this;
+      }
       
       @Override
       public L1Config lifespan(Long lifespan) {
@@ -3219,6 +3498,13 @@ public class Configuration extends AbstractNamedCacheConfigurationBean {
          return this;
       }
 
+      @Override
+      public L1Config maxTrackedKeys(Integer maxTrackedKeys) {
+         testImmutability("maxTrackedKeys");
+         this.maxTrackedKeys = maxTrackedKeys;
+         return this;
+      }
+
       @Override
       public boolean equals(Object o) {
          if (this == o) return true;
@@ -3229,6 +3515,8 @@ public class Configuration extends AbstractNamedCacheConfigurationBean {
          if (enabled != null ? !enabled.equals(l1Type.enabled) : l1Type.enabled != null) return false;
          if (lifespan != null ? !lifespan.equals(l1Type.lifespan) : l1Type.lifespan != null) return false;
          if (onRehash != null ? !onRehash.equals(l1Type.onRehash) : l1Type.onRehash != null) return false;
+         if (maxTrackedKeys != null ? !maxTrackedKeys.equals(l1Type.maxTrackedKeys) : l1Type.maxTrackedKeys != null)
+            return false;
 
          return true;
       }
@@ -3238,6 +3526,7 @@ public class Configuration extends AbstractNamedCacheConfigurationBean {
          int result = enabled != null ? enabled.hashCode() : 0;
          result = 31 * result + (lifespan != null ? lifespan.hashCode() : 0);
          result = 31 * result + (onRehash != null ? onRehash.hashCode() : 0);
+         result = 31 * result + (maxTrackedKeys != null ? maxTrackedKeys.hashCode() : 0);
          return result;
       }
    }
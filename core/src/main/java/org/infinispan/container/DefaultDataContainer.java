@@ -14,6 +14,7 @@ import net.jcip.annotations.ThreadSafe;
 
 import org.infinispan.container.entries.InternalCacheEntry;
 import org.infinispan.container.entries.InternalEntryFactory;
+import org.infinispan.eviction.EntrySizeCalculator;
 import org.infinispan.eviction.EvictionManager;
 import org.infinispan.eviction.EvictionStrategy;
 import org.infinispan.eviction.EvictionThreadPolicy;
@@ -40,15 +41,39 @@ public class DefaultDataContainer implements DataContainer {
    final ConcurrentMap<Object, InternalCacheEntry> entries;
    final InternalEntryFactory entryFactory;
    final DefaultEvictionListener evictionListener;
+   final ExpiryIndex expiryIndex;
    private EvictionManager evictionManager;
 
    protected DefaultDataContainer(int concurrencyLevel) {
       entries = new ConcurrentHashMap<Object, InternalCacheEntry>(128, 0.75f,concurrencyLevel);
       entryFactory = new InternalEntryFactory();
+      expiryIndex = new ExpiryIndex(concurrencyLevel);
       evictionListener = null;
    }
 
    protected DefaultDataContainer(int concurrencyLevel, int maxEntries, EvictionStrategy strategy, EvictionThreadPolicy policy) {
+      this(concurrencyLevel, maxEntries, strategy, policy, null, -1);
+   }
+
+   /**
+    * @param sizeCalculator estimates the size of the entries, from their key and value, or null if the container is
+    *                       only bounded by its number of entries
+    * @param maxWeight      the maximum total size of the entries, ignored if no size calculator is given
+    */
+   protected DefaultDataContainer(int concurrencyLevel, int maxEntries, EvictionStrategy strategy, EvictionThreadPolicy policy,
+                                  EntrySizeCalculator<Object, Object> sizeCalculator, long maxWeight) {
+      this(concurrencyLevel, maxEntries, strategy, policy, sizeCalculator, maxWeight, false);
+   }
+
+   /**
+    * @param sizeCalculator       estimates the size of the entries, from their key and value, or null if the
+    *                             container is only bounded by its number of entries
+    * @param maxWeight            the maximum total size of the entries, ignored if no size calculator is given
+    * @param evictAcrossSegments  whether to evict the least recently used entries of the whole container rather than
+    *                             those of the segment being written to
+    */
+   protected DefaultDataContainer(int concurrencyLevel, int maxEntries, EvictionStrategy strategy, EvictionThreadPolicy policy,
+                                  EntrySizeCalculator<Object, Object> sizeCalculator, long maxWeight, boolean evictAcrossSegments) {
 
       // translate eviction policy and strategy
       switch (policy) {
@@ -63,18 +88,29 @@ public class DefaultDataContainer implements DataContainer {
       Eviction eviction;
       switch (strategy) {
          case FIFO:
+            eviction = Eviction.FIFO;
+            break;
          case UNORDERED:
+            eviction = Eviction.UNORDERED;
+            break;
          case LRU:
             eviction = Eviction.LRU;
             break;
          case LIRS:
             eviction = Eviction.LIRS;
             break;
+         case TINY_LFU:
+            eviction = Eviction.TINY_LFU;
+            break;
          default:
             throw new IllegalArgumentException("No such eviction strategy " + strategy);
       }
-      entries = new BoundedConcurrentHashMap<Object, InternalCacheEntry>(maxEntries, concurrencyLevel, eviction, evictionListener);
+      EntrySizeCalculator<Object, InternalCacheEntry> entrySizeCalculator = null;
+      if (sizeCalculator != null) entrySizeCalculator = new ValueSizeCalculator(sizeCalculator);
+      entries = new BoundedConcurrentHashMap<Object, InternalCacheEntry>(maxEntries, concurrencyLevel, eviction, evictionListener,
+                                                                         entrySizeCalculator, maxWeight, evictAcrossSegments);
       entryFactory = new InternalEntryFactory();
+      expiryIndex = new ExpiryIndex(concurrencyLevel);
    }
 
    @Inject
@@ -87,6 +123,17 @@ public class DefaultDataContainer implements DataContainer {
       return new DefaultDataContainer(concurrencyLevel, maxEntries, strategy, policy);
    }
 
+   public static DataContainer boundedDataContainer(int concurrencyLevel, int maxEntries,
+            EvictionStrategy strategy, EvictionThreadPolicy policy, EntrySizeCalculator<Object, Object> sizeCalculator, long maxWeight) {
+      return new DefaultDataContainer(concurrencyLevel, maxEntries, strategy, policy, sizeCalculator, maxWeight);
+   }
+
+   public static DataContainer boundedDataContainer(int concurrencyLevel, int maxEntries,
+            EvictionStrategy strategy, EvictionThreadPolicy policy, EntrySizeCalculator<Object, Object> sizeCalculator, long maxWeight,
+            boolean evictAcrossSegments) {
+      return new DefaultDataContainer(concurrencyLevel, maxEntries, strategy, policy, sizeCalculator, maxWeight, evictAcrossSegments);
+   }
+
    public static DataContainer unBoundedDataContainer(int concurrencyLevel) {
       return new DefaultDataContainer(concurrencyLevel);
    }
@@ -101,6 +148,7 @@ public class DefaultDataContainer implements DataContainer {
       if (e != null) {
          if (e.isExpired()) {
             entries.remove(k);
+            expiryIndex.unregister(e);
             e = null;
          } else {
             e.touch();
@@ -123,13 +171,20 @@ public class DefaultDataContainer implements DataContainer {
          // this is a brand-new entry
          e = entryFactory.createNewEntry(k, v, lifespan, maxIdle);
       }
-      entries.put(k, e);
+      // registered before being stored, so that the eviction listener drops the registration if the put evicts the
+      // entry straight away
+      expiryIndex.register(k, e);
+      InternalCacheEntry previous = entries.put(k, e);
+      if (previous != null && previous != e) {
+         expiryIndex.unregister(previous);
+      }
    }
 
    public boolean containsKey(Object k) {
       InternalCacheEntry ice = peek(k);
       if (ice != null && ice.isExpired()) {
          entries.remove(k);
+         expiryIndex.unregister(ice);
          ice = null;
       }
       return ice != null;
@@ -137,6 +192,9 @@ public class DefaultDataContainer implements DataContainer {
 
    public InternalCacheEntry remove(Object k) {
       InternalCacheEntry e = entries.remove(k);
+      if (e != null) {
+         expiryIndex.unregister(e);
+      }
       return e == null || e.isExpired() ? null : e;
    }
 
@@ -144,8 +202,23 @@ public class DefaultDataContainer implements DataContainer {
       return entries.size();
    }
 
+   /**
+    * @return the estimated total size of the entries in this container, in bytes, or -1 if it is not bounded by size
+    */
+   public long weight() {
+      return entries instanceof BoundedConcurrentHashMap ? ((BoundedConcurrentHashMap<?, ?>) entries).weight() : -1;
+   }
+
+   /**
+    * @return the maximum total size of the entries in this container, in bytes, or -1 if it is not bounded by size
+    */
+   public long maxWeight() {
+      return entries instanceof BoundedConcurrentHashMap ? ((BoundedConcurrentHashMap<?, ?>) entries).maxWeight() : -1;
+   }
+
    public void clear() {
       entries.clear();
+      expiryIndex.clear();
    }
 
    public Set<Object> keySet() {
@@ -160,11 +233,27 @@ public class DefaultDataContainer implements DataContainer {
       return new EntrySet();
    }
 
+   /**
+    * Purges expired entries. Only entries registered with the expiry index whose deadline has passed are visited, so
+    * the cost of a purge is proportional to the number of entries that are due rather than to the container size.
+    */
    public void purgeExpired() {
-      for (Iterator<InternalCacheEntry> purgeCandidates = entries.values().iterator(); purgeCandidates.hasNext();) {
-         InternalCacheEntry e = purgeCandidates.next();
-         if (e.isExpired()) {
-            purgeCandidates.remove();
+      purgeExpired(System.currentTimeMillis());
+   }
+
+   /**
+    * Purges the entries which are expired at the given time
+    */
+   void purgeExpired(long now) {
+      for (ExpiryIndex.Registration due : expiryIndex.pollDue(now)) {
+         long expiryTime = due.entry.getExpiryTime();
+         if (expiryTime > -1 && now > expiryTime) {
+            // entries are equal only if their timestamps are, so this never removes a replacement which is still live
+            entries.remove(due.key, due.entry);
+            expiryIndex.completed(due);
+         } else {
+            // a transient entry which has been used since it was registered
+            expiryIndex.reschedule(due);
          }
       }
    }
@@ -176,10 +265,29 @@ public class DefaultDataContainer implements DataContainer {
    private class DefaultEvictionListener implements EvictionListener<Object, InternalCacheEntry> {
       @Override
       public void onEntryEviction(Map<Object, InternalCacheEntry> evicted) {
+         for (Map.Entry<Object, InternalCacheEntry> e : evicted.entrySet()) {
+            expiryIndex.unregister(e.getValue());
+         }
          evictionManager.onEntryEviction(evicted);
       }
    }
 
+   /**
+    * Sizes internal cache entries by the size of their key and value
+    */
+   private static class ValueSizeCalculator implements EntrySizeCalculator<Object, InternalCacheEntry> {
+      private final EntrySizeCalculator<Object, Object> sizeCalculator;
+
+      ValueSizeCalculator(EntrySizeCalculator<Object, Object> sizeCalculator) {
+         this.sizeCalculator = sizeCalculator;
+      }
+
+      @Override
+      public long calculateSize(Object key, InternalCacheEntry entry) {
+         return sizeCalculator.calculateSize(key, entry.getValue());
+      }
+   }
+
    private static class ImmutableEntryIterator extends EntryIterator {
       ImmutableEntryIterator(Iterator<InternalCacheEntry> it){
          super(it);
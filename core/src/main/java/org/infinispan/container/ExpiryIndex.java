@@ -0,0 +1,176 @@
+package org.infinispan.container;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.infinispan.container.entries.InternalCacheEntry;
+
+/**
+ * Index of expirable entries, ordered by the time at which they are due to expire.
+ * <p/>
+ * Containers register mortal and transient entries when they are stored, so that purging expired entries only needs
+ * to visit entries whose registered deadline has passed instead of scanning the whole container. Transient entries
+ * are registered with the deadline computed when they were stored; since reads push that deadline back, entries
+ * which turn out not to be expired when their registration falls due are simply re-registered with their current
+ * expiry time.
+ * <p/>
+ * At most one registration is kept per entry instance, rather than per key: the container replaces the entry stored
+ * under a key and registers its replacement without holding a lock, so keying registrations by key would let a
+ * concurrent put drop the registration of the entry which ends up being stored. A registration left behind for an
+ * instance that has since been replaced is harmless, as it is dropped once it falls due.
+ *
+ * @since 5.0
+ */
+@ThreadSafe
+final class ExpiryIndex {
+
+   private final ConcurrentSkipListSet<Registration> queue = new ConcurrentSkipListSet<Registration>();
+   private final ConcurrentMap<EntryIdentity, Registration> registrations;
+   private final AtomicLong sequence = new AtomicLong();
+
+   ExpiryIndex(int concurrencyLevel) {
+      registrations = new ConcurrentHashMap<EntryIdentity, Registration>(128, 0.75f, concurrencyLevel);
+   }
+
+   /**
+    * Registers the entry stored under the given key, replacing any previous registration for the same entry instance.
+    * Entries which cannot expire are not registered.
+    */
+   void register(Object key, InternalCacheEntry entry) {
+      if (entry.canExpire()) {
+         Registration r = new Registration(entry.getExpiryTime(), sequence.incrementAndGet(), key, entry);
+         Registration previous = registrations.put(r.identity, r);
+         if (previous != null) {
+            queue.remove(previous);
+         }
+         queue.add(r);
+      }
+   }
+
+   /**
+    * Drops the registration held for the given entry instance, if any
+    */
+   void unregister(InternalCacheEntry entry) {
+      if (entry.canExpire()) {
+         Registration previous = registrations.remove(new EntryIdentity(entry));
+         if (previous != null) {
+            queue.remove(previous);
+         }
+      }
+   }
+
+   /**
+    * Removes and returns all registrations whose deadline is not later than the given time, earliest first.
+    */
+   List<Registration> pollDue(long now) {
+      if (queue.isEmpty()) {
+         return Collections.emptyList();
+      }
+      List<Registration> due = new ArrayList<Registration>();
+      while (true) {
+         Registration r;
+         try {
+            r = queue.first();
+         } catch (NoSuchElementException e) {
+            break;
+         }
+         if (r.deadline > now) {
+            // everything else is due even later
+            break;
+         }
+         if (queue.remove(r) && registrations.get(r.identity) == r) {
+            due.add(r);
+         }
+      }
+      return due;
+   }
+
+   /**
+    * Re-registers an entry which was found not to be expired yet when its registration fell due. This is a no-op if
+    * the entry has been registered again or unregistered in the meantime.
+    */
+   void reschedule(Registration due) {
+      Registration r = new Registration(due.entry.getExpiryTime(), sequence.incrementAndGet(), due.key, due.entry);
+      if (registrations.replace(due.identity, due, r)) {
+         queue.add(r);
+      }
+   }
+
+   /**
+    * Drops a registration which fell due and whose entry has been purged
+    */
+   void completed(Registration due) {
+      registrations.remove(due.identity, due);
+   }
+
+   int size() {
+      return registrations.size();
+   }
+
+   void clear() {
+      registrations.clear();
+      queue.clear();
+   }
+
+   static final class Registration implements Comparable<Registration> {
+      final long deadline;
+      final long sequence;
+      final Object key;
+      final InternalCacheEntry entry;
+      final EntryIdentity identity;
+
+      Registration(long deadline, long sequence, Object key, InternalCacheEntry entry) {
+         this.deadline = deadline;
+         this.sequence = sequence;
+         this.key = key;
+         this.entry = entry;
+         this.identity = new EntryIdentity(entry);
+      }
+
+      public int compareTo(Registration other) {
+         if (deadline != other.deadline) {
+            return deadline < other.deadline ? -1 : 1;
+         }
+         return sequence < other.sequence ? -1 : sequence == other.sequence ? 0 : 1;
+      }
+
+      @Override
+      public boolean equals(Object o) {
+         return this == o;
+      }
+
+      @Override
+      public int hashCode() {
+         return (int) (sequence ^ (sequence >>> 32));
+      }
+   }
+
+   /**
+    * Compares entries by reference, since entries themselves are equal whenever their key, value and timestamps are.
+    */
+   static final class EntryIdentity {
+      final InternalCacheEntry entry;
+
+      EntryIdentity(InternalCacheEntry entry) {
+         this.entry = entry;
+      }
+
+      @Override
+      public boolean equals(Object o) {
+         return o instanceof EntryIdentity && ((EntryIdentity) o).entry == entry;
+      }
+
+      @Override
+      public int hashCode() {
+         return System.identityHashCode(entry);
+      }
+   }
+}
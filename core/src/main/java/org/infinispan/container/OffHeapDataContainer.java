@@ -0,0 +1,804 @@
+package org.infinispan.container;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.infinispan.CacheException;
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.container.entries.InternalEntryFactory;
+import org.infinispan.eviction.EvictionManager;
+import org.infinispan.eviction.EvictionStrategy;
+import org.infinispan.eviction.EvictionThreadPolicy;
+import org.infinispan.factories.annotations.Inject;
+import org.infinispan.marshall.StreamingMarshaller;
+import org.infinispan.util.Immutables;
+import org.infinispan.util.hash.MurmurHash3;
+
+/**
+ * A {@link DataContainer} which keeps entries outside of the Java heap.
+ * <p/>
+ * Keys and values are marshalled using the cache's {@link StreamingMarshaller} and stored, together with their
+ * expiry metadata, in direct memory handed out by a {@link SlabAllocator}. The only per-entry state kept on the heap
+ * is a <tt>long</tt> slot in the hash index of the owning segment, so even very large containers contribute little
+ * to old generation garbage collection work.
+ * <p/>
+ * Entries returned by {@link #get(Object)}, {@link #peek(Object)} and iteration are materialised copies: mutating them
+ * has no effect on the container, and updates must go through {@link #put(Object, Object, long, long)}. Key
+ * equality is based on the marshalled form of the keys, so keys must marshall deterministically.
+ * <p/>
+ * When bounded, each segment evicts entries once it holds more than its share of <tt>maxEntries</tt>. LRU, LIRS and
+ * TINY_LFU all evict the least recently used entry, TINY_LFU without filtering new entries, and FIFO and UNORDERED
+ * evict the oldest inserted one.
+ * <p/>
+ * Lookups only take the read lock of their segment, and entries are unmarshalled outside of any lock. Reads are
+ * recorded and stamped on their entries in batches, under the write lock, before any write to or purge of the
+ * segment and before iterating over it, so an entry {@link #peek(Object)}ed may not show the latest reads of other
+ * threads yet.
+ *
+ * @since 5.0
+ */
+@ThreadSafe
+public class OffHeapDataContainer implements DataContainer {
+
+   /**
+    * Default size of each slab of direct memory, in bytes
+    */
+   public static final int DEFAULT_SLAB_SIZE = 1 << 20;
+
+   // Entry layout within a chunk
+   private static final int HASH_NEXT = 0;
+   private static final int ORDER_PREV = 8;
+   private static final int ORDER_NEXT = 16;
+   private static final int CREATED = 24;
+   private static final int LAST_USED = 32;
+   private static final int LIFESPAN = 40;
+   private static final int MAX_IDLE = 48;
+   private static final int HASH = 56;
+   private static final int KEY_LENGTH = 60;
+   private static final int VALUE_LENGTH = 64;
+   private static final int SIZE_CLASS = 68;
+   private static final int HEADER_SIZE = 72;
+
+   private static final int INITIAL_BUCKETS = 64;
+
+   /**
+    * Number of reads recorded by a segment before the reading thread tries to apply them
+    */
+   private static final int ACCESS_BATCH = 64;
+
+   /**
+    * Creation time written to the chunk of an entry which has been removed, so that reads of it which are yet to be
+    * applied are ignored
+    */
+   private static final long REMOVED = Long.MIN_VALUE;
+
+   private final Segment[] segments;
+   private final int segmentShift;
+   private final boolean bounded;
+   private final boolean accessOrder;
+   private final int slabSize;
+   private StreamingMarshaller marshaller;
+   private EvictionManager evictionManager;
+
+   protected OffHeapDataContainer(int concurrencyLevel, int slabSize) {
+      this(concurrencyLevel, -1, EvictionStrategy.NONE, slabSize);
+   }
+
+   protected OffHeapDataContainer(int concurrencyLevel, int maxEntries, EvictionStrategy strategy, int slabSize) {
+      int ssize = 1;
+      int sshift = 0;
+      while (ssize < concurrencyLevel) {
+         ssize <<= 1;
+         sshift++;
+      }
+      this.segmentShift = 32 - sshift;
+      this.bounded = maxEntries > 0;
+      this.slabSize = slabSize;
+      switch (strategy) {
+         case NONE:
+         case FIFO:
+         case UNORDERED:
+            accessOrder = false;
+            break;
+         case LRU:
+         case LIRS:
+         case TINY_LFU:
+            accessOrder = true;
+            break;
+         default:
+            throw new IllegalArgumentException("No such eviction strategy " + strategy);
+      }
+      int perSegment = bounded ? Math.max(1, (maxEntries + ssize - 1) / ssize) : -1;
+      segments = new Segment[ssize];
+      for (int i = 0; i < ssize; i++) {
+         segments[i] = new Segment(perSegment);
+      }
+   }
+
+   @Inject
+   public void initialize(StreamingMarshaller marshaller, EvictionManager evictionManager) {
+      this.marshaller = marshaller;
+      this.evictionManager = evictionManager;
+   }
+
+   public static DataContainer boundedDataContainer(int concurrencyLevel, int maxEntries,
+            EvictionStrategy strategy, EvictionThreadPolicy policy, int slabSize) {
+      switch (policy) {
+         case PIGGYBACK:
+         case DEFAULT:
+            break;
+         default:
+            throw new IllegalArgumentException("No such eviction thread policy " + policy);
+      }
+      return new OffHeapDataContainer(concurrencyLevel, maxEntries, strategy, slabSize);
+   }
+
+   public static DataContainer unBoundedDataContainer(int concurrencyLevel, int slabSize) {
+      return new OffHeapDataContainer(concurrencyLevel, slabSize);
+   }
+
+   public InternalCacheEntry peek(Object k) {
+      byte[] key = marshall(k);
+      int hash = hash(key);
+      return materialise(k, segmentFor(hash).get(key, hash, false));
+   }
+
+   public InternalCacheEntry get(Object k) {
+      byte[] key = marshall(k);
+      int hash = hash(key);
+      return materialise(k, segmentFor(hash).get(key, hash, true));
+   }
+
+   public void put(Object k, Object v, long lifespan, long maxIdle) {
+      byte[] key = marshall(k);
+      byte[] value = marshall(v);
+      int hash = hash(key);
+      List<RawEntry> evicted = segmentFor(hash).put(key, value, hash, lifespan, maxIdle);
+      if (evicted != null && evictionManager != null) {
+         // piggyback eviction notification on the caller's thread, outside of the segment lock
+         Map<Object, InternalCacheEntry> entries = new HashMap<Object, InternalCacheEntry>();
+         for (RawEntry raw : evicted) {
+            Object evictedKey = unmarshall(raw.key);
+            entries.put(evictedKey, materialise(evictedKey, raw));
+         }
+         evictionManager.onEntryEviction(entries);
+      }
+   }
+
+   public boolean containsKey(Object k) {
+      byte[] key = marshall(k);
+      int hash = hash(key);
+      return segmentFor(hash).containsKey(key, hash);
+   }
+
+   public InternalCacheEntry remove(Object k) {
+      byte[] key = marshall(k);
+      int hash = hash(key);
+      return materialise(k, segmentFor(hash).remove(key, hash));
+   }
+
+   public int size() {
+      int size = 0;
+      for (Segment s : segments) {
+         size += s.count;
+      }
+      return size;
+   }
+
+   public void clear() {
+      for (Segment s : segments) {
+         s.clear();
+      }
+   }
+
+   public Set<Object> keySet() {
+      Set<Object> keys = new HashSet<Object>();
+      for (InternalCacheEntry ice : snapshot()) {
+         keys.add(ice.getKey());
+      }
+      return Collections.unmodifiableSet(keys);
+   }
+
+   public Collection<Object> values() {
+      return new Values();
+   }
+
+   public Set<InternalCacheEntry> entrySet() {
+      return new EntrySet();
+   }
+
+   public void purgeExpired() {
+      purgeExpired(System.currentTimeMillis());
+   }
+
+   /**
+    * Purges the entries which are expired at the given time
+    */
+   void purgeExpired(long now) {
+      for (Segment s : segments) {
+         s.purgeExpired(now);
+      }
+   }
+
+   public Iterator<InternalCacheEntry> iterator() {
+      return new DefaultDataContainer.EntryIterator(snapshot().iterator());
+   }
+
+   /**
+    * @return number of bytes of direct memory reserved by this container
+    */
+   public long getReservedBytes() {
+      long bytes = 0;
+      for (Segment s : segments) {
+         s.readLock().lock();
+         try {
+            bytes += s.allocator.getReservedBytes();
+         } finally {
+            s.readLock().unlock();
+         }
+      }
+      return bytes;
+   }
+
+   /**
+    * @return number of bytes of direct memory holding live entries
+    */
+   public long getUsedBytes() {
+      long bytes = 0;
+      for (Segment s : segments) {
+         s.readLock().lock();
+         try {
+            bytes += s.allocator.getUsedBytes();
+         } finally {
+            s.readLock().unlock();
+         }
+      }
+      return bytes;
+   }
+
+   private List<InternalCacheEntry> snapshot() {
+      List<RawEntry> raw = new ArrayList<RawEntry>(size());
+      for (Segment s : segments) {
+         s.copyTo(raw);
+      }
+      List<InternalCacheEntry> all = new ArrayList<InternalCacheEntry>(raw.size());
+      for (RawEntry r : raw) {
+         all.add(materialise(unmarshall(r.key), r));
+      }
+      return all;
+   }
+
+   private Segment segmentFor(int hash) {
+      return segments.length == 1 ? segments[0] : segments[hash >>> segmentShift];
+   }
+
+   private static int hash(byte[] key) {
+      return MurmurHash3.MurmurHash3_x64_32(key, 9001);
+   }
+
+   private byte[] marshall(Object o) {
+      try {
+         return marshaller.objectToByteBuffer(o);
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new CacheException("Interrupted while marshalling " + o, e);
+      } catch (Exception e) {
+         throw new CacheException("Unable to marshall " + o + " for off-heap storage", e);
+      }
+   }
+
+   private Object unmarshall(byte[] bytes) {
+      try {
+         return marshaller.objectFromByteBuffer(bytes);
+      } catch (Exception e) {
+         throw new CacheException("Unable to unmarshall entry from off-heap storage", e);
+      }
+   }
+
+   private InternalCacheEntry materialise(Object key, RawEntry raw) {
+      if (raw == null) return null;
+      return InternalEntryFactory.create(key, unmarshall(raw.value), raw.created, raw.lifespan, raw.lastUsed, raw.maxIdle);
+   }
+
+   private static boolean isExpired(long created, long lifespan, long lastUsed, long maxIdle, long now) {
+      return (lifespan > -1 && created > -1 && now > created + lifespan)
+            || (maxIdle > -1 && lastUsed > -1 && now > lastUsed + maxIdle);
+   }
+
+   /**
+    * Copy of the bytes and metadata of an entry, taken under the segment lock so that the entry can be unmarshalled
+    * outside of it
+    */
+   private static final class RawEntry {
+      byte[] key;
+      byte[] value;
+      long created;
+      long lifespan;
+      long lastUsed;
+      long maxIdle;
+
+      boolean isExpired(long now) {
+         return OffHeapDataContainer.isExpired(created, lifespan, lastUsed, maxIdle, now);
+      }
+   }
+
+   /**
+    * A read of an entry, to be stamped on it and applied to the ordering list
+    */
+   private static final class Access {
+      final long address;
+      final int hash;
+      final long created;
+      final long time;
+
+      Access(long address, int hash, long created, long time) {
+         this.address = address;
+         this.hash = hash;
+         this.created = created;
+         this.time = time;
+      }
+   }
+
+   /**
+    * A lock stripe owning a hash index of entry addresses, an ordering list used for eviction and the direct memory
+    * the entries live in. Lookups hold the read lock, everything else the write lock.
+    */
+   private final class Segment extends ReentrantReadWriteLock {
+
+      private static final long serialVersionUID = -1296359405478264693L;
+
+      final SlabAllocator allocator = new SlabAllocator(slabSize);
+      final int capacity;
+      final ConcurrentLinkedQueue<Access> accesses = new ConcurrentLinkedQueue<Access>();
+      final AtomicInteger pendingAccesses = new AtomicInteger();
+      long[] buckets = newBuckets(INITIAL_BUCKETS);
+      volatile int count;
+      long head = SlabAllocator.NULL;
+      long tail = SlabAllocator.NULL;
+
+      Segment(int capacity) {
+         this.capacity = capacity;
+      }
+
+      RawEntry get(byte[] key, int hash, boolean touch) {
+         if (count == 0) return null;
+         long now = System.currentTimeMillis();
+         RawEntry raw;
+         readLock().lock();
+         try {
+            long address = find(key, hash);
+            if (address == SlabAllocator.NULL) return null;
+            raw = copy(address, false);
+            if (touch && !raw.isExpired(now)) {
+               accesses.add(new Access(address, hash, raw.created, now));
+               pendingAccesses.incrementAndGet();
+               raw.lastUsed = now;
+            }
+         } finally {
+            readLock().unlock();
+         }
+         if (touch && raw.isExpired(now)) {
+            raw = unlinkIfExpired(key, hash, now, true);
+         }
+         if (pendingAccesses.get() >= ACCESS_BATCH && writeLock().tryLock()) {
+            try {
+               applyAccesses();
+            } finally {
+               writeLock().unlock();
+            }
+         }
+         return raw;
+      }
+
+      boolean containsKey(byte[] key, int hash) {
+         if (count == 0) return false;
+         long now = System.currentTimeMillis();
+         readLock().lock();
+         try {
+            long address = find(key, hash);
+            if (address == SlabAllocator.NULL) return false;
+            if (!isExpired(address, now)) return true;
+         } finally {
+            readLock().unlock();
+         }
+         return unlinkIfExpired(key, hash, now, false) != null;
+      }
+
+      List<RawEntry> put(byte[] key, byte[] value, int hash, long lifespan, long maxIdle) {
+         int sizeClass = SlabAllocator.sizeClass((long) HEADER_SIZE + key.length + value.length);
+         writeLock().lock();
+         try {
+            applyAccesses();
+            long now = System.currentTimeMillis();
+            // the entry is written before the one it replaces is freed, so that a failed allocation loses nothing
+            long address = allocator.allocate(sizeClass);
+            ByteBuffer slab = allocator.slab(address);
+            int base = SlabAllocator.offset(address);
+            slab.putLong(base + CREATED, now);
+            slab.putLong(base + LAST_USED, now);
+            slab.putLong(base + LIFESPAN, lifespan);
+            slab.putLong(base + MAX_IDLE, maxIdle);
+            slab.putInt(base + HASH, hash);
+            slab.putInt(base + KEY_LENGTH, key.length);
+            slab.putInt(base + VALUE_LENGTH, value.length);
+            slab.put(base + SIZE_CLASS, (byte) sizeClass);
+            write(slab, base + HEADER_SIZE, key);
+            write(slab, base + HEADER_SIZE + key.length, value);
+
+            // as with DefaultDataContainer, an update reincarnates the entry
+            long existing = find(key, hash);
+            if (existing != SlabAllocator.NULL) unlink(existing, hash);
+            link(address, hash);
+
+            if (count > buckets.length * 3 / 4) resize();
+            return bounded && count > capacity ? evict() : null;
+         } finally {
+            writeLock().unlock();
+         }
+      }
+
+      RawEntry remove(byte[] key, int hash) {
+         if (count == 0) return null;
+         writeLock().lock();
+         try {
+            applyAccesses();
+            long address = find(key, hash);
+            if (address == SlabAllocator.NULL) return null;
+            RawEntry removed = isExpired(address, System.currentTimeMillis()) ? null : copy(address, false);
+            unlink(address, hash);
+            return removed;
+         } finally {
+            writeLock().unlock();
+         }
+      }
+
+      void clear() {
+         writeLock().lock();
+         try {
+            accesses.clear();
+            pendingAccesses.set(0);
+            buckets = newBuckets(INITIAL_BUCKETS);
+            head = tail = SlabAllocator.NULL;
+            allocator.clear();
+            count = 0; // write-volatile
+         } finally {
+            writeLock().unlock();
+         }
+      }
+
+      void purgeExpired(long now) {
+         if (count == 0) return;
+         writeLock().lock();
+         try {
+            applyAccesses();
+            long address = head;
+            while (address != SlabAllocator.NULL) {
+               ByteBuffer slab = allocator.slab(address);
+               int base = SlabAllocator.offset(address);
+               long next = slab.getLong(base + ORDER_NEXT);
+               if (isExpired(address, now)) unlink(address, slab.getInt(base + HASH));
+               address = next;
+            }
+         } finally {
+            writeLock().unlock();
+         }
+      }
+
+      void copyTo(List<RawEntry> target) {
+         if (count == 0) return;
+         if (pendingAccesses.get() > 0) {
+            writeLock().lock();
+            try {
+               applyAccesses();
+            } finally {
+               writeLock().unlock();
+            }
+         }
+         readLock().lock();
+         try {
+            for (long address = head; address != SlabAllocator.NULL;
+                 address = allocator.slab(address).getLong(SlabAllocator.offset(address) + ORDER_NEXT)) {
+               target.add(copy(address, true));
+            }
+         } finally {
+            readLock().unlock();
+         }
+      }
+
+      /**
+       * Unlinks an entry found expired under the read lock, unless reads of it which were yet to be applied kept it
+       * alive
+       *
+       * @return a copy of the entry if it is not expired after all, or null
+       */
+      private RawEntry unlinkIfExpired(byte[] key, int hash, long now, boolean touch) {
+         writeLock().lock();
+         try {
+            applyAccesses();
+            long address = find(key, hash);
+            if (address == SlabAllocator.NULL) return null;
+            if (isExpired(address, now)) {
+               unlink(address, hash);
+               return null;
+            }
+            if (touch) {
+               allocator.slab(address).putLong(SlabAllocator.offset(address) + LAST_USED, now);
+               if (accessOrder) moveToHead(address);
+            }
+            return copy(address, false);
+         } finally {
+            writeLock().unlock();
+         }
+      }
+
+      /**
+       * Stamps the recorded reads on their entries, and moves these to the head of the ordering list if it follows
+       * access order. Call only while holding the write lock.
+       */
+      private void applyAccesses() {
+         Access access;
+         while ((access = accesses.poll()) != null) {
+            pendingAccesses.decrementAndGet();
+            ByteBuffer slab = allocator.slab(access.address);
+            int base = SlabAllocator.offset(access.address);
+            // the entry may have been removed since, and its chunk handed to another entry
+            if (slab.getLong(base + CREATED) != access.created || slab.getInt(base + HASH) != access.hash) continue;
+            if (slab.getLong(base + LAST_USED) < access.time) slab.putLong(base + LAST_USED, access.time);
+            if (accessOrder) moveToHead(access.address);
+         }
+      }
+
+      private long find(byte[] key, int hash) {
+         long address = buckets[hash & (buckets.length - 1)];
+         while (address != SlabAllocator.NULL) {
+            ByteBuffer slab = allocator.slab(address);
+            int base = SlabAllocator.offset(address);
+            if (slab.getInt(base + HASH) == hash && slab.getInt(base + KEY_LENGTH) == key.length
+                  && keyEquals(slab, base + HEADER_SIZE, key)) {
+               return address;
+            }
+            address = slab.getLong(base + HASH_NEXT);
+         }
+         return SlabAllocator.NULL;
+      }
+
+      private boolean isExpired(long address, long now) {
+         ByteBuffer slab = allocator.slab(address);
+         int base = SlabAllocator.offset(address);
+         return OffHeapDataContainer.isExpired(slab.getLong(base + CREATED), slab.getLong(base + LIFESPAN),
+                                               slab.getLong(base + LAST_USED), slab.getLong(base + MAX_IDLE), now);
+      }
+
+      private RawEntry copy(long address, boolean withKey) {
+         ByteBuffer slab = allocator.slab(address);
+         int base = SlabAllocator.offset(address);
+         int keyLength = slab.getInt(base + KEY_LENGTH);
+         RawEntry raw = new RawEntry();
+         if (withKey) raw.key = read(slab, base + HEADER_SIZE, keyLength);
+         raw.value = read(slab, base + HEADER_SIZE + keyLength, slab.getInt(base + VALUE_LENGTH));
+         raw.created = slab.getLong(base + CREATED);
+         raw.lifespan = slab.getLong(base + LIFESPAN);
+         raw.lastUsed = slab.getLong(base + LAST_USED);
+         raw.maxIdle = slab.getLong(base + MAX_IDLE);
+         return raw;
+      }
+
+      /**
+       * Adds an entry to its hash bucket and to the head of the ordering list
+       */
+      private void link(long address, int hash) {
+         ByteBuffer slab = allocator.slab(address);
+         int base = SlabAllocator.offset(address);
+         int index = hash & (buckets.length - 1);
+         slab.putLong(base + HASH_NEXT, buckets[index]);
+         buckets[index] = address;
+         slab.putLong(base + ORDER_PREV, SlabAllocator.NULL);
+         slab.putLong(base + ORDER_NEXT, head);
+         if (head != SlabAllocator.NULL) setOrderPrev(head, address);
+         head = address;
+         if (tail == SlabAllocator.NULL) tail = address;
+         count++; // write-volatile
+      }
+
+      /**
+       * Removes an entry from its hash bucket and the ordering list, and frees its memory
+       */
+      private void unlink(long address, int hash) {
+         ByteBuffer slab = allocator.slab(address);
+         int base = SlabAllocator.offset(address);
+         int index = hash & (buckets.length - 1);
+         long next = slab.getLong(base + HASH_NEXT);
+         if (buckets[index] == address) {
+            buckets[index] = next;
+         } else {
+            long p = buckets[index];
+            while (p != SlabAllocator.NULL) {
+               ByteBuffer pSlab = allocator.slab(p);
+               int pBase = SlabAllocator.offset(p);
+               if (pSlab.getLong(pBase + HASH_NEXT) == address) {
+                  pSlab.putLong(pBase + HASH_NEXT, next);
+                  break;
+               }
+               p = pSlab.getLong(pBase + HASH_NEXT);
+            }
+         }
+         removeFromOrder(address);
+         slab.putLong(base + CREATED, REMOVED);
+         allocator.free(address, slab.get(base + SIZE_CLASS));
+         count--; // write-volatile
+      }
+
+      private void moveToHead(long address) {
+         if (head == address) return;
+         removeFromOrder(address);
+         ByteBuffer slab = allocator.slab(address);
+         int base = SlabAllocator.offset(address);
+         slab.putLong(base + ORDER_PREV, SlabAllocator.NULL);
+         slab.putLong(base + ORDER_NEXT, head);
+         if (head != SlabAllocator.NULL) setOrderPrev(head, address);
+         head = address;
+         if (tail == SlabAllocator.NULL) tail = address;
+      }
+
+      private void removeFromOrder(long address) {
+         ByteBuffer slab = allocator.slab(address);
+         int base = SlabAllocator.offset(address);
+         long prev = slab.getLong(base + ORDER_PREV);
+         long next = slab.getLong(base + ORDER_NEXT);
+         if (prev == SlabAllocator.NULL) {
+            head = next;
+         } else {
+            allocator.slab(prev).putLong(SlabAllocator.offset(prev) + ORDER_NEXT, next);
+         }
+         if (next == SlabAllocator.NULL) {
+            tail = prev;
+         } else {
+            setOrderPrev(next, prev);
+         }
+      }
+
+      private void setOrderPrev(long address, long prev) {
+         allocator.slab(address).putLong(SlabAllocator.offset(address) + ORDER_PREV, prev);
+      }
+
+      private List<RawEntry> evict() {
+         List<RawEntry> evicted = new ArrayList<RawEntry>();
+         while (count > capacity && tail != SlabAllocator.NULL) {
+            long victim = tail;
+            evicted.add(copy(victim, true));
+            unlink(victim, allocator.slab(victim).getInt(SlabAllocator.offset(victim) + HASH));
+         }
+         return evicted.isEmpty() ? null : evicted;
+      }
+
+      private void resize() {
+         long[] old = buckets;
+         if (old.length >= 1 << 30) return;
+         long[] grown = newBuckets(old.length << 1);
+         int mask = grown.length - 1;
+         for (long first : old) {
+            long address = first;
+            while (address != SlabAllocator.NULL) {
+               ByteBuffer slab = allocator.slab(address);
+               int base = SlabAllocator.offset(address);
+               long next = slab.getLong(base + HASH_NEXT);
+               int index = slab.getInt(base + HASH) & mask;
+               slab.putLong(base + HASH_NEXT, grown[index]);
+               grown[index] = address;
+               address = next;
+            }
+         }
+         buckets = grown;
+      }
+   }
+
+   private static long[] newBuckets(int size) {
+      long[] buckets = new long[size];
+      Arrays.fill(buckets, SlabAllocator.NULL);
+      return buckets;
+   }
+
+   private static boolean keyEquals(ByteBuffer slab, int offset, byte[] key) {
+      for (int i = 0; i < key.length; i++) {
+         if (slab.get(offset + i) != key[i]) return false;
+      }
+      return true;
+   }
+
+   private static void write(ByteBuffer slab, int offset, byte[] bytes) {
+      ByteBuffer target = slab.duplicate();
+      target.clear();
+      target.position(offset);
+      target.put(bytes);
+   }
+
+   private static byte[] read(ByteBuffer slab, int offset, int length) {
+      byte[] bytes = new byte[length];
+      ByteBuffer source = slab.duplicate();
+      source.clear();
+      source.position(offset);
+      source.get(bytes);
+      return bytes;
+   }
+
+   /**
+    * Minimal implementation needed for unmodifiable Set
+    */
+   private class EntrySet extends AbstractSet<InternalCacheEntry> {
+
+      @Override
+      public boolean contains(Object o) {
+         if (!(o instanceof Map.Entry)) {
+            return false;
+         }
+
+         @SuppressWarnings("rawtypes")
+         Map.Entry e = (Map.Entry) o;
+         InternalCacheEntry ice = peek(e.getKey());
+         if (ice == null) {
+            return false;
+         }
+         return ice.getValue().equals(e.getValue());
+      }
+
+      @Override
+      public Iterator<InternalCacheEntry> iterator() {
+         final Iterator<InternalCacheEntry> it = snapshot().iterator();
+         return new DefaultDataContainer.EntryIterator(it) {
+            @Override
+            public InternalCacheEntry next() {
+               return Immutables.immutableInternalCacheEntry(super.next());
+            }
+         };
+      }
+
+      @Override
+      public int size() {
+         return OffHeapDataContainer.this.size();
+      }
+   }
+
+   /**
+    * Minimal implementation needed for unmodifiable Collection
+    */
+   private class Values extends AbstractCollection<Object> {
+      @Override
+      public Iterator<Object> iterator() {
+         final Iterator<InternalCacheEntry> it = snapshot().iterator();
+         return new Iterator<Object>() {
+            public boolean hasNext() {
+               return it.hasNext();
+            }
+
+            public Object next() {
+               return it.next().getValue();
+            }
+
+            public void remove() {
+               throw new UnsupportedOperationException();
+            }
+         };
+      }
+
+      @Override
+      public int size() {
+         return OffHeapDataContainer.this.size();
+      }
+   }
+}
@@ -0,0 +1,215 @@
+package org.infinispan.container;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.jcip.annotations.NotThreadSafe;
+
+/**
+ * A simple slab allocator handing out chunks of direct (off-heap) memory.
+ * <p/>
+ * Memory is reserved in slabs of a fixed size using {@link ByteBuffer#allocateDirect(int)} and carved into power of
+ * two sized chunks. Freed chunks are kept in a free list per size class and are reused by subsequent allocations of
+ * the same class, so that memory, once reserved, is never handed back to the operating system until {@link #clear()}
+ * is called. Allocations larger than the slab size get a dedicated slab of their own.
+ * <p/>
+ * Chunks are identified by a <tt>long</tt> address, the upper 32 bits of which are the slab index while the lower 32
+ * bits are the offset within the slab.
+ * <p/>
+ * This class is not thread safe; callers are expected to guard access, typically by allocating one instance per lock
+ * stripe.
+ *
+ * @since 5.0
+ */
+@NotThreadSafe
+final class SlabAllocator {
+
+   /**
+    * Address value representing "no chunk"
+    */
+   static final long NULL = -1L;
+
+   static final int MIN_CHUNK_SHIFT = 6; // 64 bytes
+
+   private static final int SIZE_CLASSES = 31 - MIN_CHUNK_SHIFT;
+
+   /**
+    * Size of the largest chunk that can be allocated
+    */
+   static final int MAX_CHUNK_SIZE = 1 << (SIZE_CLASSES - 1 + MIN_CHUNK_SHIFT);
+
+   private final int slabSize;
+   private final List<ByteBuffer> slabs = new ArrayList<ByteBuffer>();
+   private final LongStack[] freeLists = new LongStack[SIZE_CLASSES];
+   private ByteBuffer current;
+   private int currentIndex = -1;
+   private long reservedBytes;
+   private long usedBytes;
+
+   SlabAllocator(int slabSize) {
+      if (slabSize < 1 << MIN_CHUNK_SHIFT) {
+         throw new IllegalArgumentException("Slab size must be at least " + (1 << MIN_CHUNK_SHIFT) + " bytes");
+      }
+      this.slabSize = slabSize;
+      for (int i = 0; i < SIZE_CLASSES; i++) {
+         freeLists[i] = new LongStack();
+      }
+   }
+
+   /**
+    * Returns the size class able to hold the given number of bytes
+    *
+    * @throws IllegalArgumentException if no chunk is large enough
+    */
+   static int sizeClass(long bytes) {
+      if (bytes > MAX_CHUNK_SIZE) {
+         throw new IllegalArgumentException("Cannot allocate " + bytes + " bytes, chunks are at most " + MAX_CHUNK_SIZE + " bytes");
+      }
+      int shift = MIN_CHUNK_SHIFT;
+      while ((1 << shift) < bytes) {
+         shift++;
+      }
+      return shift - MIN_CHUNK_SHIFT;
+   }
+
+   static int chunkSize(int sizeClass) {
+      return 1 << (sizeClass + MIN_CHUNK_SHIFT);
+   }
+
+   static int slabIndex(long address) {
+      return (int) (address >>> 32);
+   }
+
+   static int offset(long address) {
+      return (int) address;
+   }
+
+   /**
+    * Allocates a chunk of the given size class.
+    *
+    * @return the address of the chunk
+    */
+   long allocate(int sizeClass) {
+      int size = chunkSize(sizeClass);
+      LongStack free = freeLists[sizeClass];
+      if (!free.isEmpty()) {
+         usedBytes += size;
+         return free.pop();
+      }
+
+      if (size > slabSize) {
+         // oversized chunks get a slab of their own
+         ByteBuffer dedicated = ByteBuffer.allocateDirect(size);
+         reservedBytes += size;
+         usedBytes += size;
+         slabs.add(dedicated);
+         return address(slabs.size() - 1, 0);
+      }
+
+      if (current == null || current.remaining() < size) {
+         if (current != null) {
+            // don't waste the tail of the slab, hand it out to smaller size classes
+            recycleTail();
+         }
+         current = ByteBuffer.allocateDirect(slabSize);
+         reservedBytes += slabSize;
+         slabs.add(current);
+         currentIndex = slabs.size() - 1;
+      }
+      int offset = current.position();
+      current.position(offset + size);
+      usedBytes += size;
+      return address(currentIndex, offset);
+   }
+
+   /**
+    * Returns a chunk to the free list of its size class
+    */
+   void free(long address, int sizeClass) {
+      usedBytes -= chunkSize(sizeClass);
+      freeLists[sizeClass].push(address);
+   }
+
+   ByteBuffer slab(long address) {
+      return slabs.get(slabIndex(address));
+   }
+
+   /**
+    * @return number of bytes of direct memory reserved by this allocator
+    */
+   long getReservedBytes() {
+      return reservedBytes;
+   }
+
+   /**
+    * @return number of bytes of direct memory currently handed out as chunks
+    */
+   long getUsedBytes() {
+      return usedBytes;
+   }
+
+   /**
+    * Releases all slabs. Any address handed out so far becomes invalid.
+    */
+   void clear() {
+      slabs.clear();
+      for (LongStack free : freeLists) {
+         free.clear();
+      }
+      current = null;
+      currentIndex = -1;
+      reservedBytes = 0;
+      usedBytes = 0;
+   }
+
+   private void recycleTail() {
+      int offset = current.position();
+      int remaining = current.remaining();
+      for (int sc = SIZE_CLASSES - 1; sc >= 0 && remaining >= 1 << MIN_CHUNK_SHIFT; sc--) {
+         int size = chunkSize(sc);
+         while (remaining >= size) {
+            freeLists[sc].push(address(currentIndex, offset));
+            offset += size;
+            remaining -= size;
+         }
+      }
+      current.position(current.limit());
+   }
+
+   private static long address(int slabIndex, int offset) {
+      return ((long) slabIndex << 32) | (offset & 0xFFFFFFFFL);
+   }
+
+   /**
+    * Growable stack of primitive longs, to avoid boxing addresses held in the free lists
+    */
+   private static final class LongStack {
+      private long[] elements = new long[16];
+      private int size;
+
+      boolean isEmpty() {
+         return size == 0;
+      }
+
+      void push(long value) {
+         if (size == elements.length) {
+            long[] grown = new long[size << 1];
+            System.arraycopy(elements, 0, grown, 0, size);
+            elements = grown;
+         }
+         elements[size++] = value;
+      }
+
+      long pop() {
+         return elements[--size];
+      }
+
+      void clear() {
+         size = 0;
+         if (elements.length > 16) {
+            elements = new long[16];
+         }
+      }
+   }
+}
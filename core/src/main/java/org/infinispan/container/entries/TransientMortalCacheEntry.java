@@ -106,6 +106,9 @@ public class TransientMortalCacheEntry extends AbstractInternalCacheEntry {
 
       TransientMortalCacheEntry that = (TransientMortalCacheEntry) o;
 
+      if (key != null ? !key.equals(that.key) : that.key != null) return false;
+      if (cacheValue.value != null ? !cacheValue.value.equals(that.cacheValue.value) : that.cacheValue.value != null)
+         return false;
       if (cacheValue.created != that.cacheValue.created) return false;
       if (cacheValue.lifespan != that.cacheValue.lifespan) return false;
 
@@ -114,7 +117,8 @@ public class TransientMortalCacheEntry extends AbstractInternalCacheEntry {
 
    @Override
    public int hashCode() {
-      int result = super.hashCode();
+      int result = key != null ? key.hashCode() : 0;
+      result = 31 * result + (cacheValue.value != null ? cacheValue.value.hashCode() : 0);
       result = 31 * result + (int) (cacheValue.created ^ (cacheValue.created >>> 32));
       result = 31 * result + (int) (cacheValue.lifespan ^ (cacheValue.lifespan >>> 32));
       return result;
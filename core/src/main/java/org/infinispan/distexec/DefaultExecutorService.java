@@ -0,0 +1,347 @@
+package org.infinispan.distexec;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.infinispan.AdvancedCache;
+import org.infinispan.Cache;
+import org.infinispan.CacheException;
+import org.infinispan.commands.CommandsFactory;
+import org.infinispan.commands.read.DistributedExecuteCommand;
+import org.infinispan.distribution.DistributionManager;
+import org.infinispan.factories.KnownComponentNames;
+import org.infinispan.remoting.responses.ExceptionResponse;
+import org.infinispan.remoting.responses.Response;
+import org.infinispan.remoting.responses.SuccessfulResponse;
+import org.infinispan.remoting.rpc.RpcManager;
+import org.infinispan.remoting.transport.Address;
+import org.infinispan.util.concurrent.ConcurrentHashSet;
+import org.infinispan.util.concurrent.NotifyingFutureImpl;
+import org.infinispan.util.concurrent.WithinThreadExecutor;
+import org.infinispan.util.logging.Log;
+import org.infinispan.util.logging.LogFactory;
+
+/**
+ * Default implementation of {@link DistributedExecutorService}, bound to the cache it is created for.
+ * <p>
+ *
+ * Tasks submitted with input keys are moved to the data rather than the other way round: keys are
+ * located using {@link DistributionManager#locateAll(java.util.Collection)}, and tasks are executed
+ * on the primary owners of those keys. {@link #submit(Callable, Object...)} executes the task on the
+ * node which is primary owner of most of the given keys, while
+ * {@link #submitEverywhere(Callable, Object...)} executes it on every primary owner, handing each of
+ * them the subset of keys it owns. Tasks submitted without input keys are executed on the local
+ * node, or on all cluster members in the case of {@link #submitEverywhere(Callable)}.
+ * <p>
+ *
+ * Returned futures complete once the executing node has responded. Tasks executed on a remote node
+ * are marshalled along with their input keys and hence need to be serializable; fields a
+ * {@link DistributedCallable} sets up in
+ * {@link DistributedCallable#setEnvironment(Cache, java.util.Set)} should be transient.
+ * <p>
+ *
+ * Tasks executed locally are run by the given local executor service, which defaults to the cache
+ * manager's asynchronous transport executor. For caches which are not clustered tasks are run in the
+ * caller's thread unless an executor service is given. Remote invocations are handed to the
+ * {@link RpcManager} with {@link RpcManager#invokeRemotelyInFuture(java.util.Collection,
+ * org.infinispan.commands.ReplicableCommand, boolean, org.infinispan.util.concurrent.NotifyingNotifiableFuture, long)}.
+ *
+ * @since 5.0
+ */
+public class DefaultExecutorService extends AbstractExecutorService implements DistributedExecutorService {
+
+   private static final Log log = LogFactory.getLog(DefaultExecutorService.class);
+
+   private final AdvancedCache<?, ?> cache;
+   private final ExecutorService localExecutorService;
+   /**
+    * Tasks submitted and not done yet, each of which removes itself once done
+    */
+   final Set<Future<?>> pending = new ConcurrentHashSet<Future<?>>();
+   private volatile boolean isShutdown;
+
+   /**
+    * Creates a DistributedExecutorService bound to the given cache, which uses the cache manager's
+    * asynchronous transport executor
+    *
+    * @param masterCacheNode
+    *           cache node initiating distributed task
+    */
+   public DefaultExecutorService(Cache<?, ?> masterCacheNode) {
+      this(masterCacheNode, null);
+   }
+
+   /**
+    * Creates a DistributedExecutorService bound to the given cache, which uses the given executor
+    * service to run locally executed tasks
+    *
+    * @param masterCacheNode
+    *           cache node initiating distributed task
+    * @param localExecutorService
+    *           executor service running locally executed tasks, or null to use the default
+    */
+   public DefaultExecutorService(Cache<?, ?> masterCacheNode, ExecutorService localExecutorService) {
+      if (masterCacheNode == null)
+         throw new IllegalArgumentException("Can not use null cache for DefaultExecutorService");
+      this.cache = masterCacheNode.getAdvancedCache();
+      if (localExecutorService == null) {
+         localExecutorService = cache.getComponentRegistry().getGlobalComponentRegistry().getComponent(
+                  ExecutorService.class, KnownComponentNames.ASYNC_TRANSPORT_EXECUTOR);
+      }
+      this.localExecutorService = localExecutorService == null ? new WithinThreadExecutor() : localExecutorService;
+   }
+
+   public void execute(Runnable command) {
+      ensureRunning();
+      localExecutorService.execute(command);
+   }
+
+   @Override
+   public <T> Future<T> submit(Callable<T> task) {
+      return invoke(getAddress(), task, null);
+   }
+
+   public <T, K> Future<T> submit(Callable<T> task, K... input) {
+      if (input == null || input.length == 0) return submit(task);
+
+      Set<Object> keys = new HashSet<Object>(Arrays.asList(input));
+      Address target = null;
+      int owned = -1;
+      for (Map.Entry<Address, Set<Object>> e : groupByPrimaryOwner(keys).entrySet()) {
+         if (e.getValue().size() > owned) {
+            target = e.getKey();
+            owned = e.getValue().size();
+         }
+      }
+      return invoke(target, task, keys);
+   }
+
+   public <T> List<Future<T>> submitEverywhere(Callable<T> task) {
+      RpcManager rpc = cache.getRpcManager();
+      if (rpc == null) return Collections.singletonList(submit(task));
+
+      List<Address> members = rpc.getTransport().getMembers();
+      List<Future<T>> futures = new ArrayList<Future<T>>(members.size());
+      for (Address member : members) {
+         futures.add(invoke(member, task, null));
+      }
+      return futures;
+   }
+
+   public <T, K> List<Future<T>> submitEverywhere(Callable<T> task, K... input) {
+      if (input == null || input.length == 0) return submitEverywhere(task);
+
+      Set<Object> keys = new HashSet<Object>(Arrays.asList(input));
+      Map<Address, Set<Object>> keysByOwner = groupByPrimaryOwner(keys);
+      List<Future<T>> futures = new ArrayList<Future<T>>(keysByOwner.size());
+      for (Map.Entry<Address, Set<Object>> e : keysByOwner.entrySet()) {
+         futures.add(invoke(e.getKey(), task, e.getValue()));
+      }
+      return futures;
+   }
+
+   public void shutdown() {
+      isShutdown = true;
+   }
+
+   public List<Runnable> shutdownNow() {
+      isShutdown = true;
+      for (Future<?> f : pending) f.cancel(true);
+      return Collections.emptyList();
+   }
+
+   public boolean isShutdown() {
+      return isShutdown;
+   }
+
+   public boolean isTerminated() {
+      if (!isShutdown) return false;
+      for (Future<?> f : pending) {
+         if (f.isDone()) pending.remove(f);
+      }
+      return pending.isEmpty();
+   }
+
+   public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+      long deadline = System.nanoTime() + unit.toNanos(timeout);
+      for (Future<?> f : pending) {
+         long remaining = deadline - System.nanoTime();
+         if (remaining <= 0) break;
+         try {
+            f.get(remaining, TimeUnit.NANOSECONDS);
+         } catch (ExecutionException e) {
+            // the task is done, which is all we're waiting for
+         } catch (CancellationException e) {
+            // ditto
+         } catch (TimeoutException e) {
+            break;
+         }
+      }
+      return isTerminated();
+   }
+
+   private Map<Address, Set<Object>> groupByPrimaryOwner(Set<Object> keys) {
+      DistributionManager dm = cache.getDistributionManager();
+      if (dm == null) return Collections.singletonMap(getAddress(), keys);
+
+      Map<Address, Set<Object>> keysByOwner = new HashMap<Address, Set<Object>>();
+      for (Map.Entry<Object, List<Address>> e : dm.locateAll(keys).entrySet()) {
+         // no owner may be known for a while during a view change, in which case the key is read through this node
+         Address primary = e.getValue().isEmpty() ? getAddress() : e.getValue().get(0);
+         Set<Object> owned = keysByOwner.get(primary);
+         if (owned == null) {
+            owned = new HashSet<Object>();
+            keysByOwner.put(primary, owned);
+         }
+         owned.add(e.getKey());
+      }
+      if (log.isTraceEnabled()) log.trace("Keys %s grouped by primary owner: %s", keys, keysByOwner);
+      return keysByOwner;
+   }
+
+   private <T> Future<T> invoke(Address target, Callable<T> task, Set<Object> keys) {
+      if (task == null) throw new NullPointerException();
+      ensureRunning();
+      CommandsFactory cf = cache.getComponentRegistry().getComponent(CommandsFactory.class);
+      DistributedExecuteCommand<T> cmd = cf.buildDistributedExecuteCommand(task, keys);
+      cf.initializeReplicableCommand(cmd, false);
+
+      Address self = getAddress();
+      boolean local = target == null ? self == null : target.equals(self);
+      if (!local) {
+         RemoteTaskFuture<T> future = new RemoteTaskFuture<T>(target, cmd);
+         pending.add(future);
+         future.invoke();
+         return future;
+      }
+      DistributedTaskFuture<T> future = new DistributedTaskFuture<T>(new LocalInvocation<T>(cmd));
+      pending.add(future);
+      localExecutorService.execute(future);
+      return future;
+   }
+
+   private Address getAddress() {
+      RpcManager rpc = cache.getRpcManager();
+      return rpc == null ? null : rpc.getAddress();
+   }
+
+   private void ensureRunning() {
+      if (isShutdown) throw new RejectedExecutionException("DefaultExecutorService has been shut down");
+   }
+
+   private class DistributedTaskFuture<T> extends FutureTask<T> {
+      DistributedTaskFuture(Callable<T> callable) {
+         super(callable);
+      }
+
+      @Override
+      protected void done() {
+         pending.remove(this);
+      }
+   }
+
+   private static class LocalInvocation<T> implements Callable<T> {
+      private final DistributedExecuteCommand<T> cmd;
+
+      LocalInvocation(DistributedExecuteCommand<T> cmd) {
+         this.cmd = cmd;
+      }
+
+      public T call() throws Exception {
+         try {
+            return cmd.perform(null);
+         } catch (Exception e) {
+            throw e;
+         } catch (Throwable t) {
+            throw new CacheException("Could not execute " + cmd.getCallable(), t);
+         }
+      }
+   }
+
+   /**
+    * Future of a task executed on a remote node, which completes once the node has responded, or the invocation has
+    * failed
+    */
+   private class RemoteTaskFuture<T> implements Future<T> {
+      private final Address target;
+      private final DistributedExecuteCommand<T> cmd;
+      private volatile Future<Object> network;
+
+      RemoteTaskFuture(Address target, DistributedExecuteCommand<T> cmd) {
+         this.target = target;
+         this.cmd = cmd;
+      }
+
+      void invoke() {
+         NotifyingFutureImpl rpcFuture = new NotifyingFutureImpl(null) {
+            @Override
+            public void setNetworkFuture(Future<Object> future) {
+               super.setNetworkFuture(future);
+               network = future;
+            }
+
+            @Override
+            public void notifyDone() {
+               pending.remove(RemoteTaskFuture.this);
+               super.notifyDone();
+            }
+         };
+         cache.getRpcManager().invokeRemotelyInFuture(Collections.singleton(target), cmd, false, rpcFuture,
+                  cache.getConfiguration().getSyncReplTimeout());
+      }
+
+      public boolean cancel(boolean mayInterruptIfRunning) {
+         // the invocation is never notified as done if it is cancelled before it got to run
+         boolean cancelled = network.cancel(mayInterruptIfRunning);
+         if (cancelled) pending.remove(this);
+         return cancelled;
+      }
+
+      public boolean isCancelled() {
+         return network.isCancelled();
+      }
+
+      public boolean isDone() {
+         return network.isDone();
+      }
+
+      @SuppressWarnings("unchecked")
+      public T get() throws InterruptedException, ExecutionException {
+         return result((Map<Address, Response>) network.get());
+      }
+
+      @SuppressWarnings("unchecked")
+      public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+         return result((Map<Address, Response>) network.get(timeout, unit));
+      }
+
+      @SuppressWarnings("unchecked")
+      private T result(Map<Address, Response> responses) throws ExecutionException {
+         Response response = responses == null ? null : responses.get(target);
+         if (response instanceof SuccessfulResponse) {
+            return (T) ((SuccessfulResponse) response).getResponseValue();
+         } else if (response instanceof ExceptionResponse) {
+            throw new ExecutionException(((ExceptionResponse) response).getException());
+         } else {
+            throw new ExecutionException(new CacheException("Unexpected response " + response + " from " + target
+                     + " executing " + cmd.getCallable()));
+         }
+      }
+   }
+}
@@ -21,10 +21,37 @@
  */
 package org.infinispan.distexec.mapreduce;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+import org.infinispan.AdvancedCache;
 import org.infinispan.Cache;
+import org.infinispan.CacheException;
+import org.infinispan.commands.CommandsFactory;
+import org.infinispan.commands.read.MapReduceCommand;
 import org.infinispan.distexec.AbstractDistributedTask;
+import org.infinispan.distribution.DistributionManager;
+import org.infinispan.factories.KnownComponentNames;
+import org.infinispan.remoting.responses.ExceptionResponse;
+import org.infinispan.remoting.responses.Response;
+import org.infinispan.remoting.responses.SuccessfulResponse;
+import org.infinispan.remoting.rpc.RpcManager;
+import org.infinispan.remoting.transport.Address;
+import org.infinispan.util.concurrent.NotifyingFutureImpl;
+import org.infinispan.util.logging.Log;
+import org.infinispan.util.logging.LogFactory;
 
 /**
  * MapReduceTask is a distributed task which allows a large scale computation to be transparently
@@ -65,6 +92,15 @@ import org.infinispan.distexec.AbstractDistributedTask;
  * return collator.collate()
  * }</pre>
  * 
+ * In distributed mode each key is mapped on its primary owner only, as determined by the
+ * {@link org.infinispan.distribution.DistributionManager}, so only reduced results travel across the
+ * network. In any other cache mode every node holds all of the data it would be asked to map, and
+ * the task is executed on the invoking node alone.
+ * <p>
+ * 
+ * Mappers and reducers are shipped to remote nodes along with the task and hence need to be
+ * serializable, as do the input keys and the reduced results.
+ * 
  * 
  * @author Manik Surtani
  * @author Vladimir Blagojevic
@@ -73,8 +109,16 @@ import org.infinispan.distexec.AbstractDistributedTask;
  */
 public class MapReduceTask<K, V, T, R> extends AbstractDistributedTask<K, V, T, R> {
 
+   private static final Log log = LogFactory.getLog(MapReduceTask.class);
+
+   private final AdvancedCache<K, V> cache;
+   private Collection<Object> keys;
+   private Mapper<K, V, T> mapper;
+   private Reducer<T, R> reducer;
+
    public MapReduceTask(Cache<K,V> cache) {
       super(cache);
+      this.cache = cache.getAdvancedCache();
    }
 
    /**
@@ -86,7 +130,7 @@ public class MapReduceTask<K, V, T, R> extends AbstractDistributedTask<K, V, T,
     * @return this task
     */
    public MapReduceTask<K, V, T, R> onKeys(K... input) {
-      // TODO
+      keys = new HashSet<Object>(Arrays.asList(input));
       return this;
    }
 
@@ -97,7 +141,8 @@ public class MapReduceTask<K, V, T, R> extends AbstractDistributedTask<K, V, T,
     * @return
     */
    public MapReduceTask<K, V, T, R> mappedWith(Mapper<K, V, T> mapper) {
-      // TODO
+      if (mapper == null) throw new IllegalArgumentException("A valid reference of Mapper is needed");
+      this.mapper = mapper;
       return this;
    }
 
@@ -107,8 +152,9 @@ public class MapReduceTask<K, V, T, R> extends AbstractDistributedTask<K, V, T,
     * @param reducer
     * @return
     */
-   public MapReduceTask<K, V, T, R> reducedWith(Reducer<R, T> reducer) {
-      // TODO
+   public MapReduceTask<K, V, T, R> reducedWith(Reducer<T, R> reducer) {
+      if (reducer == null) throw new IllegalArgumentException("A valid reference of Reducer is needed");
+      this.reducer = reducer;
       return this;
    }
 
@@ -116,23 +162,191 @@ public class MapReduceTask<K, V, T, R> extends AbstractDistributedTask<K, V, T,
     * Specifies collator to use for this MapReduceTask and returns a result of this task's
     * computation
     * 
-    * @param mapper
+    * @param collator
     * @return
     */
-   public R collate(Collator<R> mapper) {
-      // TODO
-      return null;
+   public R collate(Collator<R> collator) {
+      CollatingFuture result = execute(collator, false);
+      try {
+         return result.get();
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new CacheException("Interrupted while waiting for remote results", e);
+      } catch (ExecutionException e) {
+         if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+         throw new CacheException(e.getCause());
+      }
    }
 
    /**
     * Specifies collator to use for this MapReduceTask and returns a result of this task's
-    * computation asynchronously
+    * computation asynchronously. The results are collated by the thread retrieving them from the
+    * returned future.
     * 
-    * @param mapper
+    * @param collator
     * @return
     */
-   public Future<R> collateAsynchronously(Collator<R> mapper) {
-      // TODO
-      return null;
+   public Future<R> collateAsynchronously(Collator<R> collator) {
+      return execute(collator, true);
+   }
+
+   /**
+    * Sends the task to the remote nodes, if any, and maps and reduces local entries, either on the
+    * calling thread or on the asynchronous transport executor. No executor thread waits for any
+    * other task, so that a saturated executor can't deadlock.
+    */
+   private CollatingFuture execute(Collator<R> collator, boolean async) {
+      if (mapper == null || reducer == null)
+         throw new IllegalStateException("Both a Mapper and a Reducer need to be specified before collating");
+
+      CommandsFactory cf = cache.getComponentRegistry().getComponent(CommandsFactory.class);
+      final MapReduceCommand cmd = cf.buildMapReduceCommand(mapper, reducer, keys);
+      cf.initializeReplicableCommand(cmd, false);
+
+      RemoteResults remoteResults = null;
+      Collection<Address> targets = remoteTargets();
+      if (targets == null || !targets.isEmpty()) {
+         remoteResults = new RemoteResults();
+         cache.getRpcManager().invokeRemotelyInFuture(targets, cmd, false, remoteResults,
+                                                      cache.getConfiguration().getSyncReplTimeout());
+      }
+
+      FutureTask<Object> localResult = new FutureTask<Object>(new Callable<Object>() {
+         public Object call() throws Exception {
+            try {
+               return cmd.perform(null);
+            } catch (Exception e) {
+               throw e;
+            } catch (Throwable t) {
+               throw new CacheException("Could not map and reduce local entries", t);
+            }
+         }
+      });
+      ExecutorService executor = async ? getExecutor() : null;
+      if (executor != null) {
+         executor.execute(localResult);
+      } else {
+         // map and reduce local entries while the remote nodes are busy with theirs
+         localResult.run();
+      }
+      return new CollatingFuture(collator, localResult, remoteResults);
+   }
+   /**
+    * @return the remote nodes the task is to be sent to, an empty collection if the task is only
+    *         executed locally or null for all members of the cluster
+    */
+   private Collection<Address> remoteTargets() {
+      DistributionManager dm = cache.getDistributionManager();
+      RpcManager rpc = cache.getRpcManager();
+      if (dm == null || rpc == null || rpc.getTransport().getMembers().size() < 2) return new ArrayList<Address>(0);
+      if (keys == null || keys.isEmpty()) return null;
+
+      Set<Address> primaryOwners = new HashSet<Address>();
+      for (List<Address> owners : dm.locateAll(keys).values()) {
+         if (!owners.isEmpty()) primaryOwners.add(owners.get(0));
+      }
+      primaryOwners.remove(rpc.getAddress());
+      if (log.isTraceEnabled()) log.trace("Keys %s are primarily owned by %s", keys, primaryOwners);
+      return primaryOwners;
+   }
+
+   private ExecutorService getExecutor() {
+      return cache.getComponentRegistry().getGlobalComponentRegistry().getComponent(ExecutorService.class,
+                                                                                     KnownComponentNames.ASYNC_TRANSPORT_EXECUTOR);
+   }
+
+   /**
+    * Hands out the future of the responses of the remote nodes
+    */
+   private static class RemoteResults extends NotifyingFutureImpl {
+      private volatile Future<Object> responses;
+
+      RemoteResults() {
+         super(null);
+      }
+
+      @Override
+      public void setNetworkFuture(Future<Object> future) {
+         super.setNetworkFuture(future);
+         responses = future;
+      }
+   }
+
+   /**
+    * Collates the local and remote results, once, when the result is first retrieved
+    */
+   private class CollatingFuture implements Future<R> {
+      private final Collator<R> collator;
+      private final Future<Object> localResult;
+      private final Future<Object> remoteResults;
+      private R result;
+      private boolean collated;
+
+      CollatingFuture(Collator<R> collator, Future<Object> localResult, RemoteResults remoteResults) {
+         this.collator = collator;
+         this.localResult = localResult;
+         this.remoteResults = remoteResults == null ? null : remoteResults.responses;
+      }
+
+      public boolean cancel(boolean mayInterruptIfRunning) {
+         boolean cancelled = localResult.cancel(mayInterruptIfRunning);
+         if (remoteResults != null) cancelled = remoteResults.cancel(mayInterruptIfRunning) || cancelled;
+         return cancelled;
+      }
+
+      public boolean isCancelled() {
+         return localResult.isCancelled() || (remoteResults != null && remoteResults.isCancelled());
+      }
+
+      public boolean isDone() {
+         return localResult.isDone() && (remoteResults == null || remoteResults.isDone());
+      }
+
+      public R get() throws InterruptedException, ExecutionException {
+         try {
+            return collate(false, 0);
+         } catch (TimeoutException e) {
+            throw new IllegalStateException("Should never time out without a deadline", e);
+         }
+      }
+
+      public R get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+         return collate(true, System.nanoTime() + unit.toNanos(timeout));
+      }
+
+      /**
+       * @param deadline in nanoseconds, only used if timed
+       */
+      @SuppressWarnings("unchecked")
+      private synchronized R collate(boolean timed, long deadline) throws InterruptedException, ExecutionException, TimeoutException {
+         if (collated) return result;
+         Object local = waitFor(localResult, timed, deadline);
+         Map<Address, Response> responses = remoteResults == null ? null :
+               (Map<Address, Response>) waitFor(remoteResults, timed, deadline);
+
+         Address self = cache.getRpcManager() == null ? null : cache.getRpcManager().getAddress();
+         collator.reducedResultReceived(self, (R) local);
+         if (responses != null) {
+            for (Map.Entry<Address, Response> e : responses.entrySet()) {
+               Response response = e.getValue();
+               if (response instanceof SuccessfulResponse) {
+                  collator.reducedResultReceived(e.getKey(), (R) ((SuccessfulResponse) response).getResponseValue());
+               } else if (response instanceof ExceptionResponse) {
+                  throw new ExecutionException(new CacheException("Map/reduce failed on " + e.getKey(),
+                                                                  ((ExceptionResponse) response).getException()));
+               } else {
+                  throw new ExecutionException(new CacheException("Unexpected response " + response + " from " + e.getKey()));
+               }
+            }
+         }
+         result = collator.collate();
+         collated = true;
+         return result;
+      }
+
+      private Object waitFor(Future<Object> future, boolean timed, long deadline) throws InterruptedException, ExecutionException, TimeoutException {
+         if (!timed) return future.get();
+         return future.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+      }
    }
 }
@@ -94,6 +94,20 @@ public interface DistributionManager {
     */
    InternalCacheEntry retrieveFromRemoteSource(Object key, InvocationContext ctx) throws Exception;
 
+   /**
+    * Retrieves several cache entries from remote sources.  Keys are grouped by their primary owner, and a single {@link
+    * org.infinispan.commands.remote.ClusteredGetAllCommand} is sent to each of the owners involved, in parallel.  Keys
+    * an owner could not provide while a rehash is in progress are looked up individually, as with {@link
+    * #retrieveFromRemoteSource(Object, org.infinispan.context.InvocationContext)}.  Keys without any owner, as may
+    * happen during a view change, are not looked up and are left out of the result.
+    *
+    * @param keys keys to look up
+    * @param ctx invocation context
+    * @return a map of the keys found to their internal cache entries, never null
+    * @throws Exception if something bad happens
+    */
+   Map<Object, InternalCacheEntry> retrieveFromRemoteSources(Collection<Object> keys, InvocationContext ctx) throws Exception;
+
    /**
     * Retrieves the consistent hash instance currently in use, which may be an instance of the configured ConsistentHash
     * instance (which defaults to {@link org.infinispan.distribution.ch.DefaultConsistentHash}, or an instance of
@@ -182,8 +196,28 @@ public interface DistributionManager {
 
    void informRehashOnLeave(Address sender);
 
+   /**
+    * Applies state pulled from a state provider.  State may be applied in several chunks, in which case the
+    * transaction logger is only passed in along with the last chunk.
+    *
+    * @param transactionLogger logger used to drain the state provider's transaction log once state has been applied
+    *                          when joining, or null if more chunks of state are still to come
+    */
    void applyState(ConsistentHash newConsistentHash, Map<Object,InternalCacheValue> state, RemoteTransactionLogger transactionLogger, boolean forLeave);
 
+   /**
+    * Registers the generator of state still to be sent, one chunk at a time, to a node pulling state from this node.
+    * Any generator previously registered for the same node is replaced.
+    */
+   void registerStateChunkIterator(Address requestor, StateChunkIterator iterator);
+
+   /**
+    * @return the generator of state still to be sent to the given node, or null if there is none
+    */
+   StateChunkIterator getStateChunkIterator(Address requestor);
+
+   void removeStateChunkIterator(Address requestor);
+
    void setRehashInProgress(boolean value);
 
    TopologyInfo getTopologyInfo();
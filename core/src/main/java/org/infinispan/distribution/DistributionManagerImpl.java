@@ -2,6 +2,7 @@ package org.infinispan.distribution;
 
 import org.infinispan.CacheException;
 import org.infinispan.commands.CommandsFactory;
+import org.infinispan.commands.remote.ClusteredGetAllCommand;
 import org.infinispan.commands.remote.ClusteredGetCommand;
 import org.infinispan.commands.tx.PrepareCommand;
 import org.infinispan.commands.write.PutKeyValueCommand;
@@ -12,6 +13,7 @@ import org.infinispan.container.DataContainer;
 import org.infinispan.container.entries.CacheEntry;
 import org.infinispan.container.entries.InternalCacheEntry;
 import org.infinispan.container.entries.InternalCacheValue;
+import org.infinispan.context.Flag;
 import org.infinispan.context.InvocationContext;
 import org.infinispan.context.InvocationContextContainer;
 import org.infinispan.distribution.ch.ConsistentHash;
@@ -19,6 +21,8 @@ import org.infinispan.distribution.ch.ConsistentHashHelper;
 import org.infinispan.distribution.ch.NodeTopologyInfo;
 import org.infinispan.distribution.ch.TopologyInfo;
 import org.infinispan.distribution.ch.UnionConsistentHash;
+import org.infinispan.factories.KnownComponentNames;
+import org.infinispan.factories.annotations.ComponentName;
 import org.infinispan.factories.annotations.Inject;
 import org.infinispan.factories.annotations.Start;
 import org.infinispan.factories.annotations.Stop;
@@ -35,6 +39,7 @@ import org.infinispan.notifications.cachemanagerlistener.event.ViewChangedEvent;
 import org.infinispan.remoting.InboundInvocationHandler;
 import org.infinispan.remoting.MembershipArithmetic;
 import org.infinispan.remoting.responses.ClusteredGetResponseValidityFilter;
+import org.infinispan.remoting.responses.ExceptionResponse;
 import org.infinispan.remoting.responses.Response;
 import org.infinispan.remoting.responses.SuccessfulResponse;
 import org.infinispan.remoting.rpc.ResponseFilter;
@@ -53,6 +58,7 @@ import org.rhq.helpers.pluginAnnotations.agent.Parameter;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -93,6 +99,7 @@ public class DistributionManagerImpl implements DistributionManager {
    private CommandsFactory cf;
 
    private final ExecutorService rehashExecutor;
+   private ExecutorService asyncExecutor;
 
    private TransactionLogger transactionLogger;
 
@@ -132,6 +139,8 @@ public class DistributionManagerImpl implements DistributionManager {
    private final Lock leaveAcksLock = new ReentrantLock();
    private final Condition acksArrived = leaveAcksLock.newCondition();
    private final Set<Address> leaveRehashAcks = new CopyOnWriteArraySet<Address>(); // this needs to be threadsafe!
+   // state still to be sent to nodes pulling state from us in chunks
+   private final ConcurrentMap<Address, StateChunkIterator> stateChunkIterators = new ConcurrentHashMap<Address, StateChunkIterator>();
 
    final CountDownLatch finalJoinPhaseLatch = new CountDownLatch(1);
    volatile boolean enteredFinalJoinPhase = false;
@@ -158,7 +167,8 @@ public class DistributionManagerImpl implements DistributionManager {
    @Inject
    public void init(Configuration configuration, RpcManager rpcManager, CacheManagerNotifier notifier, CommandsFactory cf,
                     DataContainer dataContainer, InterceptorChain interceptorChain, InvocationContextContainer icc,
-                    CacheLoaderManager cacheLoaderManager, InboundInvocationHandler inboundInvocationHandler) {
+                    CacheLoaderManager cacheLoaderManager, InboundInvocationHandler inboundInvocationHandler,
+                    @ComponentName(KnownComponentNames.ASYNC_TRANSPORT_EXECUTOR) ExecutorService asyncExecutor) {
       this.cacheLoaderManager = cacheLoaderManager;
       this.configuration = configuration;
       this.rpcManager = rpcManager;
@@ -169,6 +179,7 @@ public class DistributionManagerImpl implements DistributionManager {
       this.interceptorChain = interceptorChain;
       this.icc = icc;
       this.inboundInvocationHandler = inboundInvocationHandler;
+      this.asyncExecutor = asyncExecutor;
    }
 
    // needs to be AFTER the RpcManager
@@ -232,6 +243,7 @@ public class DistributionManagerImpl implements DistributionManager {
    public void stop() {
       notifier.removeListener(listener);
       rehashExecutor.shutdownNow();
+      stateChunkIterators.clear();
       setJoinComplete(false);
    }
 
@@ -239,6 +251,8 @@ public class DistributionManagerImpl implements DistributionManager {
       boolean join = oldMembers.size() < newMembers.size();
       // on view change, we should update our view
       log.info("Detected a view change.  Member list changed from %s to %s", oldMembers, newMembers);
+      // don't hold on to state meant for nodes which are gone
+      stateChunkIterators.keySet().retainAll(newMembers);
 
       if (join) {
          Address joiner = MembershipArithmetic.getMemberJoined(oldMembers, newMembers);
@@ -405,6 +419,11 @@ public class DistributionManagerImpl implements DistributionManager {
 
    public InternalCacheEntry retrieveFromRemoteSource(Object key, InvocationContext ctx) throws Exception {
       ClusteredGetCommand get = cf.buildClusteredGetCommand(key, ctx.getFlags());
+      if (configuration.isL1CacheEnabled()) get.setRequestor(getMyAddress());
+
+      long staggerDelay = configuration.getRemoteGetStaggerDelay();
+      if (staggerDelay > 0 && asyncExecutor != null)
+         return retrieveFromOwnersInTurn(key, get, staggerDelay);
 
       ResponseFilter filter = new ClusteredGetResponseValidityFilter(locate(key));
       Map<Address, Response> responses = rpcManager.invokeRemotely(locate(key), get, ResponseMode.SYNCHRONOUS,
@@ -422,6 +441,232 @@ public class DistributionManagerImpl implements DistributionManager {
       return null;
    }
 
+   /**
+    * Asks the owners of a key for it one at a time, closest first, and only asks the next owner once the previous one
+    * failed, could not tell because of a rehash, or did not respond within the stagger delay.
+    * <p/>
+    * The closest owner is asked on the calling thread, and is only given the stagger delay to respond if there are
+    * other owners to turn to. The remaining owners are asked from the async transport executor, so that a slow owner
+    * can be given more time while the next one is asked too; requests still pending once the key is found are
+    * cancelled.
+    */
+   private InternalCacheEntry retrieveFromOwnersInTurn(Object key, ClusteredGetCommand get, long staggerDelay) throws Exception {
+      List<Address> owners = preferredOwners(locate(key));
+      if (owners.isEmpty()) return null;
+      long timeout = configuration.getSyncReplTimeout();
+      long giveUp = System.currentTimeMillis() + timeout;
+      Exception failure = null;
+      try {
+         Response r = new RemoteGet(owners.get(0), get, owners.size() > 1 ? staggerDelay : timeout).call();
+         if (r instanceof SuccessfulResponse) {
+            InternalCacheValue cacheValue = (InternalCacheValue) ((SuccessfulResponse) r).getResponseValue();
+            return cacheValue.toInternalCacheEntry(key);
+         }
+         // owners agree on whether the key exists, unless state is being moved around
+         if (r == null && !isRehashInProgress() && isJoinComplete()) return null;
+      } catch (Exception e) {
+         if (owners.size() == 1) throw e;
+         failure = e;
+         if (trace) log.trace("No response for key %s from %s within %s ms, trying the next owner", e, key, owners.get(0), staggerDelay);
+      }
+
+      CompletionService<Response> completion = new ExecutorCompletionService<Response>(asyncExecutor);
+      List<Future<Response>> requests = new ArrayList<Future<Response>>(owners.size() - 1);
+      int asked = 1;
+      int pending = 0;
+      try {
+         while (asked < owners.size() || pending > 0) {
+            if (pending == 0) {
+               requests.add(completion.submit(new RemoteGet(owners.get(asked++), get, timeout)));
+               pending++;
+            }
+            long wait = asked < owners.size() ? staggerDelay : giveUp - System.currentTimeMillis();
+            Future<Response> future = completion.poll(Math.max(wait, 0), TimeUnit.MILLISECONDS);
+            if (future == null) {
+               if (asked == owners.size()) break;
+               if (trace) log.trace("No response for key %s within %s ms, also asking %s", key, staggerDelay, owners.get(asked));
+               requests.add(completion.submit(new RemoteGet(owners.get(asked++), get, timeout)));
+               pending++;
+               continue;
+            }
+            pending--;
+            Response r;
+            try {
+               r = future.get();
+            } catch (ExecutionException ee) {
+               Throwable cause = ee.getCause();
+               failure = cause instanceof Exception ? (Exception) cause : new CacheException(cause);
+               if (trace) log.trace("Remote get of key %s failed, trying the next owner", cause, key);
+               continue;
+            }
+            if (r instanceof SuccessfulResponse) {
+               InternalCacheValue cacheValue = (InternalCacheValue) ((SuccessfulResponse) r).getResponseValue();
+               return cacheValue.toInternalCacheEntry(key);
+            }
+            if (r == null && !isRehashInProgress() && isJoinComplete()) return null;
+         }
+      } finally {
+         for (Future<Response> request : requests) request.cancel(true);
+      }
+      if (failure != null) throw failure;
+      return null;
+   }
+
+   /**
+    * Orders the owners of a key from the closest to this node to the farthest, according to the topology of the
+    * cluster. Owners at the same distance keep their consistent hash order, so that gets are spread evenly. This node
+    * is left out, unless it is the only owner.
+    */
+   private List<Address> preferredOwners(List<Address> owners) {
+      List<Address> ordered = new ArrayList<Address>(owners);
+      if (ordered.size() > 1) ordered.remove(getMyAddress());
+      final NodeTopologyInfo self = topologyInfo.getNodeTopologyInfo(getMyAddress());
+      if (self != null && ordered.size() > 1) {
+         Collections.sort(ordered, new Comparator<Address>() {
+            public int compare(Address a1, Address a2) {
+               return distance(self, a1) - distance(self, a2);
+            }
+         });
+      }
+      return ordered;
+   }
+
+   private int distance(NodeTopologyInfo self, Address other) {
+      NodeTopologyInfo info = topologyInfo.getNodeTopologyInfo(other);
+      if (info == null) return 3;
+      if (self.sameMachine(info)) return 0;
+      if (self.sameRack(info)) return 1;
+      if (self.sameSite(info)) return 2;
+      return 3;
+   }
+
+   /**
+    * Retrieves a single key from one of its owners, returning its response, or null if it doesn't hold the key
+    */
+   private class RemoteGet implements Callable<Response> {
+      private final Address owner;
+      private final ClusteredGetCommand get;
+      private final long timeout;
+
+      RemoteGet(Address owner, ClusteredGetCommand get, long timeout) {
+         this.owner = owner;
+         this.get = get;
+         this.timeout = timeout;
+      }
+
+      public Response call() throws Exception {
+         Map<Address, Response> responses = rpcManager.invokeRemotely(Collections.singleton(owner), get, ResponseMode.SYNCHRONOUS,
+                                                                      timeout, false);
+         Response r = responses == null ? null : responses.get(owner);
+         if (r instanceof ExceptionResponse) throw ((ExceptionResponse) r).getException();
+         return r;
+      }
+   }
+
+   public Map<Object, InternalCacheEntry> retrieveFromRemoteSources(Collection<Object> keys, InvocationContext ctx) throws Exception {
+      Map<Address, List<Object>> keysByOwner = new HashMap<Address, List<Object>>();
+      for (Map.Entry<Object, List<Address>> e : locateAll(keys).entrySet()) {
+         if (e.getValue().isEmpty()) {
+            // no owner is known for a while during a view change, so there is no one to ask
+            if (trace) log.trace("No owner found for key %s, not retrieving it", e.getKey());
+            continue;
+         }
+         Address preferred = preferredOwners(e.getValue()).get(0);
+         List<Object> owned = keysByOwner.get(preferred);
+         if (owned == null) {
+            owned = new ArrayList<Object>();
+            keysByOwner.put(preferred, owned);
+         }
+         owned.add(e.getKey());
+      }
+      if (trace) log.trace("Retrieving keys %s from their closest owners: %s", keys, keysByOwner);
+
+      // query the first owner on the calling thread and all the others in parallel on the async executor, if any
+      Map<Address, Future<Map<Object, InternalCacheEntry>>> futures = new HashMap<Address, Future<Map<Object, InternalCacheEntry>>>();
+      Address inline = null;
+      for (Map.Entry<Address, List<Object>> e : keysByOwner.entrySet()) {
+         if (inline != null && asyncExecutor != null) {
+            futures.put(e.getKey(), asyncExecutor.submit(new RemoteGetAll(e.getKey(), e.getValue(), ctx.getFlags())));
+         } else {
+            inline = e.getKey();
+         }
+      }
+
+      Map<Object, InternalCacheEntry> found = new HashMap<Object, InternalCacheEntry>(keys.size());
+      List<Object> toRetry = new ArrayList<Object>();
+      try {
+         for (Map.Entry<Address, List<Object>> e : keysByOwner.entrySet()) {
+            Future<Map<Object, InternalCacheEntry>> future = futures.get(e.getKey());
+            Map<Object, InternalCacheEntry> entries;
+            if (future == null) {
+               entries = new RemoteGetAll(e.getKey(), e.getValue(), ctx.getFlags()).call();
+            } else {
+               try {
+                  entries = future.get();
+               } catch (ExecutionException ee) {
+                  Throwable cause = ee.getCause();
+                  if (cause instanceof Exception) throw (Exception) cause;
+                  throw new CacheException(cause);
+               }
+            }
+            if (entries == null) {
+               toRetry.addAll(e.getValue());
+            } else {
+               found.putAll(entries);
+            }
+         }
+      } finally {
+         // once a request has failed, the responses of the others are not needed anymore
+         for (Future<Map<Object, InternalCacheEntry>> future : futures.values()) future.cancel(true);
+      }
+
+      // owners may not have received all of their state yet, or may have already handed it over to someone else
+      boolean mayBeElsewhere = isRehashInProgress() || !isJoinComplete();
+      for (Object key : keys) {
+         if (!found.containsKey(key) && (mayBeElsewhere || toRetry.contains(key))) {
+            InternalCacheEntry ice = retrieveFromRemoteSource(key, ctx);
+            if (ice != null) found.put(key, ice);
+         }
+      }
+      return found;
+   }
+
+   /**
+    * Retrieves several keys from one of their owners, returning null if the owner did not provide a valid response
+    */
+   private class RemoteGetAll implements Callable<Map<Object, InternalCacheEntry>> {
+      private final Address owner;
+      private final List<Object> keys;
+      private final Set<Flag> flags;
+
+      RemoteGetAll(Address owner, List<Object> keys, Set<Flag> flags) {
+         this.owner = owner;
+         this.keys = keys;
+         this.flags = flags;
+      }
+
+      @SuppressWarnings("unchecked")
+      public Map<Object, InternalCacheEntry> call() throws Exception {
+         ClusteredGetAllCommand get = cf.buildClusteredGetAllCommand(keys, flags);
+         if (configuration.isL1CacheEnabled()) get.setRequestor(getMyAddress());
+         Map<Address, Response> responses = rpcManager.invokeRemotely(Collections.singleton(owner), get, ResponseMode.SYNCHRONOUS,
+                                                                      configuration.getSyncReplTimeout(), false);
+         Response r = responses == null ? null : responses.get(owner);
+         if (r instanceof SuccessfulResponse) {
+            Map<Object, InternalCacheValue> values = (Map<Object, InternalCacheValue>) ((SuccessfulResponse) r).getResponseValue();
+            Map<Object, InternalCacheEntry> entries = new HashMap<Object, InternalCacheEntry>(values.size());
+            for (Map.Entry<Object, InternalCacheValue> e : values.entrySet()) {
+               entries.put(e.getKey(), e.getValue().toInternalCacheEntry(e.getKey()));
+            }
+            return entries;
+         } else if (r instanceof ExceptionResponse) {
+            throw ((ExceptionResponse) r).getException();
+         }
+         if (trace) log.trace("Got response %s from %s, keys %s will be looked up individually", r, owner, keys);
+         return null;
+      }
+   }
+
    public ConsistentHash getConsistentHash() {
       return consistentHash;
    }
@@ -475,6 +720,8 @@ public class DistributionManagerImpl implements DistributionManager {
             oldConsistentHash = null;
          }
          joiner = null;
+         // drops the state being generated for the joiner, should it have given up before pulling all of it
+         stateChunkIterators.remove(a);
       } else {
          topologyInfo.addNodeTopologyInfo(a, nodeTopologyInfo);
          if (trace) log.trace("Node topology info added(%s).  Topology info is %s", nodeTopologyInfo, topologyInfo);
@@ -494,6 +741,7 @@ public class DistributionManagerImpl implements DistributionManager {
       leaveAcksLock.lock();
       try {
          leaveRehashAcks.add(sender);
+         stateChunkIterators.remove(sender);
          if (trace)
             log.trace("%s has been informed that %s has completed applying state sent from %s as a part of a LEAVE_REHASH.", self, sender, self);
          acksArrived.signalAll();
@@ -539,11 +787,28 @@ public class DistributionManagerImpl implements DistributionManager {
       // one last go
       if (!pendingApplications.isEmpty()) applyStateMap(consistentHash, pendingApplications, false);
 
+      if (tlog == null) {
+         if (trace) log.trace("%s has applied a chunk of state", self);
+         return;
+      }
+
       if (!forLeave) drainLocalTransactionLog(tlog);
 
       if (trace) log.trace("%s has completed applying state", self);
    }
 
+   public void registerStateChunkIterator(Address requestor, StateChunkIterator iterator) {
+      stateChunkIterators.put(requestor, iterator);
+   }
+
+   public StateChunkIterator getStateChunkIterator(Address requestor) {
+      return stateChunkIterators.get(requestor);
+   }
+
+   public void removeStateChunkIterator(Address requestor) {
+      stateChunkIterators.remove(requestor);
+   }
+
    public void setRehashInProgress(boolean value) {
       rehashInProgress = value;
    }
@@ -0,0 +1,43 @@
+package org.infinispan.distribution;
+
+import org.infinispan.factories.scopes.Scope;
+import org.infinispan.factories.scopes.Scopes;
+import org.infinispan.remoting.transport.Address;
+import org.infinispan.util.concurrent.NotifyingNotifiableFuture;
+
+import java.util.Collection;
+
+/**
+ * Keeps track of the nodes which fetched keys from this node into their L1 caches, so that the L1 caches holding a
+ * key can be invalidated when the key is modified without invalidating the L1 caches of every node in the cluster.
+ *
+ * @since 5.0
+ */
+@Scope(Scopes.NAMED_CACHE)
+public interface L1Manager {
+
+   /**
+    * Records that a node retrieved a key from this node, and may hold it in its L1 cache until the L1 lifespan has
+    * elapsed.
+    *
+    * @param key       key retrieved
+    * @param requestor node which retrieved the key
+    */
+   void addRequestor(Object key, Address requestor);
+
+   /**
+    * Invalidates the given keys in the L1 caches which may hold them. The invalidation is sent to the nodes which
+    * retrieved the keys from this node, unless it is not known which nodes may hold them, in which case it is
+    * broadcast to the whole cluster.
+    *
+    * @param keys        keys modified
+    * @param retval      value to be returned by the future
+    * @param originLocal true if the modification originated on this node, which is then also in charge of the L1
+    *                    caches which could have retrieved the keys from other nodes without them knowing, e.g. from
+    *                    the previous owners of the keys after a rehash
+    * @return a future to wait for the invalidation on, or null if no invalidation was needed. When the modification
+    *         originated on this node, the future only completes once the network future of the modification has been
+    *         set on it too.
+    */
+   NotifyingNotifiableFuture<Object> flushCache(Collection<Object> keys, Object retval, boolean originLocal);
+}
@@ -0,0 +1,221 @@
+package org.infinispan.distribution;
+
+import org.infinispan.commands.CommandsFactory;
+import org.infinispan.commands.write.InvalidateCommand;
+import org.infinispan.config.Configuration;
+import org.infinispan.factories.annotations.Inject;
+import org.infinispan.factories.annotations.Start;
+import org.infinispan.factories.annotations.Stop;
+import org.infinispan.notifications.Listener;
+import org.infinispan.notifications.cachemanagerlistener.CacheManagerNotifier;
+import org.infinispan.notifications.cachemanagerlistener.annotation.ViewChanged;
+import org.infinispan.notifications.cachemanagerlistener.event.ViewChangedEvent;
+import org.infinispan.remoting.rpc.RpcManager;
+import org.infinispan.remoting.transport.Address;
+import org.infinispan.util.concurrent.AggregatingNotifyingFutureImpl;
+import org.infinispan.util.concurrent.NotifyingFutureImpl;
+import org.infinispan.util.concurrent.NotifyingNotifiableFuture;
+import org.infinispan.util.logging.Log;
+import org.infinispan.util.logging.LogFactory;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Default {@link L1Manager}, which keeps a registry of the nodes which retrieved each key from this node.
+ * <p/>
+ * The registry tracks up to {@link Configuration#getL1MaxTrackedKeys()} keys. Keys which haven't been requested for
+ * longer than the L1 lifespan are dropped from it, since they can't be in any L1 cache anymore. When the registry is
+ * full nonetheless, requests are not tracked, and invalidations are broadcast until the keys requested in the meantime
+ * have expired from L1 caches. Invalidations of modifications originating on this node are also broadcast for as long
+ * as keys retrieved from other nodes before or during the last rehash may still be in L1 caches, since their new
+ * owners don't know about them.
+ *
+ * @since 5.0
+ */
+public class L1ManagerImpl implements L1Manager {
+
+   private static final Log log = LogFactory.getLog(L1ManagerImpl.class);
+   private static final boolean trace = log.isTraceEnabled();
+
+   private Configuration configuration;
+   private RpcManager rpcManager;
+   private CommandsFactory commandsFactory;
+   private DistributionManager distributionManager;
+   private CacheManagerNotifier notifier;
+   private ViewChangeListener listener;
+
+   private final ConcurrentMap<Object, Requestors> requestors = new ConcurrentHashMap<Object, Requestors>();
+   private final AtomicInteger trackedKeys = new AtomicInteger();
+   private int maxTrackedKeys;
+   /**
+    * How long after being retrieved a key may still be held in an L1 cache, or -1 if it is held until invalidated
+    */
+   private long l1Validity;
+   private volatile long nextPurge;
+   /**
+    * Until when L1 caches may hold keys retrieved from this node without being tracked
+    */
+   private volatile long untrackedUntil;
+   /**
+    * Until when L1 caches may hold keys retrieved from nodes which are no longer their owners
+    */
+   private volatile long rehashedUntil;
+
+   @Inject
+   public void init(Configuration configuration, RpcManager rpcManager, CommandsFactory commandsFactory,
+                    DistributionManager distributionManager, CacheManagerNotifier notifier) {
+      this.configuration = configuration;
+      this.rpcManager = rpcManager;
+      this.commandsFactory = commandsFactory;
+      this.distributionManager = distributionManager;
+      this.notifier = notifier;
+   }
+
+   @Start
+   public void start() {
+      maxTrackedKeys = configuration.getL1MaxTrackedKeys();
+      // an entry may be stored in L1 a little while after it has been retrieved
+      l1Validity = configuration.getL1Lifespan() > 0 ? configuration.getL1Lifespan() + configuration.getSyncReplTimeout() : -1;
+      rehashedUntil = validUntil(System.currentTimeMillis());
+      listener = new ViewChangeListener();
+      notifier.addListener(listener);
+   }
+
+   @Stop
+   public void stop() {
+      notifier.removeListener(listener);
+      requestors.clear();
+      trackedKeys.set(0);
+   }
+
+   public void addRequestor(Object key, Address requestor) {
+      if (maxTrackedKeys <= 0) return;
+      long now = System.currentTimeMillis();
+      while (true) {
+         Requestors r = requestors.get(key);
+         if (r == null) {
+            if (trackedKeys.get() >= maxTrackedKeys && !purge(now)) {
+               if (trace) log.trace("Too many keys tracked, not tracking %s retrieving %s", requestor, key);
+               untrackedUntil = validUntil(now);
+               return;
+            }
+            r = new Requestors();
+            Requestors existing = requestors.putIfAbsent(key, r);
+            if (existing == null)
+               trackedKeys.incrementAndGet();
+            else
+               r = existing;
+         }
+         // if a concurrent invalidation or purge has just dropped the key, track it again
+         if (r.add(requestor, now)) return;
+      }
+   }
+
+   public NotifyingNotifiableFuture<Object> flushCache(Collection<Object> keys, Object retval, boolean originLocal) {
+      long now = System.currentTimeMillis();
+      if (distributionManager.isRehashInProgress() || !distributionManager.isJoinComplete())
+         rehashedUntil = validUntil(now);
+
+      Set<Address> recipients = new HashSet<Address>();
+      for (Object key : keys) {
+         Requestors r = requestors.remove(key);
+         if (r != null) {
+            trackedKeys.decrementAndGet();
+            recipients.addAll(r.close());
+         }
+      }
+
+      boolean broadcast;
+      if (maxTrackedKeys <= 0)
+         broadcast = originLocal;
+      else
+         broadcast = now < untrackedUntil || (originLocal && now < rehashedUntil);
+
+      if (!broadcast) {
+         recipients.retainAll(rpcManager.getTransport().getMembers());
+         recipients.remove(rpcManager.getAddress());
+         if (recipients.isEmpty()) {
+            if (trace) log.trace("No L1 cache to invalidate keys %s in", keys);
+            return null;
+         }
+      }
+
+      InvalidateCommand ic = commandsFactory.buildInvalidateFromL1Command(false, keys);
+      // the originator also registers the future of the modification itself with the returned future
+      NotifyingNotifiableFuture<Object> future = originLocal ?
+            new AggregatingNotifyingFutureImpl(retval, 2) : new NotifyingFutureImpl(retval);
+      if (broadcast) {
+         if (trace) log.trace("Invalidating keys %s in all L1 caches", keys);
+         rpcManager.broadcastRpcCommandInFuture(ic, future);
+      } else {
+         if (trace) log.trace("Invalidating keys %s in the L1 caches of %s", keys, recipients);
+         rpcManager.invokeRemotelyInFuture(recipients, ic, future);
+      }
+      return future;
+   }
+
+   /**
+    * Drops the keys which have not been retrieved for long enough to have expired from all L1 caches.
+    *
+    * @return true if there is room for more keys in the registry
+    */
+   private boolean purge(long now) {
+      if (l1Validity > 0 && now >= nextPurge) {
+         nextPurge = now + l1Validity / 10;
+         long idleSince = now - l1Validity;
+         for (Iterator<Map.Entry<Object, Requestors>> it = requestors.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<Object, Requestors> e = it.next();
+            if (e.getValue().closeIfIdleSince(idleSince) && requestors.remove(e.getKey(), e.getValue()))
+               trackedKeys.decrementAndGet();
+         }
+         if (trace) log.trace("Purged L1 requestors registry, %s keys left", trackedKeys.get());
+      }
+      return trackedKeys.get() < maxTrackedKeys;
+   }
+
+   private long validUntil(long now) {
+      return l1Validity > 0 ? now + l1Validity : Long.MAX_VALUE;
+   }
+
+   /**
+    * The nodes which retrieved a key. Once closed, because it was removed from the registry, no more nodes can be
+    * added to it.
+    */
+   private static class Requestors {
+      private final Set<Address> addresses = new HashSet<Address>(4);
+      private long lastRequest;
+      private boolean closed;
+
+      synchronized boolean add(Address requestor, long now) {
+         if (closed) return false;
+         addresses.add(requestor);
+         lastRequest = now;
+         return true;
+      }
+
+      synchronized Set<Address> close() {
+         closed = true;
+         return addresses;
+      }
+
+      synchronized boolean closeIfIdleSince(long time) {
+         if (lastRequest < time) closed = true;
+         return closed;
+      }
+   }
+
+   @Listener
+   public class ViewChangeListener {
+      @ViewChanged
+      public void handleViewChange(ViewChangedEvent e) {
+         rehashedUntil = validUntil(System.currentTimeMillis());
+      }
+   }
+}
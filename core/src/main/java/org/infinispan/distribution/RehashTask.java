@@ -1,11 +1,11 @@
 package org.infinispan.distribution;
 
+import org.infinispan.CacheException;
 import org.infinispan.commands.CommandsFactory;
 import org.infinispan.commands.ReplicableCommand;
 import org.infinispan.commands.write.InvalidateCommand;
 import org.infinispan.config.Configuration;
 import org.infinispan.container.DataContainer;
-import org.infinispan.container.entries.InternalCacheValue;
 import org.infinispan.distribution.ch.ConsistentHash;
 import org.infinispan.remoting.responses.Response;
 import org.infinispan.remoting.responses.SuccessfulResponse;
@@ -25,10 +25,12 @@ import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import static org.infinispan.commands.control.RehashControlCommand.Type.PULL_STATE_NEXT_CHUNK;
 import static org.infinispan.remoting.rpc.ResponseMode.SYNCHRONOUS;
 
 /**
@@ -122,6 +124,11 @@ public abstract class RehashTask implements Callable<Void> {
       return toInvalidate;
    }
 
+   /**
+    * Pulls state from a state provider and applies it.  State is pulled in chunks of bounded size: the next chunk is
+    * requested while the current one is being applied, and no further chunk is requested before that, so that at most
+    * two chunks of state from any provider are held in memory at any time.
+    */
    protected abstract class StateGrabber implements Callable<Void> {
       private final Address stateProvider;
       private final ReplicableCommand command;
@@ -136,22 +143,62 @@ public abstract class RehashTask implements Callable<Void> {
       @Override
       public Void call() throws Exception {
          // This call will cause the sender to start logging transactions - BEFORE generating state.
-         Map<Address, Response> resps = rpcManager.invokeRemotely(Collections.singleton(stateProvider), command, SYNCHRONOUS, configuration.getRehashRpcTimeout(), true);
-         for (Response r : resps.values()) {
-            if (r instanceof SuccessfulResponse) {
-               Map<Object, InternalCacheValue> state = getStateFromResponse((SuccessfulResponse) r);
-               distributionManager.applyState(newConsistentHash, state, new RemoteTransactionLoggerImpl(cf, stateProvider, rpcManager), isForLeave());
+         StateChunk chunk = pullChunk(command);
+         if (chunk == null) return null;
+         int chunks = 1;
+         try {
+            while (true) {
+               Future<StateChunk> next = null;
+               if (!chunk.isLast()) {
+                  next = statePullExecutor.submit(new Callable<StateChunk>() {
+                     @Override
+                     public StateChunk call() throws Exception {
+                        return pullChunk(cf.buildRehashControlCommand(PULL_STATE_NEXT_CHUNK, self));
+                     }
+                  });
+               }
+               RemoteTransactionLogger tlog = chunk.isLast() ? new RemoteTransactionLoggerImpl(cf, stateProvider, rpcManager) : null;
+               distributionManager.applyState(newConsistentHash, chunk.getState(), tlog, isForLeave());
+               if (next == null) break;
+               StateChunk nextChunk = next.get();
+               if (nextChunk == null)
+                  throw new CacheException("State transfer from " + stateProvider + " failed after " + chunks + " chunk(s)");
+               chunk = nextChunk;
+               chunks++;
             }
+         } catch (Exception e) {
+            // the transaction log is drained along with the last chunk, so it is only left behind if that wasn't reached
+            if (!chunk.isLast()) abortStateTransfer();
+            throw e;
          }
-
+         if (trace) log.trace("Applied %s chunk(s) of state from %s", chunks, stateProvider);
          return null;
       }
 
       protected abstract boolean isForLeave();
 
-      @SuppressWarnings("unchecked")
-      private Map<Object, InternalCacheValue> getStateFromResponse(SuccessfulResponse r) {
-         return (Map<Object, InternalCacheValue>) r.getResponseValue();
+      private StateChunk pullChunk(ReplicableCommand c) {
+         Map<Address, Response> resps = rpcManager.invokeRemotely(Collections.singleton(stateProvider), c, SYNCHRONOUS, configuration.getRehashRpcTimeout(), true);
+         for (Response r : resps.values()) {
+            if (r instanceof SuccessfulResponse) return (StateChunk) ((SuccessfulResponse) r).getResponseValue();
+         }
+         if (log.isDebugEnabled()) log.debug("No state received from %s, responses were %s", stateProvider, resps);
+         return null;
+      }
+
+      /**
+       * Stops the state provider logging transactions for a join whose state could not be transferred in full.  The
+       * provider drops the state it was generating once the rehash ends.
+       */
+      private void abortStateTransfer() {
+         if (isForLeave()) return; // the state provider drains its own log once all receivers are done
+         try {
+            RemoteTransactionLogger tlog = new RemoteTransactionLoggerImpl(cf, stateProvider, rpcManager);
+            tlog.drainAndLock(null);
+            tlog.unlockAndDisable(null);
+         } catch (Exception e) {
+            log.warn("Unable to stop transaction logging on " + stateProvider, e);
+         }
       }
    }
 }
@@ -0,0 +1,73 @@
+package org.infinispan.distribution;
+
+import org.infinispan.container.entries.InternalCacheValue;
+import org.infinispan.marshall.AbstractExternalizer;
+import org.infinispan.marshall.Ids;
+import org.infinispan.util.Util;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A bounded slice of the state a node pulls from a state provider during a rehash.  State is pulled one chunk at a
+ * time, until a chunk flagged as the last one has been received.
+ *
+ * @since 5.0
+ */
+public class StateChunk {
+   final Map<Object, InternalCacheValue> state;
+   final boolean last;
+
+   public StateChunk(Map<Object, InternalCacheValue> state, boolean last) {
+      this.state = state;
+      this.last = last;
+   }
+
+   public Map<Object, InternalCacheValue> getState() {
+      return state;
+   }
+
+   /**
+    * @return true if this is the last chunk of state the provider has to send
+    */
+   public boolean isLast() {
+      return last;
+   }
+
+   @Override
+   public String toString() {
+      return "StateChunk{" +
+            "state=" + (state == null ? "0" : state.size()) +
+            ", last=" + last +
+            '}';
+   }
+
+   public static class Externalizer extends AbstractExternalizer<StateChunk> {
+
+      @Override
+      public Integer getId() {
+         return Ids.STATE_CHUNK;
+      }
+
+      @Override
+      public void writeObject(ObjectOutput output, StateChunk chunk) throws IOException {
+         output.writeBoolean(chunk.isLast());
+         output.writeObject(chunk.getState());
+      }
+
+      @Override
+      @SuppressWarnings("unchecked")
+      public StateChunk readObject(ObjectInput input) throws IOException, ClassNotFoundException {
+         boolean last = input.readBoolean();
+         return new StateChunk((Map<Object, InternalCacheValue>) input.readObject(), last);
+      }
+
+      @Override
+      public Set<Class<? extends StateChunk>> getTypeClasses() {
+         return Util.<Class<? extends StateChunk>>asSet(StateChunk.class);
+      }
+   }
+}
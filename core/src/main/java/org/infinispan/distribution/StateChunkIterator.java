@@ -0,0 +1,97 @@
+package org.infinispan.distribution;
+
+import org.infinispan.container.DataContainer;
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.container.entries.InternalCacheValue;
+import org.infinispan.loaders.CacheLoaderException;
+import org.infinispan.loaders.CacheStore;
+import org.infinispan.util.ReadOnlyDataContainerBackedKeySet;
+import org.infinispan.util.logging.Log;
+import org.infinispan.util.logging.LogFactory;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Generates the state a state provider sends to a node pulling state during a rehash, one bounded {@link StateChunk}
+ * at a time.
+ * <p />
+ * Entries held in memory are sent first, followed by entries only present in the cache store used for rehashing, if
+ * any.  State is generated lazily as chunks are requested, so that at most one chunk worth of state is held in memory
+ * by the provider.  Subclasses decide which keys are to be transferred.
+ * <p />
+ * Instances are not thread safe; chunks are expected to be requested one after the other.
+ *
+ * @since 5.0
+ */
+public abstract class StateChunkIterator {
+   private static final Log log = LogFactory.getLog(StateChunkIterator.class);
+
+   private final DataContainer dataContainer;
+   private final CacheStore cacheStore;
+   private final int chunkSize;
+   private final Iterator<InternalCacheEntry> inMemory;
+   private Iterator<Object> stored;
+   private boolean exhausted;
+
+   /**
+    * @param chunkSize maximum number of entries in a chunk, or 0 or less to send all the state in a single chunk
+    */
+   protected StateChunkIterator(DataContainer dataContainer, CacheStore cacheStore, int chunkSize) {
+      this.dataContainer = dataContainer;
+      this.cacheStore = cacheStore;
+      this.chunkSize = chunkSize > 0 ? chunkSize : Integer.MAX_VALUE;
+      this.inMemory = dataContainer.iterator();
+   }
+
+   /**
+    * @return true if the given key is to be transferred
+    */
+   protected abstract boolean shouldTransfer(Object key);
+
+   /**
+    * Generates the next chunk of state.  Once a chunk flagged as the last one has been returned, further chunks are
+    * empty.
+    */
+   public StateChunk nextChunk() throws CacheLoaderException {
+      Map<Object, InternalCacheValue> state = new HashMap<Object, InternalCacheValue>();
+      while (state.size() < chunkSize && inMemory.hasNext()) {
+         InternalCacheEntry ice = inMemory.next();
+         Object k = ice.getKey();
+         if (shouldTransfer(k)) {
+            state.put(k, ice.toInternalCacheValue());
+         }
+      }
+
+      if (cacheStore != null && state.size() < chunkSize) {
+         // keys held in memory once the in-memory entries have been sent are skipped, without remembering the keys sent
+         // so far: an entry passivated in the meantime is simply sent twice
+         if (stored == null) stored = cacheStore.loadAllKeys(new ReadOnlyDataContainerBackedKeySet(dataContainer)).iterator();
+         while (state.size() < chunkSize && stored.hasNext()) {
+            Object k = stored.next();
+            if (shouldTransfer(k)) {
+               InternalCacheValue v = loadValue(k);
+               if (v != null) state.put(k, v);
+            }
+         }
+      }
+
+      exhausted = !inMemory.hasNext() && (cacheStore == null || (stored != null && !stored.hasNext()));
+      return new StateChunk(state, exhausted);
+   }
+
+   public boolean isExhausted() {
+      return exhausted;
+   }
+
+   private InternalCacheValue loadValue(Object k) {
+      try {
+         InternalCacheEntry ice = cacheStore.load(k);
+         return ice == null ? null : ice.toInternalCacheValue();
+      } catch (CacheLoaderException cle) {
+         log.warn("Unable to load " + k + " from cache loader", cle);
+      }
+      return null;
+   }
+}
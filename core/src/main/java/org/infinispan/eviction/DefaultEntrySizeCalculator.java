@@ -0,0 +1,108 @@
+package org.infinispan.eviction;
+
+import net.jcip.annotations.ThreadSafe;
+import org.infinispan.CacheException;
+import org.infinispan.factories.annotations.Inject;
+import org.infinispan.marshall.MarshalledValue;
+import org.infinispan.marshall.StreamingMarshaller;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Estimates the size of an entry from the size of its key and value, plus a fixed overhead for the data container's
+ * own structures.
+ * <p/>
+ * Byte arrays, strings and primitive wrappers are measured directly, and {@link MarshalledValue}s by their serialized
+ * form, which they keep for replication anyway. Any other object is measured by marshalling it with the cache's
+ * marshaller, which is costly, so only a sample of the objects of each class is marshalled: the first
+ * {@link #EXACT_SAMPLES} ones and then one in {@link #SAMPLING_INTERVAL}, the others being assumed to be the average
+ * size of the samples of their class. Caches holding objects whose size varies widely within a class, or objects
+ * which can't be marshalled, need to be configured with their own {@link EntrySizeCalculator}.
+ *
+ * @since 5.0
+ */
+@ThreadSafe
+public class DefaultEntrySizeCalculator implements EntrySizeCalculator<Object, Object> {
+
+   /**
+    * Estimated size of the hash table entry, the internal cache entry and the object headers of the key and value
+    */
+   static final long ENTRY_OVERHEAD = 96;
+
+   /**
+    * Number of objects of each class which are all marshalled
+    */
+   static final int EXACT_SAMPLES = 16;
+
+   /**
+    * Once {@link #EXACT_SAMPLES} objects of a class have been marshalled, only one in this many is
+    */
+   static final int SAMPLING_INTERVAL = 64;
+
+   private final ConcurrentMap<Class<?>, SizeEstimate> estimates = new ConcurrentHashMap<Class<?>, SizeEstimate>();
+   private StreamingMarshaller marshaller;
+
+   @Inject
+   public void inject(StreamingMarshaller marshaller) {
+      this.marshaller = marshaller;
+   }
+
+   public long calculateSize(Object key, Object value) {
+      return ENTRY_OVERHEAD + sizeOf(key) + sizeOf(value);
+   }
+
+   long sizeOf(Object o) {
+      if (o == null) return 0;
+      if (o instanceof byte[]) return ((byte[]) o).length;
+      if (o instanceof String) return 2L * ((String) o).length();
+      if (o instanceof Number || o instanceof Boolean || o instanceof Character) return 8;
+      if (o instanceof MarshalledValue) return ((MarshalledValue) o).getRaw().length;
+
+      SizeEstimate estimate = estimates.get(o.getClass());
+      if (estimate == null) {
+         estimate = new SizeEstimate();
+         SizeEstimate existing = estimates.putIfAbsent(o.getClass(), estimate);
+         if (existing != null) estimate = existing;
+      }
+      return estimate.sizeOf(o);
+   }
+
+   long marshalledSize(Object o) {
+      try {
+         return marshaller.objectToBuffer(o).getLength();
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new CacheException("Interrupted while estimating the size of " + o, e);
+      } catch (Exception e) {
+         throw new CacheException("Unable to estimate the size of " + o + ", configure an EntrySizeCalculator for this cache", e);
+      }
+   }
+
+   /**
+    * Average marshalled size of the sampled objects of a class
+    */
+   private class SizeEstimate {
+      private final AtomicLong measured = new AtomicLong();
+      // both guarded by this
+      private long samples;
+      private long totalSize;
+
+      long sizeOf(Object o) {
+         long n = measured.getAndIncrement();
+         if (n >= EXACT_SAMPLES && n % SAMPLING_INTERVAL != 0) {
+            synchronized (this) {
+               // the first samples may still be being marshalled by other threads
+               if (samples > 0) return totalSize / samples;
+            }
+         }
+         long size = marshalledSize(o);
+         synchronized (this) {
+            samples++;
+            totalSize += size;
+         }
+         return size;
+      }
+   }
+}
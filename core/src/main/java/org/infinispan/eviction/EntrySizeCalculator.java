@@ -0,0 +1,20 @@
+package org.infinispan.eviction;
+
+/**
+ * Estimates how much memory an entry takes up, so that a data container can be bounded by the total size of its
+ * entries rather than by their number.
+ * <p/>
+ * Implementations must be thread safe. The size of an entry is computed when it is stored and remembered for as long
+ * as the entry is held, so it need not be recomputed the same for the same key and value.
+ *
+ * @since 5.0
+ */
+public interface EntrySizeCalculator<K, V> {
+
+   /**
+    * @param key   the key of the entry
+    * @param value the value of the entry
+    * @return the estimated size of the entry, in bytes
+    */
+   long calculateSize(K key, V value);
+}
@@ -37,4 +37,16 @@ public interface EvictionManager {
    boolean isEnabled();
 
    void onEntryEviction(Map<Object, InternalCacheEntry> evicted);
+
+   /**
+    * @return the estimated total size, in bytes, of the entries held in memory, or -1 if the cache is not bounded by
+    *         the size of its entries
+    */
+   long getCurrentWeight();
+
+   /**
+    * @return the maximum total size, in bytes, of the entries held in memory, or -1 if the cache is not bounded by
+    *         the size of its entries
+    */
+   long getMaxWeight();
 }
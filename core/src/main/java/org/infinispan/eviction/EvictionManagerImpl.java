@@ -9,6 +9,7 @@ import net.jcip.annotations.ThreadSafe;
 
 import org.infinispan.config.Configuration;
 import org.infinispan.container.DataContainer;
+import org.infinispan.container.DefaultDataContainer;
 import org.infinispan.container.entries.InternalCacheEntry;
 import org.infinispan.context.Flag;
 import org.infinispan.context.InvocationContext;
@@ -18,6 +19,8 @@ import org.infinispan.factories.annotations.ComponentName;
 import org.infinispan.factories.annotations.Inject;
 import org.infinispan.factories.annotations.Start;
 import org.infinispan.factories.annotations.Stop;
+import org.infinispan.jmx.annotations.MBean;
+import org.infinispan.jmx.annotations.ManagedAttribute;
 import org.infinispan.loaders.CacheLoaderException;
 import org.infinispan.loaders.CacheLoaderManager;
 import org.infinispan.loaders.CacheStore;
@@ -28,8 +31,12 @@ import org.infinispan.util.concurrent.TimeoutException;
 import org.infinispan.util.concurrent.locks.LockManager;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
+import org.rhq.helpers.pluginAnnotations.agent.DisplayType;
+import org.rhq.helpers.pluginAnnotations.agent.Metric;
+import org.rhq.helpers.pluginAnnotations.agent.Units;
 
 @ThreadSafe
+@MBean(objectName = "EvictionManager", description = "Component that handles the eviction of entries from memory")
 public class EvictionManagerImpl implements EvictionManager {
    private static final Log log = LogFactory.getLog(EvictionManagerImpl.class);
    private static final boolean trace = log.isTraceEnabled();
@@ -120,6 +127,18 @@ public class EvictionManagerImpl implements EvictionManager {
       return enabled;
    }
 
+   @ManagedAttribute(description = "Estimated total size of the entries held in memory, in bytes, or -1 if not bounded by size")
+   @Metric(displayName = "Estimated size of the entries in memory", units = Units.BYTES, displayType = DisplayType.SUMMARY)
+   public long getCurrentWeight() {
+      return dataContainer instanceof DefaultDataContainer ? ((DefaultDataContainer) dataContainer).weight() : -1;
+   }
+
+   @ManagedAttribute(description = "Maximum total size of the entries held in memory, in bytes, or -1 if not bounded by size")
+   @Metric(displayName = "Maximum size of the entries in memory", units = Units.BYTES, displayType = DisplayType.SUMMARY)
+   public long getMaxWeight() {
+      return dataContainer instanceof DefaultDataContainer ? ((DefaultDataContainer) dataContainer).maxWeight() : -1;
+   }
+
    @Stop(priority = 5)
    public void stop() {
       if (evictionTask != null) {
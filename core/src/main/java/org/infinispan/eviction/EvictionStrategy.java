@@ -11,7 +11,15 @@ public enum EvictionStrategy {
    UNORDERED,
    FIFO,
    LRU,
-   LIRS;
+   LIRS,
+   /**
+    * Evicts the least recently used entries like {@link #LRU}, but a new entry is only admitted if it was accessed
+    * more often recently than the entries it would replace; otherwise it is evicted itself. Protects the popular
+    * entries against scans over many keys accessed only once.
+    *
+    * @since 5.0
+    */
+   TINY_LFU;
    
    public boolean isEnabled() {
       return this != NONE;
@@ -13,10 +13,10 @@ import org.infinispan.loaders.CacheLoaderManager;
 import org.infinispan.loaders.CacheStore;
 import org.infinispan.notifications.cachelistener.CacheNotifier;
 import org.infinispan.util.Util;
+import org.infinispan.util.concurrent.StripedCounter;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
 
-import java.util.concurrent.atomic.AtomicLong;
 
 public class PassivationManagerImpl implements PassivationManager {
 
@@ -28,7 +28,7 @@ public class PassivationManagerImpl implements PassivationManager {
    boolean statsEnabled = false;
    boolean enabled = false;
    private static final Log log = LogFactory.getLog(PassivationManagerImpl.class);
-   private final AtomicLong passivations = new AtomicLong(0);
+   private final StripedCounter passivations = new StripedCounter();
    private DataContainer container;
    private static final boolean trace = log.isTraceEnabled();
 
@@ -69,7 +69,7 @@ public class PassivationManagerImpl implements PassivationManager {
          cacheStore.store(entry);
          notifier.notifyCacheEntryPassivated(key, value, false, ctx);
          if (statsEnabled && entry != null) {
-            passivations.getAndIncrement();
+            passivations.increment();
          }
       }
    }
@@ -88,10 +88,10 @@ public class PassivationManagerImpl implements PassivationManager {
    }
 
    public long getPassivationCount() {
-      return passivations.get();
+      return passivations.sum();
    }
 
    public void resetPassivationCount() {
-      passivations.set(0L);
+      passivations.reset();
    }
 }
@@ -25,6 +25,8 @@ import org.infinispan.config.ConfigurationException;
 import org.infinispan.config.parsing.XmlConfigHelper;
 import org.infinispan.container.DataContainer;
 import org.infinispan.container.DefaultDataContainer;
+import org.infinispan.container.OffHeapDataContainer;
+import org.infinispan.eviction.EntrySizeCalculator;
 import org.infinispan.eviction.EvictionStrategy;
 import org.infinispan.eviction.EvictionThreadPolicy;
 import org.infinispan.factories.annotations.DefaultFactoryFor;
@@ -56,17 +58,40 @@ public class DataContainerFactory extends AbstractNamedCacheComponentFactory imp
             case LRU:
             case FIFO:
             case LIRS:
+            case TINY_LFU:
                int maxEntries = configuration.getEvictionMaxEntries();
                //handle case when < 0 value signifies unbounded container 
                if(maxEntries < 0) {
+                   if (configuration.getEvictionMaxWeight() > 0)
+                      throw new ConfigurationException("maxEntries needs to be set along with maxWeight");
                    return (T) DefaultDataContainer.unBoundedDataContainer(level);
                }
+               if (st == EvictionStrategy.TINY_LFU && configuration.isEvictionAcrossSegments())
+                  throw new ConfigurationException("TINY_LFU eviction can't evict across segments");
                EvictionThreadPolicy policy = configuration.getEvictionThreadPolicy();
-               return (T) DefaultDataContainer.boundedDataContainer(level, maxEntries, st, policy);
+               long maxWeight = configuration.getEvictionMaxWeight();
+               EntrySizeCalculator<Object, Object> sizeCalculator = null;
+               if (maxWeight > 0) {
+                  sizeCalculator = (EntrySizeCalculator<Object, Object>)
+                        Util.getInstance(configuration.getEvictionSizeCalculatorClass());
+                  componentRegistry.wireDependencies(sizeCalculator);
+               }
+               return (T) DefaultDataContainer.boundedDataContainer(level, maxEntries, st, policy, sizeCalculator, maxWeight,
+                                                                    configuration.isEvictionAcrossSegments());
             default:
                throw new ConfigurationException("Unknown eviction strategy "
                         + configuration.getEvictionStrategy());
          }
+      } else if (OffHeapDataContainer.class.getName().equals(configuration.getDataContainerClass())) {
+         EvictionStrategy st = configuration.getEvictionStrategy();
+         int level = configuration.getConcurrencyLevel();
+         int maxEntries = configuration.getEvictionMaxEntries();
+         int slabSize = configuration.getDataContainerProperties().getIntProperty("slabSize", OffHeapDataContainer.DEFAULT_SLAB_SIZE);
+         if (st == EvictionStrategy.NONE || maxEntries < 0) {
+            return (T) OffHeapDataContainer.unBoundedDataContainer(level, slabSize);
+         }
+         EvictionThreadPolicy policy = configuration.getEvictionThreadPolicy();
+         return (T) OffHeapDataContainer.boundedDataContainer(level, maxEntries, st, policy, slabSize);
       } else {
          DataContainer dataContainer = DataContainer.class.cast(Util.getInstance(configuration.getDataContainerClass()));
          XmlConfigHelper.setValues(dataContainer, configuration.getDataContainerProperties(), false, true);
@@ -2,15 +2,19 @@ package org.infinispan.factories;
 
 import org.infinispan.distribution.DistributionManager;
 import org.infinispan.distribution.DistributionManagerImpl;
+import org.infinispan.distribution.L1Manager;
+import org.infinispan.distribution.L1ManagerImpl;
 import org.infinispan.factories.annotations.DefaultFactoryFor;
 
-@DefaultFactoryFor(classes = DistributionManager.class)
+@DefaultFactoryFor(classes = {DistributionManager.class, L1Manager.class})
 public class DistributionManagerFactory extends AbstractNamedCacheComponentFactory implements AutoInstantiableFactory {
    @SuppressWarnings("unchecked")
    public <T> T construct(Class<T> componentType) {
-      if (configuration.getCacheMode().isDistributed())
-         return (T) new DistributionManagerImpl();
-      else
+      if (!configuration.getCacheMode().isDistributed())
          return null;
+      else if (componentType.equals(L1Manager.class))
+         return configuration.isL1CacheEnabled() ? (T) new L1ManagerImpl() : null;
+      else
+         return (T) new DistributionManagerImpl();
    }
 }
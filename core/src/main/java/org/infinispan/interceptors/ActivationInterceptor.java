@@ -1,5 +1,6 @@
 package org.infinispan.interceptors;
 
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.write.PutKeyValueCommand;
 import org.infinispan.commands.write.PutMapCommand;
@@ -13,16 +14,16 @@ import org.infinispan.jmx.annotations.ManagedAttribute;
 import org.infinispan.jmx.annotations.ManagedOperation;
 import org.infinispan.loaders.CacheLoaderException;
 import org.infinispan.loaders.CacheStore;
+import org.infinispan.util.concurrent.StripedCounter;
 import org.rhq.helpers.pluginAnnotations.agent.MeasurementType;
 import org.rhq.helpers.pluginAnnotations.agent.Metric;
 import org.rhq.helpers.pluginAnnotations.agent.Operation;
 
-import java.util.concurrent.atomic.AtomicLong;
 
 @MBean(objectName = "Activation", description = "Component that handles activating entries that have been passivated to a CacheStore by loading them into memory.")
 public class ActivationInterceptor extends CacheLoaderInterceptor {
 
-   private final AtomicLong activations = new AtomicLong(0);
+   private final StripedCounter activations = new StripedCounter();
    private CacheStore store;
 
    @Start(priority = 15)
@@ -71,11 +72,18 @@ public class ActivationInterceptor extends CacheLoaderInterceptor {
       return retval;
    }
 
+   @Override
+   public Object visitGetAllCommand(InvocationContext ctx, GetAllCommand command) throws Throwable {
+      Object retval = super.visitGetAllCommand(ctx, command);
+      removeFromStore(command.getKeys().toArray());
+      return retval;
+   }
+
    private void removeFromStore(Object... keys) throws CacheLoaderException {
       if (!clm.isShared()) {
          for (Object k : keys) {
             if (store.remove(k) && getStatisticsEnabled()) {
-               activations.incrementAndGet();
+               activations.increment();
             }
          }
       } else {
@@ -95,7 +103,7 @@ public class ActivationInterceptor extends CacheLoaderInterceptor {
       if (!getStatisticsEnabled()) {
          return "N/A";
       }
-      return String.valueOf(activations.get());
+      return String.valueOf(activations.sum());
    }
 
    @Override
@@ -103,7 +111,7 @@ public class ActivationInterceptor extends CacheLoaderInterceptor {
    @Operation(displayName = "Reset statistics")
    public void resetStatistics() {
       super.resetStatistics();
-      activations.set(0);
+      activations.reset();
    }
 }
 
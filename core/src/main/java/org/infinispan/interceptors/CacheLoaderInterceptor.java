@@ -21,8 +21,14 @@
  */
 package org.infinispan.interceptors;
 
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.write.InvalidateCommand;
 import org.infinispan.commands.write.PutKeyValueCommand;
@@ -44,14 +50,17 @@ import org.infinispan.jmx.annotations.ManagedOperation;
 import org.infinispan.loaders.CacheLoader;
 import org.infinispan.loaders.CacheLoaderManager;
 import org.infinispan.notifications.cachelistener.CacheNotifier;
+import org.infinispan.util.concurrent.LatencyHistogram;
+import org.infinispan.util.concurrent.StripedCounter;
 import org.rhq.helpers.pluginAnnotations.agent.MeasurementType;
 import org.rhq.helpers.pluginAnnotations.agent.Metric;
 import org.rhq.helpers.pluginAnnotations.agent.Operation;
 
 @MBean(objectName = "CacheLoader", description = "Component that handles loading entries from a CacheStore into memory.")
 public class CacheLoaderInterceptor extends JmxStatsCommandInterceptor {
-   private final AtomicLong cacheLoads = new AtomicLong(0);
-   private final AtomicLong cacheMisses = new AtomicLong(0);
+   private final StripedCounter cacheLoads = new StripedCounter();
+   private final StripedCounter cacheMisses = new StripedCounter();
+   private final LatencyHistogram loadTimes = new LatencyHistogram();
 
    protected CacheLoaderManager clm;
    protected CacheNotifier notifier;
@@ -91,6 +100,49 @@ public class CacheLoaderInterceptor extends JmxStatsCommandInterceptor {
       return invokeNextInterceptor(ctx, command);
    }
 
+   @Override
+   public Object visitGetAllCommand(InvocationContext ctx, GetAllCommand command) throws Throwable {
+      if (!ctx.hasFlag(Flag.SKIP_CACHE_STORE) && !ctx.hasFlag(Flag.SKIP_CACHE_LOAD)) {
+         List<Object> toLoad = new ArrayList<Object>();
+         for (Object key : command.getKeys()) {
+            CacheEntry e = entryFactory.wrapEntryForReading(ctx, key);
+            if ((e == null || e.isNull()) && !dataContainer.containsKey(key)) toLoad.add(key);
+         }
+         if (!toLoad.isEmpty()) loadAll(ctx, toLoad);
+      }
+      return invokeNextInterceptor(ctx, command);
+   }
+
+   /**
+    * Loads several keys which were found to be missing from the data container, looking all of them up in the loader
+    * in one go before recording the loaded entries in the context.
+    */
+   private void loadAll(InvocationContext ctx, List<Object> keys) throws Throwable {
+      long t1 = System.nanoTime();
+      Set<InternalCacheEntry> entries = loader.load(new HashSet<Object>(keys));
+      if (getStatisticsEnabled()) loadTimes.record((System.nanoTime() - t1) / keys.size(), keys.size());
+      Map<Object, InternalCacheEntry> loaded = new HashMap<Object, InternalCacheEntry>(entries.size());
+      for (InternalCacheEntry ice : entries) loaded.put(ice.getKey(), ice);
+      if (log.isTraceEnabled()) log.trace("Loaded %s out of %s keys from the loader", loaded.size(), keys.size());
+
+      for (Object key : keys) {
+         InternalCacheEntry ice = loaded.get(key);
+         if (ice == null) {
+            if (getStatisticsEnabled()) cacheMisses.increment();
+            continue;
+         }
+         boolean keyLocked = entryFactory.acquireLock(ctx, key);
+         if (dataContainer.containsKey(key)) {
+            // added concurrently while we were loading, so what is in memory is more recent
+            if (keyLocked) entryFactory.releaseLock(key);
+            entryFactory.wrapEntryForReading(ctx, key);
+            continue;
+         }
+         MVCCEntry n = entryFactory.wrapEntryForWriting(ctx, key, true, false, keyLocked, false, true);
+         recordLoadedEntry(ctx, key, n, ice);
+      }
+   }
+
    @Override
    public Object visitInvalidateCommand(InvocationContext ctx, InvalidateCommand command) throws Throwable {
       Object[] keys;
@@ -145,7 +197,9 @@ public class CacheLoaderInterceptor extends JmxStatsCommandInterceptor {
          }
 
          // we *may* need to load this.
+         long t1 = System.nanoTime();
          InternalCacheEntry loaded = loader.load(key);
+         if (getStatisticsEnabled()) loadTimes.record(System.nanoTime() - t1);
          if (loaded == null) {
             if (log.isTraceEnabled()) {
                log.trace("No need to load.  Key doesn't exist in the loader.");
@@ -187,9 +241,9 @@ public class CacheLoaderInterceptor extends JmxStatsCommandInterceptor {
 
       if (getStatisticsEnabled()) {
          if (entryExists) {
-            cacheLoads.incrementAndGet();
+            cacheLoads.increment();
          } else {
-            cacheMisses.incrementAndGet();
+            cacheMisses.increment();
          }
       }
 
@@ -216,27 +270,52 @@ public class CacheLoaderInterceptor extends JmxStatsCommandInterceptor {
    private void loadIfNeededAndUpdateStats(InvocationContext ctx, Object key) throws Throwable {
       boolean found = loadIfNeeded(ctx, key);
       if (!found && getStatisticsEnabled()) {
-         cacheMisses.incrementAndGet();
+         cacheMisses.increment();
       }
    }
 
    @ManagedAttribute(description = "Number of entries loaded from cache store")
    @Metric(displayName = "Number of cache store loads", measurementType = MeasurementType.TRENDSUP)
    public long getCacheLoaderLoads() {
-      return cacheLoads.get();
+      return cacheLoads.sum();
    }
 
    @ManagedAttribute(description = "Number of entries that did not exist in cache store")
    @Metric(displayName = "Number of cache store load misses", measurementType = MeasurementType.TRENDSUP)
    public long getCacheLoaderMisses() {
-      return cacheMisses.get();
+      return cacheMisses.sum();
+   }
+
+   @ManagedAttribute(description = "50th percentile latency, in nanoseconds, of loading an entry from the cache store")
+   @Metric(displayName = "Cache store load latency 50th percentile (nanoseconds)")
+   public long getLoadLatencyP50() {
+      return loadTimes.getPercentile(50);
+   }
+
+   @ManagedAttribute(description = "99th percentile latency, in nanoseconds, of loading an entry from the cache store")
+   @Metric(displayName = "Cache store load latency 99th percentile (nanoseconds)")
+   public long getLoadLatencyP99() {
+      return loadTimes.getPercentile(99);
+   }
+
+   @ManagedAttribute(description = "99.9th percentile latency, in nanoseconds, of loading an entry from the cache store")
+   @Metric(displayName = "Cache store load latency 99.9th percentile (nanoseconds)")
+   public long getLoadLatencyP999() {
+      return loadTimes.getPercentile(99.9);
+   }
+
+   @ManagedAttribute(description = "Maximum latency, in nanoseconds, of loading an entry from the cache store")
+   @Metric(displayName = "Cache store load latency maximum (nanoseconds)")
+   public long getLoadLatencyMax() {
+      return loadTimes.getMax();
    }
 
    @Override
    @ManagedOperation(description = "Resets statistics gathered by this component")
    @Operation(displayName = "Reset Statistics")
    public void resetStatistics() {
-      cacheLoads.set(0);
-      cacheMisses.set(0);
+      cacheLoads.reset();
+      cacheMisses.reset();
+      loadTimes.reset();
    }
 }
\ No newline at end of file
@@ -21,6 +21,7 @@
  */
 package org.infinispan.interceptors;
 
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.write.EvictCommand;
 import org.infinispan.commands.write.PutKeyValueCommand;
@@ -33,6 +34,8 @@ import org.infinispan.interceptors.base.JmxStatsCommandInterceptor;
 import org.infinispan.jmx.annotations.MBean;
 import org.infinispan.jmx.annotations.ManagedAttribute;
 import org.infinispan.jmx.annotations.ManagedOperation;
+import org.infinispan.util.concurrent.LatencyHistogram;
+import org.infinispan.util.concurrent.StripedCounter;
 import org.rhq.helpers.pluginAnnotations.agent.DisplayType;
 import org.rhq.helpers.pluginAnnotations.agent.MeasurementType;
 import org.rhq.helpers.pluginAnnotations.agent.Metric;
@@ -51,17 +54,18 @@ import java.util.concurrent.atomic.AtomicLong;
  */
 @MBean(objectName = "Statistics", description = "General statistics such as timings, hit/miss ratio, etc.")
 public class CacheMgmtInterceptor extends JmxStatsCommandInterceptor {
-   private AtomicLong hitTimes = new AtomicLong(0);
-   private AtomicLong missTimes = new AtomicLong(0);
-   private AtomicLong storeTimes = new AtomicLong(0);
-   private AtomicLong hits = new AtomicLong(0);
-   private AtomicLong misses = new AtomicLong(0);
-   private AtomicLong stores = new AtomicLong(0);
-   private AtomicLong evictions = new AtomicLong(0);
+   private final LatencyHistogram hitTimes = new LatencyHistogram();
+   private final LatencyHistogram missTimes = new LatencyHistogram();
+   private final LatencyHistogram storeTimes = new LatencyHistogram();
+   private final LatencyHistogram removeTimes = new LatencyHistogram();
+   private final StripedCounter hits = new StripedCounter();
+   private final StripedCounter misses = new StripedCounter();
+   private final StripedCounter stores = new StripedCounter();
+   private final StripedCounter evictions = new StripedCounter();
    private AtomicLong start = new AtomicLong(System.currentTimeMillis());
    private AtomicLong reset = new AtomicLong(start.get());
-   private AtomicLong removeHits = new AtomicLong(0);
-   private AtomicLong removeMisses = new AtomicLong(0);
+   private final StripedCounter removeHits = new StripedCounter();
+   private final StripedCounter removeMisses = new StripedCounter();
 
    private DataContainer dataContainer;
 
@@ -73,21 +77,39 @@ public class CacheMgmtInterceptor extends JmxStatsCommandInterceptor {
    @Override
    public Object visitEvictCommand(InvocationContext ctx, EvictCommand command) throws Throwable {
       Object returnValue = invokeNextInterceptor(ctx, command);
-      evictions.incrementAndGet();
+      evictions.increment();
       return returnValue;
    }
 
    @Override
    public Object visitGetKeyValueCommand(InvocationContext ctx, GetKeyValueCommand command) throws Throwable {
-      long t1 = System.currentTimeMillis();
+      long t1 = System.nanoTime();
       Object retval = invokeNextInterceptor(ctx, command);
-      long t2 = System.currentTimeMillis();
+      long t2 = System.nanoTime();
       if (retval == null) {
-         missTimes.getAndAdd(t2 - t1);
-         misses.incrementAndGet();
+         missTimes.record(t2 - t1);
+         misses.increment();
       } else {
-         hitTimes.getAndAdd(t2 - t1);
-         hits.incrementAndGet();
+         hitTimes.record(t2 - t1);
+         hits.increment();
+      }
+      return retval;
+   }
+
+   @Override
+   public Object visitGetAllCommand(InvocationContext ctx, GetAllCommand command) throws Throwable {
+      long t1 = System.nanoTime();
+      Map retval = (Map) invokeNextInterceptor(ctx, command);
+      long t2 = System.nanoTime();
+      int requested = command.getKeys().size();
+      if (requested > 0) {
+         // the time taken is shared out between the keys that were requested
+         int found = retval.size();
+         long timePerKey = (t2 - t1) / requested;
+         hitTimes.record(timePerKey, found);
+         hits.add(found);
+         missTimes.record(timePerKey, requested - found);
+         misses.add(requested - found);
       }
       return retval;
    }
@@ -95,13 +117,13 @@ public class CacheMgmtInterceptor extends JmxStatsCommandInterceptor {
    @Override
    public Object visitPutMapCommand(InvocationContext ctx, PutMapCommand command) throws Throwable {
       Map data = command.getMap();
-      long t1 = System.currentTimeMillis();
+      long t1 = System.nanoTime();
       Object retval = invokeNextInterceptor(ctx, command);
-      long t2 = System.currentTimeMillis();
+      long t2 = System.nanoTime();
 
       if (data != null && !data.isEmpty()) {
-         storeTimes.getAndAdd(t2 - t1);
-         stores.getAndAdd(data.size());
+         storeTimes.record((t2 - t1) / data.size(), data.size());
+         stores.add(data.size());
       }
       return retval;
    }
@@ -109,21 +131,23 @@ public class CacheMgmtInterceptor extends JmxStatsCommandInterceptor {
    @Override
    //Map.put(key,value) :: oldValue
    public Object visitPutKeyValueCommand(InvocationContext ctx, PutKeyValueCommand command) throws Throwable {
-      long t1 = System.currentTimeMillis();
+      long t1 = System.nanoTime();
       Object retval = invokeNextInterceptor(ctx, command);
-      long t2 = System.currentTimeMillis();
-      storeTimes.getAndAdd(t2 - t1);
-      stores.incrementAndGet();
+      long t2 = System.nanoTime();
+      storeTimes.record(t2 - t1);
+      stores.increment();
       return retval;
    }
 
    @Override
    public Object visitRemoveCommand(InvocationContext ctx, RemoveCommand command) throws Throwable {
+      long t1 = System.nanoTime();
       Object retval = invokeNextInterceptor(ctx, command);
+      removeTimes.record(System.nanoTime() - t1);
       if (retval == null) {
-         removeMisses.incrementAndGet();
+         removeMisses.increment();
       } else {
-         removeHits.incrementAndGet();
+         removeHits.increment();
       }
       return retval;
    }
@@ -131,71 +155,167 @@ public class CacheMgmtInterceptor extends JmxStatsCommandInterceptor {
    @ManagedAttribute(description = "Number of cache attribute hits")
    @Metric(displayName = "Number of cache hits", measurementType = MeasurementType.TRENDSUP, displayType = DisplayType.SUMMARY)
    public long getHits() {
-      return hits.get();
+      return hits.sum();
    }
 
    @ManagedAttribute(description = "Number of cache attribute misses")
    @Metric(displayName = "Number of cache misses", measurementType = MeasurementType.TRENDSUP, displayType = DisplayType.SUMMARY)
    public long getMisses() {
-      return misses.get();
+      return misses.sum();
    }
 
    @ManagedAttribute(description = "Number of cache removal hits")
    @Metric(displayName = "Number of cache removal hits", measurementType = MeasurementType.TRENDSUP, displayType = DisplayType.SUMMARY)
    public long getRemoveHits() {
-      return removeHits.get();
+      return removeHits.sum();
    }
 
    @ManagedAttribute(description = "Number of cache removals where keys were not found")
    @Metric(displayName = "Number of cache removal misses", measurementType = MeasurementType.TRENDSUP, displayType = DisplayType.SUMMARY)
    public long getRemoveMisses() {
-      return removeMisses.get();
+      return removeMisses.sum();
    }
 
    @ManagedAttribute(description = "number of cache attribute put operations")
    @Metric(displayName = "Number of cache puts" , measurementType = MeasurementType.TRENDSUP, displayType = DisplayType.SUMMARY)
    public long getStores() {
-      return stores.get();
+      return stores.sum();
    }
 
    @ManagedAttribute(description = "Number of cache eviction operations")
    @Metric(displayName = "Number of cache evictions", measurementType = MeasurementType.TRENDSUP, displayType = DisplayType.SUMMARY)
    public long getEvictions() {
-      return evictions.get();
+      return evictions.sum();
    }
 
    @ManagedAttribute(description = "Percentage hit/(hit+miss) ratio for the cache")
    @Metric(displayName = "Hit ratio", units = Units.PERCENTAGE, displayType = DisplayType.SUMMARY)
    public double getHitRatio() {
-      double total = hits.get() + misses.get();
+      double total = hits.sum() + misses.sum();
       if (total == 0)
          return 0;
-      return (hits.get() / total);
+      return (hits.sum() / total);
    }
 
    @ManagedAttribute(description = "read/writes ratio for the cache")
    @Metric(displayName = "Read/write ratio", units = Units.PERCENTAGE, displayType = DisplayType.SUMMARY)
    public double getReadWriteRatio() {
-      if (stores.get() == 0)
+      if (stores.sum() == 0)
          return 0;
-      return (((double) (hits.get() + misses.get()) / (double) stores.get()));
+      return (((double) (hits.sum() + misses.sum()) / (double) stores.sum()));
    }
 
    @ManagedAttribute(description = "Average number of milliseconds for a read operation on the cache")
    @Metric(displayName = "Average read time", units = Units.MILLISECONDS, displayType = DisplayType.SUMMARY)
    public long getAverageReadTime() {
-      long total = hits.get() + misses.get();
+      long total = hits.sum() + misses.sum();
       if (total == 0)
          return 0;
-      return (hitTimes.get() + missTimes.get()) / total;
+      return TimeUnit.NANOSECONDS.toMillis((hitTimes.getTotal() + missTimes.getTotal()) / total);
    }
 
    @ManagedAttribute(description = "Average number of milliseconds for a write operation in the cache")
    @Metric(displayName = "Average write time", units = Units.MILLISECONDS, displayType = DisplayType.SUMMARY)
    public long getAverageWriteTime() {
-      if (stores.get() == 0)
+      if (stores.sum() == 0)
          return 0;
-      return (storeTimes.get()) / stores.get();
+      return TimeUnit.NANOSECONDS.toMillis(storeTimes.getTotal() / stores.sum());
+   }
+
+   @ManagedAttribute(description = "50th percentile latency, in nanoseconds, of read operations which found an entry on the cache")
+   @Metric(displayName = "Read hit latency 50th percentile (nanoseconds)")
+   public long getHitLatencyP50() {
+      return hitTimes.getPercentile(50);
+   }
+
+   @ManagedAttribute(description = "99th percentile latency, in nanoseconds, of read operations which found an entry on the cache")
+   @Metric(displayName = "Read hit latency 99th percentile (nanoseconds)")
+   public long getHitLatencyP99() {
+      return hitTimes.getPercentile(99);
+   }
+
+   @ManagedAttribute(description = "99.9th percentile latency, in nanoseconds, of read operations which found an entry on the cache")
+   @Metric(displayName = "Read hit latency 99.9th percentile (nanoseconds)")
+   public long getHitLatencyP999() {
+      return hitTimes.getPercentile(99.9);
+   }
+
+   @ManagedAttribute(description = "Maximum latency, in nanoseconds, of read operations which found an entry on the cache")
+   @Metric(displayName = "Read hit latency maximum (nanoseconds)")
+   public long getHitLatencyMax() {
+      return hitTimes.getMax();
+   }
+
+   @ManagedAttribute(description = "50th percentile latency, in nanoseconds, of read operations which did not find an entry on the cache")
+   @Metric(displayName = "Read miss latency 50th percentile (nanoseconds)")
+   public long getMissLatencyP50() {
+      return missTimes.getPercentile(50);
+   }
+
+   @ManagedAttribute(description = "99th percentile latency, in nanoseconds, of read operations which did not find an entry on the cache")
+   @Metric(displayName = "Read miss latency 99th percentile (nanoseconds)")
+   public long getMissLatencyP99() {
+      return missTimes.getPercentile(99);
+   }
+
+   @ManagedAttribute(description = "99.9th percentile latency, in nanoseconds, of read operations which did not find an entry on the cache")
+   @Metric(displayName = "Read miss latency 99.9th percentile (nanoseconds)")
+   public long getMissLatencyP999() {
+      return missTimes.getPercentile(99.9);
+   }
+
+   @ManagedAttribute(description = "Maximum latency, in nanoseconds, of read operations which did not find an entry on the cache")
+   @Metric(displayName = "Read miss latency maximum (nanoseconds)")
+   public long getMissLatencyMax() {
+      return missTimes.getMax();
+   }
+
+   @ManagedAttribute(description = "50th percentile latency, in nanoseconds, of write operations on the cache")
+   @Metric(displayName = "Write latency 50th percentile (nanoseconds)")
+   public long getStoreLatencyP50() {
+      return storeTimes.getPercentile(50);
+   }
+
+   @ManagedAttribute(description = "99th percentile latency, in nanoseconds, of write operations on the cache")
+   @Metric(displayName = "Write latency 99th percentile (nanoseconds)")
+   public long getStoreLatencyP99() {
+      return storeTimes.getPercentile(99);
+   }
+
+   @ManagedAttribute(description = "99.9th percentile latency, in nanoseconds, of write operations on the cache")
+   @Metric(displayName = "Write latency 99.9th percentile (nanoseconds)")
+   public long getStoreLatencyP999() {
+      return storeTimes.getPercentile(99.9);
+   }
+
+   @ManagedAttribute(description = "Maximum latency, in nanoseconds, of write operations on the cache")
+   @Metric(displayName = "Write latency maximum (nanoseconds)")
+   public long getStoreLatencyMax() {
+      return storeTimes.getMax();
+   }
+
+   @ManagedAttribute(description = "50th percentile latency, in nanoseconds, of remove operations on the cache")
+   @Metric(displayName = "Remove latency 50th percentile (nanoseconds)")
+   public long getRemoveLatencyP50() {
+      return removeTimes.getPercentile(50);
+   }
+
+   @ManagedAttribute(description = "99th percentile latency, in nanoseconds, of remove operations on the cache")
+   @Metric(displayName = "Remove latency 99th percentile (nanoseconds)")
+   public long getRemoveLatencyP99() {
+      return removeTimes.getPercentile(99);
+   }
+
+   @ManagedAttribute(description = "99.9th percentile latency, in nanoseconds, of remove operations on the cache")
+   @Metric(displayName = "Remove latency 99.9th percentile (nanoseconds)")
+   public long getRemoveLatencyP999() {
+      return removeTimes.getPercentile(99.9);
+   }
+
+   @ManagedAttribute(description = "Maximum latency, in nanoseconds, of remove operations on the cache")
+   @Metric(displayName = "Remove latency maximum (nanoseconds)")
+   public long getRemoveLatencyMax() {
+      return removeTimes.getMax();
    }
 
    @ManagedAttribute(description = "Number of entries currently in the cache")
@@ -219,15 +339,16 @@ public class CacheMgmtInterceptor extends JmxStatsCommandInterceptor {
    @ManagedOperation(description = "Resets statistics gathered by this component")
    @Operation(displayName = "Reset Statistics (Statistics)")
    public void resetStatistics() {
-      hits.set(0);
-      misses.set(0);
-      stores.set(0);
-      evictions.set(0);
-      hitTimes.set(0);
-      missTimes.set(0);
-      storeTimes.set(0);
-      removeHits.set(0);
-      removeMisses.set(0);
+      hits.reset();
+      misses.reset();
+      stores.reset();
+      evictions.reset();
+      hitTimes.reset();
+      missTimes.reset();
+      storeTimes.reset();
+      removeTimes.reset();
+      removeHits.reset();
+      removeMisses.reset();
       reset.set(System.currentTimeMillis());
    }
 }
@@ -47,15 +47,20 @@ import org.infinispan.jmx.annotations.ManagedAttribute;
 import org.infinispan.jmx.annotations.ManagedOperation;
 import org.infinispan.loaders.CacheLoaderManager;
 import org.infinispan.loaders.CacheStore;
+import org.infinispan.loaders.decorators.AbstractDelegatingStore;
+import org.infinispan.loaders.decorators.AsyncStore;
+import org.infinispan.loaders.decorators.ChainingCacheStore;
 import org.infinispan.loaders.modifications.Clear;
 import org.infinispan.loaders.modifications.Modification;
 import org.infinispan.loaders.modifications.Remove;
 import org.infinispan.loaders.modifications.Store;
 import org.infinispan.transaction.xa.GlobalTransaction;
+import org.infinispan.util.concurrent.StripedCounter;
 import org.infinispan.util.logging.LogFactory;
 import org.rhq.helpers.pluginAnnotations.agent.MeasurementType;
 import org.rhq.helpers.pluginAnnotations.agent.Metric;
 import org.rhq.helpers.pluginAnnotations.agent.Operation;
+import org.rhq.helpers.pluginAnnotations.agent.Units;
 
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -63,7 +68,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.TimeUnit;
 
 import static org.infinispan.context.Flag.SKIP_CACHE_STORE;
 import static org.infinispan.context.Flag.SKIP_SHARED_CACHE_STORE;
@@ -80,9 +85,10 @@ public class CacheStoreInterceptor extends JmxStatsCommandInterceptor {
    CacheLoaderManagerConfig loaderConfig = null;
    private Map<GlobalTransaction, Integer> txStores;
    private Map<GlobalTransaction, Set<Object>> preparingTxs;
-   final AtomicLong cacheStores = new AtomicLong(0);
+   final StripedCounter cacheStores = new StripedCounter();
    CacheStore store;
    private CacheLoaderManager loaderManager;
+   private List<AsyncStore> asyncStores;
 
    public CacheStoreInterceptor() {
       log = LogFactory.getLog(getClass());
@@ -97,6 +103,8 @@ public class CacheStoreInterceptor extends JmxStatsCommandInterceptor {
    @Start(priority = 15)
    protected void start() {
       store = loaderManager.getCacheStore();
+      asyncStores = new ArrayList<AsyncStore>(1);
+      findAsyncStores(store, asyncStores);
       this.setStatisticsEnabled(configuration.isExposeJmxStatistics());
       loaderConfig = configuration.getCacheLoaderManagerConfig();
       txStores = new ConcurrentHashMap<GlobalTransaction, Integer>(64, 0.75f, configuration.getConcurrencyLevel());
@@ -138,7 +146,7 @@ public class CacheStoreInterceptor extends JmxStatsCommandInterceptor {
             if (getStatisticsEnabled()) {
                Integer puts = txStores.get(tx);
                if (puts != null) {
-                  cacheStores.getAndAdd(puts);
+                  cacheStores.add(puts);
                }
                txStores.remove(tx);
             }
@@ -207,7 +215,7 @@ public class CacheStoreInterceptor extends JmxStatsCommandInterceptor {
       InternalCacheEntry se = getStoredEntry(key, ctx);
       store.store(se);
       if (trace) log.trace("Stored entry %s under key %s", se, key);
-      if (getStatisticsEnabled()) cacheStores.incrementAndGet();
+      if (getStatisticsEnabled()) cacheStores.increment();
 
       return returnValue;
    }
@@ -221,7 +229,7 @@ public class CacheStoreInterceptor extends JmxStatsCommandInterceptor {
       InternalCacheEntry se = getStoredEntry(key, ctx);
       store.store(se);
       if (trace) log.trace("Stored entry %s under key %s", se, key);
-      if (getStatisticsEnabled()) cacheStores.incrementAndGet();
+      if (getStatisticsEnabled()) cacheStores.increment();
 
       return returnValue;
    }
@@ -237,7 +245,7 @@ public class CacheStoreInterceptor extends JmxStatsCommandInterceptor {
          store.store(se);
          if (trace) log.trace("Stored entry %s under key %s", se, key);
       }
-      if (getStatisticsEnabled()) cacheStores.getAndAdd(map.size());
+      if (getStatisticsEnabled()) cacheStores.add(map.size());
       return returnValue;
    }
 
@@ -339,13 +347,58 @@ public class CacheStoreInterceptor extends JmxStatsCommandInterceptor {
    @ManagedOperation(description = "Resets statistics gathered by this component")
    @Operation(displayName = "Reset statistics")
    public void resetStatistics() {
-      cacheStores.set(0);
+      cacheStores.reset();
+      for (AsyncStore as : asyncStores) as.resetStatistics();
    }
 
    @ManagedAttribute(description = "number of cache loader stores")
    @Metric(displayName = "Number of cache stores", measurementType = MeasurementType.TRENDSUP)
    public long getCacheLoaderStores() {
-      return cacheStores.get();
+      return cacheStores.sum();
+   }
+
+   @ManagedAttribute(description = "Number of modifications waiting to be written to asynchronous cache stores")
+   @Metric(displayName = "Async store queue depth")
+   public int getAsyncStoreQueueDepth() {
+      int depth = 0;
+      for (AsyncStore as : asyncStores) depth += as.getQueueDepth();
+      return depth;
+   }
+
+   @ManagedAttribute(description = "Number of modifications rejected by, or which could not be written to, asynchronous cache stores")
+   @Metric(displayName = "Async store dropped modifications", measurementType = MeasurementType.TRENDSUP)
+   public long getAsyncStoreDroppedModifications() {
+      long dropped = 0;
+      for (AsyncStore as : asyncStores) dropped += as.getDroppedModifications();
+      return dropped;
+   }
+
+   @ManagedAttribute(description = "Average number of milliseconds taken to flush pending modifications to asynchronous cache stores")
+   @Metric(displayName = "Average async store flush time", units = Units.MILLISECONDS)
+   public long getAverageAsyncStoreFlushTime() {
+      long flushes = 0, time = 0;
+      for (AsyncStore as : asyncStores) {
+         flushes += as.getFlushCount();
+         time += as.getFlushTime();
+      }
+      return flushes == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(time / flushes);
+   }
+
+   @ManagedAttribute(description = "Maximum number of milliseconds taken to flush pending modifications to asynchronous cache stores")
+   @Metric(displayName = "Maximum async store flush time", units = Units.MILLISECONDS)
+   public long getMaxAsyncStoreFlushTime() {
+      long max = 0;
+      for (AsyncStore as : asyncStores) max = Math.max(max, as.getMaxFlushTime());
+      return TimeUnit.NANOSECONDS.toMillis(max);
+   }
+
+   private static void findAsyncStores(CacheStore cs, List<AsyncStore> found) {
+      if (cs instanceof AsyncStore) found.add((AsyncStore) cs);
+      if (cs instanceof AbstractDelegatingStore) {
+         findAsyncStores(((AbstractDelegatingStore) cs).getDelegate(), found);
+      } else if (cs instanceof ChainingCacheStore) {
+         for (CacheStore s : ((ChainingCacheStore) cs).getStores().keySet()) findAsyncStores(s, found);
+      }
    }
 
    InternalCacheEntry getStoredEntry(Object key, InvocationContext ctx) {
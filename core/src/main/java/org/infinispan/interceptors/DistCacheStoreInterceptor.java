@@ -80,7 +80,7 @@ public class DistCacheStoreInterceptor extends CacheStoreInterceptor {
       InternalCacheEntry se = getStoredEntry(key, ctx);
       store.store(se);
       log.trace("Stored entry %s under key %s", se, key);
-      if (getStatisticsEnabled()) cacheStores.incrementAndGet();
+      if (getStatisticsEnabled()) cacheStores.increment();
       return returnValue;
    }
 
@@ -97,7 +97,7 @@ public class DistCacheStoreInterceptor extends CacheStoreInterceptor {
             log.trace("Stored entry %s under key %s", se, key);
          }
       }
-      if (getStatisticsEnabled()) cacheStores.getAndAdd(map.size());
+      if (getStatisticsEnabled()) cacheStores.add(map.size());
       return returnValue;
    }
 
@@ -122,7 +122,7 @@ public class DistCacheStoreInterceptor extends CacheStoreInterceptor {
       InternalCacheEntry se = getStoredEntry(key, ctx);
       store.store(se);
       log.trace("Stored entry %s under key %s", se, key);
-      if (getStatisticsEnabled()) cacheStores.incrementAndGet();
+      if (getStatisticsEnabled()) cacheStores.increment();
 
       return returnValue;
    }
@@ -2,12 +2,12 @@ package org.infinispan.interceptors;
 
 import org.infinispan.commands.CommandsFactory;
 import org.infinispan.commands.control.LockControlCommand;
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.tx.CommitCommand;
 import org.infinispan.commands.tx.PrepareCommand;
 import org.infinispan.commands.tx.RollbackCommand;
 import org.infinispan.commands.write.ClearCommand;
-import org.infinispan.commands.write.InvalidateCommand;
 import org.infinispan.commands.write.PutKeyValueCommand;
 import org.infinispan.commands.write.PutMapCommand;
 import org.infinispan.commands.write.RemoveCommand;
@@ -23,6 +23,7 @@ import org.infinispan.context.impl.LocalTxInvocationContext;
 import org.infinispan.context.impl.TxInvocationContext;
 import org.infinispan.distribution.DataLocality;
 import org.infinispan.distribution.DistributionManager;
+import org.infinispan.distribution.L1Manager;
 import org.infinispan.factories.annotations.Inject;
 import org.infinispan.factories.annotations.Start;
 import org.infinispan.interceptors.base.BaseRpcInterceptor;
@@ -30,10 +31,10 @@ import org.infinispan.remoting.responses.Response;
 import org.infinispan.remoting.responses.SuccessfulResponse;
 import org.infinispan.remoting.transport.Address;
 import org.infinispan.util.Immutables;
-import org.infinispan.util.concurrent.AggregatingNotifyingFutureImpl;
 import org.infinispan.util.concurrent.NotifyingFutureImpl;
 import org.infinispan.util.concurrent.NotifyingNotifiableFuture;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
@@ -55,6 +56,7 @@ public class DistributionInterceptor extends BaseRpcInterceptor {
    DataContainer dataContainer;
    boolean isL1CacheEnabled, needReliableReturnValues;
    EntryFactory entryFactory;
+   L1Manager l1Manager;
 
 
    static final RecipientGenerator CLEAR_COMMAND_GENERATOR = new RecipientGenerator() {
@@ -68,11 +70,13 @@ public class DistributionInterceptor extends BaseRpcInterceptor {
    };
 
    @Inject
-   public void injectDependencies(DistributionManager distributionManager, CommandsFactory cf, DataContainer dataContainer, EntryFactory entryFactory) {
+   public void injectDependencies(DistributionManager distributionManager, CommandsFactory cf, DataContainer dataContainer, EntryFactory entryFactory,
+                                  L1Manager l1Manager) {
       this.dm = distributionManager;
       this.cf = cf;
       this.dataContainer = dataContainer;
       this.entryFactory = entryFactory;
+      this.l1Manager = l1Manager;
    }
 
    @Start
@@ -101,6 +105,36 @@ public class DistributionInterceptor extends BaseRpcInterceptor {
       return returnValue;
    }
 
+   @Override
+   @SuppressWarnings("unchecked")
+   public Object visitGetAllCommand(InvocationContext ctx, GetAllCommand command) throws Throwable {
+      boolean isRehashInProgress = !dm.isJoinComplete() || dm.isRehashInProgress();
+      Map<Object, Object> returnValue = (Map<Object, Object>) invokeNextInterceptor(ctx, command);
+      // remote lookups are only ever initiated by the node the call originated on
+      if (!ctx.isOriginLocal() || ctx.hasFlag(Flag.SKIP_REMOTE_LOOKUP)) return returnValue;
+
+      List<Object> remoteKeys = new ArrayList<Object>();
+      for (Object key : command.getKeys()) {
+         if (returnValue.containsKey(key) || !needsRemoteGet(ctx, key, true)) continue;
+         if (!dm.getLocality(key).isLocal() && isNotInL1(key)) {
+            remoteKeys.add(key);
+         } else {
+            Object value = remoteGetAndStoreInL1(ctx, key, isRehashInProgress, false);
+            if (value != null) returnValue.put(key, value);
+         }
+      }
+
+      if (!remoteKeys.isEmpty()) {
+         if (trace) log.trace("Doing a remote get for keys %s", remoteKeys);
+         Map<Object, InternalCacheEntry> found = dm.retrieveFromRemoteSources(remoteKeys, ctx);
+         for (Map.Entry<Object, InternalCacheEntry> e : found.entrySet()) {
+            storeRemoteEntry(ctx, e.getKey(), e.getValue(), true, false);
+            returnValue.put(e.getKey(), e.getValue().getValue());
+         }
+      }
+      return returnValue;
+   }
+
    private boolean needsRemoteGet(InvocationContext ctx, Object key, boolean retvalCheck) {
       CacheEntry entry;
       return retvalCheck && !ctx.hasFlag(Flag.SKIP_REMOTE_LOOKUP) && ((entry = ctx.lookupEntry(key)) == null || entry.isNull() || entry.isLockPlaceholder());
@@ -146,32 +180,36 @@ public class DistributionInterceptor extends BaseRpcInterceptor {
       InternalCacheEntry ice = dm.retrieveFromRemoteSource(key, ctx);
 
       if (ice != null) {
-         if (storeInL1) {
-            if (isL1CacheEnabled) {
-               if (trace) log.trace("Caching remotely retrieved entry for key %s in L1", key);
-               long lifespan = ice.getLifespan() < 0 ? configuration.getL1Lifespan() : Math.min(ice.getLifespan(), configuration.getL1Lifespan());
-               PutKeyValueCommand put = cf.buildPutKeyValueCommand(ice.getKey(), ice.getValue(), lifespan, -1, ctx.getFlags());
-               entryFactory.wrapEntryForWriting(ctx, key, true, false, ctx.hasLockedKey(key), false, false);
-               invokeNextInterceptor(ctx, put);
-            } else {
-               CacheEntry ce = ctx.lookupEntry(key);
-               if (ce == null || ce.isNull() || ce.isLockPlaceholder()) {
-                  if (ce != null && ce.isChanged()) {
-                     ce.setValue(ice.getValue());
-                  } else {
-                     if (isWrite)
-                        entryFactory.wrapEntryForWriting(ctx, ice, true, false, ctx.hasLockedKey(key), false, false);
-                     else
-                        ctx.putLookedUpEntry(key, ice);
-                  }
+         storeRemoteEntry(ctx, key, ice, storeInL1, isWrite);
+         return ice.getValue();
+      }
+      return null;
+   }
+
+   private void storeRemoteEntry(InvocationContext ctx, Object key, InternalCacheEntry ice, boolean storeInL1, boolean isWrite) throws Throwable {
+      if (storeInL1) {
+         if (isL1CacheEnabled) {
+            if (trace) log.trace("Caching remotely retrieved entry for key %s in L1", key);
+            long lifespan = ice.getLifespan() < 0 ? configuration.getL1Lifespan() : Math.min(ice.getLifespan(), configuration.getL1Lifespan());
+            PutKeyValueCommand put = cf.buildPutKeyValueCommand(ice.getKey(), ice.getValue(), lifespan, -1, ctx.getFlags());
+            entryFactory.wrapEntryForWriting(ctx, key, true, false, ctx.hasLockedKey(key), false, false);
+            invokeNextInterceptor(ctx, put);
+         } else {
+            CacheEntry ce = ctx.lookupEntry(key);
+            if (ce == null || ce.isNull() || ce.isLockPlaceholder()) {
+               if (ce != null && ce.isChanged()) {
+                  ce.setValue(ice.getValue());
+               } else {
+                  if (isWrite)
+                     entryFactory.wrapEntryForWriting(ctx, ice, true, false, ctx.hasLockedKey(key), false, false);
+                  else
+                     ctx.putLookedUpEntry(key, ice);
                }
             }
-         } else {
-            if (trace) log.trace("Not caching remotely retrieved entry for key %s in L1", key);
          }
-         return ice.getValue();
+      } else {
+         if (trace) log.trace("Not caching remotely retrieved entry for key %s in L1", key);
       }
-      return null;
    }
 
    /**
@@ -292,6 +330,11 @@ public class DistributionInterceptor extends BaseRpcInterceptor {
                if (log.isInfoEnabled()) log.info("Failed invalidating remote cache: ", e);
             }
          }
+      } else if (!ctx.isOriginLocal()) {
+         Set<Object> keys = ctx.getLockedKeys();
+         Object retVal = invokeNextInterceptor(ctx, command);
+         flushL1CacheAsOwner(keys, configuration.isSyncCommitPhase());
+         return retVal;
       }
       return invokeNextInterceptor(ctx, command);
    }
@@ -312,6 +355,8 @@ public class DistributionInterceptor extends BaseRpcInterceptor {
          rpcManager.invokeRemotely(recipients, command, sync);
          ((LocalTxInvocationContext) ctx).remoteLocksAcquired(recipients);
          if (f != null) f.get();
+      } else if (!ctx.isOriginLocal() && command.isOnePhaseCommit()) {
+         flushL1CacheAsOwner(ctx.getLockedKeys(), sync);
       }
       return retVal;
    }
@@ -340,10 +385,7 @@ public class DistributionInterceptor extends BaseRpcInterceptor {
    private NotifyingNotifiableFuture<Object> flushL1Cache(int numCallRecipients, Collection<Object> keys, Object retval) {
       if (isL1CacheEnabled && rpcManager.getTransport().getMembers().size() > numCallRecipients) {
          if (trace) log.trace("Invalidating L1 caches");
-         InvalidateCommand ic = cf.buildInvalidateFromL1Command(false, keys);
-         NotifyingNotifiableFuture<Object> future = new AggregatingNotifyingFutureImpl(retval, 2);
-         rpcManager.broadcastRpcCommandInFuture(ic, future);
-         return future;
+         return l1Manager.flushCache(keys, retval, true);
       } else {
          if (trace)
             log.trace("Not performing invalidation! isL1CacheEnabled? %s numCallRecipients=%s", isL1CacheEnabled, numCallRecipients);
@@ -351,6 +393,22 @@ public class DistributionInterceptor extends BaseRpcInterceptor {
       return null;
    }
 
+   /**
+    * Invalidates the L1 caches of the nodes which retrieved the given keys from this node, once a modification
+    * originating on another node has been applied here.
+    */
+   private void flushL1CacheAsOwner(Collection<Object> keys, boolean sync) {
+      if (!isL1CacheEnabled || keys.isEmpty()) return;
+      NotifyingNotifiableFuture<Object> future = l1Manager.flushCache(keys, null, false);
+      if (future != null && sync) {
+         try {
+            future.get();
+         } catch (Exception e) {
+            if (log.isInfoEnabled()) log.info("Failed invalidating remote cache: ", e);
+         }
+      }
+   }
+
    /**
     * If we are within one transaction we won't do any replication as replication would only be performed at commit
     * time. If the operation didn't originate locally we won't do any replication either.
@@ -392,6 +450,8 @@ public class DistributionInterceptor extends BaseRpcInterceptor {
                   future.get(); // wait for the inval command to complete
                   if (trace) log.trace("Finished invalidating keys %s ", recipientGenerator.getKeys());
                }
+            } else if (!skipL1Invalidation) {
+               flushL1CacheAsOwner(recipientGenerator.getKeys(), sync);
             }
          } else {
             ((TxInvocationContext) ctx).addAffectedKeys(recipientGenerator.getKeys());
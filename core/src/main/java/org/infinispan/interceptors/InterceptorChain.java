@@ -34,8 +34,10 @@ import org.infinispan.util.logging.LogFactory;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Knows how to build and manage an chain of interceptors. Also in charge with invoking methods on the chain.
@@ -54,11 +56,36 @@ public class InterceptorChain {
     */
    private volatile CommandInterceptor firstInChain;
 
+   /**
+    * Interceptors which let a non-transactional read of a key, with no flags, through without any other effect than
+    * looking the key up in the data container, as long as the key is found there
+    */
+   private static final Set<Class<? extends CommandInterceptor>> LOCAL_READ_TRANSPARENT_INTERCEPTORS;
+
+   static {
+      Set<Class<? extends CommandInterceptor>> transparent = new HashSet<Class<? extends CommandInterceptor>>();
+      transparent.add(InvocationContextInterceptor.class);
+      transparent.add(NotificationInterceptor.class);
+      // reads aren't enlisted in transactions when no transaction manager is configured
+      transparent.add(TxInterceptor.class);
+      transparent.add(DistTxInterceptor.class);
+      transparent.add(LockingInterceptor.class);
+      transparent.add(DistLockingInterceptor.class);
+      transparent.add(ReplicationInterceptor.class);
+      transparent.add(InvalidationInterceptor.class);
+      transparent.add(DistributionInterceptor.class);
+      transparent.add(CallInterceptor.class);
+      LOCAL_READ_TRANSPARENT_INTERCEPTORS = Collections.unmodifiableSet(transparent);
+   }
+
+   private volatile boolean localReadTransparent;
+
    /**
     * Constructs an interceptor chain having the supplied interceptor as first.
     */
    public InterceptorChain(CommandInterceptor first) {
       this.firstInChain = first;
+      chainModified();
    }
 
    @Start
@@ -69,6 +96,26 @@ public class InterceptorChain {
       }
    }
 
+   /**
+    * Tells whether reading a key which is present in the data container, outside of a transaction and without flags,
+    * can bypass the chain and read the data container directly. This is the case when every interceptor in the chain
+    * is one of the built-in interceptors which don't do anything else for such a read, e.g. when no cache loader,
+    * statistics, lazy deserialization nor custom interceptor is configured.
+    */
+   public boolean isLocalReadTransparent() {
+      return localReadTransparent;
+   }
+
+   private synchronized void chainModified() {
+      boolean transparent = true;
+      CommandInterceptor it = firstInChain;
+      while (it != null && transparent) {
+         transparent = LOCAL_READ_TRANSPARENT_INTERCEPTORS.contains(it.getClass());
+         it = it.getNext();
+      }
+      localReadTransparent = transparent;
+   }
+
    /**
     * Ensures that the interceptor of type passed in isn't already added
     *
@@ -94,6 +141,7 @@ public class InterceptorChain {
       if (position == 0) {
          interceptor.setNext(firstInChain);
          firstInChain = interceptor;
+         chainModified();
          return;
       }
       if (firstInChain == null) return;
@@ -103,6 +151,7 @@ public class InterceptorChain {
          if (++index == position) {
             interceptor.setNext(it.getNext());
             it.setNext(interceptor);
+            chainModified();
             return;
          }
          it = it.getNext();
@@ -120,6 +169,7 @@ public class InterceptorChain {
       if (firstInChain == null) return;
       if (position == 0) {
          firstInChain = firstInChain.getNext();
+         chainModified();
          return;
       }
       CommandInterceptor it = firstInChain;
@@ -128,6 +178,7 @@ public class InterceptorChain {
          if (++index == position) {
             if (it.getNext() == null) return; //nothing to remove
             it.setNext(it.getNext().getNext());
+            chainModified();
             return;
          }
          it = it.getNext();
@@ -183,6 +234,7 @@ public class InterceptorChain {
          prevIt = it;
          it = it.getNext();
       }
+      chainModified();
    }
 
    /**
@@ -196,6 +248,7 @@ public class InterceptorChain {
          if (it.getClass().equals(afterInterceptor)) {
             toAdd.setNext(it.getNext());
             it.setNext(toAdd);
+            chainModified();
             return true;
          }
          it = it.getNext();
@@ -212,6 +265,7 @@ public class InterceptorChain {
       if (firstInChain.getClass().equals(beforeInterceptor)) {
          toAdd.setNext(firstInChain);
          firstInChain = toAdd;
+         chainModified();
          return true;
       }
       CommandInterceptor it = firstInChain;
@@ -219,6 +273,7 @@ public class InterceptorChain {
          if (it.getNext().getClass().equals(beforeInterceptor)) {
             toAdd.setNext(it.getNext());
             it.setNext(toAdd);
+            chainModified();
             return true;
          }
          it = it.getNext();
@@ -237,6 +292,7 @@ public class InterceptorChain {
       if (firstInChain.getClass().equals(toBeReplacedInterceptorType)) {
          replacingInterceptor.setNext(firstInChain.getNext());
          firstInChain = replacingInterceptor;
+         chainModified();
          return true;
       }
       CommandInterceptor it = firstInChain;
@@ -246,6 +302,7 @@ public class InterceptorChain {
          if (current.getClass().equals(toBeReplacedInterceptorType)) {
             replacingInterceptor.setNext(current.getNext());
             previous.setNext(replacingInterceptor);
+            chainModified();
             return true;
          }
          previous = current;
@@ -263,6 +320,7 @@ public class InterceptorChain {
       it.setNext(ci);
       // make sure we nullify the "next" pointer in the last interceptors.
       ci.setNext(null);
+      chainModified();
    }
 
    /**
@@ -297,6 +355,7 @@ public class InterceptorChain {
     */
    public void setFirstInChain(CommandInterceptor interceptor) {
       this.firstInChain = interceptor;
+      chainModified();
    }
 
    /**
@@ -44,6 +44,7 @@ import org.infinispan.jmx.annotations.ManagedOperation;
 import org.infinispan.transaction.xa.GlobalTransaction;
 import org.infinispan.util.concurrent.NotifyingFutureImpl;
 import org.infinispan.util.concurrent.NotifyingNotifiableFuture;
+import org.infinispan.util.concurrent.StripedCounter;
 import org.rhq.helpers.pluginAnnotations.agent.DataType;
 import org.rhq.helpers.pluginAnnotations.agent.MeasurementType;
 import org.rhq.helpers.pluginAnnotations.agent.Metric;
@@ -58,7 +59,6 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicLong;
 
 
 /**
@@ -76,7 +76,7 @@ import java.util.concurrent.atomic.AtomicLong;
  */
 @MBean(objectName = "Invalidation", description = "Component responsible for invalidating entries on remote caches when entries are written to locally.")
 public class InvalidationInterceptor extends BaseRpcInterceptor {
-   private final AtomicLong invalidations = new AtomicLong(0);
+   private final StripedCounter invalidations = new StripedCounter();
    protected Map<GlobalTransaction, List<VisitableCommand>> txMods;
    private CommandsFactory commandsFactory;
    @ManagedAttribute(description = "Enables or disables the gathering of statistics by this component", writable = true)
@@ -225,7 +225,7 @@ public class InvalidationInterceptor extends BaseRpcInterceptor {
    }
 
    private void incrementInvalidations() {
-      if (statisticsEnabled) invalidations.incrementAndGet();
+      if (statisticsEnabled) invalidations.increment();
    }
    
    private boolean isPutForExternalRead(InvocationContext ctx) {
@@ -239,7 +239,7 @@ public class InvalidationInterceptor extends BaseRpcInterceptor {
    @ManagedOperation(description = "Resets statistics gathered by this component")
    @Operation(displayName = "Reset statistics")
    public void resetStatistics() {
-      invalidations.set(0);
+      invalidations.reset();
    }
 
    @Metric(displayName = "Statistics enabled", dataType = DataType.TRAIT)
@@ -255,6 +255,6 @@ public class InvalidationInterceptor extends BaseRpcInterceptor {
    @ManagedAttribute(description = "Number of invalidations")
    @Metric(displayName = "Number of invalidations", measurementType = MeasurementType.TRENDSUP)
    public long getInvalidations() {
-      return invalidations.get();
+      return invalidations.sum();
    }
 }
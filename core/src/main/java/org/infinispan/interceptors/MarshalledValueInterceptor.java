@@ -23,6 +23,7 @@ package org.infinispan.interceptors;
 
 import org.infinispan.commands.control.LockControlCommand;
 import org.infinispan.commands.read.EntrySetCommand;
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.read.KeySetCommand;
 import org.infinispan.commands.read.ValuesCommand;
@@ -48,6 +49,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -170,6 +172,35 @@ public class MarshalledValueInterceptor extends CommandInterceptor {
       return processRetVal(retVal, ctx);
    }
 
+   @Override
+   @SuppressWarnings("unchecked")
+   public Object visitGetAllCommand(InvocationContext ctx, GetAllCommand command) throws Throwable {
+      Set<MarshalledValue> marshalledKeys = new HashSet<MarshalledValue>();
+      List<Object> keys = new ArrayList<Object>(command.getKeys().size());
+      for (Object key : command.getKeys()) {
+         if (!isTypeExcluded(key.getClass())) {
+            MarshalledValue mv = createMarshalledValue(key, ctx);
+            compact(mv);
+            marshalledKeys.add(mv);
+            key = mv;
+         }
+         keys.add(key);
+      }
+      command.setKeys(keys);
+      Map<Object, Object> retVal = (Map<Object, Object>) invokeNextInterceptor(ctx, command);
+      for (MarshalledValue mv : marshalledKeys) compact(mv);
+      // remote lookups hand the marshalled keys back to the node which originated the call
+      if (!ctx.isOriginLocal()) return retVal;
+
+      Map<Object, Object> copy = new HashMap<Object, Object>(retVal.size());
+      for (Map.Entry<Object, Object> e : retVal.entrySet()) {
+         Object key = e.getKey();
+         if (key instanceof MarshalledValue) key = ((MarshalledValue) key).get();
+         copy.put(key, processRetVal(e.getValue(), ctx));
+      }
+      return copy;
+   }
+
    @Override
    public Object visitKeySetCommand(InvocationContext ctx, KeySetCommand command) throws Throwable {
       Set keys = (Set) invokeNextInterceptor(ctx, command);
@@ -4,6 +4,7 @@ import org.infinispan.CacheException;
 import org.infinispan.commands.CommandsFactory;
 import org.infinispan.commands.VisitableCommand;
 import org.infinispan.commands.control.LockControlCommand;
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.tx.CommitCommand;
 import org.infinispan.commands.tx.PrepareCommand;
@@ -30,6 +31,7 @@ import org.infinispan.transaction.TransactionLog;
 import org.infinispan.transaction.xa.LocalTransaction;
 import org.infinispan.transaction.xa.TransactionTable;
 import org.infinispan.transaction.xa.TransactionXaAdapter;
+import org.infinispan.util.concurrent.StripedCounter;
 import org.rhq.helpers.pluginAnnotations.agent.DataType;
 import org.rhq.helpers.pluginAnnotations.agent.DisplayType;
 import org.rhq.helpers.pluginAnnotations.agent.MeasurementType;
@@ -44,7 +46,6 @@ import javax.transaction.Transaction;
 import javax.transaction.TransactionManager;
 import javax.transaction.xa.XAException;
 import javax.transaction.xa.Xid;
-import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Interceptor in charge with handling transaction related operations, e.g enlisting cache as an transaction
@@ -62,9 +63,9 @@ public class TxInterceptor extends CommandInterceptor {
    private TransactionLog transactionLog;
    private TransactionTable txTable;
 
-   private final AtomicLong prepares = new AtomicLong(0);
-   private final AtomicLong commits = new AtomicLong(0);
-   private final AtomicLong rollbacks = new AtomicLong(0);
+   private final StripedCounter prepares = new StripedCounter();
+   private final StripedCounter commits = new StripedCounter();
+   private final StripedCounter rollbacks = new StripedCounter();
    @ManagedAttribute(description = "Enables or disables the gathering of statistics by this component", writable = true)
    private boolean statisticsEnabled;
    private CommandsFactory commandsFactory;
@@ -99,7 +100,7 @@ public class TxInterceptor extends CommandInterceptor {
       if (!command.isOnePhaseCommit()) {
          transactionLog.logPrepare(command);
       }
-      if (this.statisticsEnabled) prepares.incrementAndGet();
+      if (this.statisticsEnabled) prepares.increment();
       Object result = invokeNextInterceptor(ctx, command);
       if (command.isOnePhaseCommit()) {
          transactionLog.logOnePhaseCommit(ctx.getGlobalTransaction(), command.getModifications());
@@ -109,7 +110,7 @@ public class TxInterceptor extends CommandInterceptor {
 
    @Override
    public Object visitCommitCommand(TxInvocationContext ctx, CommitCommand command) throws Throwable {
-      if (this.statisticsEnabled) commits.incrementAndGet();
+      if (this.statisticsEnabled) commits.increment();
       Object result = invokeNextInterceptor(ctx, command);
       transactionLog.logCommit(command.getGlobalTransaction());
       return result;
@@ -117,7 +118,7 @@ public class TxInterceptor extends CommandInterceptor {
 
    @Override
    public Object visitRollbackCommand(TxInvocationContext ctx, RollbackCommand command) throws Throwable {
-      if (this.statisticsEnabled) rollbacks.incrementAndGet();
+      if (this.statisticsEnabled) rollbacks.increment();
       transactionLog.rollback(command.getGlobalTransaction());
       return invokeNextInterceptor(ctx, command);
    }
@@ -162,6 +163,11 @@ public class TxInterceptor extends CommandInterceptor {
       return enlistReadAndInvokeNext(ctx, command);
    }
 
+   @Override
+   public Object visitGetAllCommand(InvocationContext ctx, GetAllCommand command) throws Throwable {
+      return enlistReadAndInvokeNext(ctx, command);
+   }
+
    private Object enlistReadAndInvokeNext(InvocationContext ctx, VisitableCommand command) throws Throwable {
       if (shouldEnlist(ctx)) {
          LocalTransaction localTransaction = enlist(ctx);
@@ -234,9 +240,9 @@ public class TxInterceptor extends CommandInterceptor {
    @ManagedOperation(description = "Resets statistics gathered by this component")
    @Operation(displayName = "Reset Statistics")
    public void resetStatistics() {
-      prepares.set(0);
-      commits.set(0);
-      rollbacks.set(0);
+      prepares.reset();
+      commits.reset();
+      rollbacks.reset();
    }
 
    @Operation(displayName = "Enable/disable statistics")
@@ -252,19 +258,19 @@ public class TxInterceptor extends CommandInterceptor {
    @ManagedAttribute(description = "Number of transaction prepares performed since last reset")
    @Metric(displayName = "Prepares", measurementType = MeasurementType.TRENDSUP, displayType = DisplayType.SUMMARY)
    public long getPrepares() {
-      return prepares.get();
+      return prepares.sum();
    }
 
    @ManagedAttribute(description = "Number of transaction commits performed since last reset")
    @Metric(displayName = "Commits", measurementType = MeasurementType.TRENDSUP, displayType = DisplayType.SUMMARY)
    public long getCommits() {
-      return commits.get();
+      return commits.sum();
    }
 
    @ManagedAttribute(description = "Number of transaction rollbacks performed since last reset")
    @Metric(displayName = "Rollbacks", measurementType = MeasurementType.TRENDSUP, displayType = DisplayType.SUMMARY)
    public long getRollbacks() {
-      return rollbacks.get();
+      return rollbacks.sum();
    }
 
    /**
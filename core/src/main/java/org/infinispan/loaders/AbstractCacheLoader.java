@@ -1,8 +1,12 @@
 package org.infinispan.loaders;
 
 import org.infinispan.Cache;
+import org.infinispan.container.entries.InternalCacheEntry;
 import org.infinispan.marshall.StreamingMarshaller;
 
+import java.util.HashSet;
+import java.util.Set;
+
 /**
  * An abstract {@link org.infinispan.loaders.CacheLoader} that holds common implementations for some methods
  *
@@ -23,6 +27,18 @@ public abstract class AbstractCacheLoader implements CacheLoader {
       return load(key) != null;
    }
 
+   /**
+    * {@inheritDoc} This implementation delegates to {@link CacheLoader#load(Object)} for each of the keys.
+    */
+   public Set<InternalCacheEntry> load(Set<Object> keys) throws CacheLoaderException {
+      Set<InternalCacheEntry> result = new HashSet<InternalCacheEntry>(keys.size());
+      for (Object key : keys) {
+         InternalCacheEntry entry = load(key);
+         if (entry != null) result.add(entry);
+      }
+      return result;
+   }
+
    @Override
    public void init(CacheLoaderConfig config, Cache<?, ?> cache, StreamingMarshaller m) throws CacheLoaderException {
       this.marshaller = m;
@@ -52,6 +52,18 @@ public interface CacheLoader {
     */
    Set<InternalCacheEntry> load(int numEntries) throws CacheLoaderException;
 
+   /**
+    * Loads the entries mapped to by a set of keys, in as few round trips to the underlying storage as the
+    * implementation allows.  Keys which do not exist, or whose entries have expired, are absent from the returned set.
+    * Implementations which cannot do better than one lookup per key may extend {@link AbstractCacheLoader}, which
+    * delegates to {@link #load(Object)}.
+    *
+    * @param keys keys of the entries to load
+    * @return a set of entries, which would contain between 0 and <tt>keys.size()</tt> entries.
+    * @throws CacheLoaderException in the event of problems reading from source
+    */
+   Set<InternalCacheEntry> load(Set<Object> keys) throws CacheLoaderException;
+
    /**
     * Loads a set of all keys, excluding a filter set.
     *
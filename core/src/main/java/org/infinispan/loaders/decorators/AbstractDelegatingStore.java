@@ -95,6 +95,11 @@ public class AbstractDelegatingStore implements CacheStore {
       return delegate.load(numEntries);
    }
 
+   @Override
+   public Set<InternalCacheEntry> load(Set<Object> keys) throws CacheLoaderException {
+      return delegate.load(keys);
+   }
+
    @Override
    public Set<Object> loadAllKeys(Set<Object> keysToExclude) throws CacheLoaderException {
       return delegate.loadAllKeys(keysToExclude);
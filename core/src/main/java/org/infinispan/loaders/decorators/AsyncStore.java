@@ -7,6 +7,7 @@ import org.infinispan.container.entries.InternalCacheEntry;
 import org.infinispan.loaders.CacheLoaderConfig;
 import org.infinispan.loaders.CacheLoaderException;
 import org.infinispan.loaders.CacheStore;
+import org.infinispan.loaders.decorators.AsyncStoreConfig.OverflowPolicy;
 import org.infinispan.loaders.modifications.Clear;
 import org.infinispan.loaders.modifications.Modification;
 import org.infinispan.loaders.modifications.ModificationsList;
@@ -14,10 +15,13 @@ import org.infinispan.loaders.modifications.Remove;
 import org.infinispan.loaders.modifications.Store;
 import org.infinispan.marshall.StreamingMarshaller;
 import org.infinispan.transaction.xa.GlobalTransaction;
+import org.infinispan.transaction.xa.GlobalTransactionFactory;
 import org.infinispan.util.concurrent.locks.containers.ReentrantPerEntryLockContainer;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -32,6 +36,8 @@ import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -54,6 +60,17 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  * <p/>
  * Write operations affecting same key are now coalesced so that only the final state is actually stored.
  * <p/>
+ * If {@link AsyncStoreConfig#getFlushBatchSize()} is greater than 0, the coalesced modifications are not written as
+ * soon as possible through individual store and remove calls, but once enough keys have been modified or once
+ * {@link AsyncStoreConfig#getFlushInterval()} has elapsed, in batches passed to the underlying store's one phase
+ * {@link #prepare(java.util.List, org.infinispan.transaction.xa.GlobalTransaction, boolean)}, so that stores able to
+ * do so can apply each batch in a single transaction.
+ * <p/>
+ * The number of modifications waiting to be written can be bounded with
+ * {@link AsyncStoreConfig#getMaxPendingModifications()}, in which case {@link AsyncStoreConfig#getOverflowPolicy()}
+ * decides whether writers block, write the pending modifications themselves or are rejected once the bound is
+ * reached.
+ * <p/>
  *
  * @author Manik Surtani
  * @author Galder Zamarreño
@@ -90,6 +107,21 @@ public class AsyncStore extends AbstractDelegatingStore {
    private ReleaseAllLockContainer lockContainer;
    private final LinkedBlockingQueue<Modification> changesDeque = new LinkedBlockingQueue<Modification>();
    public volatile boolean lastAsyncProcessorShutsDownExecutor = false;
+   private final GlobalTransactionFactory gtf = new GlobalTransactionFactory();
+   private int flushBatchSize;
+   private final AtomicLong flushes = new AtomicLong(0);
+   private final AtomicLong flushTime = new AtomicLong(0);
+   private final AtomicLong maxFlushTime = new AtomicLong(0);
+
+   /**
+    * Modifications queued or coalesced in the state map, but not yet written to the underlying store
+    */
+   private final AtomicInteger pending = new AtomicInteger(0);
+   private final AtomicLong dropped = new AtomicLong(0);
+   private final Lock pendingLock = new ReentrantLock();
+   private final Condition notFull = pendingLock.newCondition();
+   private int maxPending;
+   private OverflowPolicy overflowPolicy;
 
    public AsyncStore(CacheStore delegate, AsyncStoreConfig asyncStoreConfig) {
       super(delegate);
@@ -119,7 +151,9 @@ public class AsyncStore extends AbstractDelegatingStore {
    public void clear() {
       Clear clear = new Clear();
       checkNotStopped(); //check we can change the changesDeque
-      changesDeque.clear();
+      List<Modification> discarded = new ArrayList<Modification>();
+      changesDeque.drainTo(discarded);
+      for (Modification mod : discarded) releasePending(countPending(mod));
       enqueue(clear);
    }
 
@@ -155,6 +189,10 @@ public class AsyncStore extends AbstractDelegatingStore {
       log.info("Async cache loader starting %s", this);
       stopped.set(false);
       lastAsyncProcessorShutsDownExecutor = false;
+      flushBatchSize = asyncStoreConfig.getFlushBatchSize() == null ? 0 : asyncStoreConfig.getFlushBatchSize();
+      maxPending = asyncStoreConfig.getMaxPendingModifications() == null ? 0 : asyncStoreConfig.getMaxPendingModifications();
+      overflowPolicy = asyncStoreConfig.getOverflowPolicy() == null ? OverflowPolicy.BLOCK : asyncStoreConfig.getOverflowPolicy();
+      pending.set(0);
       super.start();
       int poolSize = asyncStoreConfig.getThreadPoolSize();
       executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
@@ -196,6 +234,10 @@ public class AsyncStore extends AbstractDelegatingStore {
    }
 
    protected void applyModificationsSync(ConcurrentMap<Object, Modification> mods) throws CacheLoaderException {
+      if (flushBatchSize > 0) {
+         applyModificationsBatched(mods.values());
+         return;
+      }
       Set<Map.Entry<Object, Modification>> entries = mods.entrySet();
       for (Map.Entry<Object, Modification> entry : entries) {
          Modification mod = entry.getValue();
@@ -212,6 +254,78 @@ public class AsyncStore extends AbstractDelegatingStore {
       }
    }
    
+   /**
+    * Hands the modifications over to the underlying store in one phase prepare calls of at most
+    * {@link AsyncStoreConfig#getFlushBatchSize()} modifications each.
+    */
+   protected void applyModificationsBatched(Collection<Modification> mods) throws CacheLoaderException {
+      List<Modification> batch = new ArrayList<Modification>(Math.min(mods.size(), flushBatchSize));
+      for (Modification mod : mods) {
+         batch.add(mod);
+         if (batch.size() == flushBatchSize) {
+            applyBatch(batch);
+            batch = new ArrayList<Modification>(flushBatchSize);
+         }
+      }
+      if (!batch.isEmpty()) applyBatch(batch);
+   }
+
+   private void applyBatch(List<Modification> batch) throws CacheLoaderException {
+      if (trace) log.trace("Flushing a batch of %s modifications", batch.size());
+      super.prepare(batch, gtf.newGlobalTransaction(null, false), true);
+   }
+
+   private void recordFlush(long nanos) {
+      flushes.incrementAndGet();
+      flushTime.addAndGet(nanos);
+      long max;
+      while ((max = maxFlushTime.get()) < nanos && !maxFlushTime.compareAndSet(max, nanos)) ;
+   }
+
+   /**
+    * @return the number of modifications waiting to be written to the underlying store. Modifications to the same key
+    *         which have already been coalesced are counted once.
+    */
+   public int getQueueDepth() {
+      return pending.get();
+   }
+
+   /**
+    * @return the number of modifications which were rejected because too many modifications were pending, or which
+    *         could not be written to the underlying store
+    */
+   public long getDroppedModifications() {
+      return dropped.get();
+   }
+
+   /**
+    * @return the number of times pending modifications were written to the underlying store
+    */
+   public long getFlushCount() {
+      return flushes.get();
+   }
+
+   /**
+    * @return the total time, in nanoseconds, spent writing pending modifications to the underlying store
+    */
+   public long getFlushTime() {
+      return flushTime.get();
+   }
+
+   /**
+    * @return the longest time, in nanoseconds, a single write of pending modifications to the underlying store took
+    */
+   public long getMaxFlushTime() {
+      return maxFlushTime.get();
+   }
+
+   public void resetStatistics() {
+      flushes.set(0);
+      flushTime.set(0);
+      maxFlushTime.set(0);
+      dropped.set(0);
+   }
+
    protected boolean applyClear() {
       try {
          super.clear();
@@ -231,8 +345,9 @@ public class AsyncStore extends AbstractDelegatingStore {
    }
 
    private void enqueue(Modification mod) {
+      checkNotStopped();
+      reservePending(countPending(mod));
       try {
-         checkNotStopped();
          if (trace) log.trace("Enqueuing modification %s", mod);
          changesDeque.add(mod);
       } catch (Exception e) {
@@ -240,6 +355,85 @@ public class AsyncStore extends AbstractDelegatingStore {
       }
    }
 
+   private static int countPending(Modification mod) {
+      switch (mod.getType()) {
+         case STORE:
+         case REMOVE:
+            return 1;
+         case LIST:
+            int count = 0;
+            for (Modification m : ((ModificationsList) mod).getList()) count += countPending(m);
+            return count;
+         default:
+            return 0;
+      }
+   }
+
+   /**
+    * Accounts for modifications about to be queued, applying the configured overflow policy if that would take the
+    * number of pending modifications past the maximum. A single modification list larger than the maximum is let
+    * through once nothing else is pending.
+    */
+   private void reservePending(int count) {
+      if (count == 0) return;
+      if (maxPending <= 0) {
+         pending.addAndGet(count);
+         return;
+      }
+      switch (overflowPolicy) {
+         case FAIL:
+            while (true) {
+               int current = pending.get();
+               if (current > 0 && current + count > maxPending) {
+                  dropped.addAndGet(count);
+                  throw new CacheException("AsyncStore has " + current + " pending modifications and cannot accept " + count + " more");
+               }
+               if (pending.compareAndSet(current, current + count)) return;
+            }
+         case CALLER_RUNS:
+            if (pending.get() + count > maxPending) {
+               if (trace) log.trace("%s pending modifications, writing them from the calling thread", pending.get());
+               new AsyncProcessor().run();
+            }
+            pending.addAndGet(count);
+            return;
+         default:
+            pendingLock.lock();
+            try {
+               int current;
+               while ((current = pending.get()) > 0 && current + count > maxPending) {
+                  checkNotStopped();
+                  notFull.await(asyncStoreConfig.getFlushLockTimeout(), TimeUnit.MILLISECONDS);
+               }
+               pending.addAndGet(count);
+            } catch (InterruptedException e) {
+               Thread.currentThread().interrupt();
+               throw new CacheException("Interrupted while waiting for pending AsyncStore modifications to be written", e);
+            } finally {
+               pendingLock.unlock();
+            }
+      }
+   }
+
+   private void releasePending(int count) {
+      if (count == 0) return;
+      pending.addAndGet(-count);
+      if (maxPending > 0 && overflowPolicy == OverflowPolicy.BLOCK) {
+         pendingLock.lock();
+         try {
+            notFull.signalAll();
+         } finally {
+            pendingLock.unlock();
+         }
+      }
+   }
+
+   private void clearState() {
+      for (Object key : state.keySet()) {
+         if (state.remove(key) != null) releasePending(1);
+      }
+   }
+
    private void checkNotStopped() {
       if (stopped.get()) {
          throw new CacheException("AsyncStore stopped; no longer accepting more entries.");
@@ -318,6 +512,9 @@ public class AsyncStore extends AbstractDelegatingStore {
                         // otherwise a new job is being spawned by the arbiter, so no need to create
                         // a new worker
                         runAgainAfterWaiting = true;
+                     } else {
+                        // superseded by the more recent modification
+                        releasePending(1);
                      }
                   } else {
                      lockedKeys.add(key);
@@ -338,15 +535,20 @@ public class AsyncStore extends AbstractDelegatingStore {
                int maxRetries = 3;
                int attemptNumber = 0;
                boolean successful;
+               long start = System.nanoTime();
                do {
                   if (attemptNumber > 0 && log.isDebugEnabled())
                      log.debug("Retrying due to previous failure. %s attempts left.", maxRetries - attemptNumber);
                   successful = put(swap);
                   attemptNumber++;
                } while (!successful && attemptNumber <= maxRetries);
+               recordFlush(System.nanoTime() - start);
+               releasePending(swap.size());
 
-               if (!successful)
+               if (!successful) {
+                  dropped.addAndGet(swap.size());
                   log.warn("Unable to process some async modifications after " + maxRetries + " retries!");
+               }
 
             }
          } finally {
@@ -388,12 +590,16 @@ public class AsyncStore extends AbstractDelegatingStore {
    }
    
    private class AsyncStoreCoordinator implements Runnable {
+      /**
+       * When the pending modifications must be flushed even if they do not fill a batch, or 0 if none are pending.
+       */
+      private long flushDeadline = 0;
 
       @Override
       public void run() {
          while (true) {
             try {
-               Modification take = changesDeque.take();
+               Modification take = nextModification();
                if (take == QUIT_SIGNAL) {
                   lastAsyncProcessorShutsDownExecutor = true;
                   ensureMoreWorkIsHandled();
@@ -411,6 +617,36 @@ public class AsyncStore extends AbstractDelegatingStore {
          }
       }
 
+      private Modification nextModification() throws InterruptedException {
+         if (flushBatchSize <= 0) return changesDeque.take();
+         while (true) {
+            if (flushDeadline == 0) {
+               if (state.isEmpty()) return changesDeque.take();
+               flushDeadline = nextFlushDeadline();
+            }
+            long wait = flushDeadline - System.nanoTime();
+            if (wait <= 0) {
+               if (trace) log.trace("Flush interval elapsed, flushing %s pending modifications", state.size());
+               flush();
+               continue;
+            }
+            Modification mod = changesDeque.poll(wait, TimeUnit.NANOSECONDS);
+            if (mod != null) return mod;
+         }
+      }
+
+      /**
+       * The flush interval is read for every batch, since it can be changed at runtime.
+       */
+      private long nextFlushDeadline() {
+         return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(asyncStoreConfig.getFlushInterval());
+      }
+
+      private void flush() {
+         flushDeadline = 0;
+         ensureMoreWorkIsHandled();
+      }
+
       private void handleSafely(Modification mod) {
          try {
             if (trace) log.trace("taking from modification queue: %s", mod);
@@ -426,14 +662,14 @@ public class AsyncStore extends AbstractDelegatingStore {
             case STORE:
                Store store = (Store) mod;
                stateMapLock.lock();
-               state.put(store.getStoredEntry().getKey(), store);
+               if (state.put(store.getStoredEntry().getKey(), store) != null) releasePending(1);
                stateMapLock.unlock();
                asyncProcessorNeeded = true;
                break;
             case REMOVE:
                Remove remove = (Remove) mod;
                stateMapLock.lock();
-               state.put(remove.getKey(), remove);
+               if (state.put(remove.getKey(), remove) != null) releasePending(1);
                stateMapLock.unlock();
                asyncProcessorNeeded = true;
                break;
@@ -451,9 +687,13 @@ public class AsyncStore extends AbstractDelegatingStore {
                throw new IllegalArgumentException("Unexpected modification type " + mod.getType());
          }
          if (asyncProcessorNeeded && !nested) {
-            // we know when it's possible for some work to be done, starting short-lived
-            // AsyncProcessor(s) simplifies shutdown process.
-             ensureMoreWorkIsHandled();
+            if (flushBatchSize <= 0 || state.size() >= flushBatchSize) {
+               // we know when it's possible for some work to be done, starting short-lived
+               // AsyncProcessor(s) simplifies shutdown process.
+               flush();
+            } else if (flushDeadline == 0) {
+               flushDeadline = nextFlushDeadline();
+            }
          }
       }
 
@@ -464,13 +704,13 @@ public class AsyncStore extends AbstractDelegatingStore {
       }
 
       private void performClear() {
-         state.clear(); // cancel any other scheduled changes
+         clearState(); // cancel any other scheduled changes
          clearAllWriteLock.lock(); // ensure no other tasks concurrently working
          try {
             // to acquire clearAllWriteLock we might have had to wait for N AsyncProcessor to have finished
             // (as they have to release all clearAllReadLock),
             // so as they might have put back some work to the state map, clear the state map again inside the writeLock:
-            state.clear();
+            clearState();
             if (trace) log.trace("Performed clear operation");
             int maxRetries = 3;
             int attemptNumber = 0;
@@ -41,6 +41,38 @@ public class AsyncStoreConfig extends AbstractNamedCacheConfigurationBean {
    @ConfigurationDocRef(bean=AsyncStoreConfig.class,targetElement="setShutdownTimeout")
    protected Long shutdownTimeout = 7200L;
 
+   @ConfigurationDocRef(bean=AsyncStoreConfig.class,targetElement="setFlushBatchSize")
+   protected Integer flushBatchSize = 0;
+
+   @Dynamic
+   @ConfigurationDocRef(bean=AsyncStoreConfig.class,targetElement="setFlushInterval")
+   protected Long flushInterval = 100L;
+
+   @ConfigurationDocRef(bean=AsyncStoreConfig.class,targetElement="setMaxPendingModifications")
+   protected Integer maxPendingModifications = 0;
+
+   @ConfigurationDocRef(bean=AsyncStoreConfig.class,targetElement="setOverflowPolicy")
+   protected OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+
+   /**
+    * What happens to a modification submitted while {@link AsyncStoreConfig#getMaxPendingModifications()}
+    * modifications are already waiting to be written to the cache store
+    */
+   public static enum OverflowPolicy {
+      /**
+       * The calling thread waits until enough pending modifications have been written.
+       */
+      BLOCK,
+      /**
+       * The calling thread writes the pending modifications to the cache store itself before queueing its own.
+       */
+      CALLER_RUNS,
+      /**
+       * The modification is rejected with a {@link org.infinispan.CacheException}.
+       */
+      FAIL
+   }
+
    @XmlAttribute
    public Boolean isEnabled() {
       return enabled;
@@ -152,6 +184,128 @@ public class AsyncStoreConfig extends AbstractNamedCacheConfigurationBean {
       return this;
    }
 
+   @XmlAttribute
+   public Integer getFlushBatchSize() {
+      return flushBatchSize;
+   }
+
+   /**
+    * If greater than 0, pending modifications are written to the cache store in batches of at most this many
+    * modifications, each batch being handed over to the store as a single one phase prepare so that it can be applied
+    * in one transaction. A batch is flushed as soon as this many keys have been modified, or once flushInterval
+    * milliseconds have elapsed since the first pending modification. If 0, the default, every modification is
+    * written to the store as soon as possible, through individual store and remove calls.
+    * 
+    * @param flushBatchSize
+    */
+   public void setFlushBatchSize(Integer flushBatchSize) {
+      testImmutability("flushBatchSize");
+      this.flushBatchSize = flushBatchSize;
+   }
+
+   /**
+    * If greater than 0, pending modifications are written to the cache store in batches of at most this many
+    * modifications, each batch being handed over to the store as a single one phase prepare so that it can be applied
+    * in one transaction. A batch is flushed as soon as this many keys have been modified, or once flushInterval
+    * milliseconds have elapsed since the first pending modification. If 0, the default, every modification is
+    * written to the store as soon as possible, through individual store and remove calls.
+    * 
+    * @param flushBatchSize
+    */
+   public AsyncStoreConfig flushBatchSize(Integer flushBatchSize) {
+      testImmutability("flushBatchSize");
+      this.flushBatchSize = flushBatchSize;
+      return this;
+   }
+
+   @XmlAttribute
+   public Long getFlushInterval() {
+      return flushInterval;
+   }
+
+   /**
+    * Maximum time, in milliseconds, a modification waits for its batch to fill up before being flushed to the cache
+    * store anyway. Only used if flushBatchSize is greater than 0.
+    * 
+    * @param flushInterval
+    */
+   public void setFlushInterval(Long flushInterval) {
+      testImmutability("flushInterval");
+      this.flushInterval = flushInterval;
+   }
+
+   /**
+    * Maximum time, in milliseconds, a modification waits for its batch to fill up before being flushed to the cache
+    * store anyway. Only used if flushBatchSize is greater than 0.
+    * 
+    * @param flushInterval
+    */
+   public AsyncStoreConfig flushInterval(Long flushInterval) {
+      testImmutability("flushInterval");
+      this.flushInterval = flushInterval;
+      return this;
+   }
+
+   @XmlAttribute
+   public Integer getMaxPendingModifications() {
+      return maxPendingModifications;
+   }
+
+   /**
+    * Maximum number of modifications waiting to be written to the cache store, after which overflowPolicy decides
+    * what happens to new modifications. Modifications to the same key which have already been coalesced count once.
+    * If 0, the default, the number of pending modifications is not bounded.
+    * 
+    * @param maxPendingModifications
+    */
+   public void setMaxPendingModifications(Integer maxPendingModifications) {
+      testImmutability("maxPendingModifications");
+      this.maxPendingModifications = maxPendingModifications;
+   }
+
+   /**
+    * Maximum number of modifications waiting to be written to the cache store, after which overflowPolicy decides
+    * what happens to new modifications. Modifications to the same key which have already been coalesced count once.
+    * If 0, the default, the number of pending modifications is not bounded.
+    * 
+    * @param maxPendingModifications
+    */
+   public AsyncStoreConfig maxPendingModifications(Integer maxPendingModifications) {
+      testImmutability("maxPendingModifications");
+      this.maxPendingModifications = maxPendingModifications;
+      return this;
+   }
+
+   @XmlAttribute
+   public OverflowPolicy getOverflowPolicy() {
+      return overflowPolicy;
+   }
+
+   /**
+    * What happens to new modifications once maxPendingModifications modifications are waiting to be written to the
+    * cache store: BLOCK, the default, makes the caller wait, CALLER_RUNS makes the caller write the pending
+    * modifications itself and FAIL rejects the modification.
+    * 
+    * @param overflowPolicy
+    */
+   public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+      testImmutability("overflowPolicy");
+      this.overflowPolicy = overflowPolicy;
+   }
+
+   /**
+    * What happens to new modifications once maxPendingModifications modifications are waiting to be written to the
+    * cache store: BLOCK, the default, makes the caller wait, CALLER_RUNS makes the caller write the pending
+    * modifications itself and FAIL rejects the modification.
+    * 
+    * @param overflowPolicy
+    */
+   public AsyncStoreConfig overflowPolicy(OverflowPolicy overflowPolicy) {
+      testImmutability("overflowPolicy");
+      this.overflowPolicy = overflowPolicy;
+      return this;
+   }
+
    @Override
    public AsyncStoreConfig clone() {
       try {
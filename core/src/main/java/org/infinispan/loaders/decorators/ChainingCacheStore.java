@@ -129,6 +129,22 @@ public class ChainingCacheStore implements CacheStore {
       return set;
    }
 
+   @Override
+   public Set<InternalCacheEntry> load(Set<Object> keys) throws CacheLoaderException {
+      Set<InternalCacheEntry> set = new HashSet<InternalCacheEntry>(keys.size());
+      Set<Object> remaining = keys;
+      for (CacheLoader l : loaders.keySet()) {
+         Set<InternalCacheEntry> localSet = l.load(remaining);
+         if (localSet.isEmpty()) continue;
+         set.addAll(localSet);
+         if (set.size() == keys.size()) break;
+         // as with single key loads, the first loader having an entry wins
+         remaining = new HashSet<Object>(remaining);
+         for (InternalCacheEntry e : localSet) remaining.remove(e.getKey());
+      }
+      return set;
+   }
+
    @Override
    public Set<Object> loadAllKeys(Set<Object> keysToExclude) throws CacheLoaderException {
       Set<Object> set = new HashSet<Object>();
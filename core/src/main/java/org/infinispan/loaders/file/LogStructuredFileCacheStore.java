@@ -0,0 +1,747 @@
+package org.infinispan.loaders.file;
+
+import org.infinispan.Cache;
+import org.infinispan.config.ConfigurationException;
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.container.entries.InternalCacheValue;
+import org.infinispan.loaders.AbstractCacheStore;
+import org.infinispan.loaders.CacheLoaderConfig;
+import org.infinispan.loaders.CacheLoaderException;
+import org.infinispan.loaders.CacheLoaderMetadata;
+import org.infinispan.marshall.StreamingMarshaller;
+import org.infinispan.util.logging.Log;
+import org.infinispan.util.logging.LogFactory;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * A filesystem-based {@link org.infinispan.loaders.CacheStore} which never rewrites data in place. Every store or
+ * remove is appended as a record to the current segment file, <tt>/{location}/cache name/segment_number.log</tt>, so
+ * that the cost of a write is a single sequential append, regardless of how many entries are stored.
+ * <p/>
+ * The location of the latest record of every key is kept in an in-memory index, which means the keys of all the
+ * stored entries are held in memory, while values are read from disk on demand. The index is rebuilt by scanning the
+ * segment files on startup; a partially written record found at the end of a segment, e.g. after a crash, is
+ * discarded.
+ * <p/>
+ * Once a segment reaches {@link LogStructuredFileCacheStoreConfig#getMaxSegmentSize()} it is sealed and a new one is
+ * started. Sealed segments whose share of obsolete records exceeds {@link LogStructuredFileCacheStoreConfig#getCompactionThreshold()}
+ * are compacted in the background: their live records are appended to the current segment and the segment file is
+ * deleted.
+ * <p/>
+ * A remove record, or tombstone, only needs to be kept for as long as older records of its key may be left in other
+ * segments, which would otherwise be brought back to life when the index is rebuilt. Each record therefore keeps track
+ * of the range of segments which may still hold older records of its key, and tombstones are dropped, from the index
+ * as well as by compaction, once none of these segments is left. Tombstones are counted as obsolete from the start, so
+ * that the segments holding them get compacted.
+ * <p/>
+ * Each record is laid out as follows: <tt>[body length: int][crc32 of the body: int][type: byte][key length: int]
+ * [key][expiry time: long][value]</tt>, where the value is the marshalled {@link InternalCacheValue} of a store and is
+ * empty for a remove.
+ *
+ * @since 5.0
+ */
+@CacheLoaderMetadata(configurationClass = LogStructuredFileCacheStoreConfig.class)
+public class LogStructuredFileCacheStore extends AbstractCacheStore {
+
+   private static final Log log = LogFactory.getLog(LogStructuredFileCacheStore.class);
+   private static final boolean trace = log.isTraceEnabled();
+
+   private static final String SEGMENT_SUFFIX = ".log";
+   private static final byte STORE = 1;
+   private static final byte REMOVE = 2;
+   // body length and checksum
+   static final int RECORD_HEADER_SIZE = 8;
+   // type, key length and expiry time
+   private static final int BODY_FIXED_SIZE = 13;
+
+   private LogStructuredFileCacheStoreConfig config;
+   private File root;
+
+   private final ConcurrentMap<Object, Location> index = new ConcurrentHashMap<Object, Location>();
+   private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<Long, Segment>();
+   private volatile Segment active;
+
+   /**
+    * Serializes appends, so that the order of the records in the log matches the order of the index updates.
+    */
+   private final ReentrantLock appendLock = new ReentrantLock();
+   /**
+    * Held for reading while a record is read, and for writing while segment files are deleted.
+    */
+   private final ReadWriteLock segmentsLock = new ReentrantReadWriteLock();
+
+   private ExecutorService compactor;
+   private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+
+   /**
+    * @return root directory where all files for this {@link org.infinispan.loaders.CacheStore CacheStore} are written.
+    */
+   public File getRoot() {
+      return root;
+   }
+
+   @Override
+   public void init(CacheLoaderConfig config, Cache<?, ?> cache, StreamingMarshaller m) throws CacheLoaderException {
+      super.init(config, cache, m);
+      this.config = (LogStructuredFileCacheStoreConfig) config;
+   }
+
+   public Class<? extends CacheLoaderConfig> getConfigurationClass() {
+      return LogStructuredFileCacheStoreConfig.class;
+   }
+
+   @Override
+   public void start() throws CacheLoaderException {
+      super.start();
+      String location = config.getLocation();
+      if (location == null || location.trim().length() == 0)
+         location = "Infinispan-LogStructuredFileCacheStore"; // use relative path!
+      location += File.separator + cache.getName();
+      root = new File(location);
+      if (!root.exists()) {
+         if (!root.mkdirs()) {
+            log.warn("Problems creating the directory: " + root);
+         }
+      }
+      if (!root.exists()) {
+         throw new ConfigurationException("Directory " + root.getAbsolutePath() + " does not exist and cannot be created!");
+      }
+      final String threadName = (cache == null ? "" : cache.getName() + '-') + getClass().getSimpleName() + "-Compactor";
+      compactor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+         @Override
+         public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, threadName);
+            t.setDaemon(true);
+            return t;
+         }
+      });
+      rebuildIndex();
+      scheduleCompaction();
+   }
+
+   @Override
+   public void stop() throws CacheLoaderException {
+      super.stop();
+      // not interrupted, as that would close the channel being appended to
+      compactor.shutdown();
+      try {
+         compactor.awaitTermination(10, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+      }
+      segmentsLock.writeLock().lock();
+      try {
+         for (Segment segment : segments.values()) segment.close();
+         segments.clear();
+         index.clear();
+      } finally {
+         segmentsLock.writeLock().unlock();
+      }
+   }
+
+   public InternalCacheEntry load(Object key) throws CacheLoaderException {
+      segmentsLock.readLock().lock();
+      try {
+         Location location = index.get(key);
+         if (location == null || location.isRemoved() || location.isExpired(System.currentTimeMillis())) return null;
+         return readEntry(key, location);
+      } finally {
+         segmentsLock.readLock().unlock();
+      }
+   }
+
+   @Override
+   public boolean containsKey(Object key) throws CacheLoaderException {
+      Location location = index.get(key);
+      return location != null && !location.isRemoved() && !location.isExpired(System.currentTimeMillis());
+   }
+
+   public Set<InternalCacheEntry> loadAll() throws CacheLoaderException {
+      return load(Integer.MAX_VALUE);
+   }
+
+   public Set<InternalCacheEntry> load(int numEntries) throws CacheLoaderException {
+      Set<InternalCacheEntry> result = new HashSet<InternalCacheEntry>();
+      for (Object key : index.keySet()) {
+         if (result.size() >= numEntries) break;
+         InternalCacheEntry entry = load(key);
+         if (entry != null) result.add(entry);
+      }
+      return result;
+   }
+
+   public Set<Object> loadAllKeys(Set<Object> keysToExclude) throws CacheLoaderException {
+      long now = System.currentTimeMillis();
+      Set<Object> result = new HashSet<Object>();
+      for (Map.Entry<Object, Location> e : index.entrySet()) {
+         Location location = e.getValue();
+         if (location.isRemoved() || location.isExpired(now)) continue;
+         if (keysToExclude == null || !keysToExclude.contains(e.getKey())) result.add(e.getKey());
+      }
+      return result;
+   }
+
+   public void store(InternalCacheEntry entry) throws CacheLoaderException {
+      byte[] keyBytes = marshall(entry.getKey());
+      byte[] valueBytes = marshall(entry.toInternalCacheValue());
+      ByteBuffer record = createRecord(STORE, keyBytes, entry.getExpiryTime(), valueBytes);
+      appendLock.lock();
+      try {
+         Segment segment = append(record);
+         Location previous = index.get(entry.getKey());
+         long oldest = previous == null ? segment.id : previous.oldest;
+         Location location = new Location(segment, segment.size - record.limit(), record.limit(), entry.getExpiryTime(), false, oldest, segment.id);
+         replaced(index.put(entry.getKey(), location));
+      } finally {
+         appendLock.unlock();
+      }
+   }
+
+   public boolean remove(Object key) throws CacheLoaderException {
+      return remove(key, null);
+   }
+
+   /**
+    * Appends a remove record for the key, only if the latest record of the key is a store, and if it is the given
+    * location in case one is passed.
+    */
+   private boolean remove(Object key, Location expected) throws CacheLoaderException {
+      Location current = index.get(key);
+      if (current == null || current.isRemoved()) return false;
+      ByteBuffer record = createRecord(REMOVE, marshall(key), -1, new byte[0]);
+      appendLock.lock();
+      try {
+         current = index.get(key);
+         if (current == null || current.isRemoved() || (expected != null && current != expected)) return false;
+         Segment segment = append(record);
+         // kept in the index so that it is carried over by compaction for as long as older records of the key exist,
+         // but already counted as obsolete so that it doesn't keep its segment from being compacted
+         Location tombstone = new Location(segment, segment.size - record.limit(), record.limit(), -1, true, current.oldest, segment.id);
+         segment.addObsolete(record.limit());
+         replaced(index.put(key, tombstone));
+         return !current.isExpired(System.currentTimeMillis());
+      } finally {
+         appendLock.unlock();
+      }
+   }
+
+   public void clear() throws CacheLoaderException {
+      appendLock.lock();
+      try {
+         segmentsLock.writeLock().lock();
+         try {
+            for (Segment segment : segments.values()) segment.delete();
+            segments.clear();
+            index.clear();
+            active = openSegment(0);
+         } finally {
+            segmentsLock.writeLock().unlock();
+         }
+      } finally {
+         appendLock.unlock();
+      }
+   }
+
+   @Override
+   protected void purgeInternal() throws CacheLoaderException {
+      if (trace) log.trace("purgeInternal()");
+      long now = System.currentTimeMillis();
+      for (Map.Entry<Object, Location> e : index.entrySet()) {
+         Location location = e.getValue();
+         if (location.isRemoved()) {
+            // already counted as obsolete
+            if (shadowsNothing(location)) index.remove(e.getKey(), location);
+         } else if (location.isExpired(now)) {
+            // an expired record found when rebuilding the index is ignored, unless it shadows older records of its key
+            if (!shadowsNothing(location)) {
+               remove(e.getKey(), location);
+            } else if (index.remove(e.getKey(), location)) {
+               replaced(location);
+            }
+         }
+      }
+      scheduleCompaction();
+   }
+
+   public void toStream(ObjectOutput outputStream) throws CacheLoaderException {
+      try {
+         for (Object key : index.keySet()) {
+            InternalCacheEntry entry = load(key);
+            if (entry != null) marshaller.objectToObjectStream(entry, outputStream);
+         }
+         marshaller.objectToObjectStream(null, outputStream);
+      } catch (IOException e) {
+         throw new CacheLoaderException("I/O exception while generating stream", e);
+      }
+   }
+
+   public void fromStream(ObjectInput inputStream) throws CacheLoaderException {
+      try {
+         Object o;
+         while ((o = marshaller.objectFromObjectStream(inputStream)) != null) {
+            store((InternalCacheEntry) o);
+         }
+      } catch (IOException e) {
+         throw new CacheLoaderException("I/O error", e);
+      } catch (ClassNotFoundException e) {
+         throw new CacheLoaderException("Unexpected exception", e);
+      } catch (InterruptedException ie) {
+         if (log.isDebugEnabled()) log.debug("Interrupted while reading from stream");
+         Thread.currentThread().interrupt();
+      }
+   }
+
+   /**
+    * @return the number of segment files currently in use
+    */
+   public int getSegmentCount() {
+      return segments.size();
+   }
+
+   /**
+    * Compacts all the sealed segments with enough obsolete records, in the calling thread.
+    */
+   public synchronized void compact() throws CacheLoaderException {
+      for (Segment segment : segments.values()) {
+         if (segment != active && segment.needsCompaction(config.getCompactionThreshold())) compact(segment);
+      }
+   }
+
+   // -------------------------------------------------------------------------------------------------------------
+   // appends
+   // -------------------------------------------------------------------------------------------------------------
+
+   private ByteBuffer createRecord(byte type, byte[] keyBytes, long expiryTime, byte[] valueBytes) {
+      int bodyLength = BODY_FIXED_SIZE + keyBytes.length + valueBytes.length;
+      ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + bodyLength);
+      record.putInt(bodyLength);
+      record.putInt(0); // checksum, filled below
+      record.put(type);
+      record.putInt(keyBytes.length);
+      record.put(keyBytes);
+      record.putLong(expiryTime);
+      record.put(valueBytes);
+      CRC32 crc = new CRC32();
+      crc.update(record.array(), RECORD_HEADER_SIZE, bodyLength);
+      record.putInt(4, (int) crc.getValue());
+      record.flip();
+      return record;
+   }
+
+   /**
+    * Appends the record to the active segment, starting a new one if the active segment is full. Must be called with
+    * the append lock held.
+    *
+    * @return the segment the record was appended to, whose size now points right after the record
+    */
+   private Segment append(ByteBuffer record) throws CacheLoaderException {
+      Segment segment = active;
+      if (segment.size > 0 && segment.size + record.limit() > config.getMaxSegmentSize()) {
+         segment = openSegment(segment.id + 1);
+         active = segment;
+         if (trace) log.trace("Sealed segment %s, appending to %s", segment.id - 1, segment.id);
+         scheduleCompaction();
+      }
+      try {
+         long position = segment.size;
+         while (record.hasRemaining()) {
+            position += segment.channel.write(record, position);
+         }
+         if (config.isSyncWrites()) segment.channel.force(false);
+         segment.size = position;
+      } catch (IOException e) {
+         throw new CacheLoaderException("Unable to append to " + segment.file, e);
+      }
+      return segment;
+   }
+
+   /**
+    * Accounts for the record a new record of the same key has made obsolete. Tombstones are counted as obsolete as
+    * soon as they are appended.
+    */
+   private void replaced(Location previous) {
+      if (previous == null || previous.isRemoved()) return;
+      Segment segment = previous.segment;
+      segment.addObsolete(previous.length);
+      if (segment != active && segment.needsCompaction(config.getCompactionThreshold())) scheduleCompaction();
+   }
+
+   /**
+    * Returns true if no segment but the one holding the record is left which may hold older records of its key.
+    */
+   private boolean shadowsNothing(Location location) {
+      for (Long id : segments.subMap(location.oldest, true, location.generation, true).keySet()) {
+         if (id != location.segment.id) return false;
+      }
+      return true;
+   }
+
+   // -------------------------------------------------------------------------------------------------------------
+   // reads
+   // -------------------------------------------------------------------------------------------------------------
+
+   /**
+    * Reads the entry at the given location. Must be called with the segments read lock held.
+    */
+   private InternalCacheEntry readEntry(Object key, Location location) throws CacheLoaderException {
+      Segment segment = location.segment;
+      // only sealed segments are mapped, as the active one keeps growing
+      ByteBuffer mapped = config.isMemoryMappedReads() && segment != active ? segment.map() : null;
+      if (mapped != null) return readMappedEntry(key, location, mapped);
+      ByteBuffer record = ByteBuffer.allocate(location.length);
+      try {
+         long position = location.offset;
+         while (record.hasRemaining()) {
+            int read = segment.channel.read(record, position);
+            if (read < 0) throw new EOFException("Unexpected end of " + segment.file);
+            position += read;
+         }
+      } catch (IOException e) {
+         throw new CacheLoaderException("Unable to read from " + segment.file, e);
+      }
+      int keyLength = record.getInt(RECORD_HEADER_SIZE + 1);
+      int valueOffset = RECORD_HEADER_SIZE + BODY_FIXED_SIZE + keyLength;
+      InternalCacheValue value = (InternalCacheValue) unmarshall(record.array(), valueOffset, location.length - valueOffset);
+      return value.toInternalCacheEntry(key);
+   }
+
+   /**
+    * Copies the value of the record out of the mapped segment, leaving the rest of the record, key included, to the
+    * page cache.
+    */
+   private InternalCacheEntry readMappedEntry(Object key, Location location, ByteBuffer mapped) throws CacheLoaderException {
+      int offset = (int) location.offset;
+      int keyLength = mapped.getInt(offset + RECORD_HEADER_SIZE + 1);
+      int valueOffset = RECORD_HEADER_SIZE + BODY_FIXED_SIZE + keyLength;
+      byte[] valueBytes = new byte[location.length - valueOffset];
+      ByteBuffer buffer = mapped.duplicate();
+      buffer.position(offset + valueOffset);
+      buffer.get(valueBytes);
+      InternalCacheValue value = (InternalCacheValue) unmarshall(valueBytes, 0, valueBytes.length);
+      return value.toInternalCacheEntry(key);
+   }
+
+   // -------------------------------------------------------------------------------------------------------------
+   // index rebuild
+   // -------------------------------------------------------------------------------------------------------------
+
+   private void rebuildIndex() throws CacheLoaderException {
+      File[] files = root.listFiles(new FilenameFilter() {
+         @Override
+         public boolean accept(File dir, String name) {
+            return name.endsWith(SEGMENT_SUFFIX);
+         }
+      });
+      if (files != null) {
+         for (File file : files) {
+            String name = file.getName();
+            try {
+               long id = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+               segments.put(id, openSegment(file, id));
+            } catch (NumberFormatException e) {
+               log.warn("Ignoring unexpected file %s", file);
+            }
+         }
+      }
+      for (Segment segment : segments.values()) {
+         scanSegment(segment, true, new RecordHandler() {
+            @Override
+            public void handle(Segment segment, long offset, int length, byte type, Object key, long expiryTime, byte[] record) {
+               Location previous = index.get(key);
+               if (type == REMOVE && (previous == null || previous.isRemoved())) {
+                  // nothing left for this record to shadow
+                  segment.addObsolete(length);
+                  return;
+               }
+               long oldest = previous == null ? segment.id : previous.oldest;
+               index.put(key, new Location(segment, offset, length, expiryTime, type == REMOVE, oldest, segment.id));
+               if (type == REMOVE) segment.addObsolete(length);
+               if (previous != null && !previous.isRemoved()) previous.segment.addObsolete(previous.length);
+            }
+         });
+      }
+      if (segments.isEmpty()) {
+         active = openSegment(0);
+      } else {
+         Segment last = segments.lastEntry().getValue();
+         active = last.size < config.getMaxSegmentSize() ? last : openSegment(last.id + 1);
+      }
+      if (log.isDebugEnabled())
+         log.debug("Rebuilt index of %s keys from %s segments in %s", index.size(), segments.size(), root);
+   }
+
+   private interface RecordHandler {
+      void handle(Segment segment, long offset, int length, byte type, Object key, long expiryTime, byte[] record) throws CacheLoaderException;
+   }
+
+   /**
+    * Reads all the records of a segment, in order. When repairing, a truncated or corrupted record ends the scan, and
+    * is cut off the segment file together with anything following it.
+    */
+   private void scanSegment(Segment segment, boolean repair, RecordHandler handler) throws CacheLoaderException {
+      DataInputStream in = null;
+      long offset = 0;
+      try {
+         in = new DataInputStream(new BufferedInputStream(new FileInputStream(segment.file), 65536));
+         while (offset < segment.size) {
+            int bodyLength = in.readInt();
+            int checksum = in.readInt();
+            if (bodyLength < BODY_FIXED_SIZE || offset + RECORD_HEADER_SIZE + bodyLength > segment.size)
+               throw new EOFException("Truncated record");
+            byte[] record = new byte[RECORD_HEADER_SIZE + bodyLength];
+            in.readFully(record, RECORD_HEADER_SIZE, bodyLength);
+            CRC32 crc = new CRC32();
+            crc.update(record, RECORD_HEADER_SIZE, bodyLength);
+            if ((int) crc.getValue() != checksum) throw new IOException("Checksum mismatch");
+            ByteBuffer buffer = ByteBuffer.wrap(record);
+            buffer.putInt(0, bodyLength);
+            buffer.putInt(4, checksum);
+            byte type = buffer.get(RECORD_HEADER_SIZE);
+            int keyLength = buffer.getInt(RECORD_HEADER_SIZE + 1);
+            long expiryTime = buffer.getLong(RECORD_HEADER_SIZE + 5 + keyLength);
+            Object key = unmarshall(record, RECORD_HEADER_SIZE + 5, keyLength);
+            handler.handle(segment, offset, record.length, type, key, expiryTime, record);
+            offset += record.length;
+         }
+      } catch (IOException e) {
+         if (!repair) throw new CacheLoaderException("Unable to read segment " + segment.file, e);
+         log.warn("Discarding the end of segment %s from offset %s: %s", segment.file, offset, e.getMessage());
+         try {
+            segment.channel.truncate(offset);
+            segment.size = offset;
+         } catch (IOException ioe) {
+            throw new CacheLoaderException("Unable to truncate " + segment.file, ioe);
+         }
+      } finally {
+         safeClose(in);
+      }
+   }
+
+   // -------------------------------------------------------------------------------------------------------------
+   // compaction
+   // -------------------------------------------------------------------------------------------------------------
+
+   private void scheduleCompaction() {
+      if (compactor == null || compactor.isShutdown() || !compactionScheduled.compareAndSet(false, true)) return;
+      compactor.execute(new Runnable() {
+         @Override
+         public void run() {
+            compactionScheduled.set(false);
+            try {
+               compact();
+            } catch (CacheLoaderException e) {
+               log.error("Problems encountered while compacting " + root, e);
+            }
+         }
+      });
+   }
+
+   /**
+    * Appends the live records of the segment to the active segment, then deletes the segment. Remove records are
+    * carried over as well, unless no other segment which may hold older records of their key is left.
+    */
+   private void compact(final Segment segment) throws CacheLoaderException {
+      if (trace) log.trace("Compacting segment %s, %s obsolete bytes out of %s", segment.id, segment.obsolete.get(), segment.size);
+      scanSegment(segment, false, new RecordHandler() {
+         @Override
+         public void handle(Segment s, long offset, int length, byte type, Object key, long expiryTime, byte[] record) throws CacheLoaderException {
+            Location location = index.get(key);
+            if (location == null || location.segment != segment || location.offset != offset) return;
+            if (location.isRemoved() && shadowsNothing(location)) {
+               index.remove(key, location);
+               return;
+            }
+            appendLock.lock();
+            try {
+               if (index.get(key) != location) return;
+               ByteBuffer buffer = ByteBuffer.wrap(record);
+               Segment target = append(buffer);
+               Location moved = new Location(target, target.size - record.length, record.length, location.expiryTime,
+                                             location.isRemoved(), location.oldest, location.generation);
+               // unless dropped by a concurrent purge, only tombstones are obsolete straight away
+               if (!index.replace(key, location, moved) || moved.isRemoved()) target.addObsolete(record.length);
+            } finally {
+               appendLock.unlock();
+            }
+         }
+      });
+      segmentsLock.writeLock().lock();
+      try {
+         if (segments.remove(segment.id, segment)) segment.delete();
+      } finally {
+         segmentsLock.writeLock().unlock();
+      }
+   }
+
+   // -------------------------------------------------------------------------------------------------------------
+   // segments
+   // -------------------------------------------------------------------------------------------------------------
+
+   private Segment openSegment(long id) throws CacheLoaderException {
+      Segment segment = openSegment(new File(root, id + SEGMENT_SUFFIX), id);
+      segments.put(id, segment);
+      return segment;
+   }
+
+   private Segment openSegment(File file, long id) throws CacheLoaderException {
+      try {
+         return new Segment(id, file);
+      } catch (IOException e) {
+         throw new CacheLoaderException("Unable to open segment file " + file, e);
+      }
+   }
+
+   private byte[] marshall(Object o) throws CacheLoaderException {
+      try {
+         return marshaller.objectToByteBuffer(o);
+      } catch (IOException e) {
+         throw new CacheLoaderException("Unable to marshall " + o, e);
+      } catch (InterruptedException ie) {
+         Thread.currentThread().interrupt();
+         throw new CacheLoaderException("Interrupted while marshalling " + o, ie);
+      }
+   }
+
+   private Object unmarshall(byte[] bytes, int offset, int length) throws CacheLoaderException {
+      try {
+         return marshaller.objectFromByteBuffer(bytes, offset, length);
+      } catch (IOException e) {
+         throw new CacheLoaderException("Unable to unmarshall record", e);
+      } catch (ClassNotFoundException e) {
+         throw new CacheLoaderException("Unable to unmarshall record", e);
+      }
+   }
+
+   static class Segment {
+      final long id;
+      final File file;
+      final FileChannel channel;
+      /**
+       * Only updated with the append lock held, or before the store is started
+       */
+      volatile long size;
+      final AtomicLong obsolete = new AtomicLong();
+      private volatile MappedByteBuffer mapped;
+
+      Segment(long id, File file) throws IOException {
+         this.id = id;
+         this.file = file;
+         this.channel = new RandomAccessFile(file, "rw").getChannel();
+         this.size = channel.size();
+      }
+
+      void addObsolete(int bytes) {
+         obsolete.addAndGet(bytes);
+      }
+
+      boolean needsCompaction(float threshold) {
+         return size > 0 && obsolete.get() >= size * threshold;
+      }
+
+      /**
+       * Maps the segment in memory, the first time it is called. Must only be called once the segment is sealed.
+       *
+       * @return the mapped segment, or null if it is too large to be mapped in one go
+       */
+      ByteBuffer map() throws CacheLoaderException {
+         MappedByteBuffer buffer = mapped;
+         if (buffer == null) {
+            synchronized (this) {
+               buffer = mapped;
+               if (buffer == null) {
+                  if (size > Integer.MAX_VALUE) return null;
+                  try {
+                     buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                  } catch (IOException e) {
+                     throw new CacheLoaderException("Unable to map segment file " + file, e);
+                  }
+                  mapped = buffer;
+               }
+            }
+         }
+         return buffer;
+      }
+
+      void close() {
+         // the mapping itself is released once the buffer is garbage collected
+         mapped = null;
+         try {
+            channel.close();
+         } catch (IOException e) {
+            log.warn("Problems closing segment file %s", file);
+         }
+      }
+
+      void delete() {
+         close();
+         if (!file.delete()) log.warn("Had problems removing file %s", file);
+      }
+   }
+
+   /**
+    * Where the latest record of a key is to be found.
+    */
+   static class Location {
+      final Segment segment;
+      final long offset;
+      final int length;
+      final long expiryTime;
+      private final boolean removed;
+      /**
+       * Lowest id of the segments which may hold older records of the key
+       */
+      final long oldest;
+      /**
+       * Id of the segment the record was appended to, before being carried over by compaction. Older records of the key
+       * can't be in any later segment.
+       */
+      final long generation;
+
+      Location(Segment segment, long offset, int length, long expiryTime, boolean removed, long oldest, long generation) {
+         this.segment = segment;
+         this.offset = offset;
+         this.length = length;
+         this.expiryTime = expiryTime;
+         this.removed = removed;
+         this.oldest = oldest;
+         this.generation = generation;
+      }
+
+      boolean isRemoved() {
+         return removed;
+      }
+
+      boolean isExpired(long now) {
+         return expiryTime > 0 && expiryTime < now;
+      }
+   }
+}
@@ -0,0 +1,85 @@
+package org.infinispan.loaders.file;
+
+import org.infinispan.loaders.AbstractCacheStoreConfig;
+
+/**
+ * Configures {@link org.infinispan.loaders.file.LogStructuredFileCacheStore}.
+ * <p/>
+ *    <ul>
+ *       <li><tt>location</tt> - a location on disk where the store writes its segment files.  This defaults to
+ * <tt>Infinispan-LogStructuredFileCacheStore</tt> in the current working directory.</li>
+ *       <li><tt>maxSegmentSize</tt> - the size, in bytes, past which the segment file being appended to is sealed and
+ * a new one is started.  Only sealed segments are compacted.  By default, this is set to <tt>16777216</tt> (16MB).</li>
+ *       <li><tt>compactionThreshold</tt> - the fraction of a sealed segment's bytes that must be obsolete, i.e.
+ * overwritten or removed entries, for the segment to be compacted.  By default, this is set to <tt>0.5</tt>.</li>
+ *       <li><tt>syncWrites</tt> - whether every write is forced to disk before returning.  By default, this is set to
+ * <tt>false</tt>, leaving it to the operating system to flush writes.</li>
+ *       <li><tt>memoryMappedReads</tt> - whether sealed segments are memory-mapped, so that loading an entry copies
+ * its value straight out of the page cache rather than going through a read call.  The active segment is always
+ * read with positional reads.  Segments larger than 2GB are never mapped.  By default, this is set to
+ * <tt>false</tt>.</li>
+ *       <li><tt>purgeSynchronously</tt> - whether {@link org.infinispan.loaders.CacheStore#purgeExpired()} calls happen
+ * synchronously or not.  By default, this is set to <tt>false</tt>.</li>
+ * </ul>
+ *
+ * @since 5.0
+ */
+public class LogStructuredFileCacheStoreConfig extends AbstractCacheStoreConfig {
+
+   private static final long serialVersionUID = -4394528739487617520L;
+
+   String location = "Infinispan-LogStructuredFileCacheStore";
+   private long maxSegmentSize = 16 * 1024 * 1024;
+   private float compactionThreshold = 0.5f;
+   private boolean syncWrites = false;
+   private boolean memoryMappedReads = false;
+
+   public LogStructuredFileCacheStoreConfig() {
+      setCacheLoaderClassName(LogStructuredFileCacheStore.class.getName());
+   }
+
+   public String getLocation() {
+      return location;
+   }
+
+   public void setLocation(String location) {
+      testImmutability("location");
+      this.location = location;
+   }
+
+   public long getMaxSegmentSize() {
+      return maxSegmentSize;
+   }
+
+   public void setMaxSegmentSize(long maxSegmentSize) {
+      testImmutability("maxSegmentSize");
+      this.maxSegmentSize = maxSegmentSize;
+   }
+
+   public float getCompactionThreshold() {
+      return compactionThreshold;
+   }
+
+   public void setCompactionThreshold(float compactionThreshold) {
+      testImmutability("compactionThreshold");
+      this.compactionThreshold = compactionThreshold;
+   }
+
+   public boolean isSyncWrites() {
+      return syncWrites;
+   }
+
+   public void setSyncWrites(boolean syncWrites) {
+      testImmutability("syncWrites");
+      this.syncWrites = syncWrites;
+   }
+
+   public boolean isMemoryMappedReads() {
+      return memoryMappedReads;
+   }
+
+   public void setMemoryMappedReads(boolean memoryMappedReads) {
+      testImmutability("memoryMappedReads");
+      this.memoryMappedReads = memoryMappedReads;
+   }
+}
@@ -64,6 +64,7 @@ public interface Ids {
    static final int BUCKET = 42;
    static final int DEADLOCK_DETECTING_GLOBAL_TRANSACTION = 43;
    static final int REMOTE_TX_LOG_DETAILS = 63;
+   static final int STATE_CHUNK = 64;
 
    // 44 and 45 no longer in use, used to belong to tree module
    static final int ATOMIC_HASH_MAP_DELTA = 46;
@@ -42,6 +42,7 @@ import org.infinispan.container.entries.TransientCacheValue;
 import org.infinispan.container.entries.TransientMortalCacheEntry;
 import org.infinispan.container.entries.TransientMortalCacheValue;
 import org.infinispan.distribution.RemoteTransactionLogDetails;
+import org.infinispan.distribution.StateChunk;
 import org.infinispan.distribution.ch.DefaultConsistentHash;
 import org.infinispan.distribution.ch.NodeTopologyInfo;
 import org.infinispan.distribution.ch.TopologyAwareConsistentHash;
@@ -163,6 +164,7 @@ class ExternalizerTable implements ObjectTable {
       internalExternalizers.add(new ByteArrayKey.Externalizer());
 
       internalExternalizers.add(new RemoteTransactionLogDetails.Externalizer());
+      internalExternalizers.add(new StateChunk.Externalizer());
    }
 
    void addInternalExternalizer(Externalizer ext) {
@@ -55,6 +55,11 @@ public interface CacheNotifier extends Listenable {
     */
    void notifyCacheEntryVisited(Object key, Object value, boolean pre, InvocationContext ctx);
 
+   /**
+    * @return true if any listener is registered for CacheEntryVisited events, in which case reads have to be notified
+    */
+   boolean hasCacheEntryVisitedListeners();
+
    /**
     * Notifies all registered listeners of a CacheEntryEvicted event.
     */
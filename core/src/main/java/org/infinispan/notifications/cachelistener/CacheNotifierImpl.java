@@ -209,6 +209,11 @@ public class CacheNotifierImpl extends AbstractListenerImpl implements CacheNoti
       }
    }
 
+   @Override
+   public boolean hasCacheEntryVisitedListeners() {
+      return !cacheEntryVisitedListeners.isEmpty();
+   }
+
    @Override
    public void notifyCacheEntryEvicted(final Object key, Object value, final boolean pre, InvocationContext ctx) {
       if (!cacheEntryEvictedListeners.isEmpty()) {
@@ -184,6 +184,8 @@ public interface RpcManager {
    /**
     * The same as {@link #invokeRemotelyInFuture(java.util.Collection, org.infinispan.commands.ReplicableCommand,
     * boolean, org.infinispan.util.concurrent.NotifyingNotifiableFuture)} except that you can specify a timeout.
+    * The network future handed to the given future completes with the responses received, and the given future is
+    * notified once the invocation is done, whether it succeeded or failed.
     *
     * @param recipients       recipients to invoke remote call on
     * @param rpc              command to execute remotely
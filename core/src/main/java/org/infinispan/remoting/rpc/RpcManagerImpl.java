@@ -19,6 +19,7 @@ import org.infinispan.remoting.transport.Address;
 import org.infinispan.remoting.transport.Transport;
 import org.infinispan.statetransfer.StateTransferException;
 import org.infinispan.util.concurrent.NotifyingNotifiableFuture;
+import org.infinispan.util.concurrent.StripedCounter;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
 import org.rhq.helpers.pluginAnnotations.agent.DataType;
@@ -36,7 +37,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This component really is just a wrapper around a {@link org.infinispan.remoting.transport.Transport} implementation,
@@ -55,9 +55,9 @@ public class RpcManagerImpl implements RpcManager {
    private static final boolean trace = log.isTraceEnabled();
 
    private Transport t;
-   private final AtomicLong replicationCount = new AtomicLong(0);
-   private final AtomicLong replicationFailures = new AtomicLong(0);
-   private final AtomicLong totalReplicationTime = new AtomicLong(0);
+   private final StripedCounter replicationCount = new StripedCounter();
+   private final StripedCounter replicationFailures = new StripedCounter();
+   private final StripedCounter totalReplicationTime = new StripedCounter();
 
    @ManagedAttribute(description = "Enables or disables the gathering of statistics by this component", writable = true)
    boolean statisticsEnabled = false; // by default, don't gather statistics.
@@ -100,23 +100,23 @@ public class RpcManagerImpl implements RpcManager {
          if (statisticsEnabled) startTime = System.currentTimeMillis();
          try {
             Map<Address, Response> result = t.invokeRemotely(recipients, rpcCommand, mode, timeout, usePriorityQueue, responseFilter, stateTransferEnabled);
-            if (isStatisticsEnabled()) replicationCount.incrementAndGet();
+            if (isStatisticsEnabled()) replicationCount.increment();
             return result;
          } catch (CacheException e) {
             if (log.isTraceEnabled()) {
                log.trace("replication exception: ", e);
             }
 
-            if (isStatisticsEnabled()) replicationFailures.incrementAndGet();
+            if (isStatisticsEnabled()) replicationFailures.increment();
             throw e;
          } catch (Throwable th) {
             log.error("unexpected error while replicating", th);
-            if (isStatisticsEnabled()) replicationFailures.incrementAndGet();
+            if (isStatisticsEnabled()) replicationFailures.increment();
             throw new CacheException(th);
          } finally {
             if (statisticsEnabled) {
                long timeTaken = System.currentTimeMillis() - startTime;
-               totalReplicationTime.getAndAdd(timeTaken);
+               totalReplicationTime.add(timeTaken);
             }
          }
       }
@@ -247,9 +247,11 @@ public class RpcManagerImpl implements RpcManager {
       if (trace) log.trace("%s invoking in future call %s to recipient list %s", t.getAddress(), rpc, recipients);
       Callable<Object> c = new Callable<Object>() {
          public Object call() {
-            invokeRemotely(recipients, rpc, true, usePriorityQueue, timeout);
-            l.notifyDone();
-            return null;
+            try {
+               return invokeRemotely(recipients, rpc, true, usePriorityQueue, timeout);
+            } finally {
+               l.notifyDone();
+            }
          }
       };
       l.setNetworkFuture(asyncExecutor.submit(c));
@@ -288,9 +290,9 @@ public class RpcManagerImpl implements RpcManager {
    @ManagedOperation(description = "Resets statistics gathered by this component")
    @Operation(displayName = "Reset statistics")
    public void resetStatistics() {
-      replicationCount.set(0);
-      replicationFailures.set(0);
-      totalReplicationTime.set(0);
+      replicationCount.reset();
+      replicationFailures.reset();
+      totalReplicationTime.reset();
    }
 
    @ManagedAttribute(description = "Number of successful replications")
@@ -299,7 +301,7 @@ public class RpcManagerImpl implements RpcManager {
       if (!isStatisticsEnabled()) {
          return -1;
       }
-      return replicationCount.get();
+      return replicationCount.sum();
    }
 
    @ManagedAttribute(description = "Number of failed replications")
@@ -308,7 +310,7 @@ public class RpcManagerImpl implements RpcManager {
       if (!isStatisticsEnabled()) {
          return -1;
       }
-      return replicationFailures.get();
+      return replicationFailures.sum();
    }
 
    @Metric(displayName = "Statistics enabled", dataType = DataType.TRAIT)
@@ -323,7 +325,7 @@ public class RpcManagerImpl implements RpcManager {
 
    @ManagedAttribute(description = "Successful replications as a ratio of total replications")
    public String getSuccessRatio() {
-      if (replicationCount.get() == 0 || !statisticsEnabled) {
+      if (replicationCount.sum() == 0 || !statisticsEnabled) {
          return "N/A";
       }
       double ration = calculateSuccessRatio() * 100d;
@@ -333,22 +335,22 @@ public class RpcManagerImpl implements RpcManager {
    @ManagedAttribute(description = "Successful replications as a ratio of total replications in numeric double format")
    @Metric(displayName = "Successful replication ratio", units = Units.PERCENTAGE, displayType = DisplayType.SUMMARY)
    public double getSuccessRatioFloatingPoint() {
-      if (replicationCount.get() == 0 || !statisticsEnabled) return 0;
+      if (replicationCount.sum() == 0 || !statisticsEnabled) return 0;
       return calculateSuccessRatio();
    }
 
    private double calculateSuccessRatio() {
-      double totalCount = replicationCount.get() + replicationFailures.get();
-      return replicationCount.get() / totalCount;
+      double totalCount = replicationCount.sum() + replicationFailures.sum();
+      return replicationCount.sum() / totalCount;
    }
 
    @ManagedAttribute(description = "The average time spent in the transport layer, in milliseconds")
    @Metric(displayName = "Average time spent in the transport layer", units = Units.MILLISECONDS, displayType = DisplayType.SUMMARY)
    public long getAverageReplicationTime() {
-      if (replicationCount.get() == 0) {
+      if (replicationCount.sum() == 0) {
          return 0;
       }
-      return totalReplicationTime.get() / replicationCount.get();
+      return totalReplicationTime.sum() / replicationCount.sum();
    }
 
    // mainly for unit testing
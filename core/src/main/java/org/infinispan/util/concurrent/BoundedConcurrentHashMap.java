@@ -38,6 +38,7 @@ import java.io.Serializable;
 import java.util.AbstractCollection;
 import java.util.AbstractMap;
 import java.util.AbstractSet;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.ConcurrentModificationException;
@@ -47,14 +48,18 @@ import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
-import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
 
+import org.infinispan.eviction.EntrySizeCalculator;
+
 
 /**
  * A hash table supporting full concurrency of retrievals and
@@ -183,6 +188,11 @@ public class BoundedConcurrentHashMap<K, V> extends AbstractMap<K, V>
     */
    final Segment<K,V>[] segments;
 
+   /**
+    * Bounds the whole map when eviction is done across segments, null otherwise
+    */
+   final transient CrossSegmentEviction<K, V> crossSegmentEviction;
+
    transient Set<K> keySet;
    transient Set<Map.Entry<K,V>> entrySet;
    transient Collection<V> values;
@@ -236,6 +246,22 @@ public class BoundedConcurrentHashMap<K, V> extends AbstractMap<K, V>
       volatile V value;
       final HashEntry<K, V> next;
       volatile Recency state;
+      /**
+       * Estimated size of the entry, when the map is bounded by weight. Only accessed under the segment lock.
+       */
+      long weight;
+      /**
+       * Time of the last access to the entry, when evicting across segments. Written without lock, so only an
+       * approximation.
+       */
+      long lastAccess;
+      /**
+       * Links of the entry in the {@link EntryQueue} of the eviction policy, if it is in one. Only accessed under the
+       * segment lock.
+       */
+      HashEntry<K, V> previous;
+      HashEntry<K, V> following;
+      boolean queued;
 
       HashEntry(K key, int hash, HashEntry<K, V> next, V value) {
          this.key = key;
@@ -288,6 +314,170 @@ public class BoundedConcurrentHashMap<K, V> extends AbstractMap<K, V>
       }
    }
 
+   /**
+    * Doubly linked list of entries, linked through the entries themselves so that an entry can be removed, moved or
+    * replaced by its clone without searching the list. An entry can only be in one such list at a time. Not thread
+    * safe, only accessed under the segment lock.
+    */
+   static final class EntryQueue<K, V> {
+      private HashEntry<K, V> head;
+      private HashEntry<K, V> tail;
+      private int size;
+
+      int size() {
+         return size;
+      }
+
+      boolean isEmpty() {
+         return size == 0;
+      }
+
+      /**
+       * Returns true if this very entry is in the queue, rather than an entry equal to it.
+       */
+      boolean contains(HashEntry<K, V> e) {
+         return e.queued;
+      }
+
+      HashEntry<K, V> getFirst() {
+         if (head == null) {
+            throw new NoSuchElementException();
+         }
+         return head;
+      }
+
+      HashEntry<K, V> getLast() {
+         if (tail == null) {
+            throw new NoSuchElementException();
+         }
+         return tail;
+      }
+
+      void addFirst(HashEntry<K, V> e) {
+         e.previous = null;
+         e.following = head;
+         if (head == null) {
+            tail = e;
+         } else {
+            head.previous = e;
+         }
+         head = e;
+         e.queued = true;
+         size++;
+      }
+
+      void addLast(HashEntry<K, V> e) {
+         e.previous = tail;
+         e.following = null;
+         if (tail == null) {
+            head = e;
+         } else {
+            tail.following = e;
+         }
+         tail = e;
+         e.queued = true;
+         size++;
+      }
+
+      HashEntry<K, V> removeFirst() {
+         HashEntry<K, V> first = getFirst();
+         remove(first);
+         return first;
+      }
+
+      /**
+       * @return false if the entry wasn't in the queue
+       */
+      boolean remove(HashEntry<K, V> e) {
+         if (!e.queued) {
+            return false;
+         }
+         if (e.previous == null) {
+            head = e.following;
+         } else {
+            e.previous.following = e.following;
+         }
+         if (e.following == null) {
+            tail = e.previous;
+         } else {
+            e.following.previous = e.previous;
+         }
+         unlink(e);
+         size--;
+         return true;
+      }
+
+      /**
+       * Puts the clone in the place of the original entry, if the original is in the queue.
+       */
+      void replace(HashEntry<K, V> original, HashEntry<K, V> clone) {
+         if (!original.queued) {
+            return;
+         }
+         clone.previous = original.previous;
+         clone.following = original.following;
+         if (clone.previous == null) {
+            head = clone;
+         } else {
+            clone.previous.following = clone;
+         }
+         if (clone.following == null) {
+            tail = clone;
+         } else {
+            clone.following.previous = clone;
+         }
+         clone.queued = true;
+         unlink(original);
+      }
+
+      void clear() {
+         HashEntry<K, V> e = head;
+         while (e != null) {
+            HashEntry<K, V> following = e.following;
+            unlink(e);
+            e = following;
+         }
+         head = tail = null;
+         size = 0;
+      }
+
+      /**
+       * Iterates from the last entry to the first one. The queue must not be modified while iterating.
+       */
+      Iterator<HashEntry<K, V>> descendingIterator() {
+         return new Iterator<HashEntry<K, V>>() {
+            private HashEntry<K, V> nextEntry = tail;
+
+            @Override
+            public boolean hasNext() {
+               return nextEntry != null;
+            }
+
+            @Override
+            public HashEntry<K, V> next() {
+               if (nextEntry == null) {
+                  throw new NoSuchElementException();
+               }
+               HashEntry<K, V> e = nextEntry;
+               nextEntry = e.previous;
+               return e;
+            }
+
+            @Override
+            public void remove() {
+               throw new UnsupportedOperationException();
+            }
+         };
+      }
+
+      private void unlink(HashEntry<K, V> e) {
+         // lets removed entries be GC-ed even if their neighbours stay in the queue
+         e.previous = null;
+         e.following = null;
+         e.queued = false;
+      }
+   }
+
    private enum Recency {
       HIR_RESIDENT, LIR_RESIDENT, HIR_NONRESIDENT
    }
@@ -310,6 +500,24 @@ public class BoundedConcurrentHashMap<K, V> extends AbstractMap<K, V>
          public <K, V> EvictionPolicy<K, V> make(Segment<K, V> s, int capacity, float lf) {
             return new LIRS<K,V>(s,capacity,capacity*10,lf);
          }
+      },
+      TINY_LFU {
+         @Override
+         public <K, V> EvictionPolicy<K, V> make(Segment<K, V> s, int capacity, float lf) {
+            return new TinyLFU<K, V>(s, capacity, lf);
+         }
+      },
+      FIFO {
+         @Override
+         public <K, V> EvictionPolicy<K, V> make(Segment<K, V> s, int capacity, float lf) {
+            return new FIFO<K, V>(s, capacity, lf);
+         }
+      },
+      UNORDERED {
+         @Override
+         public <K, V> EvictionPolicy<K, V> make(Segment<K, V> s, int capacity, float lf) {
+            return new Unordered<K, V>(s, capacity, lf);
+         }
       };
 
       abstract <K, V> EvictionPolicy<K, V> make(Segment<K, V> s, int capacity, float lf);
@@ -373,6 +581,18 @@ public class BoundedConcurrentHashMap<K, V> extends AbstractMap<K, V>
        */
       void onEntryRemove(HashEntry<K, V> e);
 
+      /**
+       * Invoked to notify EvictionPolicy implementation that an entry has been replaced by a clone, as happens to
+       * the entries preceding a removed entry in its bin. The clone takes the place of the original in the eviction
+       * order.
+       *
+       * @param original
+       *            entry no longer in Segment
+       * @param clone
+       *            entry replacing it in Segment
+       */
+      void onEntryCloned(HashEntry<K, V> original, HashEntry<K, V> clone);
+
       /**
        * Invoked to notify EvictionPolicy implementation that all Segment entries have been
        * cleared.
@@ -395,6 +615,25 @@ public class BoundedConcurrentHashMap<K, V> extends AbstractMap<K, V>
        * @return true if batching threshold has expired, false otherwise.
        */
       boolean thresholdExpired();
+
+      /**
+       * Returns the entry this policy would evict next, without evicting it. Used to pick the segment to evict from
+       * when evicting across segments.
+       * <p>
+       * Note that this method is invoked while holding a lock on Segment.
+       *
+       * @return the next entry to evict, or null if there is none
+       */
+      HashEntry<K, V> nextVictim();
+
+      /**
+       * Evicts the next entry, regardless of whether the Segment is full. Used when evicting across segments.
+       * <p>
+       * Note that this method is invoked while holding a lock on Segment.
+       *
+       * @return non null set of evicted entries.
+       */
+      Set<HashEntry<K, V>> evictNext();
    }
 
    static class NullEvictionPolicy<K, V> implements EvictionPolicy<K, V> {
@@ -424,6 +663,11 @@ public class BoundedConcurrentHashMap<K, V> extends AbstractMap<K, V>
          // Do nothing.
       }
 
+      @Override
+      public void onEntryCloned(HashEntry<K, V> original, HashEntry<K, V> clone) {
+         // Do nothing.
+      }
+
       @Override
       public boolean thresholdExpired() {
          return false;
@@ -433,23 +677,33 @@ public class BoundedConcurrentHashMap<K, V> extends AbstractMap<K, V>
       public Eviction strategy() {
          return Eviction.NONE;
       }
+
+      @Override
+      public HashEntry<K, V> nextVictim() {
+         return null;
+      }
+
+      @Override
+      public Set<HashEntry<K, V>> evictNext() {
+         return Collections.emptySet();
+      }
    }
 
    static final class LRU<K, V> implements EvictionPolicy<K, V> {
       private final ConcurrentLinkedQueue<HashEntry<K, V>> accessQueue;
       private final Segment<K,V> segment;
-      private final LinkedList<HashEntry<K, V>> lruQueue;
+      private final EntryQueue<K, V> lruQueue;
       private final int maxBatchQueueSize;
       private final int trimDownSize;
       private final float batchThresholdFactor;
 
       public LRU(Segment<K,V> s, int capacity, float lf, int maxBatchSize, float batchThresholdFactor) {
          this.segment = s;
-         this.trimDownSize = (int) (capacity * lf);
+         this.trimDownSize = s.isBoundedAcrossSegments() ? Integer.MAX_VALUE : (int) (capacity * lf);
          this.maxBatchQueueSize = maxBatchSize > MAX_BATCH_SIZE ? MAX_BATCH_SIZE : maxBatchSize;
          this.batchThresholdFactor = batchThresholdFactor;
          this.accessQueue = new ConcurrentLinkedQueue<HashEntry<K, V>>();
-         this.lruQueue = new LinkedList<HashEntry<K, V>>();
+         this.lruQueue = new EntryQueue<K, V>();
       }
 
       @Override
@@ -475,8 +729,25 @@ public class BoundedConcurrentHashMap<K, V> extends AbstractMap<K, V>
          return evicted;
       }
 
+      @Override
+      public HashEntry<K, V> nextVictim() {
+         // apply the pending accesses so that the least recently used entry is accurate
+         execute();
+         return lruQueue.isEmpty() ? null : lruQueue.getLast();
+      }
+
+      @Override
+      public Set<HashEntry<K, V>> evictNext() {
+         HashEntry<K, V> victim = nextVictim();
+         if (victim == null) {
+            return Collections.emptySet();
+         }
+         segment.remove(victim.key, victim.hash, null);
+         return singleton(victim);
+      }
+
       private boolean isOverflow() {
-         return lruQueue.size() > trimDownSize;
+         return lruQueue.size() > trimDownSize || segment.isOverweight();
       }
 
       @Override
@@ -490,6 +761,7 @@ public class BoundedConcurrentHashMap<K, V> extends AbstractMap<K, V>
        */
       @Override
       public boolean onEntryHit(HashEntry<K, V> e) {
+         segment.touch(e);
          accessQueue.add(e);
          return accessQueue.size() >= maxBatchQueueSize * batchThresholdFactor;
       }
@@ -512,23 +784,360 @@ public class BoundedConcurrentHashMap<K, V> extends AbstractMap<K, V>
       }
 
       @Override
-      public void clear() {
-         lruQueue.clear();
-         accessQueue.clear();
+      public void onEntryCloned(HashEntry<K, V> original, HashEntry<K, V> clone) {
+         // pending accesses to the original are ignored once it is out of the queue
+         lruQueue.replace(original, clone);
+      }
+
+      @Override
+      public void clear() {
+         lruQueue.clear();
+         accessQueue.clear();
+      }
+
+      @Override
+      public Eviction strategy() {
+         return Eviction.LRU;
+      }
+   }
+
+   /**
+    * Orders entries like {@link LRU}, but only admits a new entry into a full segment if it has been accessed more
+    * often than the entries it would displace, as estimated by a {@link FrequencySketch} of the recent accesses to
+    * the segment (TinyLFU). Otherwise the new entry itself is evicted straight away, so that a scan over many keys
+    * accessed only once, such as a preload, can't flush the entries which are accessed over and over.
+    * <p/>
+    * Hits are only recorded in the sketch once the batched accesses are applied under the segment lock.
+    */
+   static final class TinyLFU<K, V> implements EvictionPolicy<K, V> {
+      private final Segment<K,V> segment;
+      private final LRU<K, V> lru;
+      private final FrequencySketch sketch;
+
+      public TinyLFU(Segment<K,V> s, int capacity, float lf) {
+         this.segment = s;
+         // admission evicts one entry at a time, so the segment can stay full instead of being trimmed down
+         this.lru = new LRU<K, V>(s, capacity, 1.0f, capacity * 10, lf);
+         this.sketch = new FrequencySketch(capacity);
+      }
+
+      @Override
+      public Set<HashEntry<K, V>> execute() {
+         for (HashEntry<K, V> e : lru.accessQueue) {
+            sketch.increment(e.hash);
+         }
+         return lru.execute();
+      }
+
+      @Override
+      public Set<HashEntry<K, V>> onEntryMiss(HashEntry<K, V> e) {
+         sketch.increment(e.hash);
+         lru.onEntryMiss(e);
+         int excessEntries = lru.lruQueue.size() - lru.trimDownSize;
+         long excessWeight = segment.excessWeight();
+         if (excessEntries <= 0 && excessWeight <= 0) {
+            return Collections.emptySet();
+         }
+
+         // admit the candidate only if it is more popular than each of the least recently used entries it displaces
+         int frequency = sketch.frequency(e.hash);
+         List<HashEntry<K, V>> victims = new ArrayList<HashEntry<K, V>>();
+         Iterator<HashEntry<K, V>> it = lru.lruQueue.descendingIterator();
+         boolean admitted = true;
+         while ((excessEntries > 0 || excessWeight > 0) && it.hasNext()) {
+            HashEntry<K, V> victim = it.next();
+            if (victim == e) {
+               // like any segment, keep the last entry even if other segments make the map too heavy
+               admitted = excessEntries <= 0 && e.weight <= segment.maxWeight;
+               break;
+            }
+            if (sketch.frequency(victim.hash) >= frequency) {
+               admitted = false;
+               break;
+            }
+            victims.add(victim);
+            excessEntries--;
+            excessWeight -= victim.weight;
+         }
+         if (!admitted) {
+            victims.clear();
+            victims.add(e);
+         }
+
+         Set<HashEntry<K, V>> evicted = new HashSet<HashEntry<K, V>>();
+         for (HashEntry<K, V> victim : victims) {
+            segment.remove(victim.key, victim.hash, null);
+            evicted.add(victim);
+         }
+         return evicted;
+      }
+
+      /*
+       * Invoked without holding a lock on Segment
+       */
+      @Override
+      public boolean onEntryHit(HashEntry<K, V> e) {
+         return lru.onEntryHit(e);
+      }
+
+      /*
+       * Invoked without holding a lock on Segment
+       */
+      @Override
+      public boolean thresholdExpired() {
+         return lru.thresholdExpired();
+      }
+
+      @Override
+      public void onEntryRemove(HashEntry<K, V> e) {
+         lru.onEntryRemove(e);
+      }
+
+      @Override
+      public void onEntryCloned(HashEntry<K, V> original, HashEntry<K, V> clone) {
+         lru.onEntryCloned(original, clone);
+      }
+
+      @Override
+      public void clear() {
+         // the sketch only holds access frequencies, which stay relevant for the entries put back after a clear
+         lru.clear();
+      }
+
+      @Override
+      public Eviction strategy() {
+         return Eviction.TINY_LFU;
+      }
+
+      @Override
+      public HashEntry<K, V> nextVictim() {
+         return lru.nextVictim();
+      }
+
+      @Override
+      public Set<HashEntry<K, V>> evictNext() {
+         return lru.evictNext();
+      }
+   }
+
+   /**
+    * Evicts entries in insertion order. Since hits do not affect the eviction order, reads never queue up any work
+    * for the eviction policy and therefore never need to acquire the segment lock.
+    */
+   static final class FIFO<K, V> implements EvictionPolicy<K, V> {
+      private final Segment<K,V> segment;
+      /**
+       * Maps entries to themselves, so that clones can take the place of the entries they replace
+       */
+      private final LinkedHashMap<HashEntry<K, V>, HashEntry<K, V>> insertionQueue;
+      private final int trimDownSize;
+
+      public FIFO(Segment<K,V> s, int capacity, float lf) {
+         this.segment = s;
+         this.trimDownSize = s.isBoundedAcrossSegments() ? Integer.MAX_VALUE : (int) (capacity * lf);
+         this.insertionQueue = new LinkedHashMap<HashEntry<K, V>, HashEntry<K, V>>();
+      }
+
+      @Override
+      public Set<HashEntry<K, V>> execute() {
+         Set<HashEntry<K, V>> evicted = Collections.emptySet();
+         if (isOverflow()) {
+            evicted = new HashSet<HashEntry<K, V>>();
+         }
+         while (isOverflow()) {
+            HashEntry<K, V> first = nextVictim();
+            segment.remove(first.key, first.hash, null);
+            evicted.add(first);
+         }
+         return evicted;
+      }
+
+      private boolean isOverflow() {
+         return insertionQueue.size() > trimDownSize || segment.isOverweight();
+      }
+
+      @Override
+      public Set<HashEntry<K, V>> onEntryMiss(HashEntry<K, V> e) {
+         insertionQueue.put(e, e);
+         return Collections.emptySet();
+      }
+
+      /*
+       * Invoked without holding a lock on Segment
+       */
+      @Override
+      public boolean onEntryHit(HashEntry<K, V> e) {
+         return false;
+      }
+
+      /*
+       * Invoked without holding a lock on Segment
+       */
+      @Override
+      public boolean thresholdExpired() {
+         return false;
+      }
+
+      @Override
+      public void onEntryRemove(HashEntry<K, V> e) {
+         insertionQueue.remove(e);
+      }
+
+      @Override
+      public void onEntryCloned(HashEntry<K, V> original, HashEntry<K, V> clone) {
+         // entries are equal to their clones, so this keeps the position of the original
+         if (insertionQueue.containsKey(original)) {
+            insertionQueue.put(original, clone);
+         }
+      }
+
+      @Override
+      public void clear() {
+         insertionQueue.clear();
+      }
+
+      @Override
+      public Eviction strategy() {
+         return Eviction.FIFO;
+      }
+
+      @Override
+      public HashEntry<K, V> nextVictim() {
+         return insertionQueue.isEmpty() ? null : insertionQueue.values().iterator().next();
+      }
+
+      @Override
+      public Set<HashEntry<K, V>> evictNext() {
+         HashEntry<K, V> victim = nextVictim();
+         if (victim == null) {
+            return Collections.emptySet();
+         }
+         segment.remove(victim.key, victim.hash, null);
+         return singleton(victim);
+      }
+   }
+
+   /**
+    * Evicts arbitrary entries, picked by sweeping the segment's table. No ordering information is kept at all, so
+    * neither reads nor writes incur any bookkeeping cost.
+    */
+   static final class Unordered<K, V> implements EvictionPolicy<K, V> {
+      private final Segment<K,V> segment;
+      private final int trimDownSize;
+      private int size;
+      private int sweepIndex;
+
+      public Unordered(Segment<K,V> s, int capacity, float lf) {
+         this.segment = s;
+         this.trimDownSize = s.isBoundedAcrossSegments() ? Integer.MAX_VALUE : (int) (capacity * lf);
+      }
+
+      @Override
+      public Set<HashEntry<K, V>> execute() {
+         Set<HashEntry<K, V>> evicted = Collections.emptySet();
+         if (isOverflow()) {
+            evicted = new HashSet<HashEntry<K, V>>();
+         }
+         while (isOverflow()) {
+            HashEntry<K, V> victim = sweep();
+            if (victim == null) {
+               break;
+            }
+            segment.remove(victim.key, victim.hash, null);
+            evicted.add(victim);
+         }
+         return evicted;
+      }
+
+      /**
+       * Moves on to the next non empty bin of the table, and returns its first entry.
+       */
+      private HashEntry<K, V> sweep() {
+         HashEntry<K, V>[] tab = segment.table;
+         HashEntry<K, V> victim = null;
+         for (int i = 0; i < tab.length && victim == null; i++) {
+            sweepIndex = (sweepIndex + 1) & (tab.length - 1);
+            victim = tab[sweepIndex];
+         }
+         return victim;
+      }
+
+      private boolean isOverflow() {
+         return size > trimDownSize || segment.isOverweight();
+      }
+
+      @Override
+      public Set<HashEntry<K, V>> onEntryMiss(HashEntry<K, V> e) {
+         size++;
+         return Collections.emptySet();
+      }
+
+      /*
+       * Invoked without holding a lock on Segment
+       */
+      @Override
+      public boolean onEntryHit(HashEntry<K, V> e) {
+         return false;
+      }
+
+      /*
+       * Invoked without holding a lock on Segment
+       */
+      @Override
+      public boolean thresholdExpired() {
+         return false;
+      }
+
+      @Override
+      public void onEntryRemove(HashEntry<K, V> e) {
+         size--;
+      }
+
+      @Override
+      public void onEntryCloned(HashEntry<K, V> original, HashEntry<K, V> clone) {
+         // Do nothing.
+      }
+
+      @Override
+      public void clear() {
+         size = 0;
+      }
+
+      @Override
+      public Eviction strategy() {
+         return Eviction.UNORDERED;
+      }
+
+      @Override
+      public HashEntry<K, V> nextVictim() {
+         HashEntry<K, V>[] tab = segment.table;
+         for (int i = 1; i <= tab.length; i++) {
+            HashEntry<K, V> e = tab[(sweepIndex + i) & (tab.length - 1)];
+            if (e != null) {
+               return e;
+            }
+         }
+         return null;
       }
 
       @Override
-      public Eviction strategy() {
-         return Eviction.LRU;
+      public Set<HashEntry<K, V>> evictNext() {
+         HashEntry<K, V> victim = sweep();
+         if (victim == null) {
+            return Collections.emptySet();
+         }
+         segment.remove(victim.key, victim.hash, null);
+         return singleton(victim);
       }
    }
 
    static final class LIRS<K, V> implements EvictionPolicy<K, V> {
       private final static int MIN_HIR_SIZE = 2;
+      final static double LIR_SIZE_RATIO = 0.9;
       private final Segment<K,V> segment;
       private final ConcurrentLinkedQueue<HashEntry<K, V>> accessQueue;
       private final LinkedHashMap<K, HashEntry<K, V>> stack;
-      private final LinkedList<HashEntry<K, V>> queue;
+      private final EntryQueue<K, V> queue;
       private final int maxBatchQueueSize;
       private final int lirSizeLimit;
       private final int hirSizeLimit;
@@ -537,20 +1146,21 @@ public class BoundedConcurrentHashMap<K, V> extends AbstractMap<K, V>
 
       public LIRS(Segment<K,V> s, int capacity, int maxBatchSize, float batchThresholdFactor) {
          this.segment = s;
-         int tmpLirSize = (int) (capacity * 0.9);
+         int tmpLirSize = (int) (capacity * LIR_SIZE_RATIO);
          int tmpHirSizeLimit = capacity - tmpLirSize;
          if (tmpHirSizeLimit < MIN_HIR_SIZE) {
-            hirSizeLimit = MIN_HIR_SIZE;
-            lirSizeLimit = capacity - hirSizeLimit;
-         } else {
-            hirSizeLimit = tmpHirSizeLimit;
-            lirSizeLimit = tmpLirSize;
+            tmpHirSizeLimit = MIN_HIR_SIZE;
+            tmpLirSize = capacity - tmpHirSizeLimit;
          }
+         lirSizeLimit = tmpLirSize;
+         // when evicting across segments, LIR entries are demoted and HIR resident entries evicted only once the
+         // whole map has too many of them
+         hirSizeLimit = s.isBoundedAcrossSegments() ? Integer.MAX_VALUE : tmpHirSizeLimit;
          this.maxBatchQueueSize = maxBatchSize > MAX_BATCH_SIZE ? MAX_BATCH_SIZE : maxBatchSize;
          this.batchThresholdFactor = batchThresholdFactor;
          this.accessQueue = new ConcurrentLinkedQueue<HashEntry<K, V>>();
          this.stack = new LinkedHashMap<K, HashEntry<K, V>>();
-         this.queue = new LinkedList<HashEntry<K, V>>();
+         this.queue = new EntryQueue<K, V>();
       }
 
       @Override
@@ -566,6 +1176,7 @@ public class BoundedConcurrentHashMap<K, V> extends AbstractMap<K, V>
                   }
                }
             }
+            evictOverweight(evicted);
             removeFromSegment(evicted);
          } finally {
             accessQueue.clear();
@@ -585,10 +1196,15 @@ public class BoundedConcurrentHashMap<K, V> extends AbstractMap<K, V>
          if (inStack) {
             queue.remove(e);
             e.transitionToLIRResident();
-            switchBottomostLIRtoHIRAndPrune(evicted);
+            if (segment.isBoundedAcrossSegments()) {
+               // the bottommost LIR entry of the whole map is demoted afterwards
+               changeLIRSize(1);
+            } else {
+               switchBottomostLIRtoHIRAndPrune(evicted);
+            }
          } else {
             queue.remove(e);
-            queue.addLast(e);
+            enqueue(e);
          }
       }
 
@@ -601,26 +1217,34 @@ public class BoundedConcurrentHashMap<K, V> extends AbstractMap<K, V>
                break;
             } else {
                i.remove();
-               evicted.add(next);
+               prune(next, evicted);
             }
          }
       }
 
+      /**
+       * Returns true if this very entry is in the stack or the queue, so that the pending accesses to an entry which
+       * has since been cloned are ignored.
+       */
       private boolean present(HashEntry<K, V> e) {
-         return stack.containsKey(e.key) || queue.contains(e);
+         return stack.get(e.key) == e || queue.contains(e);
       }
 
       @Override
       public Set<HashEntry<K, V>> onEntryMiss(HashEntry<K, V> e) {
          // initialization
          Set<HashEntry<K, V>> evicted = Collections.emptySet();
-         if (currentLIRSize + 1 < lirSizeLimit) {
-            currentLIRSize++;
+         if (hasLIRRoom()) {
+            changeLIRSize(1);
             e.transitionToLIRResident();
             stack.put(e.key, e);
          } else {
             if (queue.size() < hirSizeLimit) {
-               queue.addLast(e);
+               enqueue(e);
+               if (segment.isBoundedAcrossSegments()) {
+                  // the queue never fills up, so also track the recency of new entries
+                  stack.put(e.key, e);
+               }
             } else {
                boolean inStack = stack.containsKey(e.key);
                HashEntry<K, V> first = queue.removeFirst();
@@ -633,7 +1257,7 @@ public class BoundedConcurrentHashMap<K, V> extends AbstractMap<K, V>
                   e.transitionToLIRResident();
                   switchBottomostLIRtoHIRAndPrune(evicted);
                } else {
-                  queue.addLast(e);
+                  enqueue(e);
                   evicted.add(first);
                }
                // evict from segment
@@ -643,6 +1267,37 @@ public class BoundedConcurrentHashMap<K, V> extends AbstractMap<K, V>
          return evicted;
       }
 
+      /**
+       * Evicts HIR resident entries, turning the bottommost LIR entries into HIR ones when there are none left, for as
+       * long as the segment is over its maximum weight.
+       */
+      private void evictOverweight(Set<HashEntry<K, V>> evicted) {
+         while (segment.isOverweight() && evictFirstHIR(evicted)) {
+            continue;
+         }
+      }
+
+      /**
+       * Evicts the first HIR resident entry, turning the bottommost LIR entry into a HIR one if there is none.
+       *
+       * @return false if the segment is empty
+       */
+      private boolean evictFirstHIR(Set<HashEntry<K, V>> evicted) {
+         if (queue.isEmpty()) {
+            switchBottomostLIRtoHIRAndPrune(evicted);
+            if (queue.isEmpty()) {
+               return false;
+            }
+            changeLIRSize(-1);
+         }
+         HashEntry<K, V> first = queue.removeFirst();
+         first.transitionHIRResidentToHIRNonResident();
+         evicted.add(first);
+         // lowers the weight of the segment
+         segment.remove(first.key, first.hash, null);
+         return true;
+      }
+
       private void removeFromSegment(Set<HashEntry<K, V>> evicted) {
          for (HashEntry<K, V> e : evicted) {
             segment.remove(e.key, e.hash, null);
@@ -658,22 +1313,33 @@ public class BoundedConcurrentHashMap<K, V> extends AbstractMap<K, V>
                   seenFirstLIR = true;
                   i.remove();
                   next.transitionLIRResidentToHIRResident();
-                  queue.addLast(next);
+                  enqueue(next);
                } else {
                   break;
                }
             } else {
                i.remove();
-               evicted.add(next);
+               prune(next, evicted);
             }
          }
       }
 
+      /**
+       * Handles a HIR entry pruned from the bottom of the stack. When evicting across segments, HIR resident entries
+       * stay in the queue until the whole map is full.
+       */
+      private void prune(HashEntry<K, V> e, Set<HashEntry<K, V>> evicted) {
+         if (!segment.isBoundedAcrossSegments() || e.recency() != Recency.HIR_RESIDENT) {
+            evicted.add(e);
+         }
+      }
+
       /*
        * Invoked without holding a lock on Segment
        */
       @Override
       public boolean onEntryHit(HashEntry<K, V> e) {
+         segment.touch(e);
          accessQueue.add(e);
          return accessQueue.size() >= maxBatchQueueSize * batchThresholdFactor;
       }
@@ -690,7 +1356,7 @@ public class BoundedConcurrentHashMap<K, V> extends AbstractMap<K, V>
       public void onEntryRemove(HashEntry<K, V> e) {
          HashEntry<K, V> removed = stack.remove(e.key);
          if (removed != null && removed.recency() == Recency.LIR_RESIDENT) {
-            currentLIRSize--;
+            changeLIRSize(-1);
          }
          queue.remove(e);
          // we could have multiple instances of e in accessQueue; remove them all
@@ -699,16 +1365,101 @@ public class BoundedConcurrentHashMap<K, V> extends AbstractMap<K, V>
          }
       }
 
+      @Override
+      public void onEntryCloned(HashEntry<K, V> original, HashEntry<K, V> clone) {
+         clone.state = original.state;
+         // re-mapping a key keeps its position in the stack
+         if (stack.containsKey(clone.key)) {
+            stack.put(clone.key, clone);
+         }
+         queue.replace(original, clone);
+      }
+
       @Override
       public void clear() {
          stack.clear();
+         queue.clear();
          accessQueue.clear();
+         changeLIRSize(-currentLIRSize);
+      }
+
+      /**
+       * Appends a HIR resident entry to the queue. When evicting across segments, this also stamps the entry so that
+       * the first entries of the queues of different segments can be compared.
+       */
+      private void enqueue(HashEntry<K, V> e) {
+         queue.addLast(e);
+         segment.touch(e);
+      }
+
+      private boolean hasLIRRoom() {
+         if (segment.isBoundedAcrossSegments()) {
+            return segment.crossSegmentEviction.lirSize.get() + 1 < segment.crossSegmentEviction.maxLIRSize;
+         }
+         return currentLIRSize + 1 < lirSizeLimit;
+      }
+
+      private void changeLIRSize(int delta) {
+         currentLIRSize += delta;
+         if (segment.isBoundedAcrossSegments()) {
+            segment.crossSegmentEviction.lirSize.addAndGet(delta);
+         }
+      }
+
+      /**
+       * Returns the LIR entry {@link #demoteBottommostLIR(Set)} would demote. Call only while holding lock.
+       */
+      HashEntry<K, V> nextDemotion() {
+         // apply the pending accesses, which may move the bottommost LIR entry up the stack
+         execute();
+         return bottommostLIR();
+      }
+
+      private HashEntry<K, V> bottommostLIR() {
+         for (HashEntry<K, V> e : stack.values()) {
+            if (e.recency() == Recency.LIR_RESIDENT) {
+               return e;
+            }
+         }
+         return null;
+      }
+
+      /**
+       * Turns the bottommost LIR entry into a HIR one, when the whole map has too many LIR entries or only LIR entries
+       * are left to evict. Call only while holding lock.
+       *
+       * @return false if there is no LIR entry
+       */
+      boolean demoteBottommostLIR(Set<HashEntry<K, V>> evicted) {
+         if (bottommostLIR() == null) {
+            return false;
+         }
+         switchBottomostLIRtoHIRAndPrune(evicted);
+         changeLIRSize(-1);
+         removeFromSegment(evicted);
+         return true;
       }
 
       @Override
       public Eviction strategy() {
          return Eviction.LIRS;
       }
+
+      @Override
+      public HashEntry<K, V> nextVictim() {
+         // apply the pending accesses, which may promote the first HIR entry
+         execute();
+         // LIR entries need to be demoted before being evicted
+         return queue.isEmpty() ? null : queue.getFirst();
+      }
+
+      @Override
+      public Set<HashEntry<K, V>> evictNext() {
+         Set<HashEntry<K, V>> evicted = new HashSet<HashEntry<K, V>>();
+         evictFirstHIR(evicted);
+         removeFromSegment(evicted);
+         return evicted;
+      }
    }
 
    /**
@@ -795,8 +1546,40 @@ public class BoundedConcurrentHashMap<K, V> extends AbstractMap<K, V>
 
       transient final EvictionListener<K, V> evictionListener;
 
-      Segment(int cap, float lf, Eviction es, EvictionListener<K, V> listener) {
+      /**
+       * Estimates the weight of entries, or null if this segment is only bounded by its number of entries.
+       */
+      transient final EntrySizeCalculator<? super K, ? super V> sizeCalculator;
+
+      /**
+       * The maximum total weight of the entries of the whole map.
+       */
+      transient final long maxWeight;
+
+      /**
+       * The total weight of the entries in this segment. Only updated under lock.
+       */
+      transient volatile long weight;
+
+      /**
+       * The total weight of the entries of all segments, shared by all of them, or null if this segment is only
+       * bounded by its number of entries.
+       */
+      transient final AtomicLong totalWeight;
+
+      /**
+       * Bounds the whole map rather than this segment alone, or null if each segment is bounded on its own.
+       */
+      transient final CrossSegmentEviction<K, V> crossSegmentEviction;
+
+      Segment(int cap, float lf, Eviction es, EvictionListener<K, V> listener,
+            EntrySizeCalculator<? super K, ? super V> sizeCalculator, long maxWeight, AtomicLong totalWeight,
+            CrossSegmentEviction<K, V> crossSegmentEviction) {
          loadFactor = lf;
+         this.sizeCalculator = sizeCalculator;
+         this.maxWeight = maxWeight;
+         this.totalWeight = totalWeight;
+         this.crossSegmentEviction = crossSegmentEviction;
          eviction = es.make(this, cap, lf);
          evictionListener = listener;
          setTable(HashEntry.<K, V> newArray(cap));
@@ -811,6 +1594,85 @@ public class BoundedConcurrentHashMap<K, V> extends AbstractMap<K, V>
          return evictionListener;
       }
 
+      /**
+       * Tells whether this segment should evict entries because the whole map weighs more than its maximum weight.
+       * Segments aren't bounded by a share of the maximum weight, so that they can hold entries larger than such a
+       * share. A segment therefore keeps its last entry even if the map is still too heavy, unless that entry alone
+       * weighs more than the maximum weight, and the map as a whole may go over its maximum weight by up to one entry
+       * per segment.
+       */
+      boolean isOverweight() {
+         return sizeCalculator != null && totalWeight.get() > maxWeight && (count > 1 || weight > maxWeight);
+      }
+
+      /**
+       * @return by how much the whole map weighs more than its maximum weight, or 0 or less if it doesn't
+       */
+      long excessWeight() {
+         return sizeCalculator == null ? 0 : totalWeight.get() - maxWeight;
+      }
+
+      boolean isBoundedAcrossSegments() {
+         return crossSegmentEviction != null;
+      }
+
+      /**
+       * Records an access to an entry, so that entries of different segments can be compared when evicting across
+       * segments.
+       */
+      void touch(HashEntry<K, V> e) {
+         if (crossSegmentEviction != null) {
+            e.lastAccess = System.nanoTime();
+         }
+      }
+
+      /**
+       * Estimates the weight of an entry. Call without holding lock, as size calculators may be slow, e.g. when
+       * marshalling the value, and may fail.
+       */
+      long weigh(K key, V value) {
+         return sizeCalculator == null ? 0 : sizeCalculator.calculateSize(key, value);
+      }
+
+      /**
+       * Sets the weight of an entry, as estimated by {@link #weigh(Object, Object)}. Call only while holding lock.
+       */
+      void updateWeight(HashEntry<K, V> e, long w) {
+         if (sizeCalculator != null) {
+            weight += w - e.weight;
+            totalWeight.addAndGet(w - e.weight);
+            e.weight = w;
+         }
+      }
+
+      /**
+       * Brings the whole map back within its bounds when evicting across segments. Call only without holding lock,
+       * as it locks other segments.
+       */
+      void evictAcrossSegments() {
+         if (crossSegmentEviction != null) {
+            crossSegmentEviction.evict();
+         }
+      }
+
+      /**
+       * Evicts entries until this segment is no longer over its maximum weight. Call only while holding lock.
+       */
+      Set<HashEntry<K, V>> evictOverweight(Set<HashEntry<K, V>> evicted) {
+         if (!isOverweight()) {
+            return evicted;
+         }
+         Set<HashEntry<K, V>> newlyEvicted = eviction.execute();
+         if (evicted == null || evicted.isEmpty()) {
+            return newlyEvicted;
+         }
+         if (!newlyEvicted.isEmpty()) {
+            evicted = new HashSet<HashEntry<K, V>>(evicted);
+            evicted.addAll(newlyEvicted);
+         }
+         return evicted;
+      }
+
       /**
        * Sets table to new HashEntry array.
        * Call only while holding lock or in constructor.
@@ -869,6 +1731,8 @@ public class BoundedConcurrentHashMap<K, V> extends AbstractMap<K, V>
                if (eviction.onEntryHit(e)) {
                   Set<HashEntry<K, V>> evicted = attemptEviction(false);
                   notifyEvictionListener(evicted);
+                  // applying the hits may have promoted LIRS entries
+                  evictAcrossSegments();
                }
             }
             return result;
@@ -909,6 +1773,7 @@ public class BoundedConcurrentHashMap<K, V> extends AbstractMap<K, V>
       }
 
       boolean replace(K key, int hash, V oldValue, V newValue) {
+         long w = weigh(key, newValue);
          lock();
          Set<HashEntry<K, V>> evicted = null;
          try {
@@ -921,18 +1786,22 @@ public class BoundedConcurrentHashMap<K, V> extends AbstractMap<K, V>
             if (e != null && oldValue.equals(e.value)) {
                replaced = true;
                e.value = newValue;
+               updateWeight(e, w);
                if (eviction.onEntryHit(e)) {
                   evicted = attemptEviction(true);
                }
+               evicted = evictOverweight(evicted);
             }
             return replaced;
          } finally {
             unlock();
             notifyEvictionListener(evicted);
+            evictAcrossSegments();
          }
       }
 
       V replace(K key, int hash, V newValue) {
+         long w = weigh(key, newValue);
          lock();
          Set<HashEntry<K, V>> evicted = null;
          try {
@@ -945,18 +1814,22 @@ public class BoundedConcurrentHashMap<K, V> extends AbstractMap<K, V>
             if (e != null) {
                oldValue = e.value;
                e.value = newValue;
+               updateWeight(e, w);
                if (eviction.onEntryHit(e)) {
                   evicted = attemptEviction(true);
                }
+               evicted = evictOverweight(evicted);
             }
             return oldValue;
          } finally {
             unlock();
             notifyEvictionListener(evicted);
+            evictAcrossSegments();
          }
       }
 
       V put(K key, int hash, V value, boolean onlyIfAbsent) {
+         long w = weigh(key, value);
          lock();
          Set<HashEntry<K, V>> evicted = null;
          try {
@@ -977,7 +1850,9 @@ public class BoundedConcurrentHashMap<K, V> extends AbstractMap<K, V>
                oldValue = e.value;
                if (!onlyIfAbsent) {
                   e.value = value;
+                  updateWeight(e, w);
                   eviction.onEntryHit(e);
+                  evicted = evictOverweight(evicted);
                }
             } else {
                oldValue = null;
@@ -992,15 +1867,22 @@ public class BoundedConcurrentHashMap<K, V> extends AbstractMap<K, V>
                   }
                   // add a new entry
                   tab[index] = new HashEntry<K, V>(key, hash, first, value);
+                  touch(tab[index]);
+                  updateWeight(tab[index], w);
+                  if (crossSegmentEviction != null) {
+                     crossSegmentEviction.count.incrementAndGet();
+                  }
                   // notify a miss
                   Set<HashEntry<K, V>> newlyEvicted = eviction.onEntryMiss(tab[index]);
                   if (!newlyEvicted.isEmpty()) {
-                     if (evicted != null) {
+                     if (evicted != null && !evicted.isEmpty()) {
+                        evicted = new HashSet<HashEntry<K, V>>(evicted);
                         evicted.addAll(newlyEvicted);
                      } else {
                         evicted = newlyEvicted;
                      }
                   }
+                  evicted = evictOverweight(evicted);
                } else {
                   tab[index] = new HashEntry<K, V>(key, hash, first, value);
                }
@@ -1009,6 +1891,7 @@ public class BoundedConcurrentHashMap<K, V> extends AbstractMap<K, V>
          } finally {
             unlock();
             notifyEvictionListener(evicted);
+            evictAcrossSegments();
          }
       }
 
@@ -1069,6 +1952,8 @@ public class BoundedConcurrentHashMap<K, V> extends AbstractMap<K, V>
                      HashEntry<K,V> n = newTable[k];
                      newTable[k] = new HashEntry<K,V>(p.key, p.hash,
                            n, p.value);
+                     newTable[k].weight = p.weight;
+                     newTable[k].lastAccess = p.lastAccess;
                   }
                }
             }
@@ -1103,14 +1988,21 @@ public class BoundedConcurrentHashMap<K, V> extends AbstractMap<K, V>
 
                   // e was removed
                   eviction.onEntryRemove(e);
+                  if (sizeCalculator != null) {
+                     weight -= e.weight;
+                     totalWeight.addAndGet(-e.weight);
+                  }
+                  if (crossSegmentEviction != null) {
+                     crossSegmentEviction.count.decrementAndGet();
+                  }
 
                   HashEntry<K, V> newFirst = e.next;
                   for (HashEntry<K, V> p = first; p != e; p = p.next) {
-                     // allow p to be GC-ed
-                     eviction.onEntryRemove(p);
                      newFirst = new HashEntry<K, V>(p.key, p.hash, newFirst, p.value);
-                     // and notify eviction algorithm about new hash entries
-                     eviction.onEntryMiss(newFirst);
+                     newFirst.weight = p.weight;
+                     newFirst.lastAccess = p.lastAccess;
+                     // let the clone take the place of p in the eviction order, and allow p to be GC-ed
+                     eviction.onEntryCloned(p, newFirst);
                   }
 
                   tab[index] = newFirst;
@@ -1133,6 +2025,13 @@ public class BoundedConcurrentHashMap<K, V> extends AbstractMap<K, V>
                }
                ++modCount;
                eviction.clear();
+               if (crossSegmentEviction != null) {
+                  crossSegmentEviction.count.addAndGet(-count);
+               }
+               if (sizeCalculator != null) {
+                  totalWeight.addAndGet(-weight);
+               }
+               weight = 0;
                count = 0; // write-volatile
             } finally {
                unlock();
@@ -1179,6 +2078,152 @@ public class BoundedConcurrentHashMap<K, V> extends AbstractMap<K, V>
    }
 
 
+   /**
+    * Bounds the number and the weight of the entries of the whole map, rather than of each segment, so that segments
+    * holding more of the frequently used entries can grow beyond their share of the map. Whenever the map goes over
+    * either bound, a few segments are sampled, and the one whose next victim was accessed least recently evicts it.
+    * With the LIRS policy, the number of LIR entries is bounded the same way, demoting the least recently accessed
+    * of the bottommost LIR entries of a few sampled segments.
+    * <p>
+    * Segments are only locked one at a time, and are skipped when busy, so the bounds may be briefly exceeded while
+    * the map is under heavy contention.
+    */
+   static final class CrossSegmentEviction<K, V> {
+
+      /**
+       * Number of segments whose next victim is compared before each eviction
+       */
+      static final int SAMPLE_SIZE = 4;
+
+      private final Segment<K, V>[] segments;
+      private final int maxEntries;
+      private final long maxWeight;
+      private final boolean lirs;
+      final int maxLIRSize;
+
+      final AtomicInteger count = new AtomicInteger();
+      final AtomicLong weight;
+      final AtomicInteger lirSize = new AtomicInteger();
+
+      /**
+       * Seed for picking the first sampled segment. Updated without synchronization, as any value will do.
+       */
+      private int seed = (int) System.nanoTime() | 1;
+
+      CrossSegmentEviction(Segment<K, V>[] segments, Eviction strategy, int maxEntries, long maxWeight, AtomicLong weight) {
+         this.segments = segments;
+         this.lirs = strategy == Eviction.LIRS;
+         this.maxEntries = maxEntries;
+         this.maxWeight = maxWeight;
+         this.weight = weight;
+         this.maxLIRSize = (int) (maxEntries * LIRS.LIR_SIZE_RATIO);
+      }
+
+      boolean isOverflow() {
+         return count.get() > maxEntries || (maxWeight > 0 && weight.get() > maxWeight);
+      }
+
+      void evict() {
+         while (lirSize.get() > maxLIRSize && demote()) {
+            continue;
+         }
+         while (isOverflow()) {
+            Segment<K, V> victim = selectSegment(false);
+            if (victim == null) {
+               // with LIRS, the segments may only have LIR entries left
+               if (demote()) {
+                  continue;
+               }
+               // otherwise all segments are busy, leave it to the threads holding them
+               return;
+            }
+            Set<HashEntry<K, V>> evicted = null;
+            victim.lock();
+            try {
+               // another thread may have already made room
+               if (isOverflow()) {
+                  evicted = victim.eviction.evictNext();
+               }
+            } finally {
+               victim.unlock();
+            }
+            if (evicted == null || evicted.isEmpty()) {
+               return;
+            }
+            victim.notifyEvictionListener(evicted);
+         }
+      }
+
+      /**
+       * Demotes the least recently accessed of the bottommost LIR entries of the sampled segments, when using the
+       * LIRS policy.
+       *
+       * @return false if no entry was demoted
+       */
+      private boolean demote() {
+         if (!lirs) {
+            return false;
+         }
+         Segment<K, V> demoting = selectSegment(true);
+         if (demoting == null) {
+            return false;
+         }
+         Set<HashEntry<K, V>> evicted = new HashSet<HashEntry<K, V>>();
+         boolean demoted;
+         demoting.lock();
+         try {
+            demoted = ((LIRS<K, V>) demoting.eviction).demoteBottommostLIR(evicted);
+         } finally {
+            demoting.unlock();
+         }
+         if (!evicted.isEmpty()) {
+            demoting.notifyEvictionListener(evicted);
+         }
+         return demoted;
+      }
+
+      /**
+       * Returns the segment whose next victim, or bottommost LIR entry when demoting, was accessed least recently,
+       * amongst the first {@link #SAMPLE_SIZE} non empty segments which are not locked, starting from a random one.
+       */
+      private Segment<K, V> selectSegment(boolean demoting) {
+         int mask = segments.length - 1;
+         int start = nextSeed() & mask;
+         int sampled = 0;
+         Segment<K, V> selected = null;
+         long oldestAccess = Long.MAX_VALUE;
+         for (int i = 0; i < segments.length && sampled < SAMPLE_SIZE; i++) {
+            Segment<K, V> s = segments[(start + i) & mask];
+            if (s.count == 0 || !s.tryLock()) {
+               continue;
+            }
+            try {
+               HashEntry<K, V> next = demoting ? ((LIRS<K, V>) s.eviction).nextDemotion() : s.eviction.nextVictim();
+               if (next != null) {
+                  sampled++;
+                  if (selected == null || next.lastAccess < oldestAccess) {
+                     selected = s;
+                     oldestAccess = next.lastAccess;
+                  }
+               }
+            } finally {
+               s.unlock();
+            }
+         }
+         return selected;
+      }
+
+      private int nextSeed() {
+         // xorshift
+         int x = seed;
+         x ^= x << 13;
+         x ^= x >>> 17;
+         x ^= x << 5;
+         seed = x;
+         return x;
+      }
+   }
+
    /* ---------------- Public operations -------------- */
 
 
@@ -1205,10 +2250,112 @@ public class BoundedConcurrentHashMap<K, V> extends AbstractMap<K, V>
     */
    public BoundedConcurrentHashMap(int capacity, int concurrencyLevel,
          Eviction evictionStrategy, EvictionListener<K, V> evictionListener) {
+      this(capacity, concurrencyLevel, evictionStrategy, evictionListener, null, -1);
+   }
+
+   /**
+    * Creates a new, empty map with the specified maximum capacity, maximum weight, load factor and concurrency level.
+    * Entries are evicted as soon as either the number of entries or their total weight goes over its bound.
+    * <p>
+    * Unlike the number of entries, the weight is bounded for the map as a whole, so that a segment can hold entries
+    * weighing more than its share of the maximum weight. Whenever the map is too heavy, the segment being written to
+    * evicts its own entries, but keeps at least the last one. The map may therefore weigh more than the maximum weight
+    * by up to one entry per segment. An entry weighing more than the maximum weight on its own is evicted as soon as
+    * it is inserted.
+    *
+    * @param capacity
+    *            is the upper bound capacity for the number of elements in this map, also used to size its hash
+    *            tables
+    *
+    * @param concurrencyLevel
+    *            the estimated number of concurrently updating threads. The implementation performs
+    *            internal sizing to try to accommodate this many threads.
+    *
+    * @param evictionStrategy
+    *            the algorithm used to evict elements from this map
+    *
+    * @param evictionListener
+    *            the evicton listener callback to be notified about evicted elements
+    *
+    * @param sizeCalculator
+    *            estimates the weight of the entries, or null to only bound the number of entries
+    *
+    * @param maxWeight
+    *            is the upper bound of the total weight of the entries in this map. Ignored if no size calculator is
+    *            given.
+    *
+    * @throws IllegalArgumentException
+    *             if the initial capacity is negative or the load factor or concurrencyLevel are
+    *             nonpositive, or if a size calculator is given without a positive maximum weight or an eviction
+    *             strategy.
+    */
+   public BoundedConcurrentHashMap(int capacity, int concurrencyLevel,
+         Eviction evictionStrategy, EvictionListener<K, V> evictionListener,
+         EntrySizeCalculator<? super K, ? super V> sizeCalculator, long maxWeight) {
+      this(capacity, concurrencyLevel, evictionStrategy, evictionListener, sizeCalculator, maxWeight, false);
+   }
+
+   /**
+    * Creates a new, empty map with the specified maximum capacity, maximum weight, load factor and concurrency level,
+    * optionally bounding the map as a whole rather than each of its segments.
+    * <p>
+    * When bounded per segment, each segment holds at most its share of the entries, and evicts its own entries, also
+    * when the map as a whole is too heavy. Unevenly accessed segments therefore evict frequently used entries while
+    * others hold on to rarely used ones. When bounded across segments, segments may grow beyond their share, and
+    * whenever the map as a whole is full, the least recently accessed of the entries the eviction policies of a few
+    * sampled segments would evict next is evicted. This approximates a map wide eviction order at the cost of an atomic
+    * counter update per insertion and removal. The LIRS policy then bounds its set of frequently used entries for the
+    * map as a whole too, demoting entries of whichever segments hold them once that set grows too large.
+    *
+    * @param capacity
+    *            is the upper bound capacity for the number of elements in this map, also used to size its hash
+    *            tables
+    *
+    * @param concurrencyLevel
+    *            the estimated number of concurrently updating threads. The implementation performs
+    *            internal sizing to try to accommodate this many threads.
+    *
+    * @param evictionStrategy
+    *            the algorithm used to evict elements from this map
+    *
+    * @param evictionListener
+    *            the evicton listener callback to be notified about evicted elements
+    *
+    * @param sizeCalculator
+    *            estimates the weight of the entries, or null to only bound the number of entries
+    *
+    * @param maxWeight
+    *            is the upper bound of the total weight of the entries in this map. Ignored if no size calculator is
+    *            given.
+    *
+    * @param evictAcrossSegments
+    *            whether to bound the map as a whole rather than each of its segments
+    *
+    * @throws IllegalArgumentException
+    *             if the initial capacity is negative or the load factor or concurrencyLevel are
+    *             nonpositive, if a size calculator is given without a positive maximum weight or an eviction
+    *             strategy, or if evicting across segments without an eviction strategy or with
+    *             {@link Eviction#TINY_LFU}, whose admission is decided within each segment.
+    */
+   public BoundedConcurrentHashMap(int capacity, int concurrencyLevel,
+         Eviction evictionStrategy, EvictionListener<K, V> evictionListener,
+         EntrySizeCalculator<? super K, ? super V> sizeCalculator, long maxWeight, boolean evictAcrossSegments) {
       if (capacity < 0 || concurrencyLevel <= 0) {
          throw new IllegalArgumentException();
       }
 
+      if (sizeCalculator != null && (maxWeight <= 0 || evictionStrategy == Eviction.NONE)) {
+         throw new IllegalArgumentException("Bounding the weight requires a positive maximum weight and an eviction strategy");
+      }
+
+      if (evictAcrossSegments && evictionStrategy == Eviction.NONE) {
+         throw new IllegalArgumentException("Evicting across segments requires an eviction strategy");
+      }
+
+      if (evictAcrossSegments && evictionStrategy == Eviction.TINY_LFU) {
+         throw new IllegalArgumentException("TinyLFU admission is decided within each segment, it can't evict across segments");
+      }
+
       concurrencyLevel = Math.min(capacity / 2, concurrencyLevel); // concurrencyLevel cannot be > capacity/2
       concurrencyLevel = Math.max(concurrencyLevel, 1); // concurrencyLevel cannot be less than 1
 
@@ -1248,8 +2395,19 @@ public class BoundedConcurrentHashMap<K, V> extends AbstractMap<K, V>
          cap <<= 1;
       }
 
+      long segmentMaxWeight = sizeCalculator == null ? -1 : maxWeight;
+      AtomicLong totalWeight = sizeCalculator == null ? null : new AtomicLong();
+      if (evictAcrossSegments) {
+         crossSegmentEviction = new CrossSegmentEviction<K, V>(segments, evictionStrategy, capacity, segmentMaxWeight, totalWeight);
+         // segments don't evict because of the weight, the cross segment eviction does
+         segmentMaxWeight = Long.MAX_VALUE;
+      } else {
+         crossSegmentEviction = null;
+      }
+
       for (int i = 0; i < this.segments.length; ++i) {
-         this.segments[i] = new Segment<K, V>(cap, DEFAULT_LOAD_FACTOR, evictionStrategy, evictionListener);
+         this.segments[i] = new Segment<K, V>(cap, DEFAULT_LOAD_FACTOR, evictionStrategy, evictionListener,
+               sizeCalculator, segmentMaxWeight, totalWeight, crossSegmentEviction);
       }
    }
 
@@ -1412,6 +2570,32 @@ public class BoundedConcurrentHashMap<K, V> extends AbstractMap<K, V>
       }
    }
 
+   /**
+    * Returns the total weight of the entries in this map, as estimated by its size calculator.
+    *
+    * @return the total weight of the entries in this map, or -1 if this map is not bounded by weight
+    */
+   public long weight() {
+      if (segments[0].sizeCalculator == null) {
+         return -1;
+      }
+      return segments[0].totalWeight.get();
+   }
+
+   /**
+    * @return the upper bound of the total weight of the entries in this map, or -1 if this map is not bounded by
+    *         weight
+    */
+   public long maxWeight() {
+      if (segments[0].sizeCalculator == null) {
+         return -1;
+      }
+      if (crossSegmentEviction != null) {
+         return crossSegmentEviction.maxWeight;
+      }
+      return segments[0].maxWeight;
+   }
+
    /**
     * Returns the value to which the specified key is mapped,
     * or {@code null} if this map contains no mapping for the key.
@@ -0,0 +1,96 @@
+package org.infinispan.util.concurrent;
+
+import net.jcip.annotations.NotThreadSafe;
+
+/**
+ * Estimates how often hashes have been seen recently, in a fixed amount of memory: a count-min sketch of 4 rows of
+ * 4-bit counters, packed 16 to a <tt>long</tt>.
+ * <p/>
+ * Each hash increments one counter per row, and its frequency is estimated by the smallest of them, so collisions can
+ * only make a hash look more popular than it is. Counters saturate at 15. Once the sketch has recorded ten times as
+ * many increments as it was sized for, all counters are halved, so that entries which used to be popular don't stay
+ * so forever.
+ * <p/>
+ * Callers must guard it with a lock, as {@link BoundedConcurrentHashMap} does with the segment lock.
+ *
+ * @since 5.0
+ */
+@NotThreadSafe
+final class FrequencySketch {
+
+   private static final int[] SEEDS = {0x97cb3127, 0xb492b66f, 0x9ae16a3b, 0x2c1a7e73};
+   private static final long ONE_MASK = 0x1111111111111111L;
+   private static final long RESET_MASK = 0x7777777777777777L;
+   private static final int MAX_COUNT = 15;
+
+   private final long[] table;
+   private final int sampleSize;
+   private int size;
+
+   /**
+    * @param capacity the number of distinct hashes the sketch should tell apart
+    */
+   FrequencySketch(int capacity) {
+      int length = 1;
+      while (length < capacity) length <<= 1;
+      table = new long[Math.max(length, 8)];
+      sampleSize = 10 * Math.max(capacity, 1);
+   }
+
+   /**
+    * @return the estimated number of times the hash was recorded, between 0 and 15
+    */
+   int frequency(int hash) {
+      int frequency = MAX_COUNT;
+      for (int i = 0; i < SEEDS.length; i++) {
+         int h = spread(hash, i);
+         int count = (int) ((table[h & (table.length - 1)] >>> offset(h, i)) & 0xfL);
+         frequency = Math.min(frequency, count);
+      }
+      return frequency;
+   }
+
+   /**
+    * Records one occurrence of the hash.
+    */
+   void increment(int hash) {
+      boolean added = false;
+      for (int i = 0; i < SEEDS.length; i++) {
+         int h = spread(hash, i);
+         int index = h & (table.length - 1);
+         int offset = offset(h, i);
+         if (((table[index] >>> offset) & 0xfL) < MAX_COUNT) {
+            table[index] += 1L << offset;
+            added = true;
+         }
+      }
+      if (added && ++size == sampleSize) {
+         reset();
+      }
+   }
+
+   /**
+    * Halves all counters.
+    */
+   void reset() {
+      int odd = 0;
+      for (int i = 0; i < table.length; i++) {
+         odd += Long.bitCount(table[i] & ONE_MASK);
+         table[i] = (table[i] >>> 1) & RESET_MASK;
+      }
+      // each increment bumps one counter per row, so on average a quarter of the truncated halves were increments
+      size = (size - (odd >>> 2)) >>> 1;
+   }
+
+   private static int spread(int hash, int row) {
+      int h = hash * SEEDS[row];
+      return h ^ (h >>> 17);
+   }
+
+   /**
+    * Each row owns 4 of the 16 counters of a long, picked by the 2 top bits of the spread hash.
+    */
+   private static int offset(int h, int row) {
+      return ((row << 2) + (h >>> 30)) << 2;
+   }
+}
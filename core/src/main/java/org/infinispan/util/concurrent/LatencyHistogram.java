@@ -0,0 +1,156 @@
+package org.infinispan.util.concurrent;
+
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies, in nanoseconds, which can be recorded to concurrently at a low cost and queried for
+ * percentiles.
+ * <p/>
+ * Values are counted in buckets whose width grows with the magnitude of the values they hold: every power of two is
+ * divided into eight buckets of equal width, so that percentiles are reported with a relative error
+ * of at most 12.5%, whatever the magnitude of the latencies.  Values above 2<sup>42</sup> nanoseconds, more than an
+ * hour, are counted in the last bucket. The maximum is tracked exactly.
+ * <p/>
+ * To keep concurrent recording threads from contending on the same counters, counts are spread over several stripes,
+ * picked by thread, which are only summed up when the histogram is queried. Queries are not atomic with respect to
+ * concurrent recording, which is fine for statistics.
+ *
+ * @since 5.0
+ */
+@ThreadSafe
+public class LatencyHistogram {
+
+   private static final int SUB_BUCKET_BITS = 3;
+   static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+   private static final int MAX_EXPONENT = 42;
+   static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS + 1;
+
+   /**
+    * Each stripe holds its bucket counts, followed by the total count, the sum and the maximum of its values, spread
+    * apart from the next stripe's to avoid false sharing
+    */
+   private static final int COUNT = BUCKETS;
+   private static final int SUM = BUCKETS + 1;
+   private static final int MAX = BUCKETS + 2;
+   private static final int STRIPE_SIZE = BUCKETS + 16;
+
+   private final int stripeMask;
+   private final AtomicLongArray data;
+
+   public LatencyHistogram() {
+      this(Runtime.getRuntime().availableProcessors());
+   }
+
+   /**
+    * @param concurrency the expected number of threads recording at the same time
+    */
+   public LatencyHistogram(int concurrency) {
+      int stripes = 1;
+      while (stripes < concurrency && stripes < 16) stripes <<= 1;
+      stripeMask = stripes - 1;
+      data = new AtomicLongArray(stripes * STRIPE_SIZE);
+   }
+
+   /**
+    * Records a single latency.
+    *
+    * @param nanos the latency, in nanoseconds. Negative values, e.g. caused by a clock adjustment, are counted as 0.
+    */
+   public void record(long nanos) {
+      record(nanos, 1);
+   }
+
+   /**
+    * Records the same latency several times, e.g. when the time taken by a bulk operation is shared out between the
+    * entries it affected.
+    */
+   public void record(long nanos, int times) {
+      if (times <= 0) return;
+      if (nanos < 0) nanos = 0;
+      int base = (int) (Thread.currentThread().getId() & stripeMask) * STRIPE_SIZE;
+      data.addAndGet(base + bucketIndex(nanos), times);
+      data.addAndGet(base + COUNT, times);
+      data.addAndGet(base + SUM, nanos * times);
+      long max;
+      while ((max = data.get(base + MAX)) < nanos && !data.compareAndSet(base + MAX, max, nanos)) ;
+   }
+
+   /**
+    * @return the number of latencies recorded
+    */
+   public long getCount() {
+      return sum(COUNT);
+   }
+
+   /**
+    * @return the sum, in nanoseconds, of all the latencies recorded
+    */
+   public long getTotal() {
+      return sum(SUM);
+   }
+
+   /**
+    * @return the highest latency recorded, in nanoseconds, or 0 if none was recorded
+    */
+   public long getMax() {
+      long max = 0;
+      for (int base = 0; base < data.length(); base += STRIPE_SIZE) max = Math.max(max, data.get(base + MAX));
+      return max;
+   }
+
+   /**
+    * @param percentile a value between 0 and 100, e.g. 99.9
+    * @return an upper bound, in nanoseconds, of the latency under which the given percentage of the recorded
+    *         latencies fall, or 0 if none was recorded
+    */
+   public long getPercentile(double percentile) {
+      if (percentile < 0 || percentile > 100)
+         throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percentile);
+      long[] counts = new long[BUCKETS];
+      long total = 0;
+      for (int base = 0; base < data.length(); base += STRIPE_SIZE) {
+         for (int i = 0; i < BUCKETS; i++) {
+            long c = data.get(base + i);
+            counts[i] += c;
+            total += c;
+         }
+      }
+      if (total == 0) return 0;
+      long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+      long max = getMax();
+      long seen = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+         seen += counts[i];
+         if (seen >= rank) return Math.min(bucketUpperBound(i), max);
+      }
+      return max;
+   }
+
+   public void reset() {
+      for (int i = 0; i < data.length(); i++) data.set(i, 0);
+   }
+
+   private long sum(int offset) {
+      long sum = 0;
+      for (int base = 0; base < data.length(); base += STRIPE_SIZE) sum += data.get(base + offset);
+      return sum;
+   }
+
+   static int bucketIndex(long value) {
+      if (value < SUB_BUCKETS) return (int) value;
+      int exponent = 63 - Long.numberOfLeadingZeros(value);
+      if (exponent > MAX_EXPONENT) return BUCKETS - 1;
+      int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+      return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+   }
+
+   static long bucketUpperBound(int index) {
+      if (index < SUB_BUCKETS) return index;
+      if (index == BUCKETS - 1) return Long.MAX_VALUE;
+      int shift = index / SUB_BUCKETS - 1;
+      long lowerBound = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+      return lowerBound + (1L << shift) - 1;
+   }
+}
@@ -0,0 +1,85 @@
+package org.infinispan.util.concurrent;
+
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter meant to be updated very often by many threads and read rarely, such as the statistics exposed over JMX.
+ * <p/>
+ * As long as it isn't updated concurrently, it behaves like an {@link AtomicLong}. The first time an update fails
+ * because of contention, the counter starts spreading updates over several cells, picked by thread and kept on
+ * separate cache lines, so that threads running on different cores stop invalidating each other's caches on every
+ * update. Reading the counter sums up all cells.
+ * <p/>
+ * {@link #sum()} is not an atomic snapshot when the counter is being updated concurrently, and {@link #reset()} can
+ * miss concurrent updates, which is fine for statistics.
+ *
+ * @since 5.0
+ */
+@ThreadSafe
+public class StripedCounter {
+
+   /**
+    * Number of longs between two cells, so that they are 64 bytes apart
+    */
+   private static final int PADDING = 8;
+   private static final int MAX_CELLS;
+
+   static {
+      int cells = 1;
+      while (cells < Runtime.getRuntime().availableProcessors() && cells < 64) cells <<= 1;
+      MAX_CELLS = cells;
+   }
+
+   private final AtomicLong base = new AtomicLong();
+   private volatile AtomicLongArray cells;
+
+   public void increment() {
+      add(1);
+   }
+
+   public void add(long delta) {
+      AtomicLongArray c = cells;
+      if (c == null) {
+         long current = base.get();
+         if (base.compareAndSet(current, current + delta)) return;
+         c = inflate();
+      }
+      c.addAndGet((int) (Thread.currentThread().getId() & (MAX_CELLS - 1)) * PADDING, delta);
+   }
+
+   /**
+    * @return the current value of the counter
+    */
+   public long sum() {
+      long sum = base.get();
+      AtomicLongArray c = cells;
+      if (c != null) {
+         for (int i = 0; i < c.length(); i += PADDING) sum += c.get(i);
+      }
+      return sum;
+   }
+
+   /**
+    * Sets the counter back to 0.
+    */
+   public void reset() {
+      base.set(0);
+      AtomicLongArray c = cells;
+      if (c != null) {
+         for (int i = 0; i < c.length(); i += PADDING) c.set(i, 0);
+      }
+   }
+
+   private synchronized AtomicLongArray inflate() {
+      if (cells == null) cells = new AtomicLongArray(MAX_CELLS * PADDING);
+      return cells;
+   }
+
+   @Override
+   public String toString() {
+      return String.valueOf(sum());
+   }
+}
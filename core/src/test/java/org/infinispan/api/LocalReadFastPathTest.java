@@ -0,0 +1,95 @@
+package org.infinispan.api;
+
+import org.infinispan.commands.read.GetKeyValueCommand;
+import org.infinispan.context.InvocationContext;
+import org.infinispan.interceptors.InterceptorChain;
+import org.infinispan.interceptors.base.CommandInterceptor;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.notifications.Listener;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryVisited;
+import org.infinispan.notifications.cachelistener.event.CacheEntryVisitedEvent;
+import org.infinispan.test.SingleCacheManagerTest;
+import org.infinispan.test.TestingUtil;
+import org.infinispan.test.fwk.TestCacheManagerFactory;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks that non-transactional reads which bypass the interceptor chain behave like the ones which don't.
+ *
+ * @since 5.0
+ */
+@Test(groups = "functional", testName = "api.LocalReadFastPathTest")
+public class LocalReadFastPathTest extends SingleCacheManagerTest {
+
+   @Override
+   protected EmbeddedCacheManager createCacheManager() throws Exception {
+      return TestCacheManagerFactory.createLocalCacheManager(false);
+   }
+
+   public void testReads() {
+      assert TestingUtil.extractComponent(cache, InterceptorChain.class).isLocalReadTransparent();
+      cache.put("k", "v");
+      assert "v".equals(cache.get("k"));
+      assert cache.containsKey("k");
+      assert cache.get("missing") == null;
+      assert !cache.containsKey("missing");
+   }
+
+   public void testExpiredEntryIsNotReturned() {
+      cache.put("expiring", "v", 1, TimeUnit.MILLISECONDS);
+      TestingUtil.sleepThread(50);
+      assert cache.get("expiring") == null;
+      assert !cache.containsKey("expiring");
+   }
+
+   public void testVisitedListenersAreNotified() {
+      VisitedListener listener = new VisitedListener();
+      cache.addListener(listener);
+      try {
+         cache.put("k", "v");
+         assert "v".equals(cache.get("k"));
+         assert listener.visited.get() == 2;
+      } finally {
+         cache.removeListener(listener);
+      }
+   }
+
+   public void testCustomInterceptorSeesReads() {
+      CountingInterceptor interceptor = new CountingInterceptor();
+      cache.getAdvancedCache().addInterceptor(interceptor, 0);
+      try {
+         assert !TestingUtil.extractComponent(cache, InterceptorChain.class).isLocalReadTransparent();
+         cache.put("k", "v");
+         assert "v".equals(cache.get("k"));
+         assert interceptor.gets.get() == 1;
+      } finally {
+         cache.getAdvancedCache().removeInterceptor(CountingInterceptor.class);
+      }
+      assert TestingUtil.extractComponent(cache, InterceptorChain.class).isLocalReadTransparent();
+      assert "v".equals(cache.get("k"));
+      assert interceptor.gets.get() == 1;
+   }
+
+   @Listener
+   public static class VisitedListener {
+      final AtomicInteger visited = new AtomicInteger();
+
+      @CacheEntryVisited
+      public void entryVisited(CacheEntryVisitedEvent e) {
+         visited.incrementAndGet();
+      }
+   }
+
+   public static class CountingInterceptor extends CommandInterceptor {
+      final AtomicInteger gets = new AtomicInteger();
+
+      @Override
+      public Object visitGetKeyValueCommand(InvocationContext ctx, GetKeyValueCommand command) throws Throwable {
+         gets.incrementAndGet();
+         return invokeNextInterceptor(ctx, command);
+      }
+   }
+}
@@ -0,0 +1,126 @@
+package org.infinispan.container;
+
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.container.entries.InternalEntryFactory;
+import org.infinispan.eviction.EvictionManager;
+import org.infinispan.eviction.EvictionStrategy;
+import org.infinispan.eviction.EvictionThreadPolicy;
+import org.infinispan.test.AbstractInfinispanTest;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+@Test(groups = "unit", testName = "container.ExpiryIndexTest")
+public class ExpiryIndexTest extends AbstractInfinispanTest {
+
+   public void testDueRegistrationsArePolledInDeadlineOrder() {
+      ExpiryIndex index = new ExpiryIndex(16);
+      InternalCacheEntry late = InternalEntryFactory.create("late", "v", 1000, 500, -1, -1);
+      InternalCacheEntry early = InternalEntryFactory.create("early", "v", 1000, 100, -1, -1);
+      index.register("late", late);
+      index.register("early", early);
+      index.register("immortal", InternalEntryFactory.create("immortal", "v"));
+      assert index.size() == 2;
+
+      assert index.pollDue(1099).isEmpty();
+      List<ExpiryIndex.Registration> due = index.pollDue(1500);
+      assert due.size() == 2;
+      assert due.get(0).entry == early;
+      assert due.get(1).entry == late;
+   }
+
+   public void testUsedTransientEntryIsRescheduled() {
+      ExpiryIndex index = new ExpiryIndex(16);
+      InternalCacheEntry e = InternalEntryFactory.create("k", "v", -1, -1, 1000, 300);
+      index.register("k", e);
+      // stamps the entry with the current time, long after the deadline it was registered with
+      e.touch();
+
+      List<ExpiryIndex.Registration> due = index.pollDue(1300);
+      assert due.size() == 1;
+      index.reschedule(due.get(0));
+      assert index.size() == 1;
+      assert index.pollDue(1300).isEmpty();
+      assert index.pollDue(e.getExpiryTime()).size() == 1;
+   }
+
+   public void testRegistrationsAreKeptPerEntryInstance() {
+      ExpiryIndex index = new ExpiryIndex(16);
+      InternalCacheEntry first = InternalEntryFactory.create("k", "v", 1000, 100, -1, -1);
+      InternalCacheEntry second = InternalEntryFactory.create("k", "v", 1000, 100, -1, -1);
+      assert first.equals(second);
+      index.register("k", first);
+      index.register("k", second);
+      index.register("k", second);
+      assert index.size() == 2;
+
+      index.unregister(first);
+      List<ExpiryIndex.Registration> due = index.pollDue(2000);
+      assert due.size() == 1;
+      assert due.get(0).entry == second;
+   }
+
+   public void testEvictedEntriesAreNotRegistered() {
+      DefaultDataContainer dc = new DefaultDataContainer(1, 16, EvictionStrategy.TINY_LFU, EvictionThreadPolicy.DEFAULT);
+      dc.initialize(new EvictionManager() {
+         public void processEviction() {
+         }
+
+         public boolean isEnabled() {
+            return true;
+         }
+
+         public void onEntryEviction(Map<Object, InternalCacheEntry> evicted) {
+         }
+
+         public long getCurrentWeight() {
+            return -1;
+         }
+
+         public long getMaxWeight() {
+            return -1;
+         }
+      });
+      // make the first keys popular, so that most of the others are rejected as soon as they are put
+      for (int i = 0; i < 16; i++) {
+         dc.put(i, "v", 60000, -1);
+         for (int j = 0; j < 10; j++) dc.get(i);
+      }
+      for (int i = 16; i < 1000; i++) dc.put(i, "v", 60000, -1);
+
+      assert dc.size() <= 16;
+      assert dc.expiryIndex.size() == dc.size() : dc.expiryIndex.size() + " registrations for " + dc.size() + " entries";
+   }
+
+   public void testConcurrentPutsKeepStoredEntryRegistered() throws Exception {
+      final DefaultDataContainer dc = new DefaultDataContainer(16);
+      final CountDownLatch start = new CountDownLatch(1);
+      Thread[] threads = new Thread[4];
+      for (int i = 0; i < threads.length; i++) {
+         final boolean mortal = i % 2 == 0;
+         threads[i] = new Thread() {
+            @Override
+            public void run() {
+               try {
+                  start.await();
+               } catch (InterruptedException e) {
+                  return;
+               }
+               for (int j = 0; j < 10000; j++) {
+                  dc.put("k", "v" + j, mortal ? 60000 : -1, -1);
+               }
+            }
+         };
+         threads[i].start();
+      }
+      start.countDown();
+      for (Thread t : threads) t.join();
+
+      boolean mortal = dc.peek("k").canExpire();
+      dc.purgeExpired(System.currentTimeMillis() + 120000);
+      assert dc.size() == (mortal ? 0 : 1) : "A stored mortal entry must always be purged once expired";
+      assert dc.expiryIndex.size() == 0 : "Registrations left behind: " + dc.expiryIndex.size();
+   }
+}
@@ -0,0 +1,118 @@
+package org.infinispan.container;
+
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.eviction.EvictionManager;
+import org.infinispan.eviction.EvictionStrategy;
+import org.infinispan.marshall.TestObjectStreamMarshaller;
+import org.testng.annotations.Test;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Test(groups = "unit", testName = "container.OffHeapDataContainerTest")
+public class OffHeapDataContainerTest extends SimpleDataContainerTest {
+
+   @Override
+   protected DataContainer createContainer() {
+      OffHeapDataContainer dc = new OffHeapDataContainer(16, 4096);
+      dc.initialize(new TestObjectStreamMarshaller(), null);
+      return dc;
+   }
+
+   @Override
+   protected void purgeExpired(long now) {
+      ((OffHeapDataContainer) dc).purgeExpired(now);
+   }
+
+   /**
+    * Entries handed out by the off-heap container are copies, so the last used stamp is checked on a fresh copy.
+    */
+   @Override
+   public void testUpdatingLastUsed() throws Exception {
+      long idle = 600000;
+      dc.put("k", "v", -1, -1);
+      InternalCacheEntry ice = dc.get("k");
+      assert ice.getClass().equals(immortaltype());
+      assert ice.getExpiryTime() == -1;
+      dc.put("k", "v", -1, idle);
+      long oldTime = System.currentTimeMillis();
+      Thread.sleep(100); // for time calc granularity
+      ice = dc.get("k");
+      assert ice.getClass().equals(transienttype());
+      assert ice.getExpiryTime() > -1;
+      assert ice.getLastUsed() > oldTime;
+      assert ice.getMaxIdle() == idle;
+
+      oldTime = System.currentTimeMillis();
+      Thread.sleep(100); // for time calc granularity
+      assert dc.get("k").getLastUsed() > oldTime;
+   }
+
+   public void testLargeValues() {
+      StringBuilder sb = new StringBuilder();
+      for (int i = 0; i < 10000; i++) sb.append(i);
+      String big = sb.toString();
+      dc.put("big", big, -1, -1);
+      dc.put("small", "v", -1, -1);
+      assert dc.get("big").getValue().equals(big);
+      assert dc.get("small").getValue().equals("v");
+      dc.remove("big");
+      assert dc.get("big") == null;
+      assert dc.size() == 1;
+   }
+
+   public void testOversizedChunkIsRejected() {
+      assert SlabAllocator.chunkSize(SlabAllocator.sizeClass(SlabAllocator.MAX_CHUNK_SIZE)) == SlabAllocator.MAX_CHUNK_SIZE;
+      try {
+         SlabAllocator.sizeClass(SlabAllocator.MAX_CHUNK_SIZE + 1L);
+         assert false : "Should have failed";
+      } catch (IllegalArgumentException expected) {
+      }
+   }
+
+   public void testMemoryIsReused() {
+      OffHeapDataContainer offHeap = (OffHeapDataContainer) dc;
+      for (int i = 0; i < 1000; i++) dc.put("k" + i, "v" + i, -1, -1);
+      long reserved = offHeap.getReservedBytes();
+      for (int i = 0; i < 1000; i++) dc.remove("k" + i);
+      assert offHeap.getUsedBytes() == 0;
+      for (int i = 0; i < 1000; i++) dc.put("k" + i, "v" + i, -1, -1);
+      assert offHeap.getReservedBytes() == reserved;
+      for (int i = 0; i < 1000; i++) assert dc.get("k" + i).getValue().equals("v" + i);
+   }
+
+   public void testBoundedEviction() {
+      final AtomicInteger evictions = new AtomicInteger();
+      OffHeapDataContainer bounded = new OffHeapDataContainer(1, 10, EvictionStrategy.LRU, 4096);
+      bounded.initialize(new TestObjectStreamMarshaller(), new EvictionManager() {
+         public void processEviction() {
+         }
+
+         public boolean isEnabled() {
+            return true;
+         }
+
+         public void onEntryEviction(Map<Object, InternalCacheEntry> evicted) {
+            evictions.addAndGet(evicted.size());
+         }
+
+         public long getCurrentWeight() {
+            return -1;
+         }
+
+         public long getMaxWeight() {
+            return -1;
+         }
+      });
+
+      for (int i = 0; i < 10; i++) bounded.put(i, "v", -1, -1);
+      // touch the first key, so that it is not the least recently used one
+      assert bounded.get(0) != null;
+      bounded.put(10, "v", -1, -1);
+
+      assert bounded.size() == 10;
+      assert evictions.get() == 1;
+      assert bounded.containsKey(0);
+      assert !bounded.containsKey(1);
+   }
+}
@@ -17,6 +17,9 @@ import java.util.Set;
 
 @Test(groups = "unit", testName = "container.SimpleDataContainerTest")
 public class SimpleDataContainerTest extends AbstractInfinispanTest {
+   static final long MINUTE = 60000;
+   static final long HOUR = 60 * MINUTE;
+
    DataContainer dc;
 
    @BeforeMethod
@@ -68,6 +71,51 @@ public class SimpleDataContainerTest extends AbstractInfinispanTest {
       assert dc.size() == 0;
    }
 
+   public void testPurgeExpiredOnlyRemovesExpiredEntries() throws Exception {
+      dc.put("mortal", "v", 50, -1);
+      dc.put("transient", "v", -1, 300);
+      dc.put("longLived", "v", 6000000, -1);
+      dc.put("immortal", "v", -1, -1);
+      Thread.sleep(100);
+      dc.purgeExpired();
+      assert dc.size() == 3 : "Expected only the mortal entry to be purged, size is " + dc.size();
+
+      // keep the transient entry alive past the deadline it was first stored with
+      for (int i = 0; i < 4; i++) {
+         assert dc.get("transient") != null;
+         Thread.sleep(100);
+      }
+      dc.purgeExpired();
+      assert dc.size() == 3 : "Transient entry in use should not have been purged, size is " + dc.size();
+
+      Thread.sleep(500);
+      dc.purgeExpired();
+      assert dc.size() == 2 : "Idle transient entry should have been purged, size is " + dc.size();
+      assert dc.peek("longLived") != null;
+      assert dc.peek("immortal") != null;
+   }
+
+   public void testPurgeExpiredAfterReplacingEntries() {
+      long start = System.currentTimeMillis();
+      dc.put("k", "v", HOUR, -1);
+      dc.put("k", "v", -1, -1);
+      purgeExpired(start + 2 * HOUR);
+      assert dc.size() == 1 : "Immortal replacement should not have been purged";
+
+      dc.put("k", "v", HOUR, -1);
+      purgeExpired(start + HOUR / 2);
+      assert dc.size() == 1;
+      purgeExpired(start + 2 * HOUR);
+      assert dc.size() == 0 : "Mortal replacement should have been purged";
+   }
+
+   /**
+    * Purges the entries which are expired at the given time, rather than waiting for them to expire
+    */
+   protected void purgeExpired(long now) {
+      ((DefaultDataContainer) dc).purgeExpired(now);
+   }
+
    public void testUpdatingLastUsed() throws Exception {
       long idle = 600000;
       dc.put("k", "v", -1, -1);
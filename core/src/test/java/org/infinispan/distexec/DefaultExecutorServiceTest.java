@@ -0,0 +1,143 @@
+package org.infinispan.distexec;
+
+import org.infinispan.Cache;
+import org.infinispan.distribution.BaseDistFunctionalTest;
+import org.infinispan.distribution.MagicKey;
+import org.infinispan.remoting.transport.Address;
+import org.testng.annotations.Test;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+@Test(groups = "functional", testName = "distexec.DefaultExecutorServiceTest")
+public class DefaultExecutorServiceTest extends BaseDistFunctionalTest {
+
+   public DefaultExecutorServiceTest() {
+      sync = true;
+      tx = false;
+      testRetVals = true;
+   }
+
+   public void testTaskIsExecutedOnPrimaryOwner() throws Exception {
+      MagicKey k = new MagicKey(c3);
+      c1.put(k, "value");
+
+      DistributedExecutorService des = new DefaultExecutorService(c1);
+      ExecutionResult result = des.submit(new LocatingCallable(), k).get();
+
+      assert result.address.equals(addressOf(c3)) : "Task executed on " + result.address;
+      assert result.inputKeys.size() == 1 && result.inputKeys.contains(k);
+      assert result.values.contains("value");
+   }
+
+   public void testSubmitEverywhereWithKeysSplitsKeysByOwner() throws Exception {
+      MagicKey k2 = new MagicKey(c2);
+      MagicKey k4 = new MagicKey(c4);
+      c1.put(k2, "v2");
+      c1.put(k4, "v4");
+
+      DistributedExecutorService des = new DefaultExecutorService(c1);
+      List<Future<ExecutionResult>> futures = des.submitEverywhere(new LocatingCallable(), k2, k4);
+      assert futures.size() == 2;
+
+      Set<Address> executedOn = new HashSet<Address>();
+      for (Future<ExecutionResult> f : futures) {
+         ExecutionResult result = f.get();
+         assert result.inputKeys.size() == 1;
+         Object key = result.inputKeys.iterator().next();
+         assert result.address.equals(key.equals(k2) ? addressOf(c2) : addressOf(c4));
+         executedOn.add(result.address);
+      }
+      assert executedOn.size() == 2;
+   }
+
+   public void testSubmitEverywhere() throws Exception {
+      DistributedExecutorService des = new DefaultExecutorService(c1);
+      List<Future<ExecutionResult>> futures = des.submitEverywhere(new LocatingCallable());
+      assert futures.size() == INIT_CLUSTER_SIZE;
+
+      Set<Address> executedOn = new HashSet<Address>();
+      for (Future<ExecutionResult> f : futures) executedOn.add(f.get().address);
+      assert executedOn.size() == INIT_CLUSTER_SIZE;
+   }
+
+   public void testExceptionIsPropagated() throws Exception {
+      MagicKey k = new MagicKey(c2);
+      DistributedExecutorService des = new DefaultExecutorService(c1);
+      Future<Object> future = des.submit(new FailingCallable(), k);
+      try {
+         future.get();
+         assert false : "Should have failed";
+      } catch (ExecutionException expected) {
+      }
+   }
+
+   public void testDoneRemoteTasksAreNotKept() throws Exception {
+      MagicKey k = new MagicKey(c2);
+      c1.put(k, "value");
+
+      DefaultExecutorService des = new DefaultExecutorService(c1);
+      List<Future<?>> futures = new ArrayList<Future<?>>();
+      for (int i = 0; i < 100; i++) {
+         futures.add(des.submit(new LocatingCallable(), k));
+         futures.add(des.submit(new FailingCallable(), k));
+      }
+      for (Future<?> f : futures) {
+         try {
+            f.get();
+         } catch (ExecutionException e) {
+            // only the failing tasks may fail
+         }
+      }
+      // the executor is never polled with isTerminated, which must not be needed for done tasks to be dropped
+      assert des.pending.isEmpty() : des.pending.size() + " done tasks are still pending";
+   }
+
+   public void testShutdown() {
+      DistributedExecutorService des = new DefaultExecutorService(c1);
+      des.shutdown();
+      assert des.isShutdown();
+      try {
+         des.submit(new LocatingCallable());
+         assert false : "Should have been rejected";
+      } catch (RejectedExecutionException expected) {
+      }
+   }
+
+   static class ExecutionResult implements Serializable {
+      Address address;
+      Set<Object> inputKeys;
+      Set<Object> values = new HashSet<Object>();
+   }
+
+   static class LocatingCallable implements DistributedCallable<Object, String, ExecutionResult>, Serializable {
+      private transient Cache<Object, String> cache;
+      private transient Set<Object> inputKeys;
+
+      public void setEnvironment(Cache<Object, String> cache, Set<Object> inputKeys) {
+         this.cache = cache;
+         this.inputKeys = inputKeys;
+      }
+
+      public ExecutionResult call() throws Exception {
+         ExecutionResult result = new ExecutionResult();
+         result.address = cache.getAdvancedCache().getRpcManager().getAddress();
+         result.inputKeys = new HashSet<Object>(inputKeys);
+         for (Object key : inputKeys) result.values.add(cache.get(key));
+         return result;
+      }
+   }
+
+   static class FailingCallable implements Callable<Object>, Serializable {
+      public Object call() throws Exception {
+         throw new IllegalStateException("failing on purpose");
+      }
+   }
+}
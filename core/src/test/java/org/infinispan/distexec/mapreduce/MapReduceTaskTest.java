@@ -0,0 +1,99 @@
+package org.infinispan.distexec.mapreduce;
+
+import org.infinispan.distribution.BaseDistFunctionalTest;
+import org.infinispan.remoting.transport.Address;
+import org.testng.annotations.Test;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+@Test(groups = "functional", testName = "distexec.mapreduce.MapReduceTaskTest")
+public class MapReduceTaskTest extends BaseDistFunctionalTest {
+
+   private static final int NUM_KEYS = 100;
+
+   public MapReduceTaskTest() {
+      sync = true;
+      tx = false;
+      testRetVals = true;
+   }
+
+   private void populate() {
+      for (int i = 0; i < NUM_KEYS; i++) c1.put("k" + i, "v" + i);
+   }
+
+   public void testEveryEntryIsMappedOnce() {
+      populate();
+      // reading from a non owner populates L1, which must not lead to entries being mapped twice
+      for (int i = 0; i < NUM_KEYS; i++) c3.get("k" + i);
+
+      SummingCollator collator = new SummingCollator();
+      Integer count = new MapReduceTask<Object, String, Integer, Integer>(c2)
+            .mappedWith(new CountingMapper()).reducedWith(new SummingReducer()).collate(collator);
+
+      assert count == NUM_KEYS : "Expected " + NUM_KEYS + " but was " + count;
+      assert collator.senders.size() == INIT_CLUSTER_SIZE : "Results received from " + collator.senders;
+   }
+
+   public void testOnKeys() {
+      populate();
+      Integer count = new MapReduceTask<Object, String, Integer, Integer>(c1)
+            .onKeys("k1", "k2", "k3", "nonexistent")
+            .mappedWith(new CountingMapper()).reducedWith(new SummingReducer()).collate(new SummingCollator());
+      assert count == 3 : "Expected 3 but was " + count;
+   }
+
+   public void testCollateAsynchronously() throws Exception {
+      populate();
+      Future<Integer> future = new MapReduceTask<Object, String, Integer, Integer>(c4)
+            .mappedWith(new CountingMapper()).reducedWith(new SummingReducer())
+            .collateAsynchronously(new SummingCollator());
+      assert future.get() == NUM_KEYS;
+   }
+
+   public void testManyConcurrentAsynchronousCollations() throws Exception {
+      populate();
+      // more tasks than the async transport executor has threads, none of which may wait for another task
+      List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+      for (int i = 0; i < 100; i++) {
+         futures.add(new MapReduceTask<Object, String, Integer, Integer>(c1)
+               .mappedWith(new CountingMapper()).reducedWith(new SummingReducer())
+               .collateAsynchronously(new SummingCollator()));
+      }
+      for (Future<Integer> future : futures) {
+         Integer count = future.get(60, TimeUnit.SECONDS);
+         assert count == NUM_KEYS : "Expected " + NUM_KEYS + " but was " + count;
+      }
+   }
+
+   static class CountingMapper implements Mapper<Object, String, Integer>, Serializable {
+      public Integer map(Object key, String value) {
+         return 1;
+      }
+   }
+
+   static class SummingReducer implements Reducer<Integer, Integer>, Serializable {
+      public Integer reduce(Integer mapResult, Integer previouslyReduced) {
+         return previouslyReduced == null ? mapResult : previouslyReduced + mapResult;
+      }
+   }
+
+   static class SummingCollator implements Collator<Integer> {
+      final Set<Address> senders = new HashSet<Address>();
+      int sum;
+
+      public Integer collate() {
+         return sum;
+      }
+
+      public void reducedResultReceived(Address remoteNode, Integer remoteResult) {
+         senders.add(remoteNode);
+         if (remoteResult != null) sum += remoteResult;
+      }
+   }
+}
@@ -0,0 +1,126 @@
+package org.infinispan.distribution;
+
+import org.infinispan.Cache;
+import org.infinispan.commands.read.GetAllCommand;
+import org.infinispan.context.Flag;
+import org.infinispan.context.InvocationContext;
+import org.infinispan.interceptors.base.CommandInterceptor;
+import org.infinispan.remoting.transport.Address;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Test(groups = "functional", testName = "distribution.DistGetAllTest")
+public class DistGetAllTest extends BaseDistFunctionalTest {
+
+   private final Map<Address, RemoteGetAllCounter> counters = new HashMap<Address, RemoteGetAllCounter>();
+
+   public DistGetAllTest() {
+      sync = true;
+      tx = false;
+      testRetVals = true;
+   }
+
+   @Override
+   protected void createCacheManagers() throws Throwable {
+      super.createCacheManagers();
+      for (Cache<Object, String> c : caches) {
+         RemoteGetAllCounter counter = new RemoteGetAllCounter();
+         c.getAdvancedCache().addInterceptor(counter, 0);
+         counters.put(addressOf(c), counter);
+      }
+   }
+
+   public void testGetAllSendsOneRemoteGetPerOwner() {
+      List<Object> keys = Arrays.<Object>asList(new MagicKey(c1), new MagicKey(c2), new MagicKey(c2),
+                                                new MagicKey(c3), new MagicKey(c4), new MagicKey(c4));
+      for (int i = 0; i < keys.size(); i++) c4.put(keys.get(i), "v" + i);
+      resetCounters();
+
+      Map<Object, String> values = c1.getAll(new HashSet<Object>(keys));
+      assert values.size() == keys.size() : "Expected " + keys.size() + " entries but got " + values;
+      for (int i = 0; i < keys.size(); i++) assert values.get(keys.get(i)).equals("v" + i);
+
+      // keys not owned by c1 are retrieved from their primary owner, with one call per owner
+      Map<Address, Integer> expected = new HashMap<Address, Integer>();
+      for (Object key : keys) {
+         if (isOwner(c1, key)) continue;
+         Address primary = getDistributionManager(c1).locate(key).get(0);
+         expected.put(primary, expected.containsKey(primary) ? expected.get(primary) + 1 : 1);
+         assertIsInL1(c1, key);
+      }
+      for (Cache<Object, String> c : caches) {
+         RemoteGetAllCounter counter = counters.get(addressOf(c));
+         Integer expectedKeys = expected.get(addressOf(c));
+         assert counter.invocations.get() == (expectedKeys == null ? 0 : 1) : "Unexpected remote calls on " + addressOf(c);
+         assert counter.keys.get() == (expectedKeys == null ? 0 : expectedKeys) : "Unexpected keys read on " + addressOf(c);
+      }
+   }
+
+   public void testGetAllOmitsMissingKeys() {
+      MagicKey k2 = new MagicKey(c2);
+      MagicKey k3 = new MagicKey(c3);
+      c2.put(k2, "v2");
+
+      Map<Object, String> values = c1.getAll(new HashSet<Object>(Arrays.asList(k2, k3, "__ doesn't exist ___")));
+      assert values.size() == 1 : "Expected a single entry but got " + values;
+      assert "v2".equals(values.get(k2));
+   }
+
+   public void testGetAllWithSkipRemoteLookup() {
+      MagicKey local = new MagicKey(c1);
+      List<Object> keys = new ArrayList<Object>();
+      keys.add(local);
+      for (Cache<Object, String> c : Arrays.asList(c2, c3, c4)) {
+         MagicKey k = new MagicKey(c);
+         if (!isOwner(c1, k)) keys.add(k);
+      }
+      for (Object k : keys) c2.put(k, "value");
+      resetCounters();
+
+      Map<Object, String> values = c1.getAdvancedCache().withFlags(Flag.SKIP_REMOTE_LOOKUP).getAll(new HashSet<Object>(keys));
+      assert values.size() == 1 : "Expected only the local entry but got " + values;
+      assert "value".equals(values.get(local));
+      for (RemoteGetAllCounter counter : counters.values()) assert counter.invocations.get() == 0;
+   }
+
+   public void testGetAllAsync() throws Exception {
+      MagicKey k2 = new MagicKey(c2);
+      MagicKey k3 = new MagicKey(c3);
+      c1.put(k2, "v2");
+      c1.put(k3, "v3");
+
+      Map<Object, String> values = c4.getAllAsync(new HashSet<Object>(Arrays.asList(k2, k3))).get();
+      assert values.size() == 2 : "Expected 2 entries but got " + values;
+      assert "v2".equals(values.get(k2));
+      assert "v3".equals(values.get(k3));
+   }
+
+   private void resetCounters() {
+      for (RemoteGetAllCounter counter : counters.values()) {
+         counter.invocations.set(0);
+         counter.keys.set(0);
+      }
+   }
+
+   static class RemoteGetAllCounter extends CommandInterceptor {
+      final AtomicInteger invocations = new AtomicInteger();
+      final AtomicInteger keys = new AtomicInteger();
+
+      @Override
+      public Object visitGetAllCommand(InvocationContext ctx, GetAllCommand command) throws Throwable {
+         if (!ctx.isOriginLocal()) {
+            invocations.incrementAndGet();
+            keys.addAndGet(command.getKeys().size());
+         }
+         return invokeNextInterceptor(ctx, command);
+      }
+   }
+}
@@ -0,0 +1,111 @@
+package org.infinispan.distribution;
+
+import org.infinispan.Cache;
+import org.infinispan.commands.write.InvalidateL1Command;
+import org.infinispan.config.Configuration;
+import org.infinispan.context.InvocationContext;
+import org.infinispan.interceptors.base.CommandInterceptor;
+import org.infinispan.remoting.transport.Address;
+import org.infinispan.test.MultipleCacheManagersTest;
+import org.infinispan.test.TestingUtil;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.infinispan.distribution.DistributionTestHelper.assertIsInL1;
+import static org.infinispan.distribution.DistributionTestHelper.assertIsNotInL1;
+import static org.infinispan.distribution.DistributionTestHelper.isOwner;
+
+@Test(groups = "functional", testName = "distribution.L1RequestorTrackingTest")
+public class L1RequestorTrackingTest extends MultipleCacheManagersTest {
+
+   private static final long L1_LIFESPAN = 2000;
+   private static final long REPL_TIMEOUT = 1000;
+
+   private List<Cache<Object, String>> caches;
+   private final Map<Address, InvalidateL1Counter> counters = new HashMap<Address, InvalidateL1Counter>();
+
+   @Override
+   protected void createCacheManagers() throws Throwable {
+      Configuration c = getDefaultClusteredConfig(Configuration.CacheMode.DIST_SYNC);
+      c.setL1CacheEnabled(true);
+      c.setL1Lifespan(L1_LIFESPAN);
+      c.setSyncReplTimeout(REPL_TIMEOUT);
+      caches = createClusteredCaches(4, "dist", c);
+      BaseDistFunctionalTest.RehashWaiter.waitForInitRehashToComplete(caches.toArray(new Cache[caches.size()]));
+      for (Cache<Object, String> cache : caches) {
+         InvalidateL1Counter counter = new InvalidateL1Counter();
+         cache.getAdvancedCache().addInterceptor(counter, 0);
+         counters.put(addressOf(cache), counter);
+      }
+      // until then, entries retrieved before the last view change may still be in L1, so invalidations are broadcast
+      TestingUtil.sleepThread(L1_LIFESPAN + REPL_TIMEOUT + 500);
+   }
+
+   public void testOnlyRequestorsAreInvalidated() {
+      MagicKey k = new MagicKey(caches.get(0));
+      List<Cache<Object, String>> nonOwners = nonOwners(k);
+      Cache<Object, String> reader = nonOwners.get(0);
+      Cache<Object, String> writer = nonOwners.get(1);
+
+      caches.get(0).put(k, "v1");
+      assert "v1".equals(reader.get(k));
+      assertIsInL1(reader, k);
+      resetCounters();
+
+      writer.put(k, "v2");
+      assertIsNotInL1(reader, k);
+      for (Cache<Object, String> cache : caches) {
+         int invalidations = counters.get(addressOf(cache)).invalidations.get();
+         if (cache == reader)
+            assert invalidations > 0 : "Expected the L1 cache of " + addressOf(cache) + " to be invalidated";
+         else
+            assert invalidations == 0 : "Unexpected L1 invalidation on " + addressOf(cache);
+      }
+   }
+
+   public void testRequestorsAreForgottenOnceInvalidated() {
+      MagicKey k = new MagicKey(caches.get(1));
+      Cache<Object, String> reader = nonOwners(k).get(0);
+
+      caches.get(1).put(k, "v1");
+      assert "v1".equals(reader.get(k));
+      caches.get(1).put(k, "v2");
+      resetCounters();
+
+      caches.get(1).put(k, "v3");
+      for (InvalidateL1Counter counter : counters.values()) assert counter.invalidations.get() == 0;
+      assert "v3".equals(reader.get(k));
+   }
+
+   private List<Cache<Object, String>> nonOwners(Object key) {
+      List<Cache<Object, String>> nonOwners = new ArrayList<Cache<Object, String>>();
+      for (Cache<Object, String> cache : caches) {
+         if (!isOwner(cache, key)) nonOwners.add(cache);
+      }
+      assert nonOwners.size() == 2 : "Expected 2 non owners of " + key + " but got " + nonOwners;
+      return nonOwners;
+   }
+
+   private Address addressOf(Cache<?, ?> cache) {
+      return cache.getCacheManager().getAddress();
+   }
+
+   private void resetCounters() {
+      for (InvalidateL1Counter counter : counters.values()) counter.invalidations.set(0);
+   }
+
+   static class InvalidateL1Counter extends CommandInterceptor {
+      final AtomicInteger invalidations = new AtomicInteger();
+
+      @Override
+      public Object visitInvalidateL1Command(InvocationContext ctx, InvalidateL1Command command) throws Throwable {
+         if (!ctx.isOriginLocal()) invalidations.incrementAndGet();
+         return invokeNextInterceptor(ctx, command);
+      }
+   }
+}
@@ -0,0 +1,102 @@
+package org.infinispan.distribution;
+
+import org.infinispan.Cache;
+import org.infinispan.commands.read.GetKeyValueCommand;
+import org.infinispan.config.Configuration;
+import org.infinispan.context.InvocationContext;
+import org.infinispan.interceptors.base.CommandInterceptor;
+import org.infinispan.remoting.transport.Address;
+import org.infinispan.test.MultipleCacheManagersTest;
+import org.infinispan.test.TestingUtil;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Test(groups = "functional", testName = "distribution.StaggeredRemoteGetTest")
+public class StaggeredRemoteGetTest extends MultipleCacheManagersTest {
+
+   private static final long STAGGER_DELAY = 200;
+
+   @Override
+   protected void createCacheManagers() throws Throwable {
+      Configuration c = getDefaultClusteredConfig(Configuration.CacheMode.DIST_SYNC);
+      c.setL1CacheEnabled(false);
+      c.setRemoteGetStaggerDelay(STAGGER_DELAY);
+      createCluster(c, 3);
+      for (int i = 0; i < 3; i++) cache(i).getAdvancedCache().addInterceptor(new RemoteGetCounter(), 0);
+      BaseDistFunctionalTest.RehashWaiter.waitForInitRehashToComplete(cache(0), cache(1), cache(2));
+   }
+
+   @AfterMethod
+   public void resetCounters() {
+      for (int i = 0; i < 3; i++) {
+         RemoteGetCounter counter = counter(cache(i));
+         counter.gets.set(0);
+         counter.delay = 0;
+      }
+   }
+
+   public void testSingleOwnerAsked() {
+      MagicKey k = new MagicKey(cache(0));
+      List<Address> owners = cache(0).getAdvancedCache().getDistributionManager().locate(k);
+      cache(0).put(k, "value");
+
+      assert "value".equals(getNonOwner(owners).get(k));
+      assert counter(getCache(owners.get(0))).gets.get() + counter(getCache(owners.get(1))).gets.get() == 1;
+   }
+
+   public void testNextOwnerAskedAfterStaggerDelay() {
+      MagicKey k = new MagicKey(cache(1));
+      List<Address> owners = cache(0).getAdvancedCache().getDistributionManager().locate(k);
+      cache(1).put(k, "value");
+      counter(getCache(owners.get(0))).delay = 10 * STAGGER_DELAY;
+
+      long start = System.currentTimeMillis();
+      assert "value".equals(getNonOwner(owners).get(k));
+      long duration = System.currentTimeMillis() - start;
+      assert duration < 10 * STAGGER_DELAY : "Remote get took " + duration + " ms";
+      assert counter(getCache(owners.get(1))).gets.get() == 1;
+   }
+
+   public void testGetOfNonexistentKey() {
+      MagicKey k = new MagicKey(cache(2));
+      List<Address> owners = cache(0).getAdvancedCache().getDistributionManager().locate(k);
+
+      assert getNonOwner(owners).get(k) == null;
+      assert counter(getCache(owners.get(0))).gets.get() + counter(getCache(owners.get(1))).gets.get() == 1;
+   }
+
+   @SuppressWarnings("unchecked")
+   private Cache<Object, String> getCache(Address a) {
+      for (Cache<?, ?> c : caches())
+         if (c.getAdvancedCache().getRpcManager().getAddress().equals(a)) return (Cache<Object, String>) c;
+      return null;
+   }
+
+   @SuppressWarnings("unchecked")
+   private Cache<Object, String> getNonOwner(List<Address> owners) {
+      for (Cache<?, ?> c : caches())
+         if (!owners.contains(c.getAdvancedCache().getRpcManager().getAddress())) return (Cache<Object, String>) c;
+      return null;
+   }
+
+   private RemoteGetCounter counter(Cache<?, ?> cache) {
+      return (RemoteGetCounter) cache.getAdvancedCache().getInterceptorChain().get(0);
+   }
+
+   static class RemoteGetCounter extends CommandInterceptor {
+      final AtomicInteger gets = new AtomicInteger();
+      volatile long delay;
+
+      @Override
+      public Object visitGetKeyValueCommand(InvocationContext ctx, GetKeyValueCommand command) throws Throwable {
+         if (!ctx.isOriginLocal()) {
+            gets.incrementAndGet();
+            if (delay > 0) TestingUtil.sleepThread(delay);
+         }
+         return invokeNextInterceptor(ctx, command);
+      }
+   }
+}
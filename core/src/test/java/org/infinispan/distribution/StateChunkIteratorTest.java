@@ -0,0 +1,62 @@
+package org.infinispan.distribution;
+
+import org.infinispan.container.DataContainer;
+import org.infinispan.container.DefaultDataContainer;
+import org.infinispan.test.AbstractInfinispanTest;
+import org.testng.annotations.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+@Test(groups = "unit", testName = "distribution.StateChunkIteratorTest")
+public class StateChunkIteratorTest extends AbstractInfinispanTest {
+
+   private DataContainer populate(int numEntries) {
+      DataContainer dc = DefaultDataContainer.unBoundedDataContainer(16);
+      for (int i = 0; i < numEntries; i++) dc.put(i, "v" + i, -1, -1);
+      return dc;
+   }
+
+   private StateChunkIterator evenKeys(DataContainer dc, int chunkSize) {
+      return new StateChunkIterator(dc, null, chunkSize) {
+         @Override
+         protected boolean shouldTransfer(Object key) {
+            return (Integer) key % 2 == 0;
+         }
+      };
+   }
+
+   public void testChunksAreBounded() throws Exception {
+      StateChunkIterator it = evenKeys(populate(100), 7);
+      Set<Object> transferred = new HashSet<Object>();
+      int chunks = 0;
+      StateChunk chunk;
+      do {
+         chunk = it.nextChunk();
+         chunks++;
+         assert chunk.getState().size() <= 7 : "Chunk holds " + chunk.getState().size() + " entries";
+         for (Object k : chunk.getState().keySet()) {
+            assert (Integer) k % 2 == 0 : "Unexpected key " + k;
+            assert transferred.add(k) : "Key " + k + " transferred twice";
+            assert chunk.getState().get(k).getValue().equals("v" + k);
+         }
+      } while (!chunk.isLast());
+
+      assert transferred.size() == 50;
+      assert chunks >= 8 : "Only " + chunks + " chunks";
+      assert it.isExhausted();
+      assert it.nextChunk().getState().isEmpty();
+   }
+
+   public void testUnboundedChunk() throws Exception {
+      StateChunk chunk = evenKeys(populate(100), 0).nextChunk();
+      assert chunk.isLast();
+      assert chunk.getState().size() == 50;
+   }
+
+   public void testNothingToTransfer() throws Exception {
+      StateChunk chunk = evenKeys(populate(0), 10).nextChunk();
+      assert chunk.isLast();
+      assert chunk.getState().isEmpty();
+   }
+}
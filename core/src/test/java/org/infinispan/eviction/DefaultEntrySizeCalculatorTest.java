@@ -0,0 +1,48 @@
+package org.infinispan.eviction;
+
+import org.infinispan.test.AbstractInfinispanTest;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Test(groups = "unit", testName = "eviction.DefaultEntrySizeCalculatorTest")
+public class DefaultEntrySizeCalculatorTest extends AbstractInfinispanTest {
+
+   public void testDirectlyMeasuredTypesAreNotMarshalled() {
+      CountingCalculator calculator = new CountingCalculator();
+      assert calculator.calculateSize("key", new byte[100]) == DefaultEntrySizeCalculator.ENTRY_OVERHEAD + 6 + 100;
+      assert calculator.calculateSize(1, "value") == DefaultEntrySizeCalculator.ENTRY_OVERHEAD + 8 + 10;
+      assert calculator.marshalled == 0;
+   }
+
+   public void testOnlySamplesAreMarshalled() {
+      CountingCalculator calculator = new CountingCalculator();
+      int puts = 10000;
+      for (int i = 0; i < puts; i++) {
+         List<Integer> value = new ArrayList<Integer>();
+         value.add(100 * (1 + i % 3));
+         calculator.calculateSize("k", value);
+      }
+      int expected = DefaultEntrySizeCalculator.EXACT_SAMPLES + (puts - DefaultEntrySizeCalculator.EXACT_SAMPLES) / DefaultEntrySizeCalculator.SAMPLING_INTERVAL;
+      assert Math.abs(calculator.marshalled - expected) <= 1 : calculator.marshalled + " values marshalled";
+
+      List<Integer> value = new ArrayList<Integer>();
+      value.add(0);
+      long size = calculator.calculateSize("k", value) - DefaultEntrySizeCalculator.ENTRY_OVERHEAD - 2;
+      assert size > 180 && size < 220 : "Values not sampled should be assumed to be the average size, but was " + size;
+   }
+
+   /**
+    * Pretends values are lists whose size is their first element, and counts how many are marshalled
+    */
+   static class CountingCalculator extends DefaultEntrySizeCalculator {
+      int marshalled;
+
+      @Override
+      long marshalledSize(Object o) {
+         marshalled++;
+         return (Integer) ((List<?>) o).get(0);
+      }
+   }
+}
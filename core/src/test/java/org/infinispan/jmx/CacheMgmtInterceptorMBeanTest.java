@@ -134,6 +134,33 @@ public class CacheMgmtInterceptorMBeanTest extends SingleCacheManagerTest {
       assertRemoveMisses(1);
    }
 
+   public void testLatencyPercentiles() throws Exception {
+      for (int i = 0; i < 100; i++) {
+         cache.put("key" + i, "value" + i);
+         cache.get("key" + i);
+         cache.get("key_ne" + i);
+         cache.remove("key" + i);
+      }
+      for (String op : new String[]{"Hit", "Miss", "Store", "Remove"}) {
+         long p50 = getLongAttribute(op + "LatencyP50");
+         long p99 = getLongAttribute(op + "LatencyP99");
+         long p999 = getLongAttribute(op + "LatencyP999");
+         long max = getLongAttribute(op + "LatencyMax");
+         assert max > 0 : op + " maximum latency not recorded";
+         assert p50 <= p99 && p99 <= p999 && p999 <= max : op + " percentiles out of order: " + p50 + ", " + p99 + ", " + p999 + ", " + max;
+      }
+
+      resetStats();
+      for (String op : new String[]{"Hit", "Miss", "Store", "Remove"}) {
+         assert getLongAttribute(op + "LatencyP99") == 0;
+         assert getLongAttribute(op + "LatencyMax") == 0;
+      }
+   }
+
+   private long getLongAttribute(String attrName) throws Exception {
+      return (Long) threadMBeanServer.getAttribute(mgmtInterceptor, attrName);
+   }
+
    private void assertAttributeValue(String attrName, float expectedValue) throws Exception {
       String receivedVal = threadMBeanServer.getAttribute(mgmtInterceptor, attrName).toString();
       assert Float.parseFloat(receivedVal) == expectedValue : "expecting " + expectedValue + " for " + attrName + ", but received " + receivedVal;
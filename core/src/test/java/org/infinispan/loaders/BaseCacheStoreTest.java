@@ -508,6 +508,29 @@ public abstract class BaseCacheStoreTest extends AbstractInfinispanTest {
       assert !s.contains("k3");
    }
 
+   public void testLoadMultipleKeys() throws Exception {
+      cs.store(InternalEntryFactory.create("k1", "v1"));
+      cs.store(InternalEntryFactory.create("k2", "v2"));
+      cs.store(InternalEntryFactory.create("k3", "v3"));
+      cs.store(InternalEntryFactory.create("k4", "v4", 1));
+      Thread.sleep(100);
+
+      Set<Object> keys = new HashSet<Object>();
+      keys.add("k1");
+      keys.add("k3");
+      keys.add("k4");
+      keys.add("missing");
+      Set<InternalCacheEntry> loaded = cs.load(keys);
+      assert loaded.size() == 2 : "Expected 2 entries, was " + loaded;
+      for (InternalCacheEntry e : loaded) {
+         if (e.getKey().equals("k1")) assert e.getValue().equals("v1");
+         else if (e.getKey().equals("k3")) assert e.getValue().equals("v3");
+         else assert false : "Unexpected entry " + e;
+      }
+
+      assert cs.load(Collections.<Object>emptySet()).isEmpty();
+   }
+
    public void testStreamingAPI() throws IOException, ClassNotFoundException, CacheLoaderException {
       cs.store(InternalEntryFactory.create("k1", "v1"));
       cs.store(InternalEntryFactory.create("k2", "v2"));
@@ -23,7 +23,10 @@ import org.testng.annotations.Test;
 import javax.transaction.Transaction;
 import javax.transaction.TransactionManager;
 import java.lang.reflect.Method;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.infinispan.test.TestingUtil.k;
 import static org.infinispan.test.TestingUtil.v;
@@ -450,6 +453,22 @@ public class CacheLoaderFunctionalTest extends AbstractInfinispanTest {
       assert "v2".equals(cache.get("k2"));
    }
 
+   public void testGetAllLoadsMissingKeys() throws CacheLoaderException {
+      assertNotInCacheAndStore("k1", "k2", "k3");
+      cache.put("k1", "v1");
+      store.store(InternalEntryFactory.create("k2", "v2"));
+
+      Map<String, String> values = cache.getAll(new HashSet<String>(Arrays.asList("k1", "k2", "k3")));
+      assert values.size() == 2 : "Expected 2 entries but got " + values;
+      assert "v1".equals(values.get("k1"));
+      assert "v2".equals(values.get("k2"));
+      assert !values.containsKey("k3");
+
+      assertInCacheAndStore("k2", "v2");
+      // make sure we have no stale locks!!
+      assertNoLocks(cache);
+   }
+
    public void testSkipLocking(Method m) {
       String name = m.getName();
       AdvancedCache advancedCache = cache.getAdvancedCache();
@@ -26,6 +26,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.ExecutorService;
@@ -342,6 +343,143 @@ public class AsyncTest extends AbstractInfinispanTest {
       }
    }
 
+   public void testModificationsFlushedInBatches(Method m) throws Exception {
+      try {
+         final List<Integer> batchSizes = new CopyOnWriteArrayList<Integer>();
+         final AtomicInteger twoPhasePrepares = new AtomicInteger();
+         DummyInMemoryCacheStore underlying = new DummyInMemoryCacheStore() {
+            @Override
+            public void prepare(List<? extends Modification> mods, GlobalTransaction tx, boolean isOnePhase) throws CacheLoaderException {
+               if (!isOnePhase) twoPhasePrepares.incrementAndGet();
+               batchSizes.add(mods.size());
+               super.prepare(mods, tx, isOnePhase);
+            }
+         };
+         AsyncStoreConfig batchingConfig = new AsyncStoreConfig().flushBatchSize(10).flushInterval(50L);
+         store = new AsyncStore(underlying, batchingConfig);
+         dummyCfg = new DummyInMemoryCacheStore.Cfg();
+         dummyCfg.setStore(m.getName());
+         store.init(dummyCfg, null, null);
+         store.start();
+
+         for (int i = 0; i < 25; i++) store.store(InternalEntryFactory.create(k(m, i), v(m, i)));
+         store.remove(k(m, 0));
+
+         for (int i = 1; i < 25; i++) {
+            while (store.load(k(m, i)) == null) TestingUtil.sleepThread(10, "still waiting for " + k(m, i));
+         }
+         while (store.containsKey(k(m, 0)) || store.getQueueDepth() > 0) TestingUtil.sleepThread(10);
+
+         assert twoPhasePrepares.get() == 0;
+         int total = 0;
+         for (int size : batchSizes) {
+            assert size <= 10 : "Batch too large: " + batchSizes;
+            total += size;
+         }
+         assert total >= 25 : "Not all modifications were flushed in batches: " + batchSizes;
+         assert store.getFlushCount() > 0;
+         assert store.getMaxFlushTime() > 0;
+
+         // a modification which does not fill a batch is flushed once the interval elapses
+         batchSizes.clear();
+         store.store(InternalEntryFactory.create(k(m, 100), v(m, 100)));
+         while (store.load(k(m, 100)) == null) TestingUtil.sleepThread(10, "still waiting for " + k(m, 100));
+         assert batchSizes.size() == 1 && batchSizes.get(0) == 1 : "Unexpected batches " + batchSizes;
+      } finally {
+         store.delegate.clear();
+         store.stop();
+         store = null;
+      }
+   }
+
+   public void testFailWhenTooManyPendingModifications(Method m) throws Exception {
+      final CountDownLatch delegateLatch = new CountDownLatch(1);
+      try {
+         store = new AsyncStore(new BlockingStore(delegateLatch),
+               new AsyncStoreConfig().maxPendingModifications(2).overflowPolicy(AsyncStoreConfig.OverflowPolicy.FAIL));
+         dummyCfg = new DummyInMemoryCacheStore.Cfg();
+         dummyCfg.setStore(m.getName());
+         store.init(dummyCfg, null, null);
+         store.start();
+
+         store.store(InternalEntryFactory.create(k(m, 1), v(m, 1)));
+         store.store(InternalEntryFactory.create(k(m, 2), v(m, 2)));
+         assert store.getQueueDepth() == 2;
+         try {
+            store.store(InternalEntryFactory.create(k(m, 3), v(m, 3)));
+            assert false : "Should have rejected the modification";
+         } catch (CacheException expected) {
+         }
+         assert store.getDroppedModifications() == 1;
+
+         delegateLatch.countDown();
+         while (store.getQueueDepth() > 0) TestingUtil.sleepThread(10);
+         store.store(InternalEntryFactory.create(k(m, 3), v(m, 3)));
+         while (store.load(k(m, 3)) == null) TestingUtil.sleepThread(10, "still waiting for " + k(m, 3));
+         assert store.load(k(m, 1)).getValue().equals(v(m, 1));
+         assert store.load(k(m, 2)).getValue().equals(v(m, 2));
+      } finally {
+         delegateLatch.countDown();
+         store.delegate.clear();
+         store.stop();
+         store = null;
+      }
+   }
+
+   public void testBlockWhenTooManyPendingModifications(Method m) throws Exception {
+      final CountDownLatch delegateLatch = new CountDownLatch(1);
+      try {
+         store = new AsyncStore(new BlockingStore(delegateLatch),
+               new AsyncStoreConfig().maxPendingModifications(1).overflowPolicy(AsyncStoreConfig.OverflowPolicy.BLOCK));
+         dummyCfg = new DummyInMemoryCacheStore.Cfg();
+         dummyCfg.setStore(m.getName());
+         store.init(dummyCfg, null, null);
+         store.start();
+
+         store.store(InternalEntryFactory.create(k(m, 1), v(m, 1)));
+         final String k2 = k(m, 2), v2 = v(m, 2);
+         Thread writer = new Thread() {
+            @Override
+            public void run() {
+               store.store(InternalEntryFactory.create(k2, v2));
+            }
+         };
+         writer.start();
+         writer.join(200);
+         assert writer.isAlive() : "Writer should be blocked until the pending modification is written";
+         assert store.getQueueDepth() == 1;
+
+         delegateLatch.countDown();
+         writer.join(5000);
+         assert !writer.isAlive();
+         while (store.load(k2) == null) TestingUtil.sleepThread(10, "still waiting for " + k2);
+         assert store.getDroppedModifications() == 0;
+      } finally {
+         delegateLatch.countDown();
+         store.delegate.clear();
+         store.stop();
+         store = null;
+      }
+   }
+
+   private static class BlockingStore extends DummyInMemoryCacheStore {
+      private final CountDownLatch latch;
+
+      BlockingStore(CountDownLatch latch) {
+         this.latch = latch;
+      }
+
+      @Override
+      public void store(InternalCacheEntry ed) {
+         try {
+            latch.await(10, TimeUnit.SECONDS);
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+         }
+         super.store(ed);
+      }
+   }
+
    private void doTestPut(int number, String key, String value) throws Exception {
       for (int i = 0; i < number; i++) {
          InternalCacheEntry cacheEntry = InternalEntryFactory.create(key + i, value + i);
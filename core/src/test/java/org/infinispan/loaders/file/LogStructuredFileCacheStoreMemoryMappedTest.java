@@ -0,0 +1,32 @@
+package org.infinispan.loaders.file;
+
+import org.infinispan.container.entries.InternalEntryFactory;
+import org.testng.annotations.Test;
+
+/**
+ * Runs the {@link LogStructuredFileCacheStore} tests with sealed segments read through memory mappings.
+ *
+ * @since 5.0
+ */
+@Test(groups = "unit", testName = "loaders.file.LogStructuredFileCacheStoreMemoryMappedTest")
+public class LogStructuredFileCacheStoreMemoryMappedTest extends LogStructuredFileCacheStoreTest {
+
+   @Override
+   protected boolean isMemoryMappedReads() {
+      return true;
+   }
+
+   public void testReadsFromSealedAndActiveSegments() throws Exception {
+      LogStructuredFileCacheStore store = (LogStructuredFileCacheStore) cs;
+      store.store(InternalEntryFactory.create("k1", "v1"));
+      store.store(InternalEntryFactory.create("k2", "v2"));
+      // restarting with a tiny segment size seals the segment holding k1 and k2
+      store.stop();
+      cs = store = createCacheStore(1);
+      store.store(InternalEntryFactory.create("k3", "v3"));
+      assert store.getSegmentCount() >= 2;
+      assert store.load("k1").getValue().equals("v1");
+      assert store.load("k2").getValue().equals("v2");
+      assert store.load("k3").getValue().equals("v3");
+   }
+}
@@ -0,0 +1,154 @@
+package org.infinispan.loaders.file;
+
+import org.infinispan.container.entries.InternalEntryFactory;
+import org.infinispan.loaders.BaseCacheStoreTest;
+import org.infinispan.loaders.CacheLoaderException;
+import org.infinispan.loaders.CacheStore;
+import org.infinispan.test.TestingUtil;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Optional;
+import org.testng.annotations.Parameters;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+@Test(groups = "unit", testName = "loaders.file.LogStructuredFileCacheStoreTest")
+public class LogStructuredFileCacheStoreTest extends BaseCacheStoreTest {
+
+   private String tmpDirectory;
+
+   @BeforeClass
+   @Parameters({"basedir"})
+   protected void setUpTempDir(@Optional(value = "/tmp") String basedir) {
+      tmpDirectory = TestingUtil.tmpDirectory(basedir, this);
+   }
+
+   @AfterClass
+   protected void clearTempDir() {
+      TestingUtil.recursiveFileRemove(tmpDirectory);
+      new File(tmpDirectory).mkdirs();
+   }
+
+   protected CacheStore createCacheStore() throws CacheLoaderException {
+      clearTempDir();
+      return createCacheStore(16 * 1024 * 1024);
+   }
+
+   protected LogStructuredFileCacheStore createCacheStore(long maxSegmentSize) throws CacheLoaderException {
+      LogStructuredFileCacheStore store = new LogStructuredFileCacheStore();
+      LogStructuredFileCacheStoreConfig cfg = new LogStructuredFileCacheStoreConfig();
+      cfg.setLocation(tmpDirectory);
+      cfg.setMaxSegmentSize(maxSegmentSize);
+      cfg.setMemoryMappedReads(isMemoryMappedReads());
+      cfg.setPurgeSynchronously(true); // for more accurate unit testing
+      store.init(cfg, getCache(), getMarshaller());
+      store.start();
+      return store;
+   }
+
+   protected boolean isMemoryMappedReads() {
+      return false;
+   }
+
+   private void replaceCacheStore(long maxSegmentSize) throws CacheLoaderException {
+      cs.stop();
+      cs = createCacheStore(maxSegmentSize);
+   }
+
+   public void testIndexRebuiltOnStart() throws Exception {
+      cs.store(InternalEntryFactory.create("k1", "v1"));
+      cs.store(InternalEntryFactory.create("k2", "v2"));
+      cs.store(InternalEntryFactory.create("k1", "v1-updated"));
+      cs.store(InternalEntryFactory.create("k3", "v3"));
+      cs.remove("k2");
+      cs.remove("k4");
+
+      cs.stop();
+      cs.start();
+
+      assert cs.load("k1").getValue().equals("v1-updated");
+      assert cs.load("k2") == null;
+      assert !cs.containsKey("k2");
+      assert cs.load("k3").getValue().equals("v3");
+      assert cs.loadAll().size() == 2;
+      assert !cs.remove("k2");
+      assert cs.remove("k3");
+   }
+
+   public void testCompaction() throws Exception {
+      replaceCacheStore(1024);
+      LogStructuredFileCacheStore store = (LogStructuredFileCacheStore) cs;
+      for (int i = 0; i < 50; i++) {
+         for (int j = 0; j < 10; j++) store.store(InternalEntryFactory.create("k" + j, "v" + j + "-" + i));
+      }
+      store.remove("k9");
+      int segments = store.getSegmentCount();
+      assert segments > 5 : "Expected several segments, but only got " + segments;
+
+      store.compact();
+      assert store.getSegmentCount() < segments : store.getSegmentCount() + " segments left out of " + segments;
+      for (int j = 0; j < 9; j++) assert store.load("k" + j).getValue().equals("v" + j + "-49");
+      assert store.load("k9") == null;
+
+      store.stop();
+      store.start();
+      for (int j = 0; j < 9; j++) assert store.load("k" + j).getValue().equals("v" + j + "-49");
+      assert store.load("k9") == null;
+      assert store.loadAllKeys(null).size() == 9;
+   }
+
+   public void testTombstonesDroppedOnceNothingLeftToShadow() throws Exception {
+      replaceCacheStore(1024);
+      LogStructuredFileCacheStore store = (LogStructuredFileCacheStore) cs;
+      // a first segment which stays live, so it is never compacted
+      for (int i = 0; store.getSegmentCount() < 2; i++) store.store(InternalEntryFactory.create("live" + i, "v" + i));
+      store.store(InternalEntryFactory.create("live0", "v0-updated"));
+      store.remove("live1");
+
+      for (int round = 0; round < 50; round++) {
+         for (int j = 0; j < 10; j++) store.store(InternalEntryFactory.create("k" + round + "-" + j, "v" + j));
+         for (int j = 0; j < 10; j++) store.remove("k" + round + "-" + j);
+         store.purgeExpired();
+         store.compact();
+      }
+      assert store.getSegmentCount() < 6 : store.getSegmentCount() + " segments left";
+
+      store.stop();
+      store.start();
+      assert store.load("live0").getValue().equals("v0-updated");
+      assert store.load("live1") == null : "Tombstone of a key with an older record left should be kept";
+      assert store.load("live2").getValue().equals("v2");
+      assert store.load("k49-0") == null;
+   }
+
+   public void testTruncatedRecordDiscardedOnStart() throws Exception {
+      LogStructuredFileCacheStore store = (LogStructuredFileCacheStore) cs;
+      store.store(InternalEntryFactory.create("k1", "v1"));
+      store.store(InternalEntryFactory.create("k2", "v2"));
+      File root = store.getRoot();
+      store.stop();
+
+      File[] files = root.listFiles();
+      assert files.length == 1;
+      // a record header announcing more bytes than what follows, as left by a crash in the middle of an append
+      FileOutputStream out = new FileOutputStream(files[0], true);
+      try {
+         out.write(new byte[]{0, 0, 1, 0, 1, 2, 3, 4, 1});
+      } finally {
+         out.close();
+      }
+      long length = files[0].length();
+
+      store.start();
+      assert files[0].length() == length - 9;
+      assert store.load("k1").getValue().equals("v1");
+      assert store.load("k2").getValue().equals("v2");
+      store.store(InternalEntryFactory.create("k3", "v3"));
+
+      store.stop();
+      store.start();
+      assert store.loadAll().size() == 3;
+   }
+}
@@ -64,6 +64,14 @@ public class MapStressTest {
         doTest(new BoundedConcurrentHashMap<Integer, Integer>(MAP_CAPACITY, CONCURRENCY, Eviction.LIRS));
     }
 
+    public void testBufferedConcurrentHashMapFIFO() throws Exception {
+        doTest(new BoundedConcurrentHashMap<Integer, Integer>(MAP_CAPACITY, CONCURRENCY, Eviction.FIFO));
+    }
+
+    public void testBufferedConcurrentHashMapUNORDERED() throws Exception {
+        doTest(new BoundedConcurrentHashMap<Integer, Integer>(MAP_CAPACITY, CONCURRENCY, Eviction.UNORDERED));
+    }
+
     public void testHashMap() throws Exception {
         doTest(Collections.synchronizedMap(new HashMap<Integer, Integer>(MAP_CAPACITY, MAP_LOAD_FACTOR)));
     }
@@ -0,0 +1,119 @@
+package org.infinispan.util.concurrent;
+
+import org.infinispan.test.AbstractInfinispanTest;
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap.Eviction;
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap.NullEvictionListener;
+import org.infinispan.util.logging.Log;
+import org.infinispan.util.logging.LogFactory;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Replays the same Zipf distributed sequence of reads against maps evicting per segment and across segments, and
+ * compares their hit rates with those of a single exact LRU or LIRS ordering of all the entries. The same sequence,
+ * interrupted by scans over keys read only once, checks that TinyLFU keeps the frequently read entries.
+ */
+@Test(groups = "functional", testName = "util.concurrent.BoundedConcurrentHashMapHitRateTest")
+public class BoundedConcurrentHashMapHitRateTest extends AbstractInfinispanTest {
+
+   // a power of two, so that a single segment holds exactly that many entries
+   private static final int CAPACITY = 1024;
+   private static final int SEGMENTS = 16;
+   private static final int KEYS = 20 * CAPACITY;
+   private static final int REQUESTS = 300000;
+   private static final double SKEW = 0.9;
+   private static final double TOLERANCE = 0.01;
+   private static final int SCAN_INTERVAL = 10000;
+   private static final int SCAN_LENGTH = 3000;
+
+   private static final Log log = LogFactory.getLog(BoundedConcurrentHashMapHitRateTest.class);
+
+   private int[] requests;
+   private int[] scannedRequests;
+
+   @BeforeClass
+   public void generateRequests() {
+      double[] cumulative = new double[KEYS];
+      double total = 0;
+      for (int i = 0; i < KEYS; i++) {
+         total += 1 / Math.pow(i + 1, SKEW);
+         cumulative[i] = total;
+      }
+      Random random = new Random(42);
+      requests = new int[REQUESTS];
+      for (int i = 0; i < REQUESTS; i++) {
+         int key = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+         requests[i] = key < 0 ? -key - 1 : key;
+      }
+      // keys from KEYS upwards are only ever read once
+      scannedRequests = requests.clone();
+      int scanned = KEYS;
+      for (int i = 0; i < REQUESTS; i += SCAN_INTERVAL) {
+         for (int j = i; j < Math.min(i + SCAN_LENGTH, REQUESTS); j++) scannedRequests[j] = scanned++;
+      }
+   }
+
+   public void testLRUAcrossSegmentsMatchesExactLRU() {
+      Map<Integer, Integer> exact = new LinkedHashMap<Integer, Integer>(CAPACITY, 0.75f, true) {
+         @Override
+         protected boolean removeEldestEntry(Map.Entry<Integer, Integer> eldest) {
+            return size() > CAPACITY;
+         }
+      };
+      assertCloseToExact(Eviction.LRU, hitRate(exact));
+   }
+
+   public void testLIRSAcrossSegmentsMatchesSingleSegmentLIRS() {
+      assertCloseToExact(Eviction.LIRS, hitRate(map(Eviction.LIRS, 1, false)));
+   }
+
+   public void testTinyLFUResistsScans() {
+      double lru = hitRate(map(Eviction.LRU, SEGMENTS, false), scannedRequests);
+      double lirs = hitRate(map(Eviction.LIRS, SEGMENTS, false), scannedRequests);
+      double tinyLfu = hitRate(map(Eviction.TINY_LFU, SEGMENTS, false), scannedRequests);
+      log.debug("Hit rates with scans: LRU %s, LIRS %s, TinyLFU %s", lru, lirs, tinyLfu);
+
+      assert tinyLfu > lru + TOLERANCE : "TinyLFU hit " + tinyLfu + ", LRU " + lru;
+      assert tinyLfu > lirs + TOLERANCE : "TinyLFU hit " + tinyLfu + ", LIRS " + lirs;
+   }
+
+   private void assertCloseToExact(Eviction eviction, double exact) {
+      double perSegment = hitRate(map(eviction, SEGMENTS, false));
+      double acrossSegments = hitRate(map(eviction, SEGMENTS, true));
+      log.debug("%s hit rates: exact %s, per segment %s, across segments %s", eviction, exact, perSegment, acrossSegments);
+
+      assert acrossSegments > perSegment : eviction + " across segments hit " + acrossSegments + ", per segment " + perSegment;
+      assert acrossSegments > exact - TOLERANCE : eviction + " across segments hit " + acrossSegments + ", exact " + exact;
+   }
+
+   private BoundedConcurrentHashMap<Integer, Integer> map(Eviction eviction, int segments, boolean acrossSegments) {
+      return new BoundedConcurrentHashMap<Integer, Integer>(CAPACITY, segments, eviction,
+            new NullEvictionListener<Integer, Integer>(), null, -1, acrossSegments);
+   }
+
+   private double hitRate(Map<Integer, Integer> map) {
+      return hitRate(map, requests);
+   }
+
+   /**
+    * @return the hit rate of the keys which are read more than once
+    */
+   private double hitRate(Map<Integer, Integer> map, int[] requests) {
+      int hits = 0, reads = 0;
+      for (int key : requests) {
+         if (map.get(key) != null) {
+            if (key < KEYS) hits++;
+         } else {
+            map.put(key, key);
+         }
+         if (key < KEYS) reads++;
+      }
+      assert map.size() <= CAPACITY : "Map grew to " + map.size();
+      return (double) hits / reads;
+   }
+}
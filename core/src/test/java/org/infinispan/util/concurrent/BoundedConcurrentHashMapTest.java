@@ -0,0 +1,307 @@
+package org.infinispan.util.concurrent;
+
+import org.infinispan.eviction.EntrySizeCalculator;
+import org.infinispan.test.AbstractInfinispanTest;
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap.Eviction;
+import org.testng.annotations.Test;
+
+@Test(groups = "unit", testName = "util.concurrent.BoundedConcurrentHashMapTest")
+public class BoundedConcurrentHashMapTest extends AbstractInfinispanTest {
+
+   private static final int CAPACITY = 16;
+   private static final long MAX_WEIGHT = 1000;
+
+   private static final EntrySizeCalculator<Integer, byte[]> BYTES = new EntrySizeCalculator<Integer, byte[]>() {
+      public long calculateSize(Integer key, byte[] value) {
+         return value.length;
+      }
+   };
+
+   public void testFIFOIgnoresAccessOrder() {
+      BoundedConcurrentHashMap<Integer, Integer> map = new BoundedConcurrentHashMap<Integer, Integer>(CAPACITY, 1, Eviction.FIFO);
+      for (int i = 0; i < CAPACITY; i++) {
+         map.put(i, i);
+         // reading the eldest entry must not save it from eviction
+         assert map.get(0) != null;
+      }
+      map.put(CAPACITY, CAPACITY);
+
+      assert map.size() <= CAPACITY;
+      assert !map.containsKey(0) : "Eldest entry should have been evicted";
+      assert map.containsKey(CAPACITY - 1);
+      assert map.containsKey(CAPACITY);
+   }
+
+   public void testFIFOKeepsOrderOfEntriesClonedByRemoval() {
+      BoundedConcurrentHashMap<Object, Integer> map = new BoundedConcurrentHashMap<Object, Integer>(CAPACITY, 1, Eviction.FIFO);
+      // colliding keys share a bin, so removing the middle one clones the one inserted after it
+      map.put(new CollidingKey(0), 0);
+      map.put(new CollidingKey(1), 1);
+      map.put(new CollidingKey(2), 2);
+      map.put(0, 0);
+      map.put(1, 1);
+      map.remove(new CollidingKey(1));
+
+      int next = 2;
+      while (map.containsKey(new CollidingKey(0))) {
+         map.put(next, next);
+         next++;
+      }
+      // the eldest entries are evicted together, and the clone is the second eldest
+      assert !map.containsKey(new CollidingKey(2)) : "Cloned entry should have kept its place in the insertion order";
+      assert map.containsKey(next - 1);
+   }
+
+   public void testLRUKeepsOrderOfEntriesClonedByRemoval() {
+      BoundedConcurrentHashMap<Object, Integer> map = new BoundedConcurrentHashMap<Object, Integer>(CAPACITY, 1, Eviction.LRU);
+      map.put(new CollidingKey(0), 0);
+      map.put(new CollidingKey(1), 1);
+      map.put(new CollidingKey(2), 2);
+      map.put(0, 0);
+      map.put(1, 1);
+      map.remove(new CollidingKey(1));
+      // a hit on the clone must move it, not the entry it replaced
+      assert map.get(new CollidingKey(2)) == 2;
+
+      int next = 2;
+      while (map.containsKey(new CollidingKey(0))) {
+         map.put(next, next);
+         next++;
+      }
+      assert map.containsKey(new CollidingKey(2)) : "Cloned entry should have been moved by the hit";
+      assert !map.containsKey(0);
+   }
+
+   public void testLRURespectsAccessOrder() {
+      BoundedConcurrentHashMap<Integer, Integer> map = new BoundedConcurrentHashMap<Integer, Integer>(CAPACITY, 1, Eviction.LRU);
+      for (int i = 0; i < CAPACITY; i++) {
+         map.put(i, i);
+         assert map.get(0) != null;
+      }
+      map.put(CAPACITY, CAPACITY);
+
+      assert map.size() <= CAPACITY;
+      assert map.containsKey(0) : "Most recently used entry should not have been evicted";
+      assert !map.containsKey(1);
+   }
+
+   public void testUnorderedBoundsSize() {
+      BoundedConcurrentHashMap<Integer, Integer> map = new BoundedConcurrentHashMap<Integer, Integer>(CAPACITY, 1, Eviction.UNORDERED);
+      for (int i = 0; i < CAPACITY * 10; i++) {
+         map.put(i, i);
+         assert map.size() <= CAPACITY : "Map grew to " + map.size();
+      }
+      assert map.containsKey(CAPACITY * 10 - 1) : "Newly inserted entry should never be the victim";
+      for (int i = 0; i < CAPACITY * 10; i++) map.remove(i);
+      assert map.isEmpty();
+   }
+
+   public void testWeightBoundsTotalSize() {
+      for (Eviction eviction : new Eviction[] {Eviction.LRU, Eviction.FIFO, Eviction.UNORDERED, Eviction.LIRS, Eviction.TINY_LFU}) {
+         BoundedConcurrentHashMap<Integer, byte[]> map = weighted(eviction);
+         for (int i = 0; i < 100; i++) {
+            map.put(i, new byte[i % 3 == 0 ? 300 : 10]);
+            assert map.weight() <= MAX_WEIGHT : eviction + " map grew to " + map.weight();
+            assert map.weight() == totalSize(map) : eviction + " map weighs " + map.weight() + " rather than " + totalSize(map);
+         }
+         if (eviction != Eviction.UNORDERED)
+            assert map.size() > 3 : eviction + " should not evict recent small entries to make room for large ones";
+      }
+   }
+
+   public void testLRUWeightRespectsAccessOrder() {
+      BoundedConcurrentHashMap<Integer, byte[]> map = weighted(Eviction.LRU);
+      for (int i = 0; i < 10; i++) {
+         map.put(i, new byte[100]);
+         assert map.get(0) != null;
+      }
+      map.put(10, new byte[100]);
+
+      assert map.weight() == MAX_WEIGHT;
+      assert map.containsKey(0) : "Most recently used entry should not have been evicted";
+      assert !map.containsKey(1);
+   }
+
+   public void testWeightFollowsValueUpdates() {
+      BoundedConcurrentHashMap<Integer, byte[]> map = weighted(Eviction.LRU);
+      map.put(1, new byte[100]);
+      map.put(2, new byte[100]);
+      assert map.weight() == 200;
+
+      map.put(1, new byte[300]);
+      assert map.weight() == 400;
+      map.replace(2, new byte[50]);
+      assert map.weight() == 350;
+
+      // growing an entry evicts others
+      map.put(3, new byte[100]);
+      map.replace(3, new byte[700]);
+      assert map.weight() <= MAX_WEIGHT;
+      assert map.containsKey(3);
+
+      map.remove(3);
+      assert map.weight() == totalSize(map);
+      map.clear();
+      assert map.weight() == 0;
+   }
+
+   public void testOversizedEntryIsEvicted() {
+      BoundedConcurrentHashMap<Integer, byte[]> map = weighted(Eviction.LRU);
+      map.put(1, new byte[10]);
+      map.put(2, new byte[(int) MAX_WEIGHT + 1]);
+
+      assert !map.containsKey(2);
+      assert map.weight() <= MAX_WEIGHT;
+   }
+
+   public void testWeightIsBoundedForWholeMap() {
+      BoundedConcurrentHashMap<Integer, byte[]> map = new BoundedConcurrentHashMap<Integer, byte[]>(1024, 16, Eviction.LRU,
+            new BoundedConcurrentHashMap.NullEvictionListener<Integer, byte[]>(), BYTES, MAX_WEIGHT);
+      assert map.maxWeight() == MAX_WEIGHT;
+      // much larger than a sixteenth of the maximum weight
+      map.put(0, new byte[(int) MAX_WEIGHT / 2]);
+      assert map.containsKey(0);
+
+      for (int i = 1; i < 1000; i++) {
+         map.put(i, new byte[10]);
+         assert map.weight() == totalSize(map) : "Map weighs " + map.weight() + " rather than " + totalSize(map);
+         // each segment keeps its last entry
+         assert map.weight() <= MAX_WEIGHT + 16 * MAX_WEIGHT / 2 : "Map grew to " + map.weight();
+      }
+      assert !map.containsKey(0) : "Least recently used entry should have been evicted";
+      assert map.weight() <= MAX_WEIGHT + 16 * 10 : "Map grew to " + map.weight();
+      assert map.weight() > MAX_WEIGHT / 2 : "Map shrank to " + map.weight();
+   }
+
+   public void testFailingSizeCalculatorLeavesMapUnchanged() {
+      EntrySizeCalculator<Integer, byte[]> failing = new EntrySizeCalculator<Integer, byte[]>() {
+         public long calculateSize(Integer key, byte[] value) {
+            if (value.length == 0) throw new IllegalStateException("Can't weigh an empty value");
+            return value.length;
+         }
+      };
+      BoundedConcurrentHashMap<Integer, byte[]> map = new BoundedConcurrentHashMap<Integer, byte[]>(1024, 1, Eviction.LRU,
+            new BoundedConcurrentHashMap.NullEvictionListener<Integer, byte[]>(), failing, MAX_WEIGHT);
+      map.put(1, new byte[10]);
+      try {
+         map.put(2, new byte[0]);
+         assert false : "Should have failed to weigh the value";
+      } catch (IllegalStateException expected) {
+      }
+      try {
+         map.replace(1, new byte[0]);
+         assert false : "Should have failed to weigh the value";
+      } catch (IllegalStateException expected) {
+      }
+      assert !map.containsKey(2);
+      assert map.get(1).length == 10;
+      assert map.size() == 1;
+      assert map.weight() == 10;
+   }
+
+   public void testUnweightedMapReportsNoWeight() {
+      BoundedConcurrentHashMap<Integer, Integer> map = new BoundedConcurrentHashMap<Integer, Integer>(CAPACITY, 1, Eviction.LRU);
+      map.put(1, 1);
+      assert map.weight() == -1;
+      assert map.maxWeight() == -1;
+   }
+
+   public void testAcrossSegmentsBoundsWholeMap() {
+      for (Eviction eviction : new Eviction[] {Eviction.LRU, Eviction.FIFO, Eviction.UNORDERED, Eviction.LIRS}) {
+         BoundedConcurrentHashMap<Integer, Integer> map = new BoundedConcurrentHashMap<Integer, Integer>(100, 8, eviction,
+               new BoundedConcurrentHashMap.NullEvictionListener<Integer, Integer>(), null, -1, true);
+         for (int i = 0; i < 1000; i++) {
+            map.put(i, i);
+            assert map.size() <= 100 : eviction + " map grew to " + map.size();
+         }
+         // rather than each segment being trimmed down to its share
+         assert map.size() == 100 : eviction + " map shrank to " + map.size();
+         map.clear();
+         map.put(1, 1);
+         assert map.size() == 1;
+      }
+   }
+
+   public void testAcrossSegmentsKeepsEntriesLargerThanSegmentShare() {
+      BoundedConcurrentHashMap<Integer, byte[]> map = new BoundedConcurrentHashMap<Integer, byte[]>(1024, 16, Eviction.LRU,
+            new BoundedConcurrentHashMap.NullEvictionListener<Integer, byte[]>(), BYTES, MAX_WEIGHT, true);
+      assert map.maxWeight() == MAX_WEIGHT;
+      map.put(1, new byte[(int) MAX_WEIGHT / 2]);
+      map.put(2, new byte[(int) MAX_WEIGHT / 2]);
+      assert map.containsKey(1) && map.containsKey(2);
+      assert map.weight() == MAX_WEIGHT;
+
+      map.put(3, new byte[10]);
+      assert !map.containsKey(1) : "Least recently used entry should have been evicted";
+      assert map.containsKey(2) && map.containsKey(3);
+      assert map.weight() == totalSize(map);
+   }
+
+   public void testTinyLFUKeepsFrequentEntriesDuringScan() {
+      BoundedConcurrentHashMap<Integer, Integer> map = new BoundedConcurrentHashMap<Integer, Integer>(CAPACITY, 1, Eviction.TINY_LFU);
+      for (int i = 0; i < CAPACITY; i++) map.put(i, i);
+      // enough reads for the batched hits to be recorded
+      for (int round = 0; round < 10; round++) {
+         for (int i = 0; i < CAPACITY; i++) assert map.get(i) != null;
+      }
+
+      for (int i = CAPACITY; i < CAPACITY * 10; i++) {
+         map.put(i, i);
+         assert map.size() <= CAPACITY : "Map grew to " + map.size();
+      }
+      for (int i = 0; i < CAPACITY; i++) assert map.containsKey(i) : "Frequently read entry " + i + " was evicted by the scan";
+      // rather than being trimmed down like LRU
+      assert map.size() == CAPACITY;
+   }
+
+   public void testTinyLFUAdmitsEntriesAccessedAgain() {
+      BoundedConcurrentHashMap<Integer, Integer> map = new BoundedConcurrentHashMap<Integer, Integer>(CAPACITY, 1, Eviction.TINY_LFU);
+      for (int i = 0; i < CAPACITY; i++) map.put(i, i);
+
+      map.put(CAPACITY, CAPACITY);
+      assert !map.containsKey(CAPACITY) : "Entry accessed as often as the least recently used one should be rejected";
+      assert map.containsKey(0);
+
+      map.put(CAPACITY, CAPACITY);
+      assert map.containsKey(CAPACITY) : "Entry accessed more often than the least recently used one should be admitted";
+      assert !map.containsKey(0);
+      assert map.size() == CAPACITY;
+   }
+
+   @Test(expectedExceptions = IllegalArgumentException.class)
+   public void testTinyLFUCannotEvictAcrossSegments() {
+      new BoundedConcurrentHashMap<Integer, Integer>(100, 8, Eviction.TINY_LFU,
+            new BoundedConcurrentHashMap.NullEvictionListener<Integer, Integer>(), null, -1, true);
+   }
+
+   private BoundedConcurrentHashMap<Integer, byte[]> weighted(Eviction eviction) {
+      BoundedConcurrentHashMap<Integer, byte[]> map = new BoundedConcurrentHashMap<Integer, byte[]>(1024, 1, eviction,
+            new BoundedConcurrentHashMap.NullEvictionListener<Integer, byte[]>(), BYTES, MAX_WEIGHT);
+      assert map.maxWeight() == MAX_WEIGHT;
+      return map;
+   }
+
+   private long totalSize(BoundedConcurrentHashMap<Integer, byte[]> map) {
+      long size = 0;
+      for (byte[] value : map.values()) size += value.length;
+      return size;
+   }
+
+   private static final class CollidingKey {
+      private final int id;
+
+      CollidingKey(int id) {
+         this.id = id;
+      }
+
+      @Override
+      public boolean equals(Object o) {
+         return o instanceof CollidingKey && ((CollidingKey) o).id == id;
+      }
+
+      @Override
+      public int hashCode() {
+         return 42;
+      }
+   }
+}
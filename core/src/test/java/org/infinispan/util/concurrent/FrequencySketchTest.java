@@ -0,0 +1,45 @@
+package org.infinispan.util.concurrent;
+
+import org.infinispan.test.AbstractInfinispanTest;
+import org.testng.annotations.Test;
+
+@Test(groups = "unit", testName = "util.concurrent.FrequencySketchTest")
+public class FrequencySketchTest extends AbstractInfinispanTest {
+
+   public void testCountsIncrements() {
+      FrequencySketch sketch = new FrequencySketch(64);
+      assert sketch.frequency(42) == 0;
+      for (int i = 0; i < 5; i++) sketch.increment(42);
+      // collisions can only overestimate
+      assert sketch.frequency(42) >= 5 : "Frequency was " + sketch.frequency(42);
+      for (int i = 0; i < 100; i++) sketch.increment(42);
+      assert sketch.frequency(42) == 15 : "Counters should saturate, frequency was " + sketch.frequency(42);
+   }
+
+   public void testTellsPopularHashesApart() {
+      FrequencySketch sketch = new FrequencySketch(64);
+      for (int i = 0; i < 64; i++) {
+         for (int j = 0; j <= i % 4; j++) sketch.increment(i);
+      }
+      int overestimated = 0;
+      for (int i = 0; i < 64; i++) {
+         assert sketch.frequency(i) >= i % 4 + 1;
+         if (sketch.frequency(i) > i % 4 + 1) overestimated++;
+      }
+      assert overestimated < 8 : overestimated + " hashes were overestimated";
+   }
+
+   public void testResetHalvesCounters() {
+      FrequencySketch sketch = new FrequencySketch(16);
+      for (int i = 0; i < 10; i++) sketch.increment(-1);
+      int before = sketch.frequency(-1);
+      // the sketch ages once it has recorded ten increments per hash it was sized for
+      for (int i = 0; i < 150; i++) sketch.increment(i);
+      assert sketch.frequency(-1) < before : "Frequency was " + sketch.frequency(-1) + " before and after aging";
+
+      sketch.reset();
+      sketch.reset();
+      sketch.reset();
+      assert sketch.frequency(-1) == 0;
+   }
+}
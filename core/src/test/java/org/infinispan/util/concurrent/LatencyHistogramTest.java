@@ -0,0 +1,81 @@
+package org.infinispan.util.concurrent;
+
+import org.infinispan.test.AbstractInfinispanTest;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+@Test(groups = "unit", testName = "util.concurrent.LatencyHistogramTest")
+public class LatencyHistogramTest extends AbstractInfinispanTest {
+
+   public void testBucketsCoverAllValues() {
+      long previousUpperBound = -1;
+      for (int i = 0; i < LatencyHistogram.BUCKETS; i++) {
+         long upperBound = LatencyHistogram.bucketUpperBound(i);
+         assert upperBound > previousUpperBound;
+         assert LatencyHistogram.bucketIndex(previousUpperBound + 1) == i;
+         assert LatencyHistogram.bucketIndex(upperBound) == i;
+         previousUpperBound = upperBound;
+      }
+      assert previousUpperBound == Long.MAX_VALUE;
+   }
+
+   public void testPercentiles() {
+      LatencyHistogram histogram = new LatencyHistogram(4);
+      assert histogram.getPercentile(99) == 0;
+      assert histogram.getMax() == 0;
+
+      for (int i = 1; i <= 100000; i++) histogram.record(i);
+      assert histogram.getCount() == 100000;
+      assert histogram.getTotal() == 5000050000L;
+      assert histogram.getMax() == 100000;
+      assertWithinError(histogram.getPercentile(50), 50000);
+      assertWithinError(histogram.getPercentile(99), 99000);
+      assertWithinError(histogram.getPercentile(99.9), 99900);
+      assert histogram.getPercentile(100) == 100000;
+
+      histogram.reset();
+      assert histogram.getCount() == 0;
+      assert histogram.getPercentile(50) == 0;
+      assert histogram.getMax() == 0;
+   }
+
+   public void testTailLatency() {
+      LatencyHistogram histogram = new LatencyHistogram(1);
+      histogram.record(1000, 9990);
+      histogram.record(5000000, 10);
+      assertWithinError(histogram.getPercentile(50), 1000);
+      assertWithinError(histogram.getPercentile(99), 1000);
+      assert histogram.getPercentile(99.95) == 5000000;
+      assert histogram.getMax() == 5000000;
+   }
+
+   public void testConcurrentRecording() throws Exception {
+      final LatencyHistogram histogram = new LatencyHistogram(8);
+      final CountDownLatch start = new CountDownLatch(1);
+      Thread[] threads = new Thread[8];
+      for (int t = 0; t < threads.length; t++) {
+         threads[t] = new Thread() {
+            @Override
+            public void run() {
+               try {
+                  start.await();
+               } catch (InterruptedException e) {
+                  return;
+               }
+               for (int i = 0; i < 10000; i++) histogram.record(i);
+            }
+         };
+         threads[t].start();
+      }
+      start.countDown();
+      for (Thread t : threads) t.join();
+      assert histogram.getCount() == 80000;
+      assert histogram.getMax() == 9999;
+   }
+
+   private void assertWithinError(long actual, long expected) {
+      assert actual >= expected && actual <= expected + expected / 8 :
+            "Expected " + expected + " within 12.5%, but was " + actual;
+   }
+}
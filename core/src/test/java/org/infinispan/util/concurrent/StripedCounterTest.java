@@ -0,0 +1,49 @@
+package org.infinispan.util.concurrent;
+
+import org.infinispan.test.AbstractInfinispanTest;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+@Test(groups = "unit", testName = "util.concurrent.StripedCounterTest")
+public class StripedCounterTest extends AbstractInfinispanTest {
+
+   public void testSingleThreaded() {
+      StripedCounter counter = new StripedCounter();
+      assert counter.sum() == 0;
+      counter.increment();
+      counter.add(41);
+      counter.add(-2);
+      assert counter.sum() == 40;
+      counter.reset();
+      assert counter.sum() == 0;
+   }
+
+   public void testConcurrentUpdates() throws Exception {
+      final StripedCounter counter = new StripedCounter();
+      final CountDownLatch start = new CountDownLatch(1);
+      Thread[] threads = new Thread[16];
+      for (int t = 0; t < threads.length; t++) {
+         threads[t] = new Thread() {
+            @Override
+            public void run() {
+               try {
+                  start.await();
+               } catch (InterruptedException e) {
+                  return;
+               }
+               for (int i = 0; i < 100000; i++) counter.increment();
+            }
+         };
+         threads[t].start();
+      }
+      start.countDown();
+      for (Thread t : threads) t.join();
+      assert counter.sum() == 1600000 : "Counter was " + counter.sum();
+
+      counter.reset();
+      assert counter.sum() == 0;
+      counter.add(5);
+      assert counter.sum() == 5;
+   }
+}
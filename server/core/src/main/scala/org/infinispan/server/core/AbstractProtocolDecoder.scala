@@ -25,6 +25,18 @@ abstract class AbstractProtocolDecoder[K, V <: CacheValue] extends Decoder {
 
    private val versionCounter = new AtomicInteger
    private val isTrace = isTraceEnabled
+   private var requestExecutor: RequestExecutor = _
+   private var requestQueue: ConnectionRequestQueue = _
+
+   /**
+    * Hands the execution of the requests read by this decoder over to the given executor. Unless an executor is set,
+    * requests are executed by the I/O thread that read them.
+    */
+   def setRequestExecutor(executor: RequestExecutor): this.type = {
+      requestExecutor = executor
+      requestQueue = if (executor != null) executor.newConnectionQueue else null
+      this
+   }
 
    override def decode(ctx: ChannelHandlerContext, buffer: ChannelBuffer): AnyRef = {
       var optionalHeader: Option[SuitableHeader] = None
@@ -32,23 +44,32 @@ abstract class AbstractProtocolDecoder[K, V <: CacheValue] extends Decoder {
          optionalHeader = readHeader(buffer)
          if (optionalHeader == None) return null // Something went wrong reading the header, so get more bytes
          val header = optionalHeader.get
-         val ret = header.op match {
+         // Everything the request needs is read off the buffer here, in the I/O thread, and the cache operation
+         // itself is deferred to the request, which can then be executed elsewhere
+         val request = header.op match {
             case PutRequest | PutIfAbsentRequest | ReplaceRequest | ReplaceIfUnmodifiedRequest | RemoveRequest => {
                val (k, params) = readKeyAndParams(header, buffer)
                val cache = getCache(header)
-               header.op match {
+               new Request(false, header.op match {
                   case PutRequest => put(header, k, params, cache)
                   case PutIfAbsentRequest => putIfAbsent(header, k, params, cache)
                   case ReplaceRequest => replace(header, k, params, cache)
                   case ReplaceIfUnmodifiedRequest => replaceIfUmodified(header, k, params, cache)
                   case RemoveRequest => remove(header, k, params, cache)
-               }
+               })
+            }
+            case GetRequest | GetWithVersionRequest => {
+               val keys = readGetKeys(header, buffer)
+               val cache = getCache(header)
+               new Request(isLocalRead(cache, keys), get(header, keys, cache))
+            }
+            case StatsRequest => {
+               val cache = getCache(header)
+               new Request(true, createStatsResponse(header, cache.getAdvancedCache.getStats))
             }
-            case GetRequest | GetWithVersionRequest => get(header, buffer, getCache(header))
-            case StatsRequest => createStatsResponse(header, getCache(header).getAdvancedCache.getStats)
             case _ => handleCustomRequest(header, buffer, getCache(header), ctx)
          }
-         writeResponse(ctx.getChannel, ret)
+         execute(ctx, header, request)
          null
       } catch {
          case e: Exception => {
@@ -67,6 +88,32 @@ abstract class AbstractProtocolDecoder[K, V <: CacheValue] extends Decoder {
       }
    }
 
+   /**
+    * Executes the request in the calling I/O thread if no request executor has been configured, or if the request
+    * does not block and no earlier request from the same connection is still pending. Otherwise, the request is
+    * queued behind any pending request from the same connection so that responses are written in order.
+    */
+   private def execute(ctx: ChannelHandlerContext, header: SuitableHeader, request: Request) {
+      if (requestQueue == null || (request.isNonBlocking && requestExecutor.isInlineLocalReads && requestQueue.isIdle)) {
+         writeResponse(ctx.getChannel, request.execute)
+      } else {
+         if (isTrace) trace("Queue execution of request with header {0}", header)
+         requestQueue.execute(new Runnable {
+            override def run {
+               try {
+                  writeResponse(ctx.getChannel, request.execute)
+               } catch {
+                  case e: Exception => {
+                     // The buffer has moved on by now, so it's not handed over
+                     val (serverException, _) = createServerException(e, Some(header), null)
+                     Channels.fireExceptionCaught(ctx.getChannel, serverException)
+                  }
+               }
+            }
+         })
+      }
+   }
+
    protected def readKeyAndParams(h: SuitableHeader, b: ChannelBuffer): (K, Option[SuitableParameters]) = {
       val (k, endOfOp) = readKey(h, b)
       val params = if (!endOfOp) readParameters(h, b) else None
@@ -151,11 +198,17 @@ abstract class AbstractProtocolDecoder[K, V <: CacheValue] extends Decoder {
          createNotExistResponse(header, params)
    }
 
-   protected def get(header: SuitableHeader, buffer: ChannelBuffer, cache: Cache[K, V]): AnyRef = {
+   /**
+    * Reads the keys of a get request.
+    */
+   protected def readGetKeys(header: SuitableHeader, buffer: ChannelBuffer): Seq[K] = {
       val (k, endOfOp) = readKey(header, buffer)
-      createGetResponse(header, k, cache.get(k))
+      List(k)
    }
 
+   protected def get(header: SuitableHeader, keys: Seq[K], cache: Cache[K, V]): AnyRef =
+      createGetResponse(header, keys.head, cache.get(keys.head))
+
    override def exceptionCaught(ctx: ChannelHandlerContext, e: ExceptionEvent) {
       error("Exception reported", e.getCause)
       val ch = ctx.getChannel
@@ -200,8 +253,12 @@ abstract class AbstractProtocolDecoder[K, V <: CacheValue] extends Decoder {
 
    protected def createStatsResponse(h: SuitableHeader, stats: Stats): AnyRef
 
+   /**
+    * Reads a protocol specific request off the buffer and returns it ready to be executed. The returned request must
+    * not read from the buffer, since it might be executed by a thread other than the one decoding.
+    */
    protected def handleCustomRequest(h: SuitableHeader, b: ChannelBuffer, cache: Cache[K, V],
-                                     ctx: ChannelHandlerContext): AnyRef
+                                     ctx: ChannelHandlerContext): Request
 
    protected def createServerException(e: Exception, h: Option[SuitableHeader], b: ChannelBuffer): (Exception, Boolean)
 
@@ -236,6 +293,24 @@ abstract class AbstractProtocolDecoder[K, V <: CacheValue] extends Decoder {
 object AbstractProtocolDecoder extends Logging {
    private val SecondsInAMonth = 60 * 60 * 24 * 30
    private val DefaultTimeUnit = TimeUnit.MILLISECONDS 
+
+   /**
+    * Returns true if all the given keys are held in memory by the cache, in which case reading them does not
+    * involve any remote call nor cache store access.
+    */
+   def isLocalRead(cache: Cache[_, _], keys: Iterable[Any]): Boolean = {
+      val dataContainer = cache.getAdvancedCache.getDataContainer
+      keys.forall(k => dataContainer.containsKey(k.asInstanceOf[AnyRef]))
+   }
+}
+
+/**
+ * A request whose input has been completely read off the wire, ready to be executed against the cache. Non-blocking
+ * requests, such as reads of entries held in memory, are cheap enough to be executed by the I/O thread that read
+ * them.
+ */
+class Request(val isNonBlocking: Boolean, execution: => AnyRef) {
+   def execute: AnyRef = execution
 }
 
 class RequestHeader(val op: Enumeration#Value) {
@@ -21,6 +21,7 @@ abstract class AbstractProtocolServer(threadNamePrefix: String) extends Protocol
    protected var masterThreads: Int = _
    protected var workerThreads: Int = _
    protected var transport: Transport = _
+   protected var requestExecutor: RequestExecutor = _
    protected var cacheManager: EmbeddedCacheManager = _
 
    def start(properties: Properties, cacheManager: EmbeddedCacheManager, defaultPort: Int) {
@@ -57,12 +58,27 @@ abstract class AbstractProtocolServer(threadNamePrefix: String) extends Protocol
             throw new IllegalArgumentException("Send buffer size can't be lower than 0: " + sendBufSize)
          }
 
+         val requestThreads = typedProps.getIntProperty(PROP_KEY_REQUEST_THREADS, REQUEST_THREADS_DEFAULT, true)
+         if (requestThreads < 0)
+            throw new IllegalArgumentException("Request threads can't be lower than 0: " + requestThreads)
+
+         val requestQueueSize = typedProps.getIntProperty(PROP_KEY_REQUEST_QUEUE_SIZE, REQUEST_QUEUE_SIZE_DEFAULT, true)
+         if (requestQueueSize <= 0)
+            throw new IllegalArgumentException("Request queue size must be greater than 0: " + requestQueueSize)
+
+         val inlineLocalReads = typedProps.getBooleanProperty(PROP_KEY_INLINE_LOCAL_READS, INLINE_LOCAL_READS_DEFAULT, true)
+
          if (isDebugEnabled) {
             debug("Starting server with basic settings: host={0}, port={1}, masterThreads={2}, workerThreads={3}, " +
-                  "idleTimeout={4}, tcpNoDelay={5}, sendBufSize={6}, recvBufSize={7}", host, port,
-                  masterThreads, workerThreads, idleTimeout, tcpNoDelay, sendBufSize, recvBufSize)
+                  "idleTimeout={4}, tcpNoDelay={5}, sendBufSize={6}, recvBufSize={7}, requestThreads={8}, " +
+                  "requestQueueSize={9}, inlineLocalReads={10}", host, port, masterThreads, workerThreads,
+                  idleTimeout, tcpNoDelay, sendBufSize, recvBufSize, requestThreads, requestQueueSize, inlineLocalReads)
          }
 
+         // With no request threads, requests are executed by the I/O worker threads
+         if (requestThreads > 0)
+            requestExecutor = new RequestExecutor(requestThreads, requestQueueSize, inlineLocalReads, threadNamePrefix)
+
          // Register rank calculator before starting any cache so that we can capture all view changes
          cacheManager.addListener(getRankCalculatorListener)
          // Start default cache
@@ -95,6 +111,9 @@ abstract class AbstractProtocolServer(threadNamePrefix: String) extends Protocol
       if (transport != null)
          transport.stop
 
+      if (requestExecutor != null)
+         requestExecutor.stop
+
       if (isDebug)
          debug("Server stopped")
    }
@@ -105,5 +124,7 @@ abstract class AbstractProtocolServer(threadNamePrefix: String) extends Protocol
 
    def getPort = port
 
+   def getRequestExecutor = requestExecutor
+
    def startDefaultCache = cacheManager.getCache()
 }
@@ -29,6 +29,9 @@ object Main extends Logging {
    val PROP_KEY_TCP_NO_DELAY = "infinispan.server.tcp_no_delay"
    val PROP_KEY_SEND_BUF_SIZE = "infinispan.server.send_buf_size"
    val PROP_KEY_RECV_BUF_SIZE = "infinispan.server.recv_buf_size"
+   val PROP_KEY_REQUEST_THREADS = "infinispan.server.request_threads"
+   val PROP_KEY_REQUEST_QUEUE_SIZE = "infinispan.server.request_queue_size"
+   val PROP_KEY_INLINE_LOCAL_READS = "infinispan.server.inline_local_reads"
    val PROP_KEY_PROXY_HOST = "infinispan.server.proxy_host"
    val PROP_KEY_PROXY_PORT = "infinispan.server.proxy_port"
    val PROP_KEY_TOPOLOGY_LOCK_TIMEOUT = "infinispan.server.topology.lock_timeout"
@@ -41,6 +44,9 @@ object Main extends Logging {
    val TCP_NO_DELAY_DEFAULT = true
    val SEND_BUF_SIZE_DEFAULT = 0
    val RECV_BUF_SIZE_DEFAULT = 0
+   val REQUEST_THREADS_DEFAULT = 0
+   val REQUEST_QUEUE_SIZE_DEFAULT = 1024
+   val INLINE_LOCAL_READS_DEFAULT = true
    val TOPO_LOCK_TIMEOUT_DEFAULT = 10000L
    val TOPO_REPL_TIMEOUT_DEFAULT = 10000L
    val TOPO_STATE_TRANSFER_DEFAULT = true
@@ -123,7 +129,7 @@ object Main extends Logging {
    }
 
    private def processCommandLine(args: Array[String]) {
-      val sopts = "-:hD:Vp:l:m:t:c:r:i:n:s:e:o:x:k:u:a:"
+      val sopts = "-:hD:Vp:l:m:t:c:r:i:n:s:e:o:x:k:u:a:q:w:j:"
       val lopts = Array(
          new LongOpt("help", LongOpt.NO_ARGUMENT, null, 'h'),
          new LongOpt("version", LongOpt.NO_ARGUMENT, null, 'V'),
@@ -140,7 +146,10 @@ object Main extends Logging {
          new LongOpt("proxy_host", LongOpt.REQUIRED_ARGUMENT, null, 'o'),
          new LongOpt("topo_lock_timeout", LongOpt.REQUIRED_ARGUMENT, null, 'k'),
          new LongOpt("topo_repl_timeout", LongOpt.REQUIRED_ARGUMENT, null, 'u'),
-         new LongOpt("topo_state_transfer", LongOpt.REQUIRED_ARGUMENT, null, 'a')
+         new LongOpt("topo_state_transfer", LongOpt.REQUIRED_ARGUMENT, null, 'a'),
+         new LongOpt("request_threads", LongOpt.REQUIRED_ARGUMENT, null, 'q'),
+         new LongOpt("request_queue_size", LongOpt.REQUIRED_ARGUMENT, null, 'w'),
+         new LongOpt("inline_local_reads", LongOpt.REQUIRED_ARGUMENT, null, 'j')
          )
       val getopt = new Getopt("startServer", args, sopts, lopts)
       var code: Int = 0
@@ -168,6 +177,9 @@ object Main extends Logging {
             case 'k' => props.setProperty(PROP_KEY_TOPOLOGY_LOCK_TIMEOUT, getopt.getOptarg)
             case 'u' => props.setProperty(PROP_KEY_TOPOLOGY_REPL_TIMEOUT, getopt.getOptarg)
             case 'a' => props.setProperty(PROP_KEY_TOPOLOGY_STATE_TRANSFER, getopt.getOptarg)
+            case 'q' => props.setProperty(PROP_KEY_REQUEST_THREADS, getopt.getOptarg)
+            case 'w' => props.setProperty(PROP_KEY_REQUEST_QUEUE_SIZE, getopt.getOptarg)
+            case 'j' => props.setProperty(PROP_KEY_INLINE_LOCAL_READS, getopt.getOptarg)
             case 'D' => {
                val arg = getopt.getOptarg
                var name = ""
@@ -246,6 +258,15 @@ object Main extends Logging {
       println("    -a, --topo_state_trasfer=          Enabling topology information state transfer means that when a server starts it retrieves this information from a different node.")
       println("          [true|false]                 Otherwise, if set to false, the topology information is lazily loaded if not available locally.")
       println
+      println("    -q, --request_threads=<num>        Number of threads executing requests against the cache, so that slow operations do not block")
+      println("                                       other connections served by the same worker thread (default: 0, requests are executed by worker threads).")
+      println
+      println("    -w, --request_queue_size=<num>     Maximum number of requests waiting for a request thread. When full, worker threads execute")
+      println("                                       requests themselves until request threads catch up (default: 1024).")
+      println
+      println("    -j, --inline_local_reads=          Whether reads of entries held in memory by the cache are executed directly by worker threads")
+      println("          [true|false]                 when no other request from the same connection is pending (default: true).")
+      println
       println("    -D<name>[=<value>]                 Set a system property")
       println
       System.exit(0)
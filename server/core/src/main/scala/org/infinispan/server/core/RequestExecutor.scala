@@ -0,0 +1,90 @@
+package org.infinispan.server.core
+
+import java.util.concurrent._
+import java.util.concurrent.atomic.{AtomicBoolean, AtomicInteger}
+
+/**
+ * Executes decoded requests off the Netty I/O threads, so that a cache operation blocking on a synchronous
+ * replication or a cache store write does not stall every other connection handled by the same I/O thread.
+ *
+ * Requests are executed by a bounded pool of threads fed through a bounded queue. When the queue is full, the
+ * I/O thread submitting the request executes it itself, which stops it from reading further requests until the
+ * pool catches up.
+ *
+ * @since 5.0
+ */
+class RequestExecutor(threads: Int, queueSize: Int, val isInlineLocalReads: Boolean, threadNamePrefix: String)
+      extends Logging {
+
+   if (threads <= 0)
+      throw new IllegalArgumentException("Request threads must be greater than 0: " + threads)
+   if (queueSize <= 0)
+      throw new IllegalArgumentException("Request queue size must be greater than 0: " + queueSize)
+
+   private val executor = {
+      val threadFactory = new ThreadFactory {
+         private val threadCounter = new AtomicInteger
+         override def newThread(r: Runnable): Thread = {
+            val t = new Thread(r, threadNamePrefix + "ServerRequest-" + threadCounter.incrementAndGet)
+            t.setDaemon(true)
+            t
+         }
+      }
+      if (isDebugEnabled) debug("Configured {0} threads and a queue of {1} requests for request execution", threads, queueSize)
+      new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue[Runnable](queueSize),
+         threadFactory, new ThreadPoolExecutor.CallerRunsPolicy)
+   }
+
+   /**
+    * Creates a queue executing the requests read from a single connection one after the other, in the order they
+    * were received, so that responses are sent back in the order the client expects them.
+    */
+   def newConnectionQueue: ConnectionRequestQueue = new ConnectionRequestQueue(executor)
+
+   def stop {
+      executor.shutdown
+      if (!executor.awaitTermination(30, TimeUnit.SECONDS))
+         warn("Some requests were still being executed after 30 seconds, carrying on with shutdown")
+   }
+}
+
+/**
+ * Serialises the execution of the requests received from a single connection on top of the shared request pool.
+ * At most one pool thread executes requests for a given connection at any time.
+ */
+class ConnectionRequestQueue private[core] (executor: Executor) {
+   private val pending = new ConcurrentLinkedQueue[Runnable]
+   private val scheduled = new AtomicBoolean
+
+   private val drainer = new Runnable {
+      override def run {
+         try {
+            var request = pending.poll
+            while (request != null) {
+               request.run
+               request = pending.poll
+            }
+         } finally {
+            scheduled.set(false)
+            // A request might have been added after the last poll but before the flag was cleared
+            schedule
+         }
+      }
+   }
+
+   def execute(request: Runnable) {
+      pending.add(request)
+      schedule
+   }
+
+   /**
+    * Returns true when no request from this connection is queued or being executed, in which case a request can be
+    * executed by the calling thread without overtaking any earlier request.
+    */
+   def isIdle: Boolean = !scheduled.get && pending.isEmpty
+
+   private def schedule {
+      if (!pending.isEmpty && scheduled.compareAndSet(false, true))
+         executor.execute(drainer)
+   }
+}
@@ -50,7 +50,7 @@ class NettyTransport(server: ProtocolServer, encoder: ChannelDownstreamHandler,
       }
       else {
          if (isDebugEnabled) debug("Configured {0} threads for worker thread pool", workerThreads)
-         Executors.newFixedThreadPool(masterThreads)
+         Executors.newFixedThreadPool(workerThreads)
       }
    }
 
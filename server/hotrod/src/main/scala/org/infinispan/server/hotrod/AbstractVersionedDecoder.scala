@@ -2,6 +2,7 @@ package org.infinispan.server.hotrod
 
 import org.infinispan.server.core.RequestParameters
 import org.infinispan.server.core.CacheValue
+import org.infinispan.server.core.Request
 import org.infinispan.server.core.transport.{ChannelBuffer}
 import org.infinispan.Cache
 import org.infinispan.stats.Stats
@@ -56,9 +57,9 @@ abstract class AbstractVersionedDecoder {
    def createGetResponse(header: HotRodHeader, v: CacheValue, op: Enumeration#Value): AnyRef
 
    /**
-    * Handle a protocol specific message.
+    * Read a protocol specific message, returning the request that will handle it once executed.
     */
-   def handleCustomRequest(header: HotRodHeader, buffer: ChannelBuffer, cache: Cache[ByteArrayKey, CacheValue]): AnyRef
+   def handleCustomRequest(header: HotRodHeader, buffer: ChannelBuffer, cache: Cache[ByteArrayKey, CacheValue]): Request
 
    /**
     * Create a response for the stats command.
@@ -117,43 +117,48 @@ object Decoder10 extends AbstractVersionedDecoder with Logging {
             h.topologyId, None, 0)
    }
 
-   override def handleCustomRequest(h: HotRodHeader, buffer: ChannelBuffer, cache: Cache[ByteArrayKey, CacheValue]): AnyRef = {
+   override def handleCustomRequest(h: HotRodHeader, buffer: ChannelBuffer, cache: Cache[ByteArrayKey, CacheValue]): Request = {
       h.op match {
          case RemoveIfUnmodifiedRequest => {
             val k = readKey(buffer)
             val params = readParameters(h, buffer)
-            val prev = cache.get(k)
-            if (prev != null) {
-               if (prev.version == params.get.streamVersion) {
-                  val removed = cache.remove(k, prev);
-                  if (removed)
-                     createResponse(h, RemoveIfUnmodifiedResponse, Success, prev)
-                  else
+            new Request(false, {
+               val prev = cache.get(k)
+               if (prev != null) {
+                  if (prev.version == params.get.streamVersion) {
+                     val removed = cache.remove(k, prev);
+                     if (removed)
+                        createResponse(h, RemoveIfUnmodifiedResponse, Success, prev)
+                     else
+                        createResponse(h, RemoveIfUnmodifiedResponse, OperationNotExecuted, prev)
+                  } else {
                      createResponse(h, RemoveIfUnmodifiedResponse, OperationNotExecuted, prev)
+                  }
                } else {
-                  createResponse(h, RemoveIfUnmodifiedResponse, OperationNotExecuted, prev)
+                  createResponse(h, RemoveIfUnmodifiedResponse, KeyDoesNotExist, prev)
                }
-            } else {
-               createResponse(h, RemoveIfUnmodifiedResponse, KeyDoesNotExist, prev)
-            }
+            })
          }
          case ContainsKeyRequest => {
             val k = readKey(buffer)
-            if (cache.containsKey(k))
-               new Response(h.messageId, h.cacheName, h.clientIntel, ContainsKeyResponse, Success, h.topologyId)
-            else
-               new Response(h.messageId, h.cacheName, h.clientIntel, ContainsKeyResponse, KeyDoesNotExist, h.topologyId)
+            new Request(AbstractProtocolDecoder.isLocalRead(cache, List(k)), {
+               if (cache.containsKey(k))
+                  new Response(h.messageId, h.cacheName, h.clientIntel, ContainsKeyResponse, Success, h.topologyId)
+               else
+                  new Response(h.messageId, h.cacheName, h.clientIntel, ContainsKeyResponse, KeyDoesNotExist, h.topologyId)
+            })
          }
-         case ClearRequest => {
+         case ClearRequest => new Request(false, {
             // Get an optimised cache in case we can make the operation more efficient
             getOptimizedCache(h, cache).clear
             new Response(h.messageId, h.cacheName, h.clientIntel, ClearResponse, Success, h.topologyId)
-         }
-         case PingRequest => new Response(h.messageId, h.cacheName, h.clientIntel, PingResponse, Success, h.topologyId)
+         })
+         case PingRequest => new Request(true, new Response(h.messageId, h.cacheName, h.clientIntel, PingResponse, Success, h.topologyId))
          case BulkGetRequest => {
             val count = buffer.readUnsignedInt
             if (isTraceEnabled) trace("About to create bulk response, count = " + count)
-            new BulkGetResponse(h.messageId, h.cacheName, h.clientIntel, BulkGetResponse, Success, h.topologyId, count)
+            // Entries are only read when the response is encoded, which happens in the thread executing the request
+            new Request(false, new BulkGetResponse(h.messageId, h.cacheName, h.clientIntel, BulkGetResponse, Success, h.topologyId, count))
          }
       }
    }
@@ -110,11 +110,8 @@ class HotRodDecoder(cacheManager: EmbeddedCacheManager) extends AbstractProtocol
       null // Unsupported
 
    override def handleCustomRequest(h: HotRodHeader, b: ChannelBuffer, cache: Cache[ByteArrayKey, CacheValue],
-                                    ctx: ChannelHandlerContext): AnyRef = {
-      val result = h.decoder.handleCustomRequest(h, b, cache)
-      if (isTrace) trace("About to return: " + result)
-      result
-   }
+                                    ctx: ChannelHandlerContext): Request =
+      h.decoder.handleCustomRequest(h, b, cache)
 
    override def createStatsResponse(h: HotRodHeader, stats: Stats): AnyRef =
       h.decoder.createStatsResponse(h, stats)
@@ -37,7 +37,7 @@ class HotRodServer extends AbstractProtocolServer("HotRod") with Logging {
 
    override def getEncoder: Encoder = new HotRodEncoder(getCacheManager)
 
-   override def getDecoder: Decoder = new HotRodDecoder(getCacheManager)
+   override def getDecoder: Decoder = new HotRodDecoder(getCacheManager).setRequestExecutor(getRequestExecutor)
 
    override def start(p: Properties, cacheManager: EmbeddedCacheManager) {
       val properties = if (p == null) new Properties else p
@@ -0,0 +1,27 @@
+package org.infinispan.server.hotrod
+
+import org.testng.annotations.Test
+import test.HotRodTestingUtil._
+import test.UniquePortThreadLocal
+import org.infinispan.manager.EmbeddedCacheManager
+import org.infinispan.server.core.Main._
+import java.util.Properties
+
+/**
+ * Runs the Hot Rod functional tests with requests executed by request threads rather than by the I/O threads that
+ * read them. Local reads are not executed inline either, so that every request goes through the request threads.
+ *
+ * @since 5.0
+ */
+@Test(groups = Array("functional"), testName = "server.hotrod.HotRodRequestExecutorTest")
+class HotRodRequestExecutorTest extends HotRodFunctionalTest {
+
+   override protected def createStartHotRodServer(cacheManager: EmbeddedCacheManager) = {
+      val properties = new Properties
+      properties.setProperty(PROP_KEY_REQUEST_THREADS, "2")
+      properties.setProperty(PROP_KEY_REQUEST_QUEUE_SIZE, "4")
+      properties.setProperty(PROP_KEY_INLINE_LOCAL_READS, "false")
+      startHotRodServer(cacheManager, UniquePortThreadLocal.get.intValue, properties)
+   }
+
+}
@@ -68,18 +68,20 @@ class MemcachedDecoder(cache: Cache[String, MemcachedValue], scheduler: Schedule
 
    private def readKeys(b: ChannelBuffer): Array[String] = readLine(b).trim.split(" +")
 
-   override protected def get(h: MemcachedHeader, buffer: ChannelBuffer, cache: Cache[String, MemcachedValue]): AnyRef = {
-      val keys = readKeys(buffer)
+   override protected def readGetKeys(h: MemcachedHeader, buffer: ChannelBuffer): Seq[String] =
+      readKeys(buffer).map(checkKeyLength(h, _, true, buffer)).toList
+
+   override protected def get(h: MemcachedHeader, keys: Seq[String], cache: Cache[String, MemcachedValue]): AnyRef = {
       if (keys.length > 1) {
          val map = new HashMap[String, MemcachedValue]()
          for (k <- keys) {
-            val v = cache.get(checkKeyLength(h, k, true, buffer))
+            val v = cache.get(k)
             if (v != null)
                map += (k -> v)
          }
          createMultiGetResponse(h, new immutable.HashMap ++ map)
       } else {
-         createGetResponse(h, keys.head, cache.get(checkKeyLength(h, keys.head, true, buffer)))
+         createGetResponse(h, keys.head, cache.get(keys.head))
       }
    }
 
@@ -228,69 +230,76 @@ class MemcachedDecoder(cache: Cache[String, MemcachedValue], scheduler: Schedule
    override def getCache(h: MemcachedHeader): Cache[String, MemcachedValue] = cache
 
    override def handleCustomRequest(h: MemcachedHeader, b: ChannelBuffer, cache: Cache[String, MemcachedValue],
-                                    ctx: ChannelHandlerContext): AnyRef = {
+                                    ctx: ChannelHandlerContext): Request = {
       h.op match {
          case AppendRequest | PrependRequest => {
             val (k, params) = readKeyAndParams(h, b)
-            val prev = cache.get(k)
-            if (prev != null) {
-               val concatenated = h.op match {
-                  case AppendRequest => concat(prev.data, params.get.data);
-                  case PrependRequest => concat(params.get.data, prev.data);
-               }
-               val next = createValue(concatenated, generateVersion(cache), params.get.flags)
-               val replaced = cache.replace(k, prev, next);
-               if (replaced)
-                  if (!params.get.noReply) STORED else null
-               else // If there's a concurrent modification on this key, treat it as we couldn't replace it
+            new Request(false, {
+               val prev = cache.get(k)
+               if (prev != null) {
+                  val concatenated = h.op match {
+                     case AppendRequest => concat(prev.data, params.get.data);
+                     case PrependRequest => concat(params.get.data, prev.data);
+                  }
+                  val next = createValue(concatenated, generateVersion(cache), params.get.flags)
+                  val replaced = cache.replace(k, prev, next);
+                  if (replaced)
+                     if (!params.get.noReply) STORED else null
+                  else // If there's a concurrent modification on this key, treat it as we couldn't replace it
+                     if (!params.get.noReply) NOT_STORED else null
+               } else {
                   if (!params.get.noReply) NOT_STORED else null
-            } else {
-               if (!params.get.noReply) NOT_STORED else null
-            }
+               }
+            })
          }
          case IncrementRequest | DecrementRequest => {
             val (k, params) = readKeyAndParams(h, b)
-            val prev = cache.get(k)
-            if (prev != null) {
-               val prevCounter = BigInt(new String(prev.data))
-               val delta = validateDelta(params.get.delta)
-               val newCounter =
-                  h.op match {
-                     case IncrementRequest => {
-                        val candidateCounter = prevCounter + delta
-                        if (candidateCounter > MAX_UNSIGNED_LONG) 0 else candidateCounter
-                     }
-                     case DecrementRequest => {
-                        val candidateCounter = prevCounter - delta
-                        if (candidateCounter < 0) 0 else candidateCounter
+            new Request(false, {
+               val prev = cache.get(k)
+               if (prev != null) {
+                  val prevCounter = BigInt(new String(prev.data))
+                  val delta = validateDelta(params.get.delta)
+                  val newCounter =
+                     h.op match {
+                        case IncrementRequest => {
+                           val candidateCounter = prevCounter + delta
+                           if (candidateCounter > MAX_UNSIGNED_LONG) 0 else candidateCounter
+                        }
+                        case DecrementRequest => {
+                           val candidateCounter = prevCounter - delta
+                           if (candidateCounter < 0) 0 else candidateCounter
+                        }
                      }
+                  val next = createValue(newCounter.toString.getBytes, generateVersion(cache), params.get.flags)
+                  val replaced = cache.replace(k, prev, next)
+                  if (replaced) {
+                     if (isStatsEnabled) if (h.op == IncrementRequest) incrHits.incrementAndGet() else decrHits.incrementAndGet
+                     if (!params.get.noReply) new String(next.data) + CRLF else null
+                  } else {
+                     // If there's a concurrent modification on this key, the spec does not say what to do, so treat it as exceptional
+                     throw new CacheException("Value modified since we retrieved from the cache, old value was " + prevCounter)
                   }
-               val next = createValue(newCounter.toString.getBytes, generateVersion(cache), params.get.flags)
-               val replaced = cache.replace(k, prev, next)
-               if (replaced) {
-                  if (isStatsEnabled) if (h.op == IncrementRequest) incrHits.incrementAndGet() else decrHits.incrementAndGet
-                  if (!params.get.noReply) new String(next.data) + CRLF else null
                } else {
-                  // If there's a concurrent modification on this key, the spec does not say what to do, so treat it as exceptional
-                  throw new CacheException("Value modified since we retrieved from the cache, old value was " + prevCounter)
+                  if (isStatsEnabled) if (h.op == IncrementRequest) incrMisses.incrementAndGet() else decrMisses.incrementAndGet
+                  if (!params.get.noReply) NOT_FOUND else null
                }
-            } else {
-               if (isStatsEnabled) if (h.op == IncrementRequest) incrMisses.incrementAndGet() else decrMisses.incrementAndGet
-               if (!params.get.noReply) NOT_FOUND else null
-            }
+            })
          }
          case FlushAllRequest => {
             val params = readParameters(h, b)
-            val flushFunction = (cache: AdvancedCache[String, MemcachedValue]) => cache.withFlags(Flag.CACHE_MODE_LOCAL, Flag.SKIP_CACHE_STORE).clear
-            val flushDelay = if (params == None) 0 else params.get.flushDelay
-            if (flushDelay == 0)
-               flushFunction(cache.getAdvancedCache)
-            else
-               scheduler.schedule(new DelayedFlushAll(cache, flushFunction), toMillis(flushDelay), TimeUnit.MILLISECONDS)
-            if (params == None || !params.get.noReply) OK else null
+            new Request(false, {
+               val flushFunction = (cache: AdvancedCache[String, MemcachedValue]) => cache.withFlags(Flag.CACHE_MODE_LOCAL, Flag.SKIP_CACHE_STORE).clear
+               val flushDelay = if (params == None) 0 else params.get.flushDelay
+               if (flushDelay == 0)
+                  flushFunction(cache.getAdvancedCache)
+               else
+                  scheduler.schedule(new DelayedFlushAll(cache, flushFunction), toMillis(flushDelay), TimeUnit.MILLISECONDS)
+               if (params == None || !params.get.noReply) OK else null
+            })
          }
-         case VersionRequest => new StringBuilder().append("VERSION ").append(Version.VERSION).append(CRLF)
-         case QuitRequest => ctx.getChannel.close
+         case VersionRequest => new Request(true, new StringBuilder().append("VERSION ").append(Version.VERSION).append(CRLF))
+         // Closing is queued like any other request so that responses to earlier requests are sent first
+         case QuitRequest => new Request(true, ctx.getChannel.close)
       }
    }
 
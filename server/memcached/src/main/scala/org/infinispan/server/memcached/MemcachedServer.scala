@@ -24,7 +24,8 @@ class MemcachedServer extends AbstractProtocolServer("Memcached") {
 
    override def getEncoder: Encoder = null
 
-   override def getDecoder: Decoder = new MemcachedDecoder(getCacheManager.getCache[String, MemcachedValue], scheduler)
+   override def getDecoder: Decoder =
+      new MemcachedDecoder(getCacheManager.getCache[String, MemcachedValue], scheduler).setRequestExecutor(getRequestExecutor)
 
    override def stop {
       super.stop
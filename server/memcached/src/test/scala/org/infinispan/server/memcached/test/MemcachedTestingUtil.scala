@@ -57,7 +57,7 @@ trait MemcachedTestingUtil {
    def startMemcachedTextServer(cacheManager: EmbeddedCacheManager, port: Int, cacheName: String): MemcachedServer = {
       val server = new MemcachedServer {
          override def getDecoder: Decoder =
-            new MemcachedDecoder(getCacheManager.getCache[String, MemcachedValue](cacheName), scheduler)
+            new MemcachedDecoder(getCacheManager.getCache[String, MemcachedValue](cacheName), scheduler).setRequestExecutor(getRequestExecutor)
 
          override def startDefaultCache = getCacheManager.getCache(cacheName)
       }